@@ -0,0 +1,136 @@
+package com.bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеры основных операций BankService по сетке параметров: число счетов и перекос нагрузки
+ * на "горячие" счета; число потоков задаётся ключом JMH -t.
+ * Выделение памяти на операцию - профилировщиком -prof gc (gc.alloc.rate.norm), результаты для сравнения
+ * между сборками - ключом -rf json.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="BankBenchmark -t 4 -prof gc -rf json"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BankBenchmark {
+    private static final long INITIAL_BALANCE = Money.fromDouble(1_000_000.0);
+    private static final int HISTORY_LENGTH = 8;
+
+    // HOT: 90% операций приходится на 1% счетов
+    public enum Skew {
+        UNIFORM,
+        HOT
+    }
+
+    @Param({"10000", "1000000"})
+    int accounts;
+
+    @Param
+    Skew skew;
+
+    private BankService bankService;
+    private int hotAccounts;
+
+    // Счета с небольшой историей, чтобы getTransactionHistory читал цепочку записей
+    @Setup(Level.Trial)
+    public void prepare() {
+        bankService = new BankService(0, 0);
+        for (int id = 0; id < accounts; id++) {
+            bankService.createAccountCents(INITIAL_BALANCE);
+        }
+        for (int k = 1; k < HISTORY_LENGTH; k++) {
+            for (int id = 0; id < accounts; id++) {
+                bankService.depositCents(id, k);
+            }
+        }
+        hotAccounts = Math.max(2, accounts / 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void check() {
+        bankService.checkAggregates();
+    }
+
+    // createAccount меряется на отдельном сервисе, новом на каждую итерацию, чтобы не раздувать общий
+    @State(Scope.Benchmark)
+    public static class Creation {
+        BankService bankService;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            bankService = new BankService(0, 0);
+        }
+    }
+
+    @Benchmark
+    public void getAccount(Blackhole blackhole) {
+        blackhole.consume(bankService.getAccount(pick()));
+    }
+
+    @Benchmark
+    public void getTransactionHistory(Blackhole blackhole) {
+        blackhole.consume(bankService.getTransactionHistory(pick()));
+    }
+
+    @Benchmark
+    public long getTotalBankBalance() {
+        return bankService.getTotalBankBalanceCents();
+    }
+
+    @Benchmark
+    public void deposit() {
+        bankService.depositCents(pick(), 1);
+    }
+
+    @Benchmark
+    public void withdraw() {
+        bankService.withdrawCents(pick(), 1);
+    }
+
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        int from = pick();
+        int to = pick();
+        if (to == from) {
+            to = from + 1 == accounts ? 0 : from + 1;
+        }
+        try {
+            bankService.transferCents(from, to, 1);
+        } catch (InsufficientFundsException e) {
+            // при горячих счетах баланс блуждает, отказ тоже операция
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public int createAccount(Creation creation) {
+        return creation.bankService.createAccountCents(INITIAL_BALANCE);
+    }
+
+    private int pick() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (skew == Skew.HOT && random.nextInt(10) != 0) {
+            return random.nextInt(hotAccounts);
+        }
+        return random.nextInt(accounts);
+    }
+}
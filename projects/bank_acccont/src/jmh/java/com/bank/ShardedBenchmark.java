@@ -0,0 +1,130 @@
+package com.bank;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность шардов с одним писателем против синхронных вызовов BankService из нескольких потоков.
+ * Вызывающий поток отправляет операции окнами по WINDOW и ждёт окно целиком; счёт JMH - в операциях.
+ * Нагрузки: пополнения по всем счетам, переводы по всем счетам (7/8 межшардовых при 8 шардах),
+ * переводы между HOT_ACCOUNTS горячими счетами.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.args="ShardedBenchmark -t 4"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class ShardedBenchmark {
+    private static final int WINDOW = 256;
+    private static final int HOT_ACCOUNTS = 16;
+
+    public enum Load {
+        DEPOSIT,
+        TRANSFER,
+        HOT_TRANSFER
+    }
+
+    public enum Execution {
+        SYNCHRONOUS,
+        SHARDED
+    }
+
+    @Param("100000")
+    int accounts;
+
+    @Param
+    Load load;
+
+    @Param
+    Execution execution;
+
+    private BankService bankService;
+    private ShardedBankService sharded;
+    private int range;
+
+    // Новый сервис на каждую итерацию: журнал без архива растёт на две записи на перевод и за несколько итераций
+    // упирается в память вне кучи
+    @Setup(Level.Iteration)
+    public void prepare() {
+        bankService = new BankService(accounts, 1_000_000.0);
+        if (execution == Execution.SHARDED) {
+            sharded = ShardedBankService.start(bankService, ShardedBankService.MAX_SHARDS);
+        }
+        range = load == Load.HOT_TRANSFER ? HOT_ACCOUNTS : accounts;
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        if (sharded != null) {
+            sharded.close();
+        }
+        bankService.checkAggregates();
+    }
+
+    @State(Scope.Thread)
+    public static class Window {
+        final CompletableFuture<?>[] results = new CompletableFuture<?>[WINDOW];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public void window(Window window, Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] results = window.results;
+        for (int i = 0; i < WINDOW; i++) {
+            int from = random.nextInt(range);
+            int to = (from + 1 + random.nextInt(range - 1)) % range;
+            results[i] = call(from, to, blackhole);
+        }
+        for (int i = 0; i < WINDOW; i++) {
+            if (results[i] != null) {
+                try {
+                    results[i].join();
+                } catch (CompletionException e) {
+                    // отказ - тоже операция
+                    blackhole.consume(e);
+                }
+                results[i] = null;
+            }
+        }
+    }
+
+    private CompletableFuture<Void> call(int from, int to, Blackhole blackhole) {
+        if (sharded != null) {
+            return load == Load.DEPOSIT ? sharded.deposit(from, 1) : sharded.transfer(from, to, 1);
+        }
+        try {
+            if (load == Load.DEPOSIT) {
+                bankService.depositCents(from, 1);
+            } else {
+                bankService.transferCents(from, to, 1);
+            }
+        } catch (InsufficientFundsException e) {
+            // отказ - тоже операция
+            blackhole.consume(e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+package com.bank;
+
+import java.util.Date;
+
+public class Account {
+    private int id;
+    // Баланс в копейках
+    private long balance;
+    private double annualInterestRate;
+    private Date dateCreated;
+
+    // Безаргументный конструктор
+    public Account() {
+        this.id = 0;
+        this.balance = 0;
+        this.annualInterestRate = 0;
+        this.dateCreated = new Date();
+    }
+
+    // Конструктор с id и балансом
+    public Account(int id, double balance) {
+        this.id = id;
+        this.balance = Money.fromDouble(balance);
+        this.annualInterestRate = 0;
+        this.dateCreated = new Date();
+    }
+
+    // Конструктор со всеми полями (снимок счёта из хранилища)
+    public Account(int id, long balanceCents, double annualInterestRate, Date dateCreated) {
+        this.id = id;
+        this.balance = balanceCents;
+        this.annualInterestRate = annualInterestRate;
+        this.dateCreated = dateCreated;
+    }
+
+    // Геттеры и сеттеры
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public double getBalance() {
+        return Money.toDouble(balance);
+    }
+
+    public long getBalanceCents() {
+        return balance;
+    }
+
+    public void setBalance(double balance) {
+        this.balance = Money.fromDouble(balance);
+    }
+
+    public void setBalanceCents(long balanceCents) {
+        this.balance = balanceCents;
+    }
+
+    public double getAnnualInterestRate() {
+        return annualInterestRate;
+    }
+
+    public void setAnnualInterestRate(double annualInterestRate) {
+        this.annualInterestRate = annualInterestRate;
+    }
+
+    public Date getDateCreated() {
+        return dateCreated;
+    }
+
+    // Ежемесячный процент
+    public double getMonthlyInterest() {
+        return Money.toDouble(getMonthlyInterestCents());
+    }
+
+    // Ежемесячный процент в копейках, без погрешности double
+    public long getMonthlyInterestCents() {
+        return Money.monthlyInterest(balance, Money.rateToBasisPoints(annualInterestRate));
+    }
+
+    // Снятие денег
+    public void withdraw(double amount) {
+        withdrawCents(Money.fromDouble(amount));
+    }
+
+    public void withdrawCents(long amount) {
+        long start = BankMetrics.start();
+        boolean success = amount > 0 && amount <= balance;
+        if (success) {
+            balance = Money.subtract(balance, amount);
+        } else {
+            if (amount > balance) {
+                BankMetrics.ACCOUNTS.insufficientFunds();
+            }
+            System.out.println("Недостаточно средств или неверная сумма.");
+        }
+        BankMetrics.ACCOUNTS.record(BankMetrics.Operation.WITHDRAW, start, success);
+    }
+
+    // Пополнение счета
+    public void deposit(double amount) {
+        depositCents(Money.fromDouble(amount));
+    }
+
+    public void depositCents(long amount) {
+        long start = BankMetrics.start();
+        boolean success = amount > 0;
+        if (success) {
+            balance = Money.add(balance, amount);
+        } else {
+            System.out.println("Сумма должна быть положительной.");
+        }
+        BankMetrics.ACCOUNTS.record(BankMetrics.Operation.DEPOSIT, start, success);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.bank;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Массовый импорт счетов из CSV: номер счёта, владелец, начальный баланс[, годовая ставка в %].
+ * Файл читается блоками через FileChannel, блоки разбираются параллельно,
+ * а вставка идёт пакетами по блоку в исходном порядке строк (первый из дубликатов побеждает).
+ * Ошибочные строки не прерывают импорт и пишутся в файл отказов: "строка<TAB>причина<TAB>исходная строка".
+ */
+public class AccountImporter {
+    private static final int BLOCK_SIZE = 8 << 20;
+
+    private final BankService bankService;
+    private final int parallelism;
+
+    public AccountImporter(BankService bankService) {
+        this(bankService, Runtime.getRuntime().availableProcessors());
+    }
+
+    public AccountImporter(BankService bankService, int parallelism) {
+        this.bankService = bankService;
+        this.parallelism = parallelism;
+    }
+
+    public ImportReport importCsv(Path csv, Path rejects) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ);
+             OutputStream rejectOut = new BufferedOutputStream(Files.newOutputStream(rejects), 1 << 16)) {
+            Inserter inserter = new Inserter(rejectOut);
+            ArrayDeque<CompletableFuture<ParsedBlock>> pending = new ArrayDeque<>();
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+            boolean first = true;
+
+            while (true) {
+                int read = channel.read(buffer);
+                boolean last = read < 0;
+                if (!last && buffer.hasRemaining()) {
+                    continue;
+                }
+                byte[] data = buffer.array();
+                int end = buffer.position();
+                int cut = last ? end : lastNewline(data, end) + 1;
+                if (cut == 0 && !last) {
+                    throw new IOException("Строка длиннее " + BLOCK_SIZE + " байт");
+                }
+
+                byte[] block = Arrays.copyOf(data, cut);
+                boolean header = first;
+                pending.add(CompletableFuture.supplyAsync(() -> ParsedBlock.parse(block, header), parsers));
+                first = false;
+                while (pending.size() > parallelism * 2) {
+                    inserter.insert(pending.poll().join());
+                }
+
+                // Остаток неполной строки переносится в начало буфера
+                System.arraycopy(data, cut, data, 0, end - cut);
+                buffer.position(end - cut);
+                if (last) {
+                    break;
+                }
+            }
+            while (!pending.isEmpty()) {
+                inserter.insert(pending.poll().join());
+            }
+            return new ImportReport(inserter.rows, inserter.imported, inserter.rejected, System.nanoTime() - start);
+        } finally {
+            parsers.shutdown();
+        }
+    }
+
+    private static int lastNewline(byte[] data, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (data[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Последовательная вставка разобранных блоков
+    private class Inserter {
+        private final OutputStream rejectOut;
+        private long lines;
+        private long rows;
+        private long imported;
+        private long rejected;
+
+        Inserter(OutputStream rejectOut) {
+            this.rejectOut = rejectOut;
+        }
+
+        void insert(ParsedBlock block) {
+            NamePool names = bankService.getOwnerNames();
+            long[] ownerNames = new long[block.count];
+            for (int k = 0; k < block.count; k++) {
+                ownerNames[k] = names.add(block.data, block.nameStart[k], block.nameLength[k]);
+            }
+            int[] ids = new int[block.count];
+            imported += bankService.createAccounts(block.count, block.numbers, ownerNames,
+                    block.balances, block.rates, ids);
+
+            // Отказы разбора и дубликаты выводятся в порядке строк
+            int r = 0;
+            for (int k = 0; k <= block.count; k++) {
+                int line = k < block.count ? block.lines[k] : Integer.MAX_VALUE;
+                while (r < block.rejectCount && block.rejectLines[r] < line) {
+                    reject(block, block.rejectLines[r], block.rejectReasons[r], block.rejectStart[r], block.rejectEnd[r]);
+                    r++;
+                }
+                if (k < block.count && ids[k] == AccountNumberIndex.NOT_FOUND) {
+                    reject(block, line, "дубликат номера счёта", block.lineStart[k], block.lineEnd[k]);
+                }
+            }
+            rows += block.count + block.rejectCount;
+            lines += block.lineCount;
+        }
+
+        private void reject(ParsedBlock block, int line, String reason, int start, int end) {
+            rejected++;
+            try {
+                rejectOut.write(Long.toString(lines + line).getBytes(StandardCharsets.US_ASCII));
+                rejectOut.write('\t');
+                rejectOut.write(reason.getBytes(StandardCharsets.UTF_8));
+                rejectOut.write('\t');
+                rejectOut.write(block.data, start, end - start);
+                rejectOut.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Результат разбора одного блока: колонки принятых строк и список отказов
+    private static final class ParsedBlock {
+        final byte[] data;
+        int lineCount;
+        int count;
+        long[] numbers;
+        long[] balances;
+        long[] rates;
+        int[] nameStart;
+        int[] nameLength;
+        int[] lines;
+        int[] lineStart;
+        int[] lineEnd;
+        int rejectCount;
+        int[] rejectLines = new int[16];
+        String[] rejectReasons = new String[16];
+        int[] rejectStart = new int[16];
+        int[] rejectEnd = new int[16];
+
+        private ParsedBlock(byte[] data, int capacity) {
+            this.data = data;
+            numbers = new long[capacity];
+            balances = new long[capacity];
+            rates = new long[capacity];
+            nameStart = new int[capacity];
+            nameLength = new int[capacity];
+            lines = new int[capacity];
+            lineStart = new int[capacity];
+            lineEnd = new int[capacity];
+        }
+
+        static ParsedBlock parse(byte[] data, boolean mayHaveHeader) {
+            ParsedBlock block = new ParsedBlock(data, data.length / 16 + 16);
+            ByteChars chars = new ByteChars();
+            int[] fieldEnds = new int[4];
+            int position = 0;
+            while (position < data.length) {
+                int start = position;
+                int end = start;
+                while (end < data.length && data[end] != '\n') {
+                    end++;
+                }
+                position = end + 1;
+                int line = ++block.lineCount;
+                if (end > start && data[end - 1] == '\r') {
+                    end--;
+                }
+                if (end == start) {
+                    continue;
+                }
+
+                int fields = 0;
+                for (int i = start; i < end && fields < fieldEnds.length; i++) {
+                    if (data[i] == ',') {
+                        fieldEnds[fields++] = i;
+                    }
+                }
+                if (fields < fieldEnds.length) {
+                    fieldEnds[fields++] = end;
+                }
+                if (fields < 3 || fieldEnds[fields - 1] != end) {
+                    block.reject(line, "неверное число полей", start, end);
+                    continue;
+                }
+
+                long number = AccountNumberIndex.parse(chars.wrap(data, start, fieldEnds[0]), 0, fieldEnds[0] - start);
+                if (number < 0) {
+                    if (!(mayHaveHeader && line == 1)) {
+                        block.reject(line, "неверный номер счёта", start, end);
+                    }
+                    continue;
+                }
+                int nameFrom = fieldEnds[0] + 1;
+                int nameTo = fieldEnds[1];
+                while (nameFrom < nameTo && data[nameFrom] == ' ') {
+                    nameFrom++;
+                }
+                while (nameTo > nameFrom && data[nameTo - 1] == ' ') {
+                    nameTo--;
+                }
+                if (nameFrom == nameTo || nameTo - nameFrom > NamePool.MAX_LENGTH) {
+                    block.reject(line, "неверное имя владельца", start, end);
+                    continue;
+                }
+                long balance;
+                long rate = 0;
+                try {
+                    balance = Money.parse(chars.wrap(data, fieldEnds[1] + 1, fieldEnds[2]));
+                    if (fields == 4) {
+                        // ставка в процентах с двумя знаками - это ровно базисные пункты
+                        rate = Money.parse(chars.wrap(data, fieldEnds[2] + 1, fieldEnds[3]));
+                    }
+                } catch (NumberFormatException | ArithmeticException e) {
+                    block.reject(line, "неверная сумма или ставка", start, end);
+                    continue;
+                }
+                if (balance < 0 || rate < 0) {
+                    block.reject(line, "отрицательная сумма или ставка", start, end);
+                    continue;
+                }
+
+                int k = block.count++;
+                if (k == block.numbers.length) {
+                    block.grow();
+                }
+                block.numbers[k] = number;
+                block.balances[k] = balance;
+                block.rates[k] = rate;
+                block.nameStart[k] = nameFrom;
+                block.nameLength[k] = nameTo - nameFrom;
+                block.lines[k] = line;
+                block.lineStart[k] = start;
+                block.lineEnd[k] = end;
+            }
+            return block;
+        }
+
+        private void reject(int line, String reason, int start, int end) {
+            if (rejectCount == rejectLines.length) {
+                int capacity = rejectCount * 2;
+                rejectLines = Arrays.copyOf(rejectLines, capacity);
+                rejectReasons = Arrays.copyOf(rejectReasons, capacity);
+                rejectStart = Arrays.copyOf(rejectStart, capacity);
+                rejectEnd = Arrays.copyOf(rejectEnd, capacity);
+            }
+            rejectLines[rejectCount] = line;
+            rejectReasons[rejectCount] = reason;
+            rejectStart[rejectCount] = start;
+            rejectEnd[rejectCount] = end;
+            rejectCount++;
+        }
+
+        private void grow() {
+            int capacity = numbers.length * 2;
+            numbers = Arrays.copyOf(numbers, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            rates = Arrays.copyOf(rates, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity);
+            nameLength = Arrays.copyOf(nameLength, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            lineStart = Arrays.copyOf(lineStart, capacity);
+            lineEnd = Arrays.copyOf(lineEnd, capacity);
+        }
+    }
+}
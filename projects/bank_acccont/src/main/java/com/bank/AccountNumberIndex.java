@@ -0,0 +1,129 @@
+package com.bank;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Индекс номер счёта -> id на открытой адресации по примитивным long-ключам.
+ * Не создаёт объектов при поиске и вставке. Изменения синхронизированы по самому индексу, поиск идёт без
+ * блокировок: таблица публикуется volatile-ссылкой и при росте заменяется целиком, а вставка пишет id раньше
+ * ключа (через барьер), поэтому поиск, увидевший ключ, видит и его id.
+ */
+public class AccountNumberIndex {
+    public static final int NOT_FOUND = -1;
+    // id номера, занятого под создаваемый счёт (см. BankService.insertAccounts); поиск такого номера не находит
+    public static final int RESERVED = Integer.MAX_VALUE;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+
+    public int get(long accountNumber) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+        for (int slot = slot(accountNumber, mask); ; slot = (slot + 1) & mask) {
+            long key = current.keys[slot];
+            if (key == accountNumber) {
+                VarHandle.acquireFence();
+                int id = current.values[slot];
+                return id == RESERVED ? NOT_FOUND : id;
+            }
+            if (key == EMPTY) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    // Вставка, если номера ещё нет; возвращает прежний id (или RESERVED) либо NOT_FOUND, если вставка выполнена
+    public synchronized int putIfAbsent(long accountNumber, int id) {
+        if (accountNumber < 0) {
+            throw new IllegalArgumentException("Номер счёта не может быть отрицательным");
+        }
+        if ((size + 1) * 2 > table.keys.length) {
+            resize();
+        }
+        Table current = table;
+        int mask = current.keys.length - 1;
+        int slot = slot(accountNumber, mask);
+        for (; current.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (current.keys[slot] == accountNumber) {
+                return current.values[slot];
+            }
+        }
+        current.values[slot] = id;
+        VarHandle.releaseFence();
+        current.keys[slot] = accountNumber;
+        size++;
+        return NOT_FOUND;
+    }
+
+    // Замена id у уже вставленного номера
+    public synchronized void replace(long accountNumber, int id) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+        for (int slot = slot(accountNumber, mask); current.keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (current.keys[slot] == accountNumber) {
+                VarHandle.releaseFence();
+                current.values[slot] = id;
+                return;
+            }
+        }
+        throw new IllegalStateException("Номер счёта не найден в индексе: " + accountNumber);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Номер счёта из цифр (не более 18), иначе -1
+    public static long parse(CharSequence text, int start, int end) {
+        if (start >= end || end - start > 18) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    // Новая таблица заполняется целиком и только потом публикуется; поиск по старой остаётся верным
+    private void resize() {
+        Table old = table;
+        Table grown = new Table(old.keys.length * 2);
+        int mask = grown.keys.length - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != EMPTY) {
+                int slot = slot(old.keys[i], mask);
+                while (grown.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                grown.keys[slot] = old.keys[i];
+                grown.values[slot] = old.values[i];
+            }
+        }
+        table = grown;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final int[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
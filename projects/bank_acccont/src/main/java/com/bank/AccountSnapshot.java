@@ -0,0 +1,257 @@
+package com.bank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Двоичный снимок состояния счетов.
+ * Формат: заголовок, колонки long из AccountStore подряд, затем байты пула имён владельцев
+ * слоты горячих счетов (см. HotAccount.encode) и номера записей межшардовых списаний в пути.
+ * При загрузке колонки отображаются в память, а блоки хранилища копируются из них по первому обращению.
+ * Пул имён читается прямо из отображения.
+ * Снимок пишется во временный файл рядом и заменяет прежний атомарным переименованием, поэтому сбой
+ * посреди записи оставляет прежний снимок целым.
+ */
+public class AccountSnapshot {
+    private static final long MAGIC = 0x31_50_41_4E_53_4B_4E_42L; // "BNKSNAP1"
+    private static final int VERSION = 5;
+    private static final int HEADER_SIZE = 64;
+    private static final int COLUMNS = AccountStore.COLUMNS;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // Счета при записи читаются блоками: строки блока раскладываются по колонкам и пишутся в файл по месту
+    private static final int BLOCK_IDS = 1 << 14;
+
+    private final AccountStore store;
+    private final long totalBalance;
+    private final long journalSize;
+    private final LongBuffer accountNumbers;
+    private final LongBuffer ownerNames;
+    private final long[] hotSlots;
+    private final long[] transfersInTransit;
+
+    private AccountSnapshot(AccountStore store, long totalBalance, long journalSize, LongBuffer accountNumbers,
+                            LongBuffer ownerNames, long[] hotSlots, long[] transfersInTransit) {
+        this.store = store;
+        this.totalBalance = totalBalance;
+        this.journalSize = journalSize;
+        this.accountNumbers = accountNumbers;
+        this.ownerNames = ownerNames;
+        this.hotSlots = hotSlots;
+        this.transfersInTransit = transfersInTransit;
+    }
+
+    public AccountStore getStore() {
+        return store;
+    }
+
+    public long getTotalBalance() {
+        return totalBalance;
+    }
+
+    // Число записей журнала на момент снимка
+    public long getJournalSize() {
+        return journalSize;
+    }
+
+    // Слоты горячих счетов в виде HotAccount.encode
+    long[] getHotSlots() {
+        return hotSlots;
+    }
+
+    // Записи межшардовых списаний (IN_TRANSIT), не закрытых до границы журнала снимка
+    long[] getTransfersInTransit() {
+        return transfersInTransit;
+    }
+
+    // Заполнение индекса номеров прямо из отображённой колонки, без загрузки блоков хранилища
+    public void indexAccountNumbers(AccountNumberIndex index) {
+        int count = accountNumbers.limit();
+        for (int id = 0; id < count; id++) {
+            long number = accountNumbers.get(id);
+            if (number != AccountStore.NO_NUMBER) {
+                index.putIfAbsent(number, id);
+            }
+        }
+    }
+
+    // То же для индекса имён владельцев; имена читаются из пула только при первом поиске
+    public void indexOwnerNames(OwnerNameIndex index) {
+        int count = ownerNames.limit();
+        for (int id = 0; id < count; id++) {
+            index.add(ownerNames.get(id), id);
+        }
+    }
+
+    // Строка снимка: значения колонок AccountStore счёта id, row[колонка]
+    interface RowReader {
+        void read(int id, long[] row);
+    }
+
+    // Запись снимка прямо из хранилища; вызывающий отвечает за то, чтобы счета не менялись во время записи.
+    // Общий баланс считается по записанным балансам, вместе со слотами горячих счетов (hotSlots - в виде
+    // HotAccount.encode), и попадает в заголовок последним.
+    public static void write(AccountStore store, long journalSize, Path file) throws IOException {
+        write(store, new long[0], journalSize, file);
+    }
+
+    public static void write(AccountStore store, long[] hotSlots, long journalSize, Path file) throws IOException {
+        write(store.getAccountsCount(), (id, row) -> {
+            for (int column = 0; column < COLUMNS; column++) {
+                row[column] = store.get(column, id);
+            }
+        }, store.getOwnerNames(), hotSlots, new long[0], journalSize, file);
+    }
+
+    // Запись count строк из rows (см. BankService.saveSnapshot); строки читаются по одному разу, по возрастанию id.
+    // Размер пула имён берётся после строк, поэтому имена всех записанных строк попадают в снимок.
+    static void write(int count, RowReader rows, NamePool names, long[] hotSlots, long[] transfersInTransit,
+                      long journalSize, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(count, rows, names, hotSlots, transfersInTransit, journalSize, temporary, file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private static void write(int count, RowReader rows, NamePool names, long[] hotSlots, long[] transfersInTransit,
+                              long journalSize, Path temporary, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            long columnBytes = (long) count * Long.BYTES;
+            long[][] block = new long[COLUMNS][BLOCK_IDS];
+            long[] row = new long[COLUMNS];
+
+            long totalBalance = 0;
+            for (int firstId = 0; firstId < count; firstId += BLOCK_IDS) {
+                int length = Math.min(BLOCK_IDS, count - firstId);
+                for (int k = 0; k < length; k++) {
+                    rows.read(firstId + k, row);
+                    totalBalance = Money.add(totalBalance, row[AccountStore.BALANCE]);
+                    for (int column = 0; column < COLUMNS; column++) {
+                        block[column][k] = row[column];
+                    }
+                }
+                for (int column = 0; column < COLUMNS; column++) {
+                    buffer.asLongBuffer().put(block[column], 0, length);
+                    buffer.limit(length * Long.BYTES);
+                    flush(channel, buffer, HEADER_SIZE + column * columnBytes + (long) firstId * Long.BYTES);
+                }
+            }
+            channel.position(HEADER_SIZE + COLUMNS * columnBytes);
+
+            long namesSize = names.size();
+            byte[] bytes = new byte[WRITE_BUFFER_SIZE];
+            for (long from = 0; from < namesSize; from += bytes.length) {
+                int length = (int) Math.min(bytes.length, namesSize - from);
+                names.copy(from, bytes, length);
+                buffer.put(bytes, 0, length);
+                flush(channel, buffer);
+            }
+
+            // слоты: id, число слотов n, затем n пар (баланс, последняя запись)
+            for (int position = 0; position < hotSlots.length; ) {
+                long slots = hotSlots[position + 1];
+                for (int i = 0; i < slots; i++) {
+                    totalBalance = Money.add(totalBalance, hotSlots[position + 2 + 2 * i]);
+                }
+                position += 2 + 2 * (int) slots;
+            }
+            for (long[] values : new long[][]{hotSlots, transfersInTransit}) {
+                for (long value : values) {
+                    if (!buffer.hasRemaining()) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(value);
+                }
+            }
+            flush(channel, buffer);
+
+            buffer.putLong(MAGIC).putInt(VERSION).putInt(count).putLong(totalBalance).putLong(journalSize)
+                    .putLong(namesSize).putLong(hotSlots.length).putLong(transfersInTransit.length);
+            buffer.flip();
+            channel.write(buffer, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Загрузка снимка: возвращается сразу, данные счетов подтягиваются по мере обращения.
+    // Если backgroundLoad, оставшиеся блоки загружает фоновый поток.
+    public static AccountSnapshot read(Path file, boolean backgroundLoad) throws IOException {
+        return read(file, backgroundLoad, null);
+    }
+
+    // То же с холодным уровнем: блоки, которые ещё не вытеснялись в файл tiers, читаются из снимка
+    public static AccountSnapshot read(Path file, boolean backgroundLoad, AccountTiers tiers) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Файл не является снимком счетов: " + file);
+            }
+            int count = header.getInt();
+            long totalBalance = header.getLong();
+            long journalSize = header.getLong();
+            long namesSize = header.getLong();
+            int hotSize = (int) header.getLong();
+            int transfersSize = (int) header.getLong();
+
+            // Каждая колонка отображается отдельно, чтобы не упираться в предел 2 ГБ на одно отображение
+            LongBuffer[] columns = new LongBuffer[COLUMNS];
+            long columnBytes = (long) count * Long.BYTES;
+            for (int column = 0; column < COLUMNS; column++) {
+                columns[column] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                HEADER_SIZE + column * columnBytes, columnBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+
+            NamePool names = new NamePool(channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + COLUMNS * columnBytes, namesSize), namesSize);
+            long[] hotSlots = new long[hotSize];
+            long[] transfersInTransit = new long[transfersSize];
+            LongBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE + COLUMNS * columnBytes + namesSize, (long) (hotSize + transfersSize) * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            tail.get(hotSlots).get(transfersInTransit);
+
+            AccountStore store = new AccountStore(count, (firstId, length, chunk) -> {
+                for (int column = 0; column < COLUMNS; column++) {
+                    columns[column].get(firstId, chunk[column], 0, length);
+                }
+            }, names, tiers);
+            if (backgroundLoad) {
+                Thread loader = new Thread(store::loadAll, "snapshot-loader");
+                loader.setDaemon(true);
+                loader.start();
+            }
+            return new AccountSnapshot(store, totalBalance, journalSize, columns[AccountStore.ACCOUNT_NUMBER],
+                    columns[AccountStore.OWNER_NAME], hotSlots, transfersInTransit);
+        }
+    }
+
+    // Запись буфера по месту position в файле
+    private static void flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
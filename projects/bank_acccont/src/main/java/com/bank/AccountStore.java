@@ -0,0 +1,297 @@
+package com.bank;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Хранилище счетов в виде набора примитивных колонок (struct-of-arrays).
+ * Счёт - это плотный внутренний id, а не отдельный объект в куче.
+ * Колонки разбиты на блоки фиксированного размера, поэтому рост не копирует уже записанные данные.
+ * Хранилище, восстановленное из снимка, подгружает блоки по первому обращению (см. ChunkLoader).
+ * С AccountTiers в куче держится ограниченное число блоков, остальные вытесняются в файл и загружаются обратно
+ * по обращению. Создание счетов и загрузка блоков идут под ReentrantLock, а не монитором: под ней бывает
+ * чтение и запись файла холодного уровня, и виртуальный поток, ждущий её, не держит поток-носитель.
+ */
+public class AccountStore {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Колонки: баланс в копейках, ставка в базисных пунктах (см. Money), дата создания,
+    // номер последней записи счёта в журнале операций, номер счёта, ссылка на имя владельца в NamePool,
+    // конец последнего периода, за который начислены проценты (0 - не начислялись)
+    public static final int BALANCE = 0;
+    public static final int INTEREST_RATE = 1;
+    public static final int DATE_CREATED = 2;
+    public static final int LAST_RECORD = 3;
+    public static final int ACCOUNT_NUMBER = 4;
+    public static final int OWNER_NAME = 5;
+    public static final int ACCRUED_THROUGH = 6;
+    public static final int COLUMNS = 7;
+
+    // Счёт без номера (создан по id)
+    public static final long NO_NUMBER = -1;
+
+    // columns[колонка][блок][смещение]
+    private volatile long[][][] columns = new long[COLUMNS][0][];
+    private volatile int count;
+    private final ChunkLoader loader;
+    private final NamePool ownerNames;
+    private final AccountTiers tiers;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Источник данных для ещё не загруженных блоков: chunk[колонка][смещение]
+    public interface ChunkLoader {
+        void load(int firstId, int length, long[][] chunk);
+    }
+
+    public AccountStore() {
+        this(null);
+    }
+
+    // Пустое хранилище; tiers - холодный уровень или null, если все блоки остаются в куче
+    public AccountStore(AccountTiers tiers) {
+        this.loader = null;
+        this.ownerNames = new NamePool();
+        this.tiers = tiers;
+    }
+
+    // Хранилище из count счетов, блоки которых загружаются лениво через loader
+    public AccountStore(int count, ChunkLoader loader, NamePool ownerNames) {
+        this(count, loader, ownerNames, null);
+    }
+
+    public AccountStore(int count, ChunkLoader loader, NamePool ownerNames, AccountTiers tiers) {
+        int chunks = (count + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        this.columns = new long[COLUMNS][chunks][];
+        this.loader = loader;
+        this.ownerNames = ownerNames;
+        this.tiers = tiers;
+        this.count = count;
+    }
+
+    // Создание счёта, возвращает его id
+    public int createAccount(long balance, long annualInterestRate, long dateCreated) {
+        return createAccount(NO_NUMBER, NamePool.NO_NAME, balance, annualInterestRate, dateCreated);
+    }
+
+    public int createAccount(long accountNumber, long ownerName, long balance,
+                             long annualInterestRate, long dateCreated) {
+        lock.lock();
+        try {
+            int id = count;
+            write(id, accountNumber, ownerName, balance, annualInterestRate, dateCreated);
+            count = id + 1;
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Пакетное создание n счетов с одной датой создания, возвращает id первого; id идут подряд
+    public int createAccounts(int n, long[] accountNumbers, long[] ownerNames,
+                              long[] balances, long[] annualInterestRates, long dateCreated) {
+        lock.lock();
+        try {
+            int firstId = count;
+            for (int k = 0; k < n; k++) {
+                write(firstId + k, accountNumbers[k], ownerNames[k], balances[k], annualInterestRates[k],
+                        dateCreated);
+            }
+            count = firstId + n;
+            return firstId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getAccountsCount() {
+        return count;
+    }
+
+    public boolean exists(int id) {
+        return id >= 0 && id < count;
+    }
+
+    public NamePool getOwnerNames() {
+        return ownerNames;
+    }
+
+    public AccountTiers getTiers() {
+        return tiers;
+    }
+
+    public long get(int column, int id) {
+        return columnChunk(column, id >>> CHUNK_BITS)[id & CHUNK_MASK];
+    }
+
+    public void set(int column, int id, long value) {
+        int chunk = id >>> CHUNK_BITS;
+        if (tiers == null) {
+            columnChunk(column, chunk)[id & CHUNK_MASK] = value;
+            return;
+        }
+        // Блок могли вытеснить между получением ссылки и записью: тогда запись повторяется в загруженную копию.
+        // Флаг изменения ставится волатильно после записи и до проверки, см. AccountTiers.evict
+        while (true) {
+            long[] values = columnChunk(column, chunk);
+            values[id & CHUNK_MASK] = value;
+            tiers.markDirty(chunk);
+            if (columns[column][chunk] == values) {
+                return;
+            }
+        }
+    }
+
+    public long getBalance(int id) {
+        return get(BALANCE, id);
+    }
+
+    public void setBalance(int id, long balance) {
+        set(BALANCE, id, balance);
+    }
+
+    public long getAnnualInterestRate(int id) {
+        return get(INTEREST_RATE, id);
+    }
+
+    public void setAnnualInterestRate(int id, long annualInterestRate) {
+        set(INTEREST_RATE, id, annualInterestRate);
+    }
+
+    public long getDateCreated(int id) {
+        return get(DATE_CREATED, id);
+    }
+
+    public long getLastRecord(int id) {
+        return get(LAST_RECORD, id);
+    }
+
+    public void setLastRecord(int id, long record) {
+        set(LAST_RECORD, id, record);
+    }
+
+    public long getAccruedThrough(int id) {
+        return get(ACCRUED_THROUGH, id);
+    }
+
+    public void setAccruedThrough(int id, long periodEnd) {
+        set(ACCRUED_THROUGH, id, periodEnd);
+    }
+
+    public long getAccountNumber(int id) {
+        return get(ACCOUNT_NUMBER, id);
+    }
+
+    public String getOwnerName(int id) {
+        return ownerNames.get(get(OWNER_NAME, id));
+    }
+
+    // Загрузка всех ещё не загруженных блоков, например фоновым потоком после старта.
+    // С холодным уровнем в куче остаются только последние загруженные блоки.
+    public void loadAll() {
+        int chunks = columns[BALANCE].length;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            ensureLoaded(chunk);
+        }
+    }
+
+    public boolean isFullyLoaded() {
+        for (long[] chunk : columns[BALANCE]) {
+            if (chunk == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(int id, long accountNumber, long ownerName, long balance,
+                       long annualInterestRate, long dateCreated) {
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk == columns[BALANCE].length) {
+            if (tiers != null) {
+                makeRoom();
+                tiers.admitted();
+            }
+            publish(chunk, new long[COLUMNS][CHUNK_SIZE]);
+        } else {
+            ensureLoaded(chunk);
+        }
+        if (tiers != null) {
+            tiers.markDirty(chunk);
+        }
+        long[][][] current = columns;
+        int offset = id & CHUNK_MASK;
+        current[BALANCE][chunk][offset] = balance;
+        current[INTEREST_RATE][chunk][offset] = annualInterestRate;
+        current[DATE_CREATED][chunk][offset] = dateCreated;
+        current[LAST_RECORD][chunk][offset] = TransactionJournal.NO_RECORD;
+        current[ACCOUNT_NUMBER][chunk][offset] = accountNumber;
+        current[OWNER_NAME][chunk][offset] = ownerName;
+        current[ACCRUED_THROUGH][chunk][offset] = 0;
+    }
+
+    private long[] columnChunk(int column, int chunk) {
+        if (tiers != null) {
+            tiers.touch(chunk);
+        }
+        long[] values = columns[column][chunk];
+        // с холодным уровнем только что загруженный блок может быть снова вытеснен другим потоком
+        while (values == null) {
+            ensureLoaded(chunk);
+            values = columns[column][chunk];
+        }
+        return values;
+    }
+
+    private void ensureLoaded(int chunk) {
+        lock.lock();
+        try {
+            if (columns[BALANCE][chunk] != null) {
+                return;
+            }
+            long start = BankMetrics.start();
+            if (tiers != null) {
+                makeRoom();
+            }
+            // Вытесненные массивы не переиспользуются: в них ещё может писать отставший писатель
+            long[][] loaded = new long[COLUMNS][CHUNK_SIZE];
+            if (tiers == null || !tiers.load(chunk, loaded)) {
+                int firstId = chunk << CHUNK_BITS;
+                loader.load(firstId, Math.min(CHUNK_SIZE, count - firstId), loaded);
+            }
+            publish(chunk, loaded);
+            if (tiers != null) {
+                tiers.admitted();
+                tiers.loaded(start);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Вытеснение наименее часто используемых блоков, пока не освободится место под ещё один
+    private void makeRoom() {
+        while (tiers.isFull()) {
+            int victim = tiers.victim(columns[BALANCE]);
+            long[][] evicted = new long[COLUMNS][];
+            for (int column = 0; column < COLUMNS; column++) {
+                evicted[column] = columns[column][victim];
+            }
+            publish(victim, new long[COLUMNS][]);
+            tiers.evict(victim, evicted);
+        }
+    }
+
+    // Блок заполняется целиком и только потом публикуется через новый каталог блоков.
+    // Копируются только ссылки на блоки, сами данные остаются на месте. Под блокировкой lock.
+    private void publish(int chunk, long[][] values) {
+        long[][][] current = columns;
+        long[][][] copy = new long[COLUMNS][][];
+        for (int column = 0; column < COLUMNS; column++) {
+            copy[column] = Arrays.copyOf(current[column], Math.max(current[column].length, chunk + 1));
+            copy[column][chunk] = values[column];
+        }
+        columns = copy;
+    }
+}
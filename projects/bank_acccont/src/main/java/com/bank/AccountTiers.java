@@ -0,0 +1,202 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Холодный уровень хранилища счетов: ограниченное число блоков AccountStore в куче, остальные - в локальном файле.
+ * Единица вытеснения - блок хранилища (CHUNK_SIZE счетов, все колонки). Блок в файле занимает своё место
+ * по номеру блока, поэтому файл разреженный и перезаписывается на месте.
+ * Вытесняется наименее часто используемый блок; счётчики обращений сохраняются и после вытеснения
+ * и делятся пополам каждые maxResidentChunks вытеснений, так что редкие всплески не вытесняют постоянно горячие блоки.
+ * В файл пишутся только изменённые блоки; неизменённый блок из снимка снова читается из снимка.
+ * Все методы, кроме touch и markDirty, вызываются под блокировкой AccountStore.
+ */
+public class AccountTiers implements Closeable {
+    // Блоков не больше, чем помещается неотрицательных int id
+    static final int MAX_CHUNKS = 1 << (31 - AccountStore.CHUNK_BITS);
+    static final long CHUNK_BYTES = (long) AccountStore.COLUMNS * AccountStore.CHUNK_SIZE * Long.BYTES;
+
+    private final FileChannel channel;
+    private final int maxResidentChunks;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect((int) CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    // Счётчики обращений; гонки инкрементов допустимы, важен только порядок величин
+    private final int[] frequencies = new int[MAX_CHUNKS];
+    // Блок менялся с последней записи в файл; писатели ставят флаг волатильно, см. AccountStore.set
+    private final AtomicIntegerArray dirty = new AtomicIntegerArray(MAX_CHUNKS);
+    private final boolean[] spilled = new boolean[MAX_CHUNKS];
+    private int residentChunks;
+    private int evictionsSinceAging;
+
+    private final LongAdder accesses = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder spills = new LongAdder();
+    private final Histogram loadLatencies = new Histogram();
+
+    // Файл холодных блоков и бюджет кучи под блоки счетов в байтах (не меньше двух блоков)
+    public AccountTiers(Path file, long maxResidentBytes) throws IOException {
+        if (maxResidentBytes < 2 * CHUNK_BYTES) {
+            throw new IllegalArgumentException("Бюджет памяти меньше двух блоков (" + 2 * CHUNK_BYTES + " байт): "
+                    + maxResidentBytes);
+        }
+        this.maxResidentChunks = (int) Math.min(MAX_CHUNKS, maxResidentBytes / CHUNK_BYTES);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public int getMaxResidentChunks() {
+        return maxResidentChunks;
+    }
+
+    public long getMaxResidentBytes() {
+        return maxResidentChunks * CHUNK_BYTES;
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentChunks * CHUNK_BYTES;
+    }
+
+    // Обращения к блокам счетов, включая повторы после вытеснения
+    public long getAccesses() {
+        return accesses.sum();
+    }
+
+    // Загрузки блоков из файла или снимка
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long total = accesses.sum();
+        return total == 0 ? 1.0 : Math.max(0, total - misses.sum()) / (double) total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // Записи изменённых блоков в файл
+    public long getSpills() {
+        return spills.sum();
+    }
+
+    // Задержки загрузки блока в наносекундах, включая вытеснение, если оно понадобилось
+    public Histogram getLoadLatencies() {
+        return loadLatencies;
+    }
+
+    public void reset() {
+        accesses.reset();
+        misses.reset();
+        evictions.reset();
+        spills.reset();
+        loadLatencies.reset();
+    }
+
+    void touch(int chunk) {
+        frequencies[chunk]++;
+        if (BankMetrics.ENABLED) {
+            accesses.increment();
+        }
+    }
+
+    void markDirty(int chunk) {
+        dirty.set(chunk, 1);
+    }
+
+    boolean isFull() {
+        return residentChunks >= maxResidentChunks;
+    }
+
+    // Наименее часто используемый из загруженных блоков (loaded - колонка балансов каталога блоков)
+    int victim(long[][] loaded) {
+        int victim = -1;
+        for (int chunk = 0; chunk < loaded.length; chunk++) {
+            if (loaded[chunk] != null && (victim < 0 || frequencies[chunk] < frequencies[victim])) {
+                victim = chunk;
+            }
+        }
+        return victim;
+    }
+
+    void admitted() {
+        residentChunks++;
+    }
+
+    // Блок уже снят с публикации: писатель, записавший в него после этого, повторит запись в новую копию.
+    // Флаг читается после снятия, поэтому запись, оставшаяся в этой копии, либо видна здесь, либо будет повторена.
+    void evict(int chunk, long[][] columns) {
+        if (dirty.getAndSet(chunk, 0) != 0) {
+            buffer.clear();
+            LongBuffer longs = buffer.asLongBuffer();
+            for (long[] column : columns) {
+                longs.put(column);
+            }
+            try {
+                long position = chunk * CHUNK_BYTES;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Не удалось записать блок счетов " + chunk + " в файл", e);
+            }
+            spilled[chunk] = true;
+            spills.increment();
+        }
+        residentChunks--;
+        evictions.increment();
+        if (++evictionsSinceAging >= maxResidentChunks) {
+            evictionsSinceAging = 0;
+            for (int i = 0; i < MAX_CHUNKS; i++) {
+                frequencies[i] >>>= 1;
+            }
+        }
+    }
+
+    // Чтение блока из файла; false, если блок туда не записывался
+    boolean load(int chunk, long[][] columns) {
+        if (!spilled[chunk]) {
+            return false;
+        }
+        buffer.clear();
+        try {
+            long position = chunk * CHUNK_BYTES;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Файл холодных блоков обрезан");
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать блок счетов " + chunk + " из файла", e);
+        }
+        buffer.flip();
+        LongBuffer longs = buffer.asLongBuffer();
+        for (long[] column : columns) {
+            longs.get(column);
+        }
+        return true;
+    }
+
+    void loaded(long start) {
+        misses.increment();
+        if (BankMetrics.ENABLED) {
+            loadLatencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
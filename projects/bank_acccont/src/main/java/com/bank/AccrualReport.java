@@ -0,0 +1,17 @@
+package com.bank;
+
+// Итог начисления процентов
+// skipped - счета, которым проценты за пересекающийся период уже были начислены
+public record AccrualReport(long accounts, long credited, long skipped, long totalInterest, long elapsedNanos) {
+
+    public double accountsPerSecond() {
+        return elapsedNanos == 0 ? 0 : accounts * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Счетов: %,d, начислено на %,d счетов, пропущено %,d, сумма: %s, время: %d мс, "
+                        + "%,.0f счетов/с", accounts, credited, skipped, Money.toString(totalInterest),
+                elapsedNanos / 1_000_000, accountsPerSecond());
+    }
+}
@@ -0,0 +1,115 @@
+package com.bank;
+
+import java.util.Arrays;
+
+/**
+ * Контрольные точки общего баланса по журналу для запроса "общий баланс на момент t".
+ * Журнал делится на интервалы по INTERVAL_RECORDS записей; для каждого хранятся общий баланс перед ним
+ * и границы времени его записей, для групп по GROUP_INTERVALS интервалов - самое раннее время.
+ * Момент операции - её время в журнале, в ответ входят все записи со временем не позже t.
+ * Журнал почти упорядочен по времени, но не строго: начисление процентов датируется концом периода.
+ * Запрос - двоичный поиск последней точки, до которой все записи не позже t, и от неё только интервалы,
+ * где такие записи есть: целиком по разности точек или проходом по записям, если в интервале есть и более
+ * поздние. Обычно это один-два интервала, остальные пропускаются по границам времени групп.
+ * Точки достраиваются при запросе по заполненному началу журнала, каждая запись читается для них один раз.
+ */
+class BalanceCheckpoints {
+    static final int INTERVAL_BITS = 12;
+    static final int INTERVAL_RECORDS = 1 << INTERVAL_BITS;
+    private static final int GROUP_BITS = 6;
+    private static final int GROUP_INTERVALS = 1 << GROUP_BITS;
+
+    private final TransactionJournal journal;
+    // totals[k] - общий баланс по записям до интервала k; заполнено для k <= intervals
+    private long[] totals = new long[GROUP_INTERVALS + 1];
+    private long[] earliest = new long[GROUP_INTERVALS];
+    private long[] latest = new long[GROUP_INTERVALS];
+    // самое позднее время в интервалах 0..k, не убывает - по нему идёт двоичный поиск
+    private long[] latestBefore = new long[GROUP_INTERVALS];
+    private long[] groupEarliest = new long[1];
+    private int intervals;
+
+    BalanceCheckpoints(TransactionJournal journal) {
+        this.journal = journal;
+    }
+
+    // Общий баланс по всем записям журнала со временем не позже timestamp
+    synchronized long totalAt(long timestamp) {
+        extend();
+        // первый интервал, в котором есть записи позже timestamp; до него всё входит в ответ
+        int low = 0;
+        int high = intervals;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (latestBefore[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        long total = totals[low];
+        for (int k = low; k < intervals; k++) {
+            if ((k & (GROUP_INTERVALS - 1)) == 0 && groupEarliest[k >>> GROUP_BITS] > timestamp) {
+                k += GROUP_INTERVALS - 1;
+            } else if (latest[k] <= timestamp) {
+                total = Money.add(total, totals[k + 1] - totals[k]);
+            } else if (earliest[k] <= timestamp) {
+                long first = (long) k << INTERVAL_BITS;
+                total = Money.add(total, sum(first, first + INTERVAL_RECORDS, timestamp));
+            }
+        }
+        // незавершённый интервал в конце журнала - по записям, до первой незаполненной
+        return Money.add(total, sum((long) intervals << INTERVAL_BITS, journal.size(), timestamp));
+    }
+
+    // Сумма изменений балансов записей [from, to) со временем не позже timestamp; останавливается
+    // на первой незаполненной записи: её операция ещё не завершилась
+    private long sum(long from, long to, long timestamp) {
+        long sum = 0;
+        for (long record = from; record < to && journal.isFilled(record); record++) {
+            if (journal.getTimestamp(record) <= timestamp) {
+                sum += journal.getBalanceChange(record);
+            }
+        }
+        return sum;
+    }
+
+    // Точки для всех полностью заполненных интервалов
+    private void extend() {
+        while (((long) intervals + 1 << INTERVAL_BITS) <= journal.size()) {
+            long first = (long) intervals << INTERVAL_BITS;
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (long record = first; record < first + INTERVAL_RECORDS; record++) {
+                if (!journal.isFilled(record)) {
+                    return;
+                }
+                long timestamp = journal.getTimestamp(record);
+                min = Math.min(min, timestamp);
+                max = Math.max(max, timestamp);
+                sum += journal.getBalanceChange(record);
+            }
+            int k = intervals;
+            if (k == earliest.length) {
+                totals = Arrays.copyOf(totals, 2 * k + 1);
+                earliest = Arrays.copyOf(earliest, 2 * k);
+                latest = Arrays.copyOf(latest, 2 * k);
+                latestBefore = Arrays.copyOf(latestBefore, 2 * k);
+                groupEarliest = Arrays.copyOf(groupEarliest, 2 * k >>> GROUP_BITS);
+            }
+            totals[k + 1] = Money.add(totals[k], sum);
+            earliest[k] = min;
+            latest[k] = max;
+            latestBefore[k] = k == 0 ? max : Math.max(latestBefore[k - 1], max);
+            int group = k >>> GROUP_BITS;
+            groupEarliest[group] = (k & (GROUP_INTERVALS - 1)) == 0 ? min : Math.min(groupEarliest[group], min);
+            intervals = k + 1;
+        }
+    }
+
+    // Число построенных точек, для тестов
+    synchronized int getIntervals() {
+        return intervals;
+    }
+}
@@ -0,0 +1,296 @@
+package com.bank;
+
+import java.util.Arrays;
+
+/**
+ * Индекс счетов по балансу для отчётов "первые N по балансу" и "все с балансом в диапазоне".
+ * Балансы разложены по логарифмическим корзинам: до 2 * SUB центов - корзина на каждое значение,
+ * дальше SUB корзин на каждую степень двойки (ширина корзины - меньше 1% баланса). Внутри корзины счета
+ * не упорядочены, порядок наводит запрос, сортируя только те корзины, до которых дошёл.
+ * Корзины свои у каждой полосы блокировок BankService: изменение баланса меняет индекс под уже взятой
+ * блокировкой счёта, без своей синхронизации, и чаще всего баланс остаётся в той же корзине.
+ * Запрос захватывает полосы по одной, на время копирования корзины, поэтому ответ слабо согласован:
+ * счёт, переезжающий во время запроса, может попасть в ответ дважды или не попасть.
+ * Стоимость запроса - длина результата плюс размер граничных корзин и проход по битовым картам корзин.
+ * Горячих счетов (BankService.enableHotAccount) в индексе нет, запросы к нему их не возвращают;
+ * BankService.findTopBalances и соседние запросы добавляют их к ответу индекса сами.
+ */
+public class BalanceIndex {
+    private static final int SUB_BITS = 7;
+    private static final int SUB = 1 << SUB_BITS;
+    // последняя корзина - у баланса Long.MAX_VALUE: сдвиг 62 - SUB_BITS, верхние биты 2 * SUB - 1
+    static final int BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+    private static final int STRIPE_BITS = Integer.numberOfTrailingZeros(BankService.LOCK_STRIPES);
+
+    private final Object[] locks;
+    private final Stripe[] stripes = new Stripe[BankService.LOCK_STRIPES];
+
+    // locks - полосы блокировок сервиса; изменения индекса идут под полосой счёта
+    BalanceIndex(Object[] locks) {
+        this.locks = locks;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Корзина неотрицательного баланса; корзины упорядочены так же, как балансы
+    static int bucket(long balance) {
+        if (balance < 2 * SUB) {
+            return (int) balance;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(balance) - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (balance >>> shift);
+    }
+
+    // Добавление счёта; повторное добавление того же счёта ничего не меняет
+    void add(int id, long balance) {
+        Stripe stripe = stripes[BankService.stripe(id)];
+        int local = id >>> STRIPE_BITS;
+        if (!stripe.contains(local)) {
+            stripe.insert(id, local, bucket(balance), balance);
+            stripe.count++;
+        }
+    }
+
+    // Счёт, чей id выдан после построения индекса, может измениться раньше, чем создатель добавит его сам:
+    // тогда он добавляется здесь, с новым балансом
+    void update(int id, long oldBalance, long newBalance) {
+        Stripe stripe = stripes[BankService.stripe(id)];
+        int local = id >>> STRIPE_BITS;
+        if (!stripe.contains(local)) {
+            add(id, newBalance);
+            return;
+        }
+        int from = bucket(oldBalance);
+        int to = bucket(newBalance);
+        if (from == to) {
+            stripe.balances[from][stripe.positions[local]] = newBalance;
+            return;
+        }
+        stripe.remove(local, from);
+        stripe.insert(id, local, to, newBalance);
+    }
+
+    // Удаление счёта (горячий счёт, см. BankService.enableHotAccount); счёта нет в индексе - ничего не меняет
+    void remove(int id, long balance) {
+        Stripe stripe = stripes[BankService.stripe(id)];
+        int local = id >>> STRIPE_BITS;
+        if (stripe.contains(local)) {
+            stripe.remove(local, bucket(balance));
+            stripe.count--;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            synchronized (locks[s]) {
+                size += stripes[s].count;
+            }
+        }
+        return size;
+    }
+
+    // Счета с наибольшими балансами, по убыванию (при равенстве - по убыванию id), кроме горячих.
+    // Первые skip пропускаются, в ids пишется не больше ids.length id; возвращает число записанных.
+    public int findTop(int skip, int[] ids) {
+        return collect(0, Long.MAX_VALUE, true, skip, ids);
+    }
+
+    // Счета с наименьшими балансами, по возрастанию
+    public int findBottom(int skip, int[] ids) {
+        return collect(0, Long.MAX_VALUE, false, skip, ids);
+    }
+
+    // Счета с балансом в [fromCents, toCents], по возрастанию
+    public int findBetween(long fromCents, long toCents, int skip, int[] ids) {
+        fromCents = Math.max(0, fromCents);
+        if (fromCents > toCents) {
+            return 0;
+        }
+        return collect(fromCents, toCents, false, skip, ids);
+    }
+
+    private int collect(long fromCents, long toCents, boolean descending, int skip, int[] ids) {
+        int first = bucket(fromCents);
+        int last = bucket(toCents);
+        Candidates candidates = new Candidates();
+        int count = 0;
+        int bucket = nextBucket(descending ? last : first, first, last, descending);
+        while (count < ids.length && bucket != -1) {
+            candidates.size = 0;
+            for (int s = 0; s < stripes.length; s++) {
+                // полоса с пустой корзиной не блокируется; счёт, попавший в неё только что, ответ пропустит
+                if ((stripes[s].nonEmpty[bucket >>> 6] & 1L << bucket) != 0) {
+                    synchronized (locks[s]) {
+                        candidates.copy(stripes[s], bucket, fromCents, toCents);
+                    }
+                }
+            }
+            int n = candidates.size;
+            if (skip >= n) {
+                // корзина пропускается целиком, без сортировки
+                skip -= n;
+            } else {
+                sort(candidates.balances, candidates.ids, 0, n);
+                for (int k = skip; k < n && count < ids.length; k++) {
+                    ids[count++] = candidates.ids[descending ? n - 1 - k : k];
+                }
+                skip = 0;
+            }
+            bucket = nextBucket(descending ? bucket - 1 : bucket + 1, first, last, descending);
+        }
+        return count;
+    }
+
+    // Ближайшая от bucket в сторону обхода корзина в [first, last], непустая хотя бы в одной полосе, или -1.
+    // Битовые карты читаются без блокировок: это подсказка, корзина всё равно копируется под полосой.
+    private int nextBucket(int bucket, int first, int last, boolean descending) {
+        while (bucket >= first && bucket <= last) {
+            int word = bucket >>> 6;
+            long bits = 0;
+            for (Stripe stripe : stripes) {
+                bits |= stripe.nonEmpty[word];
+            }
+            if (descending) {
+                bits &= -1L >>> (63 - (bucket & 63));
+                if (bits != 0) {
+                    int found = (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                    return found >= first ? found : -1;
+                }
+                bucket = (word << 6) - 1;
+            } else {
+                bits &= -1L << (bucket & 63);
+                if (bits != 0) {
+                    int found = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    return found <= last ? found : -1;
+                }
+                bucket = (word + 1) << 6;
+            }
+        }
+        return -1;
+    }
+
+    // Сортировка пар (баланс, id) в [from, to) по возрастанию: быстрая сортировка по двум массивам
+    static void sort(long[] balances, int[] ids, int from, int to) {
+        while (to - from > 16) {
+            int middle = (from + to) >>> 1;
+            long pivotBalance = balances[middle];
+            int pivotId = ids[middle];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (less(balances[i], ids[i], pivotBalance, pivotId)) {
+                    i++;
+                }
+                while (less(pivotBalance, pivotId, balances[j], ids[j])) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(balances, ids, i++, j--);
+                }
+            }
+            // меньшая часть рекурсивно, большая - в цикле
+            if (j - from < to - i) {
+                sort(balances, ids, from, j + 1);
+                from = i;
+            } else {
+                sort(balances, ids, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && less(balances[j], ids[j], balances[j - 1], ids[j - 1]); j--) {
+                swap(balances, ids, j, j - 1);
+            }
+        }
+    }
+
+    private static boolean less(long balance, int id, long otherBalance, int otherId) {
+        return balance < otherBalance || balance == otherBalance && id < otherId;
+    }
+
+    private static void swap(long[] balances, int[] ids, int i, int j) {
+        long balance = balances[i];
+        balances[i] = balances[j];
+        balances[j] = balance;
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+
+    // Корзины одной полосы; меняются только под её блокировкой
+    private static final class Stripe {
+        // id и балансы счетов корзины, заполнены первые sizes[bucket]
+        final int[][] members = new int[BUCKETS][];
+        final long[][] balances = new long[BUCKETS][];
+        final int[] sizes = new int[BUCKETS];
+        final long[] nonEmpty = new long[(BUCKETS + 63) >>> 6];
+        // позиция счёта в его корзине по id >>> STRIPE_BITS, -1 - счёта нет в индексе
+        int[] positions = new int[0];
+        int count;
+
+        boolean contains(int local) {
+            return local < positions.length && positions[local] != -1;
+        }
+
+        void insert(int id, int local, int bucket, long balance) {
+            if (local >= positions.length) {
+                int length = positions.length;
+                positions = Arrays.copyOf(positions, Math.max(local + 1, length * 2));
+                Arrays.fill(positions, length, positions.length, -1);
+            }
+            int size = sizes[bucket];
+            if (members[bucket] == null || size == members[bucket].length) {
+                int capacity = size == 0 ? 4 : size * 2;
+                members[bucket] = members[bucket] == null ? new int[capacity] : Arrays.copyOf(members[bucket], capacity);
+                balances[bucket] = balances[bucket] == null ? new long[capacity] : Arrays.copyOf(balances[bucket], capacity);
+            }
+            members[bucket][size] = id;
+            balances[bucket][size] = balance;
+            positions[local] = size;
+            sizes[bucket] = size + 1;
+            nonEmpty[bucket >>> 6] |= 1L << bucket;
+        }
+
+        // Удаление перестановкой последнего счёта корзины на место удаляемого
+        void remove(int local, int bucket) {
+            int position = positions[local];
+            int last = --sizes[bucket];
+            int moved = members[bucket][last];
+            members[bucket][position] = moved;
+            balances[bucket][position] = balances[bucket][last];
+            positions[moved >>> STRIPE_BITS] = position;
+            positions[local] = -1;
+            if (last == 0) {
+                nonEmpty[bucket >>> 6] &= ~(1L << bucket);
+            }
+        }
+    }
+
+    // Счета текущей корзины, собранные со всех полос
+    private static final class Candidates {
+        int[] ids = new int[64];
+        long[] balances = new long[64];
+        int size;
+
+        void copy(Stripe stripe, int bucket, long fromCents, long toCents) {
+            int n = stripe.sizes[bucket];
+            if (size + n > ids.length) {
+                int capacity = Math.max(size + n, ids.length * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                balances = Arrays.copyOf(balances, capacity);
+            }
+            int[] members = stripe.members[bucket];
+            long[] memberBalances = stripe.balances[bucket];
+            for (int k = 0; k < n; k++) {
+                long balance = memberBalances[k];
+                // граничные корзины диапазона содержат и балансы за его пределами
+                if (balance >= fromCents && balance <= toCents) {
+                    ids[size] = members[k];
+                    balances[size++] = balance;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.bank;
+
+import java.util.Arrays;
+
+/**
+ * Согласованный вид балансов всех счетов на один момент (MVCC поверх журнала операций).
+ * Момент - граница журнала version: видны ровно те операции, записи которых лежат до неё.
+ * Операция над несколькими счетами резервирует свои записи в журнале одним участком,
+ * поэтому перевод или пакет переводов виден либо целиком, либо никак.
+ * Писатели не ждут читателя: чтение счёта захватывает его полосу только на чтение двух полей,
+ * а изменения после снимка отматываются по цепочке записей счёта в журнале.
+ * Чтение счёта без изменений после снимка - O(1), с k изменениями - O(log k).
+ */
+public class BalanceSnapshot {
+    public static final long NO_BALANCE = Long.MIN_VALUE;
+
+    private final BankService bankService;
+    private final long version;
+    private final int accountsLimit;
+
+    BalanceSnapshot(BankService bankService, long version, int accountsLimit) {
+        this.bankService = bankService;
+        this.version = version;
+        this.accountsLimit = accountsLimit;
+    }
+
+    // Граница журнала, на которую сделан снимок
+    public long getVersion() {
+        return version;
+    }
+
+    // Верхняя граница id счетов снимка; счёт с меньшим id мог быть создан уже после снимка
+    public int getAccountsLimit() {
+        return accountsLimit;
+    }
+
+    public boolean exists(int id) {
+        return id >= 0 && id < accountsLimit && bankService.getBalanceCents(id, version) != NO_BALANCE;
+    }
+
+    public long getBalanceCents(int id) {
+        long balance = id >= 0 && id < accountsLimit ? bankService.getBalanceCents(id, version) : NO_BALANCE;
+        if (balance == NO_BALANCE) {
+            throw new IllegalArgumentException("Счёт " + id + " не существовал на момент снимка");
+        }
+        return balance;
+    }
+
+    public long getTotalBalanceCents() {
+        long total = 0;
+        for (int id = 0; id < accountsLimit; id++) {
+            long balance = bankService.getBalanceCents(id, version);
+            if (balance != NO_BALANCE) {
+                total = Money.add(total, balance);
+            }
+        }
+        return total;
+    }
+
+    // id не более n счетов с наибольшими балансами, по убыванию баланса (при равенстве - по возрастанию id)
+    public int[] getTopAccounts(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Число счетов не может быть отрицательным");
+        }
+        // Куча из n лучших, в корне - худший из них
+        int[] ids = new int[Math.min(n, accountsLimit)];
+        long[] balances = new long[ids.length];
+        int size = 0;
+        for (int id = 0; id < accountsLimit && ids.length > 0; id++) {
+            long balance = bankService.getBalanceCents(id, version);
+            if (balance == NO_BALANCE) {
+                continue;
+            }
+            if (size < ids.length) {
+                ids[size] = id;
+                balances[size] = balance;
+                siftUp(ids, balances, size++);
+            } else if (balance > balances[0]) {
+                ids[0] = id;
+                balances[0] = balance;
+                siftDown(ids, balances, 0, size);
+            }
+        }
+        // Извлечение худшего в конец даёт порядок по убыванию
+        for (int last = size - 1; last > 0; last--) {
+            swap(ids, balances, 0, last);
+            siftDown(ids, balances, 0, last);
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    // Порядок кучи: a "хуже" b, если баланс меньше или при равном балансе id больше
+    private static boolean worse(int[] ids, long[] balances, int a, int b) {
+        return balances[a] < balances[b] || balances[a] == balances[b] && ids[a] > ids[b];
+    }
+
+    private static void siftUp(int[] ids, long[] balances, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(ids, balances, index, parent)) {
+                return;
+            }
+            swap(ids, balances, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, long[] balances, int index, int size) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && worse(ids, balances, child + 1, child)) {
+                child++;
+            }
+            if (!worse(ids, balances, child, index)) {
+                return;
+            }
+            swap(ids, balances, index, child);
+            index = child;
+        }
+    }
+
+    private static void swap(int[] ids, long[] balances, int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        long balance = balances[a];
+        balances[a] = balances[b];
+        balances[b] = balance;
+    }
+}
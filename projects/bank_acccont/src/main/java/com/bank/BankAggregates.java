@@ -0,0 +1,98 @@
+package com.bank;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Показатели банка в целом, обновляемые при каждой операции.
+ * Счётчики полосатые (LongAdder), поэтому не становятся общей точкой конкуренции потоков, а чтение - O(1).
+ * Дневные счётчики - свои на каждые сутки: смена суток подменяет их целиком, поэтому операция прошлых суток,
+ * пришедшая после полуночи, не попадает в новые сутки и не теряется при сбросе.
+ */
+public class BankAggregates {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final LongAdder totalBalance = new LongAdder();
+    private final LongAdder accountsCount = new LongAdder();
+    // Текущие сутки (UTC) и их дневные счётчики
+    private final AtomicReference<Day> today;
+
+    public BankAggregates() {
+        this.today = new AtomicReference<>(new Day(day(System.currentTimeMillis())));
+    }
+
+    // Начальные значения при восстановлении из снимка
+    public void restore(long totalBalance, long accountsCount) {
+        this.totalBalance.add(totalBalance);
+        this.accountsCount.add(accountsCount);
+    }
+
+    public void accountCreated(long initialBalance) {
+        accountsCount.increment();
+        totalBalance.add(initialBalance);
+    }
+
+    public void deposited(long amount, long timestamp) {
+        Day day = dayOf(timestamp);
+        if (day != null) {
+            day.deposited.add(amount);
+        }
+        totalBalance.add(amount);
+    }
+
+    public void withdrawn(long amount, long timestamp) {
+        Day day = dayOf(timestamp);
+        if (day != null) {
+            day.withdrawn.add(amount);
+        }
+        totalBalance.add(-amount);
+    }
+
+    // Зачисления, не относящиеся к пополнениям (например, проценты)
+    public void credited(long amount) {
+        totalBalance.add(amount);
+    }
+
+    public long getTotalBalance() {
+        return totalBalance.sum();
+    }
+
+    public long getAccountsCount() {
+        return accountsCount.sum();
+    }
+
+    public long getDepositedToday() {
+        Day day = dayOf(System.currentTimeMillis());
+        return day == null ? 0 : day.deposited.sum();
+    }
+
+    public long getWithdrawnToday() {
+        Day day = dayOf(System.currentTimeMillis());
+        return day == null ? 0 : day.withdrawn.sum();
+    }
+
+    // Счётчики суток времени timestamp; сутки новее текущих становятся текущими,
+    // за прошедшие сутки - null (их итоги уже не показываются)
+    private Day dayOf(long timestamp) {
+        long day = day(timestamp);
+        Day current = today.get();
+        while (day > current.day) {
+            Day next = new Day(day);
+            if (today.compareAndSet(current, next)) {
+                return next;
+            }
+            current = today.get();
+        }
+        return day == current.day ? current : null;
+    }
+
+    private static long day(long timestamp) {
+        return Math.floorDiv(timestamp, MILLIS_PER_DAY);
+    }
+
+    private record Day(long day, LongAdder deposited, LongAdder withdrawn) {
+        Day(long day) {
+            this(day, new LongAdder(), new LongAdder());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Клиент BankServer. Обычные методы отправляют одну команду и ждут ответа.
+ * Для конвейерной работы: send несколько раз, flush, затем столько же readReply.
+ * Ответ ERR превращается в InsufficientFundsException или IllegalArgumentException, как в BankService.
+ * Счета адресуются внутренним id. Объект не потокобезопасен: одно соединение - один поток.
+ */
+public class BankClient implements Closeable {
+    private static final String INSUFFICIENT_FUNDS = "Недостаточно средств";
+
+    private final SocketChannel channel;
+    private final ByteBuffer output = ByteBuffer.allocate(8 << 10);
+    private final ByteBuffer input = ByteBuffer.allocate(8 << 10);
+    private final StringBuilder command = new StringBuilder(64);
+
+    public BankClient(SocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.socket().setTcpNoDelay(true);
+        input.flip();
+    }
+
+    public int createAccount(long initialBalanceCents) throws IOException {
+        command.setLength(0);
+        Money.format(initialBalanceCents, command.append("CREATE "));
+        return Integer.parseInt(call(command));
+    }
+
+    // Снимок счёта; дата создания на сервере не передаётся
+    public Account getAccount(int id) throws IOException {
+        command.setLength(0);
+        String[] fields = call(command.append("GET #").append(id)).split(" ");
+        return new Account(Integer.parseInt(fields[0]), Money.parse(fields[1]),
+                Money.parse(fields[2]) / (double) Money.BASIS_POINTS_PER_PERCENT, new Date(0));
+    }
+
+    public long getBalanceCents(int id) throws IOException {
+        command.setLength(0);
+        return Money.parse(call(command.append("BALANCE #").append(id)));
+    }
+
+    public void deposit(int id, long amountCents) throws IOException {
+        command.setLength(0);
+        Money.format(amountCents, command.append("DEPOSIT #").append(id).append(' '));
+        call(command);
+    }
+
+    public void withdraw(int id, long amountCents) throws IOException {
+        command.setLength(0);
+        Money.format(amountCents, command.append("WITHDRAW #").append(id).append(' '));
+        call(command);
+    }
+
+    public void transfer(int fromId, int toId, long amountCents) throws IOException {
+        command.setLength(0);
+        Money.format(amountCents, command.append("TRANSFER #").append(fromId).append(" #").append(toId).append(' '));
+        call(command);
+    }
+
+    public long getTotalBankBalanceCents() throws IOException {
+        command.setLength(0);
+        return Money.parse(call(command.append("TOTAL")));
+    }
+
+    // Команда в буфер отправки, без ожидания ответа
+    public void send(CharSequence line) throws IOException {
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (output.remaining() < bytes.length + 1) {
+            flush();
+        }
+        if (output.remaining() < bytes.length + 1) {
+            throw new IllegalArgumentException("Слишком длинная команда: " + bytes.length + " байт");
+        }
+        output.put(bytes).put((byte) '\n');
+    }
+
+    public void flush() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    // Очередной ответ целиком: "OK ..." или "ERR ..."
+    public String readReply() throws IOException {
+        while (true) {
+            for (int i = input.position(); i < input.limit(); i++) {
+                if (input.get(i) == '\n') {
+                    int length = i - input.position();
+                    byte[] bytes = new byte[length];
+                    input.get(bytes);
+                    input.get();
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            input.compact();
+            if (!input.hasRemaining()) {
+                throw new IOException("Ответ длиннее " + input.capacity() + " байт");
+            }
+            int read = channel.read(input);
+            input.flip();
+            if (read < 0) {
+                throw new EOFException("Сервер закрыл соединение");
+            }
+        }
+    }
+
+    // Значение из ответа OK (пустая строка для "OK" без значения)
+    public static String value(String reply) {
+        if (reply.equals("OK")) {
+            return "";
+        }
+        if (reply.startsWith("OK ")) {
+            return reply.substring(3);
+        }
+        // "ERR <строка> <причина>"
+        String reason = reply.substring(reply.indexOf(' ', 4) + 1);
+        if (reason.startsWith(INSUFFICIENT_FUNDS)) {
+            throw new InsufficientFundsException(reason);
+        }
+        throw new IllegalArgumentException(reason);
+    }
+
+    private String call(CharSequence line) throws IOException {
+        send(line);
+        flush();
+        return value(readReply());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,257 @@
+package com.bank;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики операций: счётчики успехов и ошибок и гистограмма задержек на каждую операцию,
+ * число отказов из-за нехватки средств, длины читаемой истории.
+ * Запись не выделяет памяти и не берёт блокировок.
+ * Выключается при запуске: -Dbank.metrics=false. ENABLED - константа, поэтому при выключенных
+ * метриках JIT выбрасывает замеры целиком, включая вызовы System.nanoTime.
+ */
+public class BankMetrics implements BankMetricsMXBean {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("bank.metrics"));
+
+    public enum Operation {
+        CREATE_ACCOUNT("createAccount"),
+        CREATE_ACCOUNTS("createAccounts"),
+        GET_ACCOUNT("getAccount"),
+        GET_BALANCE("getBalance"),
+        SET_INTEREST_RATE("setAnnualInterestRate"),
+        MONTHLY_INTEREST("getMonthlyInterest"),
+        DEPOSIT("deposit"),
+        WITHDRAW("withdraw"),
+        TRANSFER("transfer"),
+        TRANSFER_BATCH("transferBatch"),
+        ACCRUE_INTEREST("accrueInterest"),
+        HISTORY("getTransactionHistory"),
+        HISTORY_PAGE("getTransactionHistoryPage"),
+        TOTAL_BALANCE("getTotalBankBalance"),
+        BALANCE_AS_OF("getBalanceAsOf"),
+        TOTAL_BALANCE_AS_OF("getTotalBankBalanceAsOf"),
+        SAVE_SNAPSHOT("saveSnapshot");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    // Операции с отдельными объектами Account (вне BankService)
+    public static final BankMetrics ACCOUNTS = new BankMetrics(null);
+
+    private final TransactionJournal journal;
+    private final AccountTiers tiers;
+    private final LongAdder[] successes = new LongAdder[OPERATIONS.length];
+    private final LongAdder[] failures = new LongAdder[OPERATIONS.length];
+    private final Histogram[] latencies = new Histogram[OPERATIONS.length];
+    private final LongAdder insufficientFunds = new LongAdder();
+    private final Histogram historyLengths = new Histogram();
+
+    public BankMetrics(TransactionJournal journal) {
+        this(journal, null);
+    }
+
+    public BankMetrics(TransactionJournal journal, AccountTiers tiers) {
+        this.journal = journal;
+        this.tiers = tiers;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            successes[i] = new LongAdder();
+            failures[i] = new LongAdder();
+            latencies[i] = new Histogram();
+        }
+    }
+
+    // Начало замера: время в наносекундах, передаётся потом в record
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public void record(Operation operation, long start, boolean success) {
+        if (!ENABLED) {
+            return;
+        }
+        int index = operation.ordinal();
+        latencies[index].record(System.nanoTime() - start);
+        (success ? successes : failures)[index].increment();
+    }
+
+    public void insufficientFunds() {
+        if (ENABLED) {
+            insufficientFunds.increment();
+        }
+    }
+
+    public void historyLength(int records) {
+        if (ENABLED) {
+            historyLengths.record(records);
+        }
+    }
+
+    public long getSuccesses(Operation operation) {
+        return successes[operation.ordinal()].sum();
+    }
+
+    public long getFailures(Operation operation) {
+        return failures[operation.ordinal()].sum();
+    }
+
+    public Histogram getLatencies(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    // Регистрация в платформенном MBeanServer под именем bank:type=BankMetrics,name=<name>
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("bank:type=BankMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать метрики " + name, e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public List<OperationStatistics> getOperations() {
+        List<OperationStatistics> operations = new ArrayList<>(OPERATIONS.length);
+        for (Operation operation : OPERATIONS) {
+            int i = operation.ordinal();
+            Histogram latency = latencies[i];
+            operations.add(new OperationStatistics(operation.label(), successes[i].sum(), failures[i].sum(),
+                    latency.percentile(0.5), latency.percentile(0.99), latency.percentile(0.999), latency.max()));
+        }
+        return operations;
+    }
+
+    @Override
+    public long getInsufficientFunds() {
+        return insufficientFunds.sum();
+    }
+
+    @Override
+    public long getJournalSize() {
+        return journal == null ? 0 : journal.size();
+    }
+
+    @Override
+    public long getHistoryLengthP50() {
+        return historyLengths.percentile(0.5);
+    }
+
+    @Override
+    public long getHistoryLengthP99() {
+        return historyLengths.percentile(0.99);
+    }
+
+    @Override
+    public long getHistoryLengthMax() {
+        return historyLengths.max();
+    }
+
+    @Override
+    public double getTierHitRate() {
+        return tiers == null ? 1.0 : tiers.getHitRate();
+    }
+
+    @Override
+    public long getTierMisses() {
+        return tiers == null ? 0 : tiers.getMisses();
+    }
+
+    @Override
+    public long getTierEvictions() {
+        return tiers == null ? 0 : tiers.getEvictions();
+    }
+
+    @Override
+    public long getTierLoadP50Nanos() {
+        return tiers == null ? 0 : tiers.getLoadLatencies().percentile(0.5);
+    }
+
+    @Override
+    public long getTierLoadP99Nanos() {
+        return tiers == null ? 0 : tiers.getLoadLatencies().percentile(0.99);
+    }
+
+    @Override
+    public long getTierResidentBytes() {
+        return tiers == null ? 0 : tiers.getResidentBytes();
+    }
+
+    @Override
+    public long getHistoryBytes() {
+        return journal == null ? 0 : journal.getHistoryBytes();
+    }
+
+    @Override
+    public long getArchivedRecords() {
+        return journal == null || journal.getArchive() == null ? 0 : journal.getArchive().getRecords();
+    }
+
+    // Текстовая таблица для вывода в консоль; операции без вызовов пропускаются
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        if (!ENABLED) {
+            return out.append("Метрики выключены (-Dbank.metrics=false)\n").toString();
+        }
+        out.append(String.format("%-22s %12s %10s %10s %10s %10s %10s%n",
+                "Операция", "успешно", "ошибок", "p50 мкс", "p99 мкс", "p999 мкс", "max мкс"));
+        for (OperationStatistics operation : getOperations()) {
+            if (operation.getSuccesses() + operation.getFailures() == 0) {
+                continue;
+            }
+            out.append(String.format("%-22s %12d %10d %10.1f %10.1f %10.1f %10.1f%n", operation.getName(),
+                    operation.getSuccesses(), operation.getFailures(), operation.getP50Nanos() / 1000.0,
+                    operation.getP99Nanos() / 1000.0, operation.getP999Nanos() / 1000.0,
+                    operation.getMaxNanos() / 1000.0));
+        }
+        out.append(String.format("Отказов из-за нехватки средств: %d%n", getInsufficientFunds()));
+        out.append(String.format("Длина истории: p50 %d, p99 %d, max %d; записей в журнале: %d%n",
+                getHistoryLengthP50(), getHistoryLengthP99(), getHistoryLengthMax(), getJournalSize()));
+        if (tiers != null) {
+            out.append(String.format("Блоки счетов: попаданий %.1f%%, загрузок %d (p50 %.1f мкс, p99 %.1f мкс), "
+                            + "вытеснений %d, в памяти %d из %d МБ%n", getTierHitRate() * 100, getTierMisses(),
+                    getTierLoadP50Nanos() / 1000.0, getTierLoadP99Nanos() / 1000.0, getTierEvictions(),
+                    getTierResidentBytes() >> 20, tiers.getMaxResidentBytes() >> 20));
+        }
+        if (journal != null && journal.getArchive() != null) {
+            JournalArchive archive = journal.getArchive();
+            out.append(String.format("История: в архиве %d записей (%.1f байт на запись), в памяти %d МБ%n",
+                    archive.getRecords(), archive.getRecords() == 0 ? 0.0
+                            : archive.getStoredBytes() / (double) archive.getRecords(), getHistoryBytes() >> 20));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            successes[i].reset();
+            failures[i].reset();
+            latencies[i].reset();
+        }
+        insufficientFunds.reset();
+        historyLengths.reset();
+        if (tiers != null) {
+            tiers.reset();
+        }
+    }
+}
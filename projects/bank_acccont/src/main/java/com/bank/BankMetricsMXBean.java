@@ -0,0 +1,45 @@
+package com.bank;
+
+import java.util.List;
+
+/**
+ * Метрики BankService в JMX (см. BankMetrics.register).
+ */
+public interface BankMetricsMXBean {
+
+    boolean isEnabled();
+
+    List<OperationStatistics> getOperations();
+
+    long getInsufficientFunds();
+
+    long getJournalSize();
+
+    long getHistoryLengthP50();
+
+    long getHistoryLengthP99();
+
+    long getHistoryLengthMax();
+
+    // Холодный уровень хранилища счетов; без него доля попаданий 1, остальное 0
+    double getTierHitRate();
+
+    long getTierMisses();
+
+    long getTierEvictions();
+
+    long getTierLoadP50Nanos();
+
+    long getTierLoadP99Nanos();
+
+    long getTierResidentBytes();
+
+    // Память истории операций (хвост журнала и архив) и записи, сжатые в архив
+    long getHistoryBytes();
+
+    long getArchivedRecords();
+
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,104 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сетевой доступ к BankService: текстовый протокол CommandProcessor поверх TCP, одна команда на строку.
+ * Каждое соединение обслуживается своим виртуальным потоком. Клиент может отправлять команды,
+ * не дожидаясь ответов: ответы приходят в порядке команд, по одной записи на каждое чтение.
+ * Блокировки, под которыми идёт файловый ввод-вывод (загрузка и вытеснение блоков AccountStore, рост
+ * TransactionJournal, запись JournalArchive), - ReentrantLock: виртуальный поток, ждущий их, отпускает носитель.
+ * Полосы блокировок счетов BankService - synchronized; ожидание сброса журнала (awaitDurable) идёт вне их,
+ * но промах холодного уровня или переход журнала в новый сегмент под полосой занимает носитель
+ * на время загрузки одного блока или отображения одного сегмента.
+ */
+public class BankServer implements Closeable {
+    private final CommandProcessor processor;
+    private final ServerSocketChannel server;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SocketChannel> open = ConcurrentHashMap.newKeySet();
+    private final LongAdder commands = new LongAdder();
+    private final Thread acceptor;
+
+    public BankServer(BankService bankService, SocketAddress address) throws IOException {
+        this.processor = new CommandProcessor(bankService);
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+        acceptor = Thread.ofVirtual().name("bank-server-accept").start(this::acceptLoop);
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    public int getOpenConnections() {
+        return open.size();
+    }
+
+    public long getCommands() {
+        return commands.sum();
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Ошибка приёма соединения: " + e.getMessage());
+                continue;
+            }
+            open.add(channel);
+            connections.execute(() -> serve(channel));
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            channel.socket().setTcpNoDelay(true);
+            commands.add(processor.serve(channel, channel).commands());
+        } catch (IOException e) {
+            // соединение оборвано клиентом
+        } finally {
+            open.remove(channel);
+        }
+    }
+
+    // Закрывает приём новых соединений и все открытые соединения
+    @Override
+    public void close() throws IOException {
+        server.close();
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SocketChannel channel : open) {
+            channel.close();
+        }
+        connections.close();
+    }
+
+    // Запуск: java BankServer [порт] [счетов] [начальный баланс]
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        double balance = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        BankServer server = new BankServer(new BankService(accounts, balance), new InetSocketAddress(port));
+        System.out.println("Сервер слушает " + server.getAddress());
+        server.acceptor.join();
+    }
+}
@@ -1,12 +1,1776 @@
+package com.bank;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
 
 public class BankService {
-    private Account[] accounts;
+    // Число полос блокировок (степень двойки)
+    static final int LOCK_STRIPES = 64;
+    // Строк на страницу истории и поиска в консольном меню
+    private static final int CONSOLE_PAGE_SIZE = 20;
+
+    private final AccountStore store;
+    private final TransactionJournal journal;
+    private final BankAggregates aggregates = new BankAggregates();
+    private final AccountNumberIndex accountNumbers = new AccountNumberIndex();
+    private final OwnerNameIndex owners;
+    // Построение индексов номеров и владельцев по снимку, идёт в фоне после fromSnapshot; поиск по ним ждёт его
+    private volatile CompletableFuture<Void> indexesBuilt = CompletableFuture.completedFuture(null);
+    private final BankMetrics metrics;
+    private final BalanceCheckpoints checkpoints;
+    private final Object[] locks;
+    // Индекс по балансу, если включён (enableBalanceIndex); меняется под блокировкой счёта
+    private volatile BalanceIndex balanceIndex;
+    // Горячие счета (enableHotAccount) по возрастанию id; массив заменяется целиком под всеми полосами
+    private volatile HotAccount[] hotAccounts = new HotAccount[0];
+    // Межшардовые списания в пути (номера их записей): добавляются и удаляются под блокировкой счёта вместе
+    // с записью, поэтому под всеми полосами и слотами набор согласован с границей журнала
+    private final Set<Long> transfersInTransit = ConcurrentHashMap.newKeySet();
 
     public BankService() {
-        accounts = new Account[10];
-        for (int i = 0; i < 10; i++) {
-            accounts[i] = new Account(i, 10000);
+        this(10, 10000);
+    }
+
+    public BankService(int accountsCount, double initialBalance) {
+        this(accountsCount, initialBalance, new TransactionJournal());
+    }
+
+    public BankService(int accountsCount, double initialBalance, TransactionJournal journal) {
+        this(accountsCount, initialBalance, journal, null);
+    }
+
+    // Счета сверх бюджета памяти tiers вытесняются в его файл и загружаются обратно при обращении
+    public BankService(int accountsCount, double initialBalance, TransactionJournal journal, AccountTiers tiers) {
+        this(new AccountStore(tiers), journal);
+        long initialCents = Money.fromDouble(initialBalance);
+        for (int i = 0; i < accountsCount; i++) {
+            openAccount(initialCents);
+        }
+    }
+
+    private BankService(AccountStore store, TransactionJournal journal) {
+        this.store = store;
+        this.journal = journal;
+        this.owners = new OwnerNameIndex(store.getOwnerNames());
+        this.metrics = new BankMetrics(journal, store.getTiers());
+        this.checkpoints = new BalanceCheckpoints(journal);
+        locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Восстановление из снимка. Сервис готов сразу, счета догружаются из файла по мере обращения.
+    // Индексы номеров и владельцев строятся фоновым потоком прямо из отображённых колонок снимка: до конца
+    // построения поиск по номеру и имени и создание счетов с номером ждут его, остальные операции - нет.
+    // Журнал должен быть тем же файлом, в который писал сервис при создании снимка.
+    public static BankService fromSnapshot(Path snapshot, TransactionJournal journal) throws IOException {
+        return fromSnapshot(snapshot, journal, null);
+    }
+
+    // С холодным уровнем блоки не догружаются фоном: в памяти остаются только те, к которым обращаются
+    public static BankService fromSnapshot(Path snapshot, TransactionJournal journal, AccountTiers tiers)
+            throws IOException {
+        AccountSnapshot loaded = AccountSnapshot.read(snapshot, tiers == null, tiers);
+        if (journal.size() < loaded.getJournalSize()) {
+            throw new IOException("Журнал короче, чем при создании снимка: " + journal.size()
+                    + " < " + loaded.getJournalSize());
+        }
+        BankService bankService = new BankService(loaded.getStore(), journal);
+        CompletableFuture<Void> indexesBuilt = new CompletableFuture<>();
+        bankService.indexesBuilt = indexesBuilt;
+        Thread indexer = new Thread(() -> {
+            try {
+                loaded.indexAccountNumbers(bankService.accountNumbers);
+                loaded.indexOwnerNames(bankService.owners);
+                indexesBuilt.complete(null);
+            } catch (Throwable e) {
+                indexesBuilt.completeExceptionally(e);
+            }
+        }, "snapshot-indexer");
+        indexer.setDaemon(true);
+        indexer.start();
+        bankService.hotAccounts = HotAccount.decode(loaded.getHotSlots());
+        bankService.aggregates.restore(loaded.getTotalBalance(), loaded.getStore().getAccountsCount());
+        bankService.replay(loaded.getJournalSize(), loaded.getTransfersInTransit());
+        return bankService;
+    }
+
+    // Восстановление без снимка, только по журналу: счета восстанавливаются по id, с балансами, историей,
+    // номерами, владельцами и ставками (записи INFO).
+    public static BankService fromJournal(TransactionJournal journal) {
+        BankService bankService = new BankService(new AccountStore(), journal);
+        bankService.replay(0, new long[0]);
+        return bankService;
+    }
+
+    // Проигрывание журнала с записи from после сбоя: баланс счёта - balanceAfter его последней записи,
+    // счета из записей CREATE создаются (с пропущенными id - пустыми, если их создание не дошло до журнала).
+    // Проигрывание останавливается на первой незаполненной записи, а операция, дописанная перед ней не целиком
+    // (последняя запись с флагом CONTINUED), отбрасывается вместе с хвостом: такая операция не была
+    // подтверждена, а перевод или пакет не должен примениться наполовину.
+    // Запись, которая не продолжает цепочку счёта, продолжает цепочку слота горячего счёта (см. HotAccount).
+    // Записи INFO возвращают счёту номер, владельца и ставку; номер и владелец, уже известные из снимка, остаются.
+    // Межшардовые списания (в пути на момент снимка - transfers, и записанные после него), которые так и не
+    // закрыты зачислением или возвратом, возвращаются отправителям новыми записями RETURNED: их перевод
+    // не был подтверждён. Списания одной заявки (отправитель, получатель, сумма) неразличимы, поэтому
+    // считаются по заявкам.
+    private void replay(long from, long[] transfers) {
+        long end = from;
+        long size = journal.size();
+        while (end < size && journal.getType(end) != 0) {
+            end++;
+        }
+        while (end > from && (journal.getFlags(end - 1) & TransactionJournal.CONTINUED) != 0) {
+            end--;
+        }
+        Map<TransferRequest, Integer> inTransit = new LinkedHashMap<>();
+        for (long record : transfers) {
+            inTransit.merge(new TransferRequest(journal.getAccountId(record), journal.getCounterparty(record),
+                    journal.getAmount(record)), 1, Integer::sum);
+        }
+        long delta = 0;
+        // имя владельца, собираемое из записей INFO_OWNER_BYTES
+        byte[] name = null;
+        int nameLength = 0;
+        for (long record = from; record < end; record++) {
+            int id = journal.getAccountId(record);
+            while (store.getAccountsCount() <= id) {
+                store.createAccount(0, 0, 0);
+                aggregates.accountCreated(0);
+            }
+            byte type = journal.getType(record);
+            int flags = journal.getFlags(record);
+            if ((flags & TransactionJournal.IN_TRANSIT) != 0) {
+                inTransit.merge(new TransferRequest(id, journal.getCounterparty(record), journal.getAmount(record)),
+                        1, Integer::sum);
+            } else if ((flags & (TransactionJournal.DELIVERED | TransactionJournal.RETURNED)) != 0) {
+                int counterparty = journal.getCounterparty(record);
+                boolean delivered = (flags & TransactionJournal.DELIVERED) != 0;
+                inTransit.computeIfPresent(new TransferRequest(delivered ? counterparty : id,
+                        delivered ? id : counterparty, journal.getAmount(record)), (request, n) -> n > 1 ? n - 1 : null);
+            }
+            if (type == TransactionJournal.CREATE) {
+                store.set(AccountStore.DATE_CREATED, id, journal.getTimestamp(record));
+            } else if (type == TransactionJournal.INTEREST) {
+                // время записи начисления - конец его периода
+                store.setAccruedThrough(id, Math.max(store.getAccruedThrough(id), journal.getTimestamp(record)));
+            } else if (type == TransactionJournal.INFO) {
+                long value = journal.getAmount(record);
+                switch (journal.getCounterparty(record)) {
+                    case TransactionJournal.INFO_NUMBER -> {
+                        if (store.get(AccountStore.ACCOUNT_NUMBER, id) == AccountStore.NO_NUMBER) {
+                            store.set(AccountStore.ACCOUNT_NUMBER, id, value);
+                            accountNumbers.putIfAbsent(value, id);
+                        }
+                    }
+                    case TransactionJournal.INFO_RATE -> store.setAnnualInterestRate(id, value);
+                    case TransactionJournal.INFO_OWNER -> {
+                        name = new byte[(int) value];
+                        nameLength = 0;
+                    }
+                    case TransactionJournal.INFO_OWNER_BYTES -> {
+                        for (int i = 0; i < Long.BYTES && nameLength < name.length; i++) {
+                            name[nameLength++] = (byte) (value >>> 8 * i);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                if (name != null && nameLength == name.length) {
+                    if (store.get(AccountStore.OWNER_NAME, id) == NamePool.NO_NAME) {
+                        long ownerName = store.getOwnerNames().add(name, 0, name.length);
+                        store.set(AccountStore.OWNER_NAME, id, ownerName);
+                        owners.add(ownerName, id);
+                    }
+                    name = null;
+                }
+            }
+            long balance = journal.getBalanceAfter(record);
+            long previous = journal.getPrevious(record);
+            if (previous != store.getLastRecord(id)) {
+                HotAccount.Slot slot = replaySlot(id, previous);
+                delta = Money.add(delta, balance - slot.balance);
+                slot.balance = balance;
+                slot.head = record;
+                continue;
+            }
+            delta = Money.add(delta, balance - store.getBalance(id));
+            store.setBalance(id, balance);
+            store.setLastRecord(id, record);
+        }
+        aggregates.credited(delta);
+        journal.truncate(end);
+
+        long last = TransactionJournal.NO_RECORD;
+        for (Map.Entry<TransferRequest, Integer> entry : inTransit.entrySet()) {
+            TransferRequest request = entry.getKey();
+            for (int i = 0; i < entry.getValue(); i++) {
+                last = settleTransfer(request.fromId(), request.toId(), request.amount(), TransactionJournal.NO_RECORD,
+                        TransactionJournal.RETURNED);
+                aggregates.credited(request.amount());
+            }
+        }
+        journal.awaitDurable(last);
+    }
+
+    // Слот горячего счёта id, цепочку которого продолжает запись с предыдущей previous; при проигрывании.
+    // Цепочка нового слота начинается с NO_RECORD, такой слот добавляется к счёту.
+    private HotAccount.Slot replaySlot(int id, long previous) {
+        HotAccount hot = hotAccount(id);
+        HotAccount.Slot slot = hot == null ? null : hot.findSlot(previous);
+        if (slot == null) {
+            if (hot == null) {
+                hot = new HotAccount(id, new HotAccount.Slot[0]);
+            }
+            hot = hot.withSlots(hot.size() + 1);
+            putHotAccount(hot);
+            slot = hot.slots[hot.slots.length - 1];
+        }
+        return slot;
+    }
+
+    // Сохранение снимка без остановки операций. Снимок - состояние на границе журнала version: она берётся
+    // вместе со списком межшардовых списаний в пути на короткое время под всеми полосами и слотами (писатель
+    // держит свою блокировку от резервирования записи до её заполнения, поэтому все записи до границы заполнены).
+    // Дальше счета читаются по одному, каждый под своей полосой, а их изменения после границы отматываются
+    // по журналу (readAsOf). При восстановлении эти изменения проигрываются заново.
+    public void saveSnapshot(Path file) throws IOException {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            long[] boundary = new long[1];
+            long[][] transfers = new long[1][];
+            withStripes(allStripes(), 0, () -> withSlots(allSlots(), 0, () -> {
+                boundary[0] = journal.size();
+                transfers[0] = transfersInTransit.stream().mapToLong(Long::longValue).toArray();
+            }));
+            long version = boundary[0];
+            // счёт, созданный до границы, уже имеет id меньше count
+            int count = store.getAccountsCount();
+            long[] state = new long[2];
+            HotAccount[] hot = hotAccounts;
+            long[][] slots = new long[hot.length][];
+            for (int k = 0; k < hot.length; k++) {
+                slots[k] = readAsOf(hot[k].id, version, state);
+            }
+            journal.force();
+            AccountSnapshot.write(count, (id, row) -> readSnapshotRow(id, version, row, state), store.getOwnerNames(),
+                    HotAccount.encode(hot, slots), transfers[0], version, file);
+            success = true;
+        } finally {
+            metrics.record(BankMetrics.Operation.SAVE_SNAPSHOT, start, success);
+        }
+    }
+
+    // Строка снимка счёта id на границе version. Счёт без записей до границы пишется пустым: его создание
+    // (CREATE и INFO) проиграется из журнала. Номер, владелец и дата задаются до записи CREATE и видны после
+    // захвата полосы в readAsOf; ставка может прочитаться уже сменённой после границы - её запись INFO
+    // тоже проиграется.
+    private void readSnapshotRow(int id, long version, long[] row, long[] state) {
+        readAsOf(id, version, state);
+        if (state[0] == TransactionJournal.NO_RECORD) {
+            Arrays.fill(row, 0);
+            row[AccountStore.LAST_RECORD] = TransactionJournal.NO_RECORD;
+            row[AccountStore.ACCOUNT_NUMBER] = AccountStore.NO_NUMBER;
+            row[AccountStore.OWNER_NAME] = NamePool.NO_NAME;
+            return;
+        }
+        for (int column = 0; column < AccountStore.COLUMNS; column++) {
+            row[column] = store.get(column, id);
+        }
+        row[AccountStore.BALANCE] = state[1];
+        row[AccountStore.LAST_RECORD] = state[0];
+    }
+
+    // Создание счёта, возвращает его id
+    public int createAccount(double initialBalance) {
+        return createAccountCents(Money.fromDouble(initialBalance));
+    }
+
+    public int createAccountCents(long initialBalance) {
+        return openAccount(initialBalance);
+    }
+
+    // Не переопределяется: вызывается и из конструктора
+    private int openAccount(long initialBalance) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            if (initialBalance < 0) {
+                throw new IllegalArgumentException("Начальный баланс не может быть отрицательным");
+            }
+            long now = System.currentTimeMillis();
+            int id = store.createAccount(initialBalance, 0, now);
+            long record;
+            synchronized (lockFor(id)) {
+                record = record(id, TransactionJournal.CREATE, initialBalance, TransactionJournal.NO_ACCOUNT, now,
+                        initialBalance);
+                indexCreated(id, initialBalance);
+            }
+            aggregates.accountCreated(initialBalance);
+            journal.awaitDurable(record);
+            success = true;
+            return id;
+        } finally {
+            metrics.record(BankMetrics.Operation.CREATE_ACCOUNT, start, success);
+        }
+    }
+
+    // Создание счёта с номером из цифр и именем владельца; дубликат номера - IllegalArgumentException
+    public int createAccount(String accountNumber, String ownerName, double initialBalance) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            long number = AccountNumberIndex.parse(accountNumber, 0, accountNumber.length());
+            if (number < 0) {
+                throw new IllegalArgumentException("Номер счёта должен состоять из цифр: " + accountNumber);
+            }
+            if (ownerName == null || ownerName.isBlank()) {
+                throw new IllegalArgumentException("Имя владельца не может быть пустым");
+            }
+            long balance = Money.fromDouble(initialBalance);
+            if (balance < 0) {
+                throw new IllegalArgumentException("Начальный баланс не может быть отрицательным");
+            }
+            long[] ownerNames = {store.getOwnerNames().add(ownerName)};
+            int[] created = new int[1];
+            if (insertAccounts(1, new long[]{number}, ownerNames, new long[]{balance}, new long[1], created) == 0) {
+                throw new IllegalArgumentException("Счёт с номером " + accountNumber + " уже существует");
+            }
+            success = true;
+            return created[0];
+        } finally {
+            metrics.record(BankMetrics.Operation.CREATE_ACCOUNT, start, success);
+        }
+    }
+
+    // Пакетное создание счетов с номерами. ids[k] получает id счёта или NOT_FOUND для дубликата номера.
+    // Возвращает число созданных счетов.
+    public int createAccounts(int n, long[] numbers, long[] ownerNames, long[] balances, long[] rates, int[] ids) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            int accepted = insertAccounts(n, numbers, ownerNames, balances, rates, ids);
+            success = true;
+            return accepted;
+        } finally {
+            metrics.record(BankMetrics.Operation.CREATE_ACCOUNTS, start, success);
+        }
+    }
+
+    private int insertAccounts(int n, long[] numbers, long[] ownerNames, long[] balances, long[] rates, int[] ids) {
+        awaitIndexes();
+        long now = System.currentTimeMillis();
+        long[] acceptedNumbers = new long[n];
+        long[] acceptedNames = new long[n];
+        long[] acceptedBalances = new long[n];
+        long[] acceptedRates = new long[n];
+        int accepted = 0;
+        // Номер занимается в индексе по одному (putIfAbsent с RESERVED), поэтому дубликат - и внутри пакета,
+        // и с другим созданием - отвергается без общей блокировки на весь пакет; поиск видит номер после replace
+        for (int k = 0; k < n; k++) {
+            if (accountNumbers.putIfAbsent(numbers[k], AccountNumberIndex.RESERVED) != AccountNumberIndex.NOT_FOUND) {
+                ids[k] = AccountNumberIndex.NOT_FOUND;
+                continue;
+            }
+            ids[k] = accepted;
+            acceptedNumbers[accepted] = numbers[k];
+            acceptedNames[accepted] = ownerNames[k];
+            acceptedBalances[accepted] = balances[k];
+            acceptedRates[accepted] = rates[k];
+            accepted++;
+        }
+        int firstId = store.createAccounts(accepted, acceptedNumbers, acceptedNames, acceptedBalances, acceptedRates,
+                now);
+        for (int k = 0; k < accepted; k++) {
+            accountNumbers.replace(acceptedNumbers[k], firstId + k);
+            owners.add(acceptedNames[k], firstId + k);
+        }
+        for (int k = 0; k < n; k++) {
+            if (ids[k] != AccountNumberIndex.NOT_FOUND) {
+                ids[k] += firstId;
+            }
+        }
+        long last = TransactionJournal.NO_RECORD;
+        for (int k = 0; k < accepted; k++) {
+            int id = firstId + k;
+            long balance = acceptedBalances[k];
+            long[] info = accountInfo(acceptedNumbers[k], acceptedNames[k], acceptedRates[k]);
+            int records = 1 + info.length / 2;
+            synchronized (lockFor(id)) {
+                // CREATE и записи INFO счёта - одна операция
+                long position = journal.reserve(records);
+                record(position, id, TransactionJournal.CREATE, balance, TransactionJournal.NO_ACCOUNT, now, balance,
+                        records > 1 ? TransactionJournal.CONTINUED : 0);
+                for (int i = 1; i < records; i++) {
+                    record(position + i, id, TransactionJournal.INFO, info[2 * i - 1], (int) info[2 * i - 2], now,
+                            balance, i < records - 1 ? TransactionJournal.CONTINUED : 0);
+                }
+                last = Math.max(last, position + records - 1);
+                indexCreated(id, balance);
+            }
+            aggregates.accountCreated(balance);
+        }
+        journal.awaitDurable(last);
+        return accepted;
+    }
+
+    // Записи INFO нового счёта парами (вид, значение): номер, ставка (если не нулевая), длина имени владельца
+    // и его байты по 8 в младшем байте вперёд
+    private long[] accountInfo(long number, long ownerName, long rate) {
+        int length = ownerName == NamePool.NO_NAME ? 0 : NamePool.length(ownerName);
+        int chunks = (length + Long.BYTES - 1) / Long.BYTES;
+        long[] info = new long[2 * (1 + (rate != 0 ? 1 : 0) + (ownerName != NamePool.NO_NAME ? 1 + chunks : 0))];
+        int n = 0;
+        info[n++] = TransactionJournal.INFO_NUMBER;
+        info[n++] = number;
+        if (rate != 0) {
+            info[n++] = TransactionJournal.INFO_RATE;
+            info[n++] = rate;
+        }
+        if (ownerName != NamePool.NO_NAME) {
+            NamePool names = store.getOwnerNames();
+            info[n++] = TransactionJournal.INFO_OWNER;
+            info[n++] = length;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                long bytes = 0;
+                for (int i = 0; i < Long.BYTES && chunk * Long.BYTES + i < length; i++) {
+                    bytes |= (names.byteAt(ownerName, chunk * Long.BYTES + i) & 0xFFL) << 8 * i;
+                }
+                info[n++] = TransactionJournal.INFO_OWNER_BYTES;
+                info[n++] = bytes;
+            }
+        }
+        return info;
+    }
+
+    // id счёта по номеру или AccountNumberIndex.NOT_FOUND
+    public int findAccountId(long accountNumber) {
+        awaitIndexes();
+        return accountNumbers.get(accountNumber);
+    }
+
+    // id по номеру, записанному цифрами в text, или AccountNumberIndex.NOT_FOUND; строка номера не создаётся
+    public int findAccountId(CharSequence accountNumber) {
+        long number = AccountNumberIndex.parse(accountNumber, 0, accountNumber.length());
+        awaitIndexes();
+        return number < 0 ? AccountNumberIndex.NOT_FOUND : accountNumbers.get(number);
+    }
+
+    // Счета, чьё имя владельца начинается с prefix без учёта регистра, в порядке имён.
+    // Первые skip совпадений пропускаются, в ids пишется не больше ids.length id; возвращает число записанных.
+    public int findAccountsByOwnerPrefix(CharSequence prefix, int skip, int[] ids) {
+        awaitIndexes();
+        return owners.findByPrefix(prefix, skip, ids);
+    }
+
+    // То же для имени владельца целиком
+    public int findAccountsByOwner(CharSequence ownerName, int skip, int[] ids) {
+        awaitIndexes();
+        return owners.findByName(ownerName, skip, ids);
+    }
+
+    public int countAccountsByOwnerPrefix(CharSequence prefix) {
+        awaitIndexes();
+        return owners.countByPrefix(prefix);
+    }
+
+    // Ожидание фонового построения индексов номеров и владельцев (fromSnapshot)
+    private void awaitIndexes() {
+        CompletableFuture<Void> built = indexesBuilt;
+        if (!built.isDone()) {
+            built.join();
+        }
+    }
+
+    // Включение индекса по балансу для запросов "первые N" и "в диапазоне". Индекс строится проходом по всем
+    // счетам под всеми полосами (счета холодного уровня при этом загружаются), дальше каждое изменение баланса
+    // обновляет его под блокировкой счёта - это и есть цена индекса на пути записи (см. BalanceIndexBenchmark).
+    // Горячих счетов в индексе нет: их балансы меняются без полосы счёта, они добавляются к ответам при запросе
+    // (findTopBalances и другие). Запросы к самому BalanceIndex горячие счета не видят.
+    public BalanceIndex enableBalanceIndex() {
+        BalanceIndex[] result = new BalanceIndex[1];
+        withStripes(allStripes(), 0, () -> {
+            if (balanceIndex == null) {
+                BalanceIndex index = new BalanceIndex(locks);
+                // счёт, чей id уже выдан, но CREATE ещё не записан, создатель добавит повторно - это ничего не меняет
+                int count = store.getAccountsCount();
+                for (int id = 0; id < count; id++) {
+                    if (hotAccount(id) == null) {
+                        index.add(id, store.getBalance(id));
+                    }
+                }
+                balanceIndex = index;
+            }
+            result[0] = balanceIndex;
+        });
+        return result[0];
+    }
+
+    // Счета с наибольшими балансами, по убыванию. Первые skip пропускаются, в ids пишется не больше ids.length id;
+    // возвращает число записанных. Нужен включённый индекс; при параллельных операциях ответ слабо согласован.
+    // Горячие счета входят в ответ этого и следующих запросов со своим полным балансом (сумма слотов).
+    public int findTopBalances(int skip, int[] ids) {
+        return findBalances(0, Long.MAX_VALUE, true, skip, ids);
+    }
+
+    // Счета с наименьшими балансами, по возрастанию
+    public int findBottomBalances(int skip, int[] ids) {
+        return findBalances(0, Long.MAX_VALUE, false, skip, ids);
+    }
+
+    // Счета с балансом в [fromCents, toCents], по возрастанию баланса
+    public int findAccountsByBalance(long fromCents, long toCents, int skip, int[] ids) {
+        return findBalances(fromCents, toCents, false, skip, ids);
+    }
+
+    // Запрос к индексу по балансу. Горячих счетов в индексе нет: первые skip + ids.length счетов индекса
+    // сливаются с горячими счетами из диапазона в том же порядке, что и у индекса.
+    // Реестр горячих счетов читается после запроса к индексу: счёт, ставший горячим во время запроса, уже есть
+    // в реестре, а если индекс успел его вернуть - берётся только из реестра, так что ни пропуска, ни повтора.
+    private int findBalances(long fromCents, long toCents, boolean descending, int skip, int[] ids) {
+        BalanceIndex index = requireBalanceIndex();
+        if (hotAccounts.length == 0) {
+            int count = descending ? index.findTop(skip, ids) : index.findBetween(fromCents, toCents, skip, ids);
+            if (hotAccounts.length == 0) {
+                return count;
+            }
+        }
+        int[] found = new int[(int) Math.min(Integer.MAX_VALUE, (long) skip + ids.length)];
+        int indexed = descending ? index.findTop(0, found) : index.findBetween(fromCents, toCents, 0, found);
+        HotAccount[] hot = hotAccounts;
+        found = Arrays.copyOf(found, Math.addExact(indexed, hot.length));
+        long[] balances = new long[found.length];
+        int n = 0;
+        for (int i = 0; i < indexed; i++) {
+            if (!isHot(hot, found[i])) {
+                found[n] = found[i];
+                balances[n++] = getBalanceCents(found[i]);
+            }
+        }
+        for (HotAccount account : hot) {
+            long balance = getBalanceCents(account.id);
+            if (balance >= fromCents && balance <= toCents) {
+                found[n] = account.id;
+                balances[n++] = balance;
+            }
+        }
+        BalanceIndex.sort(balances, found, 0, n);
+        int count = 0;
+        for (int k = skip; k < n && count < ids.length; k++) {
+            ids[count++] = found[descending ? n - 1 - k : k];
+        }
+        return count;
+    }
+
+    private BalanceIndex requireBalanceIndex() {
+        BalanceIndex index = balanceIndex;
+        if (index == null) {
+            throw new IllegalStateException("Индекс по балансу не включён (enableBalanceIndex)");
+        }
+        return index;
+    }
+
+    public long getAccountNumber(int id) {
+        checkId(id);
+        return store.getAccountNumber(id);
+    }
+
+    public String getOwnerName(int id) {
+        checkId(id);
+        return store.getOwnerName(id);
+    }
+
+    public NamePool getOwnerNames() {
+        return store.getOwnerNames();
+    }
+
+    // Снимок счёта в виде объекта Account
+    public Account getAccount(int id) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            Account account;
+            synchronized (lockFor(id)) {
+                account = new Account(id, balanceOf(id),
+                        store.getAnnualInterestRate(id) / (double) Money.BASIS_POINTS_PER_PERCENT,
+                        new Date(store.getDateCreated(id)));
+            }
+            success = true;
+            return account;
+        } finally {
+            metrics.record(BankMetrics.Operation.GET_ACCOUNT, start, success);
+        }
+    }
+
+    // Строка заголовка выписки: номер (или #id для счёта без номера), владелец, баланс и годовая ставка в процентах
+    public String getAccountInfo(int id) {
+        checkId(id);
+        long number;
+        String owner;
+        long balance;
+        long rate;
+        synchronized (lockFor(id)) {
+            number = store.getAccountNumber(id);
+            owner = store.getOwnerName(id);
+            balance = balanceOf(id);
+            rate = store.getAnnualInterestRate(id);
+        }
+        return String.format("Account %s, owner %s, balance $%s, rate %s%%",
+                number == AccountStore.NO_NUMBER ? "#" + id : Long.toString(number), owner == null ? "-" : owner,
+                Money.toString(balance), Money.toString(rate));
+    }
+
+    // Данные заголовка выписки одним захватом полосы, без строк (см. StatementExporter):
+    // header[0] - номер, [1] - ссылка на имя в NamePool, [2] - баланс, [3] - ставка, [4] - последняя запись журнала.
+    // У горячего счёта возвращаются последние записи всех его цепочек (см. chainHeads), у обычного - null.
+    long[] readStatementHeader(int id, long[] header) {
+        synchronized (lockFor(id)) {
+            header[0] = store.getAccountNumber(id);
+            header[1] = store.get(AccountStore.OWNER_NAME, id);
+            header[2] = balanceOf(id);
+            header[3] = store.getAnnualInterestRate(id);
+            header[4] = store.getLastRecord(id);
+            return hotAccount(id) == null ? null : chainHeads(id);
+        }
+    }
+
+    public int getAccountsCount() {
+        return store.getAccountsCount();
+    }
+
+    public double getBalance(int id) {
+        return Money.toDouble(getBalanceCents(id));
+    }
+
+    public long getBalanceCents(int id) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            long balance;
+            synchronized (lockFor(id)) {
+                balance = balanceOf(id);
+            }
+            success = true;
+            return balance;
+        } finally {
+            metrics.record(BankMetrics.Operation.GET_BALANCE, start, success);
+        }
+    }
+
+    public void setAnnualInterestRate(int id, double annualInterestRate) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            long rate = Money.rateToBasisPoints(annualInterestRate);
+            long record;
+            synchronized (lockFor(id)) {
+                store.setAnnualInterestRate(id, rate);
+                record = record(id, TransactionJournal.INFO, rate, TransactionJournal.INFO_RATE,
+                        System.currentTimeMillis(), store.getBalance(id));
+            }
+            journal.awaitDurable(record);
+            success = true;
+        } finally {
+            metrics.record(BankMetrics.Operation.SET_INTEREST_RATE, start, success);
+        }
+    }
+
+    // Ежемесячный процент по счёту в копейках
+    public long getMonthlyInterestCents(int id) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            long interest;
+            synchronized (lockFor(id)) {
+                interest = Money.monthlyInterest(balanceOf(id), store.getAnnualInterestRate(id));
+            }
+            success = true;
+            return interest;
+        } finally {
+            metrics.record(BankMetrics.Operation.MONTHLY_INTEREST, start, success);
+        }
+    }
+
+    // Снятие денег
+    public void withdraw(int id, double amount) {
+        withdrawCents(id, Money.fromDouble(amount));
+    }
+
+    public void withdrawCents(int id, long amount) {
+        journal.awaitDurable(applyWithdraw(id, amount));
+    }
+
+    // Снятие без ожидания сброса журнала на диск, возвращает запись журнала.
+    // ShardedBankService ждёт сброса один раз на пачку операций шарда.
+    long applyWithdraw(int id, long amount) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            long record = TransactionJournal.NO_RECORD;
+            checkAmount(amount);
+            checkId(id);
+            HotAccount.Slot slot = hotSlot(id);
+            if (slot != null) {
+                // у горячего счёта - из слота потока, если в нём хватает денег
+                synchronized (slot) {
+                    if (amount <= slot.balance) {
+                        slot.balance -= amount;
+                        long now = System.currentTimeMillis();
+                        record = record(id, slot, TransactionJournal.WITHDRAW, amount, TransactionJournal.NO_ACCOUNT,
+                                now);
+                        aggregates.withdrawn(amount, now);
+                    }
+                }
+            }
+            if (record == TransactionJournal.NO_RECORD) {
+                synchronized (lockFor(id)) {
+                    long balance = debitBalance(id, amount);
+                    setBalance(id, balance, balance - amount);
+                    long now = System.currentTimeMillis();
+                    record = record(id, TransactionJournal.WITHDRAW, amount, TransactionJournal.NO_ACCOUNT, now,
+                            balance - amount);
+                    aggregates.withdrawn(amount, now);
+                }
+            }
+            success = true;
+            return record;
+        } finally {
+            metrics.record(BankMetrics.Operation.WITHDRAW, start, success);
+        }
+    }
+
+    // Пополнение счета
+    public void deposit(int id, double amount) {
+        depositCents(id, Money.fromDouble(amount));
+    }
+
+    public void depositCents(int id, long amount) {
+        journal.awaitDurable(applyDeposit(id, amount));
+    }
+
+    long applyDeposit(int id, long amount) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            long record;
+            checkAmount(amount);
+            checkId(id);
+            HotAccount.Slot slot = hotSlot(id);
+            if (slot != null) {
+                // у горячего счёта - в слот потока, полоса счёта не захватывается
+                synchronized (slot) {
+                    slot.balance = Money.add(slot.balance, amount);
+                    long now = System.currentTimeMillis();
+                    record = record(id, slot, TransactionJournal.DEPOSIT, amount, TransactionJournal.NO_ACCOUNT, now);
+                    aggregates.deposited(amount, now);
+                }
+            } else {
+                synchronized (lockFor(id)) {
+                    long oldBalance = store.getBalance(id);
+                    long balance = Money.add(oldBalance, amount);
+                    setBalance(id, oldBalance, balance);
+                    long now = System.currentTimeMillis();
+                    record = record(id, TransactionJournal.DEPOSIT, amount, TransactionJournal.NO_ACCOUNT, now,
+                            balance);
+                    aggregates.deposited(amount, now);
+                }
+            }
+            success = true;
+            return record;
+        } finally {
+            metrics.record(BankMetrics.Operation.DEPOSIT, start, success);
+        }
+    }
+
+    // Перевод между счетами. Блокируются только полосы двух участвующих счетов,
+    // всегда в порядке возрастания номера полосы, поэтому встречные переводы не дают взаимоблокировки.
+    // При нехватке средств балансы обоих счетов остаются прежними.
+    // С горячим счётом вместо его полосы блокируется слот потока; слот берётся только у одного из двух счетов.
+    public void transfer(int fromId, int toId, double amount) {
+        transferCents(fromId, toId, Money.fromDouble(amount));
+    }
+
+    public void transferCents(int fromId, int toId, long amount) {
+        journal.awaitDurable(applyTransfer(fromId, toId, amount));
+    }
+
+    long applyTransfer(int fromId, int toId, long amount) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkAmount(amount);
+            checkId(fromId);
+            checkId(toId);
+            if (fromId == toId) {
+                throw new IllegalArgumentException("Нельзя перевести деньги на тот же счёт");
+            }
+
+            HotAccount.Slot toSlot = hotSlot(toId);
+            HotAccount.Slot fromSlot = toSlot == null ? hotSlot(fromId) : null;
+            long position = TransactionJournal.NO_RECORD;
+
+            if (toSlot != null) {
+                // зачисление в слот горячего счёта: полоса получателя не захватывается
+                synchronized (lockFor(fromId)) {
+                    long fromBalance = debitBalance(fromId, amount);
+                    synchronized (toSlot) {
+                        long toBalance = Money.add(toSlot.balance, amount);
+                        setBalance(fromId, fromBalance, fromBalance - amount);
+                        toSlot.balance = toBalance;
+                        long now = System.currentTimeMillis();
+                        position = journal.reserve(2);
+                        record(position, fromId, TransactionJournal.TRANSFER_OUT, amount, toId, now,
+                                fromBalance - amount, TransactionJournal.CONTINUED);
+                        record(position + 1, toId, toSlot, TransactionJournal.TRANSFER_IN, amount, fromId, now, 0);
+                    }
+                }
+            } else if (fromSlot != null) {
+                // списание из слота горячего счёта, если в нём хватает денег, иначе - обычный путь со сбором слотов
+                synchronized (lockFor(toId)) {
+                    synchronized (fromSlot) {
+                        if (amount <= fromSlot.balance) {
+                            long oldToBalance = store.getBalance(toId);
+                            long toBalance = Money.add(oldToBalance, amount);
+                            fromSlot.balance -= amount;
+                            setBalance(toId, oldToBalance, toBalance);
+                            long now = System.currentTimeMillis();
+                            position = journal.reserve(2);
+                            record(position, fromId, fromSlot, TransactionJournal.TRANSFER_OUT, amount, toId, now,
+                                    TransactionJournal.CONTINUED);
+                            record(position + 1, toId, TransactionJournal.TRANSFER_IN, amount, fromId, now, toBalance,
+                                    0);
+                        }
+                    }
+                }
+            }
+
+            if (position == TransactionJournal.NO_RECORD) {
+                int fromStripe = stripe(fromId);
+                int toStripe = stripe(toId);
+                Object first = locks[Math.min(fromStripe, toStripe)];
+                Object second = locks[Math.max(fromStripe, toStripe)];
+                synchronized (first) {
+                    synchronized (second) {
+                        long fromBalance = debitBalance(fromId, amount);
+                        long oldToBalance = store.getBalance(toId);
+                        long toBalance = Money.add(oldToBalance, amount);
+                        setBalance(fromId, fromBalance, fromBalance - amount);
+                        setBalance(toId, oldToBalance, toBalance);
+                        long now = System.currentTimeMillis();
+                        position = journal.reserve(2);
+                        record(position, fromId, TransactionJournal.TRANSFER_OUT, amount, toId, now,
+                                fromBalance - amount, TransactionJournal.CONTINUED);
+                        record(position + 1, toId, TransactionJournal.TRANSFER_IN, amount, fromId, now, toBalance, 0);
+                    }
+                }
+            }
+            success = true;
+            return position + 1;
+        } finally {
+            metrics.record(BankMetrics.Operation.TRANSFER, start, success);
+        }
+    }
+
+    // Первая половина межшардового перевода (ShardedBankService): списание с fromId с записью TRANSFER_OUT
+    // и флагом IN_TRANSIT, возвращает номер записи - он закрывается в creditTransfer или refundTransfer.
+    // Между ними деньги "в пути": общий баланс их учитывает, балансы счетов - нет; снимок хранит список
+    // списаний в пути, а восстановление возвращает незакрытые отправителям.
+    long debitTransfer(int fromId, int toId, long amount) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkAmount(amount);
+            checkId(fromId);
+            checkId(toId);
+            if (fromId == toId) {
+                throw new IllegalArgumentException("Нельзя перевести деньги на тот же счёт");
+            }
+            long position;
+            synchronized (lockFor(fromId)) {
+                long balance = debitBalance(fromId, amount);
+                setBalance(fromId, balance, balance - amount);
+                position = journal.reserve(1);
+                record(position, fromId, TransactionJournal.TRANSFER_OUT, amount, toId, System.currentTimeMillis(),
+                        balance - amount, TransactionJournal.IN_TRANSIT);
+                transfersInTransit.add(position);
+            }
+            success = true;
+            return position;
+        } finally {
+            metrics.record(BankMetrics.Operation.TRANSFER, start, success);
+        }
+    }
+
+    // Вторая половина: зачисление на toId с записью TRANSFER_IN и флагом DELIVERED; transfer - запись списания
+    void creditTransfer(int toId, int fromId, long amount, long transfer) {
+        settleTransfer(toId, fromId, amount, transfer, TransactionJournal.DELIVERED);
+    }
+
+    // Возврат списанного отправителю, если зачислить нельзя, с записью TRANSFER_IN и флагом RETURNED
+    void refundTransfer(int fromId, int toId, long amount, long transfer) {
+        settleTransfer(fromId, toId, amount, transfer, TransactionJournal.RETURNED);
+    }
+
+    // Зачисление amount на id с записью, закрывающей списание transfer; возвращает номер записи
+    private long settleTransfer(int id, int counterparty, long amount, long transfer, int flags) {
+        long now = System.currentTimeMillis();
+        long position;
+        HotAccount.Slot slot = hotSlot(id);
+        if (slot != null) {
+            synchronized (slot) {
+                slot.balance = Money.add(slot.balance, amount);
+                position = journal.reserve(1);
+                record(position, id, slot, TransactionJournal.TRANSFER_IN, amount, counterparty, now, flags);
+                transfersInTransit.remove(transfer);
+            }
+            return position;
+        }
+        synchronized (lockFor(id)) {
+            long oldBalance = store.getBalance(id);
+            long balance = Money.add(oldBalance, amount);
+            setBalance(id, oldBalance, balance);
+            position = journal.reserve(1);
+            record(position, id, TransactionJournal.TRANSFER_IN, amount, counterparty, now, balance, flags);
+            transfersInTransit.remove(transfer);
+        }
+        return position;
+    }
+
+    // Пакетный перевод. Каждый затронутый счёт читается и записывается один раз,
+    // полосы блокировок всех счетов пакета захватываются один раз и в порядке возрастания.
+    // Взаимозачёт (netting) проверяет только итоговое изменение баланса и допустим лишь в режиме ALL_OR_NOTHING.
+    public TransferResult[] transferBatch(List<TransferRequest> requests, BatchMode mode, boolean netting) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            TransferResult[] results = runBatch(requests, mode, netting);
+            if (Arrays.asList(results).contains(TransferResult.OK)) {
+                // записи пакета зарезервированы до возврата, чужие записи до них дописываются сразу
+                journal.awaitDurable(journal.size() - 1);
+            }
+            success = true;
+            return results;
+        } finally {
+            metrics.record(BankMetrics.Operation.TRANSFER_BATCH, start, success);
+        }
+    }
+
+    private TransferResult[] runBatch(List<TransferRequest> requests, BatchMode mode, boolean netting) {
+        if (netting && mode != BatchMode.ALL_OR_NOTHING) {
+            throw new IllegalArgumentException("Взаимозачёт возможен только в режиме ALL_OR_NOTHING");
+        }
+        int n = requests.size();
+        TransferResult[] results = new TransferResult[n];
+        // Группировка по счетам: каждый счёт получает позицию в accounts, заявка хранит позиции своих счетов
+        int[] from = new int[n];
+        int[] to = new int[n];
+        int[] accounts = new int[Math.min(n * 2, store.getAccountsCount())];
+        int accountsCount = 0;
+        int[] table = new int[Integer.highestOneBit(Math.max(1, n * 4) - 1) << 1];
+        Arrays.fill(table, -1);
+        boolean rejected = false;
+        for (int i = 0; i < n; i++) {
+            TransferRequest request = requests.get(i);
+            if (!store.exists(request.fromId()) || !store.exists(request.toId())) {
+                results[i] = TransferResult.UNKNOWN_ACCOUNT;
+                rejected = true;
+            } else if (request.amount() <= 0 || request.fromId() == request.toId()) {
+                results[i] = TransferResult.INVALID_AMOUNT;
+                rejected = true;
+            } else {
+                from[i] = position(table, accounts, accountsCount, request.fromId());
+                if (from[i] == accountsCount) {
+                    accounts[accountsCount++] = request.fromId();
+                }
+                to[i] = position(table, accounts, accountsCount, request.toId());
+                if (to[i] == accountsCount) {
+                    accounts[accountsCount++] = request.toId();
+                }
+            }
+        }
+        if (rejected && mode == BatchMode.ALL_OR_NOTHING) {
+            abortRemaining(results);
+            return results;
+        }
+
+        boolean[] usedStripes = new boolean[LOCK_STRIPES];
+        for (int k = 0; k < accountsCount; k++) {
+            usedStripes[stripe(accounts[k])] = true;
+        }
+        int[] stripes = new int[LOCK_STRIPES];
+        int stripesCount = 0;
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            if (usedStripes[stripe]) {
+                stripes[stripesCount++] = stripe;
+            }
+        }
+
+        int[] batchAccounts = Arrays.copyOf(accounts, accountsCount);
+        withStripes(Arrays.copyOf(stripes, stripesCount), 0,
+                () -> applyBatch(requests, results, batchAccounts, from, to, mode, netting));
+        return results;
+    }
+
+    // Позиция счёта в accounts через открытую адресацию; для нового счёта table запоминает позицию count
+    private static int position(int[] table, int[] accounts, int count, int id) {
+        int mask = table.length - 1;
+        int slot = (id * 0x9E3779B9) >>> 7 & mask;
+        while (table[slot] != -1) {
+            if (accounts[table[slot]] == id) {
+                return table[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = count;
+        return count;
+    }
+
+    // Выполняется под блокировками всех счетов пакета. Пакет работает со слотом 0 горячих счетов,
+    // поэтому их слоты сначала собираются в него.
+    private void applyBatch(List<TransferRequest> requests, TransferResult[] results, int[] accounts,
+                            int[] from, int[] to, BatchMode mode, boolean netting) {
+        long[] balances = new long[accounts.length];
+        for (int k = 0; k < accounts.length; k++) {
+            HotAccount hot = hotAccount(accounts[k]);
+            if (hot != null) {
+                gather(hot);
+            }
+            balances[k] = store.getBalance(accounts[k]);
+        }
+
+        long[] working = balances.clone();
+        long[] initial = balances.clone();
+        boolean failed = false;
+        if (netting) {
+            for (int i = 0; i < results.length; i++) {
+                long amount = requests.get(i).amount();
+                working[from[i]] = Money.subtract(working[from[i]], amount);
+                working[to[i]] = Money.add(working[to[i]], amount);
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (working[from[i]] < 0) {
+                    results[i] = TransferResult.INSUFFICIENT_FUNDS;
+                    metrics.insufficientFunds();
+                    failed = true;
+                }
+            }
+        } else {
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                long amount = requests.get(i).amount();
+                if (amount > working[from[i]]) {
+                    results[i] = TransferResult.INSUFFICIENT_FUNDS;
+                    metrics.insufficientFunds();
+                    failed = true;
+                    if (mode == BatchMode.ALL_OR_NOTHING) {
+                        break;
+                    }
+                    continue;
+                }
+                working[from[i]] -= amount;
+                working[to[i]] = Money.add(working[to[i]], amount);
+            }
+        }
+        if (failed && mode == BatchMode.ALL_OR_NOTHING) {
+            abortRemaining(results);
+            return;
+        }
+
+        // Журнал пишется в порядке заявок, с промежуточными балансами, в один зарезервированный участок.
+        // Участок - одна операция журнала: при восстановлении пакет, дописанный не целиком, отбрасывается весь.
+        int accepted = 0;
+        for (TransferResult result : results) {
+            if (result == null) {
+                accepted++;
+            }
+        }
+        long position = journal.reserve(accepted * 2);
+        long last = position + accepted * 2 - 1;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            TransferRequest request = requests.get(i);
+            balances[from[i]] -= request.amount();
+            balances[to[i]] += request.amount();
+            record(position++, request.fromId(), TransactionJournal.TRANSFER_OUT, request.amount(), request.toId(),
+                    now, balances[from[i]], TransactionJournal.CONTINUED);
+            record(position, request.toId(), TransactionJournal.TRANSFER_IN, request.amount(), request.fromId(),
+                    now, balances[to[i]], position < last ? TransactionJournal.CONTINUED : 0);
+            position++;
+            results[i] = TransferResult.OK;
+        }
+        for (int k = 0; k < accounts.length; k++) {
+            setBalance(accounts[k], initial[k], working[k]);
+        }
+    }
+
+    private static void abortRemaining(TransferResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = TransferResult.ABORTED;
+            }
+        }
+    }
+
+    private static int[] allStripes() {
+        int[] stripes = new int[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = i;
+        }
+        return stripes;
+    }
+
+    // Захват полос по порядку: вложенные synchronized, по одному уровню на полосу
+    private void withStripes(int[] stripes, int index, Runnable action) {
+        if (index == stripes.length) {
+            action.run();
+            return;
+        }
+        synchronized (locks[stripes[index]]) {
+            withStripes(stripes, index + 1, action);
+        }
+    }
+
+    // Начисление процентов по всем счетам. Диапазон id делится между потоками fork-join пула;
+    // внутри диапазона счета обрабатываются по полосам, одна блокировка на полосу,
+    // поэтому обычные операции могут идти параллельно. На каждый счёт с начислением - одна запись в журнале.
+    // Повторный запуск за тот же или пересекающийся период счета, уже получившие проценты, пропускает
+    // (их число - в AccrualReport.skipped), поэтому прерванное начисление можно просто запустить снова.
+    // Конец периода хранится у счёта и восстанавливается по записи INTEREST; у счёта без начисления
+    // (нулевой баланс или ставка) он переживает перезапуск только через снимок.
+    public AccrualReport accrueInterest(InterestAccrual accrual) {
+        return accrueInterest(accrual, ForkJoinPool.commonPool());
+    }
+
+    public AccrualReport accrueInterest(InterestAccrual accrual, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            int count = store.getAccountsCount();
+            LongAdder credited = new LongAdder();
+            LongAdder skipped = new LongAdder();
+            LongAdder total = new LongAdder();
+            pool.invoke(new AccrualTask(accrual, 0, count, credited, skipped, total));
+            if (credited.sum() > 0) {
+                journal.awaitDurable(journal.size() - 1);
+            }
+            success = true;
+            return new AccrualReport(count, credited.sum(), skipped.sum(), total.sum(), System.nanoTime() - start);
+        } finally {
+            metrics.record(BankMetrics.Operation.ACCRUE_INTEREST, start, success);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class AccrualTask extends RecursiveAction {
+        private static final int LEAF_SIZE = 1 << 16;
+
+        private final InterestAccrual accrual;
+        private final int fromId;
+        private final int toId;
+        private final LongAdder credited;
+        private final LongAdder skipped;
+        private final LongAdder total;
+
+        AccrualTask(InterestAccrual accrual, int fromId, int toId, LongAdder credited, LongAdder skipped,
+                    LongAdder total) {
+            this.accrual = accrual;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.credited = credited;
+            this.skipped = skipped;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            if (toId - fromId > LEAF_SIZE) {
+                int middle = (fromId + toId) >>> 1;
+                invokeAll(new AccrualTask(accrual, fromId, middle, credited, skipped, total),
+                        new AccrualTask(accrual, middle, toId, credited, skipped, total));
+                return;
+            }
+            long timestamp = accrual.getPeriodEnd();
+            long rangeTotal = 0;
+            int rangeCredited = 0;
+            int rangeSkipped = 0;
+            for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+                int first = fromId + ((stripe - fromId) & (LOCK_STRIPES - 1));
+                synchronized (locks[stripe]) {
+                    for (int id = first; id < toId; id += LOCK_STRIPES) {
+                        if (store.getAccruedThrough(id) > accrual.getPeriodStart()) {
+                            rangeSkipped++;
+                            continue;
+                        }
+                        store.setAccruedThrough(id, timestamp);
+                        HotAccount hot = hotAccount(id);
+                        if (hot != null) {
+                            // процент - с баланса всего горячего счёта
+                            gather(hot);
+                        }
+                        long balance = store.getBalance(id);
+                        long interest = accrual.interest(balance, store.getAnnualInterestRate(id), store.getDateCreated(id));
+                        if (interest > 0) {
+                            long newBalance = Money.add(balance, interest);
+                            setBalance(id, balance, newBalance);
+                            record(id, TransactionJournal.INTEREST, interest, TransactionJournal.NO_ACCOUNT,
+                                    timestamp, newBalance);
+                            rangeTotal = Money.add(rangeTotal, interest);
+                            rangeCredited++;
+                        }
+                    }
+                }
+            }
+            aggregates.credited(rangeTotal);
+            credited.add(rangeCredited);
+            skipped.add(rangeSkipped);
+            total.add(rangeTotal);
+        }
+    }
+
+    // История операций счёта, от старых к новым. Строки строятся только здесь, по записям журнала.
+    public List<String> getTransactionHistory(int id) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            long[] heads;
+            synchronized (lockFor(id)) {
+                heads = chainHeads(id);
+            }
+
+            // длина истории известна из порядковых номеров последних записей цепочек
+            int length = 0;
+            for (long head : heads) {
+                length += head == TransactionJournal.NO_RECORD ? 0 : journal.getSequence(head) + 1;
+            }
+            long[] records = new long[length];
+            int count = 0;
+            for (long record; (record = HotAccount.next(journal, heads)) != TransactionJournal.NO_RECORD; ) {
+                if (!isHidden(id, record)) {
+                    records[count++] = record;
+                }
+            }
+
+            List<String> history = new ArrayList<>(count);
+            StringBuilder line = new StringBuilder(48);
+            for (int i = count - 1; i >= 0; i--) {
+                line.setLength(0);
+                history.add(journal.describe(records[i], line).toString());
+            }
+            metrics.historyLength(count);
+            success = true;
+            return history;
+        } finally {
+            metrics.record(BankMetrics.Operation.HISTORY, start, success);
+        }
+    }
+
+    // Страница истории: от новых записей к старым, с фильтром по типу и времени, с продолжением по курсору.
+    // Записи ищутся по индексу счёта в журнале, поэтому стоимость зависит от размера страницы, а не от длины истории.
+    // У горячего счёта цепочки слотов сливаются по номеру записи; курсор - номер записи, с которой продолжать.
+    public HistoryPage getTransactionHistory(int id, HistoryQuery query) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            long cursor = query.cursor();
+            long[] heads;
+            synchronized (lockFor(id)) {
+                heads = chainHeads(id);
+            }
+            if (cursor != HistoryQuery.NEWEST && cursor != HistoryPage.END && (cursor < 0 || cursor >= journal.size()
+                    || journal.getType(cursor) == 0 || journal.getAccountId(cursor) != id)) {
+                throw new IllegalArgumentException("Курсор " + cursor + " не относится к истории счёта " + id);
+            }
+            if (cursor != HistoryQuery.NEWEST) {
+                for (int i = 0; i < heads.length; i++) {
+                    heads[i] = heads.length == 1 || cursor == HistoryPage.END ? cursor
+                            : journal.findBefore(heads[i], cursor + 1);
+                }
+            }
+
+            List<HistoryEntry> entries = new ArrayList<>(Math.min(query.limit(), 64));
+            StringBuilder line = new StringBuilder(48);
+            while (entries.size() < query.limit()) {
+                for (int i = 0; i < heads.length; i++) {
+                    heads[i] = journal.findPrevious(heads[i], query.types(), query.from(), query.to());
+                }
+                long record = HotAccount.next(journal, heads);
+                if (record == TransactionJournal.NO_RECORD) {
+                    break;
+                }
+                if (isHidden(id, record)) {
+                    continue;
+                }
+                line.setLength(0);
+                entries.add(new HistoryEntry(record, journal.getType(record), journal.getAmount(record),
+                        journal.getCounterparty(record), journal.getTimestamp(record),
+                        journal.getBalanceAfter(record), journal.describe(record, line).toString()));
+            }
+            long next = HistoryPage.END;
+            for (long head : heads) {
+                next = Math.max(next, head);
+            }
+            success = true;
+            return new HistoryPage(entries, next);
+        } finally {
+            metrics.record(BankMetrics.Operation.HISTORY_PAGE, start, success);
+        }
+    }
+
+    // Сжатие старой истории в архив журнала (см. TransactionJournal.setArchive). История читается как прежде,
+    // старые записи - через раскодирование блока архива. Отчёт - память истории на счёт до и после.
+    public CompactionReport compactHistory() {
+        long start = System.nanoTime();
+        long before = journal.getHistoryBytes();
+        long archived = journal.compact();
+        return new CompactionReport(store.getAccountsCount(), journal.size(), archived, before,
+                journal.getHistoryBytes(), System.nanoTime() - start);
+    }
+
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    // Изменение баланса под блокировкой счёта, вместе с индексом по балансу (горячих счетов в нём нет)
+    private void setBalance(int id, long oldBalance, long newBalance) {
+        store.setBalance(id, newBalance);
+        BalanceIndex index = balanceIndex;
+        if (index != null && hotAccount(id) == null) {
+            index.update(id, oldBalance, newBalance);
+        }
+    }
+
+    // Новый счёт в индексе по балансу; под блокировкой счёта, после записи CREATE
+    private void indexCreated(int id, long balance) {
+        BalanceIndex index = balanceIndex;
+        if (index != null) {
+            index.add(id, balance);
+        }
+    }
+
+    // Запись операции в журнал; вызывается под блокировкой счёта. Возвращает номер записи.
+    private long record(int id, byte type, long amount, int counterparty, long timestamp, long balanceAfter) {
+        long position = journal.reserve(1);
+        record(position, id, type, amount, counterparty, timestamp, balanceAfter, 0);
+        return position;
+    }
+
+    // Запись в заранее зарезервированную позицию журнала; все записи операции, кроме последней, - с CONTINUED
+    private void record(long position, int id, byte type, long amount, int counterparty, long timestamp,
+                        long balanceAfter, int flags) {
+        journal.write(position, id, type, amount, counterparty, timestamp, balanceAfter, store.getLastRecord(id),
+                flags);
+        store.setLastRecord(id, position);
+    }
+
+    // Запись в цепочку слота горячего счёта, под блокировкой слота; баланс слота уже изменён
+    private long record(int id, HotAccount.Slot slot, byte type, long amount, int counterparty, long timestamp) {
+        long position = journal.reserve(1);
+        record(position, id, slot, type, amount, counterparty, timestamp, 0);
+        return position;
+    }
+
+    private void record(long position, int id, HotAccount.Slot slot, byte type, long amount, int counterparty,
+                        long timestamp, int flags) {
+        journal.write(position, id, type, amount, counterparty, timestamp, slot.balance, slot.head, flags);
+        slot.head = position;
+    }
+
+    // Горячий режим счёта (см. HotAccount): баланс раскладывается на slots слотов (слот 0 - сам счёт),
+    // каждый на своей строке кэша и под своей блокировкой, поэтому пополнения счёта и переводы на него
+    // из многих потоков не ждут друг друга. Списание идёт из слота потока, пока в нём хватает денег, иначе
+    // слоты сначала собираются в один. Баланс, история, выписки, снимки и сверка видят счёт целиком.
+    // Режим не выключается, повторный вызов может только добавить слоты. Слоты сохраняются в снимке,
+    // а при восстановлении по журналу - по цепочкам их записей.
+    public void enableHotAccount(int id, int slots) {
+        checkId(id);
+        if (slots < 2) {
+            throw new IllegalArgumentException("У горячего счёта должно быть не меньше двух слотов");
+        }
+        withStripes(allStripes(), 0, () -> {
+            HotAccount hot = hotAccount(id);
+            if (hot == null) {
+                hot = new HotAccount(id, new HotAccount.Slot[0]);
+                BalanceIndex index = balanceIndex;
+                if (index != null) {
+                    index.remove(id, store.getBalance(id));
+                }
+            }
+            if (hot.size() < slots) {
+                putHotAccount(hot.withSlots(slots));
+            }
+        });
+    }
+
+    public boolean isHotAccount(int id) {
+        return hotAccount(id) != null;
+    }
+
+    private static boolean isHot(HotAccount[] hot, int id) {
+        for (HotAccount account : hot) {
+            if (account.id == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Горячий счёт id или null; горячих счетов единицы, поэтому поиск - проход по массиву
+    private HotAccount hotAccount(int id) {
+        for (HotAccount hot : hotAccounts) {
+            if (hot.id == id) {
+                return hot;
+            }
+        }
+        return null;
+    }
+
+    // Слот текущего потока у горячего счёта; null - счёт обычный или поток работает со слотом 0
+    private HotAccount.Slot hotSlot(int id) {
+        HotAccount hot = hotAccount(id);
+        return hot == null ? null : hot.slot();
+    }
+
+    // Замена или добавление горячего счёта в реестре; под всеми полосами или при восстановлении
+    private void putHotAccount(HotAccount hot) {
+        HotAccount[] current = hotAccounts;
+        int position = 0;
+        while (position < current.length && current[position].id < hot.id) {
+            position++;
+        }
+        HotAccount[] updated;
+        if (position < current.length && current[position].id == hot.id) {
+            updated = current.clone();
+        } else {
+            updated = new HotAccount[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            System.arraycopy(current, position, updated, position + 1, current.length - position);
+        }
+        updated[position] = hot;
+        hotAccounts = updated;
+    }
+
+    // Баланс счёта под его полосой: у горячего счёта - сумма слотов, каждый читается под своей блокировкой.
+    // Слоты меняются независимо, поэтому сумма согласована так же, как LongAdder.sum(); сбор слотов
+    // идёт под полосой счёта и в сумме не виден.
+    private long balanceOf(int id) {
+        long balance = store.getBalance(id);
+        HotAccount hot = hotAccount(id);
+        if (hot != null) {
+            for (HotAccount.Slot slot : hot.slots) {
+                synchronized (slot) {
+                    balance = Money.add(balance, slot.balance);
+                }
+            }
+        }
+        return balance;
+    }
+
+    // Баланс слота 0 под полосой счёта перед списанием amount. У горячего счёта при нехватке в слоте 0
+    // сначала собираются остальные слоты; нехватка и после этого - InsufficientFundsException.
+    private long debitBalance(int id, long amount) {
+        long balance = store.getBalance(id);
+        if (amount > balance) {
+            HotAccount hot = hotAccount(id);
+            if (hot != null) {
+                gather(hot);
+                balance = store.getBalance(id);
+            }
+            if (amount > balance) {
+                metrics.insufficientFunds();
+                throw new InsufficientFundsException("Недостаточно средств на счёте " + id);
+            }
+        }
+        return balance;
+    }
+
+    // Сбор слотов горячего счёта в слот 0, под полосой счёта: деньги каждого непустого слота переводятся
+    // целиком парой записей TRANSFER_OUT/TRANSFER_IN, где встречный счёт - сам счёт (в истории их не видно)
+    private void gather(HotAccount hot) {
+        int id = hot.id;
+        for (HotAccount.Slot slot : hot.slots) {
+            synchronized (slot) {
+                long amount = slot.balance;
+                if (amount == 0) {
+                    continue;
+                }
+                long oldBalance = store.getBalance(id);
+                long balance = Money.add(oldBalance, amount);
+                slot.balance = 0;
+                setBalance(id, oldBalance, balance);
+                long now = System.currentTimeMillis();
+                long position = journal.reserve(2);
+                record(position, id, slot, TransactionJournal.TRANSFER_OUT, amount, id, now,
+                        TransactionJournal.CONTINUED);
+                record(position + 1, id, TransactionJournal.TRANSFER_IN, amount, id, now, balance, 0);
+            }
+        }
+    }
+
+    // Запись не видна в истории: внутренний перевод между слотами горячего счёта или сведения о счёте (INFO)
+    private boolean isHidden(int id, long record) {
+        return journal.getType(record) == TransactionJournal.INFO || journal.getCounterparty(record) == id;
+    }
+
+    // Последние записи всех цепочек счёта под его полосой: слота 0, затем слотов горячего счёта
+    private long[] chainHeads(int id) {
+        HotAccount hot = hotAccount(id);
+        long[] heads = new long[hot == null ? 1 : hot.size()];
+        heads[0] = store.getLastRecord(id);
+        for (int i = 1; i < heads.length; i++) {
+            HotAccount.Slot slot = hot.slots[i - 1];
+            synchronized (slot) {
+                heads[i] = slot.head;
+            }
+        }
+        return heads;
+    }
+
+    // Слоты всех горячих счетов в порядке захвата: по возрастанию id счёта, затем номера слота
+    private HotAccount.Slot[] allSlots() {
+        List<HotAccount.Slot> slots = new ArrayList<>();
+        for (HotAccount hot : hotAccounts) {
+            slots.addAll(Arrays.asList(hot.slots));
+        }
+        return slots.toArray(new HotAccount.Slot[0]);
+    }
+
+    // Захват слотов по порядку, после полос: держащий слот не ждёт полосу
+    private void withSlots(HotAccount.Slot[] slots, int index, Runnable action) {
+        if (index == slots.length) {
+            action.run();
+            return;
+        }
+        synchronized (slots[index]) {
+            withSlots(slots, index + 1, action);
+        }
+    }
+
+    // Общий баланс банка, поддерживается при каждой операции
+    public double getTotalBankBalance() {
+        return Money.toDouble(getTotalBankBalanceCents());
+    }
+
+    public long getTotalBankBalanceCents() {
+        long start = BankMetrics.start();
+        long total = aggregates.getTotalBalance();
+        metrics.record(BankMetrics.Operation.TOTAL_BALANCE, start, true);
+        return total;
+    }
+
+    public BankAggregates getAggregates() {
+        return aggregates;
+    }
+
+    public BankMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Согласованный снимок балансов на текущий момент. Переводы продолжают выполняться,
+    // а снимок видит каждую операцию либо целиком, либо никак; см. BalanceSnapshot
+    public BalanceSnapshot snapshot() {
+        // Сначала граница журнала, затем число счетов: счёт, созданный до границы, уже имеет id
+        long version = journal.size();
+        return new BalanceSnapshot(this, version, store.getAccountsCount());
+    }
+
+    // Баланс счёта на момент version (граница журнала) или BalanceSnapshot.NO_BALANCE, если счёта тогда не было.
+    // Полоса счёта захватывается только на чтение ссылки на последнюю запись: писатель, получивший позицию
+    // в журнале до version, держит эту полосу, пока не допишет запись, поэтому записи до version здесь уже видны.
+    // Горячий счёт - сумма слотов на момент version, каждый слот читается так же, под своей блокировкой.
+    // Счёт, ставший горячим уже после проверки, стал им и после version: до version его слоты пусты.
+    long getBalanceCents(int id, long version) {
+        if (hotAccount(id) != null) {
+            long[] state = new long[2];
+            long[] slots = readAsOf(id, version, state);
+            if (state[0] == TransactionJournal.NO_RECORD) {
+                return BalanceSnapshot.NO_BALANCE;
+            }
+            long balance = state[1];
+            for (int i = 1; i < slots.length; i += 2) {
+                balance = Money.add(balance, slots[i]);
+            }
+            return balance;
+        }
+        long record;
+        long balance;
+        synchronized (lockFor(id)) {
+            record = store.getLastRecord(id);
+            balance = store.getBalance(id);
+        }
+        if (record < version) {
+            return record == TransactionJournal.NO_RECORD ? BalanceSnapshot.NO_BALANCE : balance;
+        }
+        // счёт менялся после снимка: баланс из последней записи до границы
+        record = journal.findBefore(record, version);
+        return record == TransactionJournal.NO_RECORD ? BalanceSnapshot.NO_BALANCE : journal.getBalanceAfter(record);
+    }
+
+    // Баланс счёта на момент timestamp (мс) по времени операций в журнале: сумма всех его операций не позже
+    // timestamp. Последняя такая запись ищется по цепочке счёта со сводками времени за O(log n) шагов,
+    // её баланс и есть ответ, если раньше неё нет записей, датированных позже (начисление за прошлый период
+    // добавляется в журнал позже операций после конца периода) - такие вычитаются.
+    // Счёт без операций до timestamp - IllegalArgumentException.
+    public long getBalanceCentsAsOf(int id, long timestamp) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            checkId(id);
+            long[] heads;
+            synchronized (lockFor(id)) {
+                heads = chainHeads(id);
+            }
+            // у горячего счёта - сумма по цепочкам слотов; слот без операций до timestamp был пуст
+            long balance = 0;
+            for (int i = 0; i < heads.length; i++) {
+                long record = journal.findPrevious(heads[i], TransactionJournal.ALL_TYPES, Long.MIN_VALUE, timestamp);
+                if (record == TransactionJournal.NO_RECORD) {
+                    if (i == 0) {
+                        throw new IllegalArgumentException("Счёт " + id + " не существовал на момент "
+                                + new Date(timestamp));
+                    }
+                    continue;
+                }
+                balance = Money.add(balance, journal.getBalanceAfter(record));
+                long late = record;
+                while (timestamp < Long.MAX_VALUE && (late = journal.findPrevious(journal.getPrevious(late),
+                        TransactionJournal.ALL_TYPES, timestamp + 1, Long.MAX_VALUE)) != TransactionJournal.NO_RECORD) {
+                    balance = Money.subtract(balance, journal.getBalanceChange(late));
+                }
+            }
+            success = true;
+            return balance;
+        } finally {
+            metrics.record(BankMetrics.Operation.BALANCE_AS_OF, start, success);
+        }
+    }
+
+    // Общий баланс банка на момент timestamp: все операции журнала не позже него (см. BalanceCheckpoints).
+    // Стоит одного поиска контрольной точки и прохода по интервалам журнала около момента, а не всей истории.
+    public long getTotalBankBalanceCentsAsOf(long timestamp) {
+        long start = BankMetrics.start();
+        boolean success = false;
+        try {
+            long total = checkpoints.totalAt(timestamp);
+            success = true;
+            return total;
+        } finally {
+            metrics.record(BankMetrics.Operation.TOTAL_BALANCE_AS_OF, start, success);
+        }
+    }
+
+    // Граница журнала, все записи до которой уже заполнены: после чтения size проходятся все полосы и слоты
+    // горячих счетов, а писатель держит полосу своего счёта (или слот) от резервирования записи до её заполнения
+    long stableJournalSize() {
+        long version = journal.size();
+        withStripes(allStripes(), 0, () -> withSlots(allSlots(), 0, () -> {
+        }));
+        return version;
+    }
+
+    // Последняя запись счёта до границы version и баланс после неё: state[0] - запись или NO_RECORD,
+    // state[1] - баланс. Если после version счёт не менялся, баланс - текущий из хранилища.
+    // У горячего счёта state - слот 0, а остальные слоты возвращаются парами (запись, баланс), у обычного - null.
+    long[] readAsOf(int id, long version, long[] state) {
+        long[] slots = null;
+        synchronized (lockFor(id)) {
+            state[0] = store.getLastRecord(id);
+            state[1] = store.getBalance(id);
+            HotAccount hot = hotAccount(id);
+            if (hot != null) {
+                slots = new long[hot.slots.length * 2];
+                for (int i = 0; i < hot.slots.length; i++) {
+                    synchronized (hot.slots[i]) {
+                        slots[2 * i] = hot.slots[i].head;
+                        slots[2 * i + 1] = hot.slots[i].balance;
+                    }
+                }
+            }
+        }
+        rollBack(version, state, 0);
+        for (int i = 0; slots != null && i < slots.length; i += 2) {
+            rollBack(version, slots, i);
+        }
+        return slots;
+    }
+
+    // Пара (запись, баланс) в state[offset..] отматывается к последней записи той же цепочки до version
+    private void rollBack(long version, long[] state, int offset) {
+        if (state[offset] >= version) {
+            long record = journal.findBefore(state[offset], version);
+            state[offset] = record;
+            state[offset + 1] = record == TransactionJournal.NO_RECORD ? 0 : journal.getBalanceAfter(record);
+        }
+    }
+
+    // Общий баланс полным проходом по счетам
+    public long scanTotalBankBalanceCents() {
+        long total = 0;
+        int count = store.getAccountsCount();
+        for (int id = 0; id < count; id++) {
+            synchronized (lockFor(id)) {
+                total = Money.add(total, balanceOf(id));
+            }
+        }
+        return total;
+    }
+
+    // Сверка поддерживаемых показателей с полным проходом, для тестов
+    public void checkAggregates() {
+        long scanned = scanTotalBankBalanceCents();
+        long maintained = aggregates.getTotalBalance();
+        if (scanned != maintained) {
+            throw new IllegalStateException("Общий баланс расходится: по счетам " + Money.toString(scanned)
+                    + ", по счётчикам " + Money.toString(maintained));
+        }
+        if (aggregates.getAccountsCount() != store.getAccountsCount()) {
+            throw new IllegalStateException("Число счетов расходится: " + store.getAccountsCount()
+                    + " и " + aggregates.getAccountsCount());
+        }
+    }
+
+    private void checkId(int id) {
+        if (!store.exists(id)) {
+            throw new IllegalArgumentException("Некорректный ID: " + id);
+        }
+    }
+
+    private Object lockFor(int id) {
+        return locks[stripe(id)];
+    }
+
+    static int stripe(int id) {
+        return id & (LOCK_STRIPES - 1);
+    }
+
+    private static void checkAmount(long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Сумма должна быть положительной.");
         }
     }
 
@@ -18,7 +1782,7 @@ public class BankService {
             System.out.print("Введите ID: ");
             id = scanner.nextInt();
 
-            if (id < 0 || id >= accounts.length) {
+            if (!store.exists(id)) {
                 System.out.println("Некорректный ID. Попробуйте снова.");
                 continue;
             }
@@ -34,35 +1798,97 @@ public class BankService {
             System.out.println("1: проверить баланс счета");
             System.out.println("2: снять со счета");
             System.out.println("3: положить на счет");
-            System.out.println("4: выйти");
+            System.out.println("4: история операций");
+            System.out.println("5: метрики операций");
+            System.out.println("6: поиск счетов по владельцу");
+            System.out.println("0: выйти");
             System.out.print("Введите пункт меню: ");
             choice = scanner.nextInt();
 
-            switch (choice) {
-                case 1:
-                    System.out.printf("Баланс равен %.2f\n", accounts[id].getBalance());
-                    break;
-                case 2:
-                    System.out.print("Введите сумму для снятия со счета: ");
-                    double withdrawAmount = scanner.nextDouble();
-                    accounts[id].withdraw(withdrawAmount);
-                    break;
-                case 3:
-                    System.out.print("Введите сумму для пополнения счета: ");
-                    double depositAmount = scanner.nextDouble();
-                    accounts[id].deposit(depositAmount);
-                    break;
-                case 4:
-                    System.out.println("Выход из меню.");
-                    break;
-                default:
-                    System.out.println("Неверный пункт меню.");
+            try {
+                switch (choice) {
+                    case 1:
+                        System.out.println(Money.format(getBalanceCents(id), new StringBuilder("Баланс равен ")));
+                        break;
+                    case 2:
+                        System.out.print("Введите сумму для снятия со счета: ");
+                        long withdrawAmount = Money.parse(scanner.next());
+                        withdrawCents(id, withdrawAmount);
+                        break;
+                    case 3:
+                        System.out.print("Введите сумму для пополнения счета: ");
+                        long depositAmount = Money.parse(scanner.next());
+                        depositCents(id, depositAmount);
+                        break;
+                    case 4:
+                        showTransactionHistory(id, scanner);
+                        break;
+                    case 5:
+                        System.out.print(metrics.dump());
+                        break;
+                    case 6:
+                        scanner.nextLine();
+                        System.out.print("Введите начало имени владельца: ");
+                        findByOwner(scanner.nextLine());
+                        break;
+                    case 0:
+                        System.out.println("Выход из меню.");
+                        break;
+                    default:
+                        System.out.println("Неверный пункт меню.");
+                }
+            } catch (IllegalArgumentException | InsufficientFundsException | ArithmeticException e) {
+                System.out.println(e.getMessage());
             }
-        } while (choice != 4);
+        } while (choice != 0);
     }
 
-    public static void main(String[] args) {
+    // История постранично, сначала новые операции
+    private void showTransactionHistory(int id, Scanner scanner) {
+        HistoryQuery query = HistoryQuery.latest(CONSOLE_PAGE_SIZE);
+        while (true) {
+            HistoryPage page = getTransactionHistory(id, query);
+            for (HistoryEntry entry : page.entries()) {
+                System.out.println("  • " + entry.description());
+            }
+            if (!page.hasMore()) {
+                return;
+            }
+            System.out.print("Показать ещё? (д/н): ");
+            if (!scanner.next().equalsIgnoreCase("д")) {
+                return;
+            }
+            query = query.after(page.nextCursor());
+        }
+    }
+
+    private void findByOwner(String prefix) {
+        int[] ids = new int[CONSOLE_PAGE_SIZE];
+        int found = findAccountsByOwnerPrefix(prefix, 0, ids);
+        if (found == 0) {
+            System.out.println("Счета не найдены.");
+            return;
+        }
+        for (int k = 0; k < found; k++) {
+            StringBuilder line = new StringBuilder("  ").append(getAccountNumber(ids[k])).append("  ")
+                    .append(getOwnerName(ids[k])).append("  ");
+            System.out.println(Money.format(getBalanceCents(ids[k]), line));
+        }
+        int total = countAccountsByOwnerPrefix(prefix);
+        if (total > found) {
+            System.out.println("  ... и ещё " + (total - found));
+        }
+    }
+
+    // Пакетный режим: java BankService --batch [файл команд], см. CommandProcessor
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            CommandProcessor.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         BankService bankService = new BankService();
+        bankService.metrics.register("console");
+        BankMetrics.ACCOUNTS.register("accounts");
         bankService.start();
     }
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.bank;
+
+// Атомарность пакетного перевода
+public enum BatchMode {
+    // Либо выполняются все переводы пакета, либо ни один
+    ALL_OR_NOTHING,
+    // Каждый перевод выполняется или отклоняется отдельно, по порядку
+    PER_ITEM
+}
@@ -0,0 +1,41 @@
+package com.bank;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Переиспользуемое представление участка массива байт (ASCII) как CharSequence.
+ * Позволяет разбирать числа из входного буфера через Money.parse без создания строк.
+ */
+public final class ByteChars implements CharSequence {
+    private byte[] bytes;
+    private int start;
+    private int length;
+
+    public ByteChars wrap(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = end - start;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[start + index] & 0xFF);
+    }
+
+    // Используется только в сообщениях об ошибках
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new String(bytes, start + from, to - from, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, start, length, StandardCharsets.UTF_8);
+    }
+}
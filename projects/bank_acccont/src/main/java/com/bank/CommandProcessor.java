@@ -0,0 +1,568 @@
+package com.bank;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Пакетная обработка потока команд (файл или stdin) вместо интерактивного меню. Одна команда на строку,
+ * ответ на каждую - одна строка:
+ *   OPEN номер сумма владелец      ->  OK id
+ *   CREATE сумма                   ->  OK id  (счёт без номера)
+ *   GET счёт                       ->  OK id баланс ставка%
+ *   DEPOSIT счёт сумма             ->  OK
+ *   WITHDRAW счёт сумма            ->  OK
+ *   TRANSFER счёт счёт сумма       ->  OK
+ *   BALANCE счёт                   ->  OK сумма
+ *   TOTAL                          ->  OK сумма
+ * Счёт задаётся номером или внутренним id с префиксом '#' (#5); номер, для которого нет счёта, - ошибка.
+ * Пустые строки и строки, начинающиеся с '#', пропускаются. Ошибка не прерывает обработку,
+ * на неё выводится "ERR номер_строки причина".
+ * process - конвейер из двух потоков: разбор входа в переиспользуемые пакеты команд и выполнение с записью
+ * ответов в один выходной буфер. serve - то же в одном потоке для сетевого соединения: ответы на всё,
+ * что пришло одним чтением, уходят одной записью (конвейерная обработка запросов клиента).
+ * Операции пакета пишутся в журнал без ожидания, сброс журнала ждётся один раз на пакет и перед любой
+ * отправкой ответов: "OK" уходит клиенту, только когда операция уже на диске.
+ * На успешном пути на команду не создаётся ни строк, ни других объектов.
+ */
+public class CommandProcessor {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 4096;
+    // Для соединений - меньше, чтобы держать десятки тысяч соединений; строка не длиннее буфера
+    private static final int CONNECTION_BUFFER_SIZE = 8 << 10;
+    private static final int CONNECTION_BATCH_SIZE = 128;
+    private static final int BATCHES = 4;
+    private static final int MAX_TOKENS = 4;
+
+    private static final byte INVALID = 0;
+    private static final byte OPEN = 1;
+    private static final byte DEPOSIT = 2;
+    private static final byte WITHDRAW = 3;
+    private static final byte TRANSFER = 4;
+    private static final byte BALANCE = 5;
+    private static final byte TOTAL = 6;
+    private static final byte CREATE = 7;
+    private static final byte GET = 8;
+
+    // Ключевые слова по коду команды и число аргументов (для OPEN - минимум, имя может быть из нескольких слов)
+    private static final byte[][] KEYWORDS = {null, ascii("OPEN"), ascii("DEPOSIT"), ascii("WITHDRAW"),
+            ascii("TRANSFER"), ascii("BALANCE"), ascii("TOTAL"), ascii("CREATE"), ascii("GET")};
+    private static final int[] ARGUMENTS = {0, 3, 2, 2, 3, 1, 0, 1, 1};
+
+    // Признак id (а не номера счёта) в разобранном аргументе; номера не длиннее 18 цифр, то есть меньше 2^60
+    private static final long ID_FLAG = 1L << 62;
+
+    private static final byte[] OK = ascii("OK");
+    private static final byte[] ERR = ascii("ERR ");
+
+    private final BankService bankService;
+
+    public CommandProcessor(BankService bankService) {
+        this.bankService = bankService;
+    }
+
+    public CommandReport process(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(BATCHES);
+        BlockingQueue<Batch> full = new ArrayBlockingQueue<>(BATCHES);
+        for (int i = 0; i < BATCHES; i++) {
+            free.add(new Batch(BATCH_SIZE));
+        }
+        Thread parser = new Thread(() -> parseInto(in, free, full), "command-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        Executor executor = new Executor(out, BUFFER_SIZE);
+        try {
+            while (true) {
+                Batch batch = full.take();
+                for (int k = 0; k < batch.count; k++) {
+                    executor.execute(batch, k);
+                }
+                executor.awaitDurable();
+                if (batch.last) {
+                    executor.flush();
+                    if (batch.failure instanceof IOException e) {
+                        throw e;
+                    }
+                    if (batch.failure != null) {
+                        throw new IllegalStateException("Ошибка разбора команд", batch.failure);
+                    }
+                    break;
+                }
+                batch.clear();
+                free.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Обработка команд прервана", e);
+        }
+        return new CommandReport(executor.commands, executor.failed, System.nanoTime() - start);
+    }
+
+    // Стадия разбора конвейера: заполненные пакеты уходят в full, пустые берутся из free
+    private static void parseInto(ReadableByteChannel in, BlockingQueue<Batch> free, BlockingQueue<Batch> full) {
+        try {
+            Parser parser = new Parser(free.take(), BUFFER_SIZE, new Consumer() {
+                @Override
+                public Batch full(Batch batch) throws InterruptedException {
+                    full.put(batch);
+                    return free.take();
+                }
+
+                @Override
+                public Batch drained(Batch batch) {
+                    return batch;
+                }
+            });
+            try {
+                parser.read(in);
+            } catch (IOException | RuntimeException e) {
+                parser.batch.failure = e;
+            }
+            parser.batch.last = true;
+            full.put(parser.batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Обработка одного соединения в текущем потоке. Команды, пришедшие одним чтением, выполняются,
+    // и ответы на них отправляются одной записью. Возвращается, когда клиент закрыл передачу.
+    public CommandReport serve(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        long start = System.nanoTime();
+        Executor executor = new Executor(out, CONNECTION_BUFFER_SIZE);
+        Consumer consumer = new Consumer() {
+            @Override
+            public Batch full(Batch batch) throws IOException {
+                for (int k = 0; k < batch.count; k++) {
+                    executor.execute(batch, k);
+                }
+                executor.awaitDurable();
+                batch.clear();
+                return batch;
+            }
+
+            @Override
+            public Batch drained(Batch batch) throws IOException {
+                full(batch);
+                executor.flush();
+                return batch;
+            }
+        };
+        Parser parser = new Parser(new Batch(CONNECTION_BATCH_SIZE), CONNECTION_BUFFER_SIZE, consumer);
+        try {
+            parser.read(in);
+            consumer.drained(parser.batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Обработка команд прервана", e);
+        }
+        return new CommandReport(executor.commands, executor.failed, System.nanoTime() - start);
+    }
+
+    // Получатель разобранных пакетов; возвращает пакет, в который разбор продолжается
+    private interface Consumer {
+        // Пакет заполнен
+        Batch full(Batch batch) throws IOException, InterruptedException;
+
+        // Разобрано всё, что пришло одним чтением; дальше разбор будет ждать входа
+        Batch drained(Batch batch) throws IOException, InterruptedException;
+    }
+
+    // Разобранные команды: колонки по номеру команды в пакете
+    private static final class Batch {
+        int count;
+        boolean last;
+        Throwable failure;
+        final byte[] ops;
+        final long[] lines;
+        final long[] first;
+        final long[] second;
+        final long[] amounts;
+        // Причина для INVALID - одна из строковых констант
+        final String[] errors;
+        // Имена владельцев для OPEN копируются сюда, входной буфер переиспользуется
+        byte[] names = new byte[0];
+        int namesSize;
+        final int[] nameStart;
+        final int[] nameLength;
+
+        Batch(int capacity) {
+            ops = new byte[capacity];
+            lines = new long[capacity];
+            first = new long[capacity];
+            second = new long[capacity];
+            amounts = new long[capacity];
+            errors = new String[capacity];
+            nameStart = new int[capacity];
+            nameLength = new int[capacity];
+        }
+
+        boolean isFull() {
+            return count == ops.length;
+        }
+
+        void clear() {
+            count = 0;
+            namesSize = 0;
+        }
+
+        int add(byte op, long line) {
+            int k = count++;
+            ops[k] = op;
+            lines[k] = line;
+            return k;
+        }
+
+        void invalid(long line, String reason) {
+            errors[add(INVALID, line)] = reason;
+        }
+    }
+
+    private static final class Parser {
+        private final Consumer consumer;
+        private final ByteChars chars = new ByteChars();
+        private final int[] tokenStart = new int[MAX_TOKENS];
+        private final int[] tokenEnd = new int[MAX_TOKENS];
+        private final int bufferSize;
+        private Batch batch;
+
+        Parser(Batch batch, int bufferSize, Consumer consumer) {
+            this.batch = batch;
+            this.bufferSize = bufferSize;
+            this.consumer = consumer;
+        }
+
+        // Разбор до конца потока; последний пакет остаётся в batch
+        void read(ReadableByteChannel in) throws IOException, InterruptedException {
+            ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+            byte[] data = buffer.array();
+            long line = 0;
+            while (true) {
+                boolean last = in.read(buffer) < 0;
+                int end = buffer.position();
+                int start = 0;
+                for (int i = 0; i < end; i++) {
+                    if (data[i] == '\n') {
+                        parseLine(data, start, i, ++line);
+                        start = i + 1;
+                    }
+                }
+                if (last) {
+                    if (start < end) {
+                        parseLine(data, start, end, ++line);
+                    }
+                    return;
+                }
+                if (start > 0) {
+                    batch = consumer.drained(batch);
+                }
+                if (start == 0 && end == data.length) {
+                    throw new IOException("Строка " + (line + 1) + " длиннее " + bufferSize + " байт");
+                }
+                // Остаток неполной строки переносится в начало буфера
+                System.arraycopy(data, start, data, 0, end - start);
+                buffer.position(end - start);
+            }
+        }
+
+        private void parseLine(byte[] data, int start, int end, long line) throws IOException, InterruptedException {
+            if (end > start && data[end - 1] == '\r') {
+                end--;
+            }
+            int tokens = 0;
+            int i = start;
+            while (i < end) {
+                while (i < end && (data[i] == ' ' || data[i] == '\t')) {
+                    i++;
+                }
+                if (i == end) {
+                    break;
+                }
+                if (tokens == MAX_TOKENS) {
+                    tokens++;
+                    break;
+                }
+                tokenStart[tokens] = i;
+                while (i < end && data[i] != ' ' && data[i] != '\t') {
+                    i++;
+                }
+                tokenEnd[tokens++] = i;
+            }
+            if (tokens == 0 || data[tokenStart[0]] == '#') {
+                return;
+            }
+            if (batch.isFull()) {
+                batch = consumer.full(batch);
+            }
+
+            byte op = keyword(data, tokenStart[0], tokenEnd[0]);
+            if (op == INVALID) {
+                batch.invalid(line, "неизвестная команда");
+                return;
+            }
+            int arguments = tokens - 1;
+            if (op == OPEN ? arguments < ARGUMENTS[op] : arguments != ARGUMENTS[op]) {
+                batch.invalid(line, "неверное число аргументов");
+                return;
+            }
+
+            long first = 0;
+            long second = 0;
+            long amount = 0;
+            try {
+                switch (op) {
+                    case OPEN, DEPOSIT, WITHDRAW -> {
+                        first = account(data, 1);
+                        amount = Money.parse(chars.wrap(data, tokenStart[2], tokenEnd[2]));
+                    }
+                    case TRANSFER -> {
+                        first = account(data, 1);
+                        second = account(data, 2);
+                        amount = Money.parse(chars.wrap(data, tokenStart[3], tokenEnd[3]));
+                    }
+                    case BALANCE, GET -> first = account(data, 1);
+                    case CREATE -> amount = Money.parse(chars.wrap(data, tokenStart[1], tokenEnd[1]));
+                    default -> {
+                    }
+                }
+            } catch (NumberFormatException | ArithmeticException e) {
+                batch.invalid(line, "неверная сумма");
+                return;
+            }
+            if (first < 0 || second < 0) {
+                batch.invalid(line, "неверный номер счёта");
+                return;
+            }
+
+            int k = batch.add(op, line);
+            batch.first[k] = first;
+            batch.second[k] = second;
+            batch.amounts[k] = amount;
+            if (op == OPEN) {
+                int nameEnd = end;
+                while (data[nameEnd - 1] == ' ' || data[nameEnd - 1] == '\t') {
+                    nameEnd--;
+                }
+                int length = nameEnd - tokenStart[3];
+                if (batch.namesSize + length > batch.names.length) {
+                    batch.names = Arrays.copyOf(batch.names, Math.max(batch.names.length * 2, batch.namesSize + length + 256));
+                }
+                System.arraycopy(data, tokenStart[3], batch.names, batch.namesSize, length);
+                batch.nameStart[k] = batch.namesSize;
+                batch.nameLength[k] = length;
+                batch.namesSize += length;
+            }
+        }
+
+        // Номер счёта или id с ID_FLAG из токена, -1 при ошибке
+        private long account(byte[] data, int token) {
+            int start = tokenStart[token];
+            boolean id = data[start] == '#';
+            if (id) {
+                start++;
+            }
+            long value = AccountNumberIndex.parse(chars.wrap(data, start, tokenEnd[token]), 0, tokenEnd[token] - start);
+            if (id && value >= 0) {
+                return value <= Integer.MAX_VALUE ? value | ID_FLAG : -1;
+            }
+            return value;
+        }
+
+        // Сравнение без учёта регистра (ASCII)
+        private static byte keyword(byte[] data, int start, int end) {
+            for (byte op = 1; op < KEYWORDS.length; op++) {
+                byte[] keyword = KEYWORDS[op];
+                if (keyword.length != end - start) {
+                    continue;
+                }
+                int i = 0;
+                while (i < keyword.length && (data[start + i] & 0xDF) == keyword[i]) {
+                    i++;
+                }
+                if (i == keyword.length) {
+                    return op;
+                }
+            }
+            return INVALID;
+        }
+    }
+
+    private final class Executor {
+        private final WritableByteChannel out;
+        private final ByteBuffer buffer;
+        private final StringBuilder number = new StringBuilder(24);
+        private final long[] numbers = new long[1];
+        private final long[] ownerNames = new long[1];
+        private final long[] balances = new long[1];
+        private final long[] rates = new long[1];
+        private final int[] ids = new int[1];
+        // последняя запись журнала, сброса которой ещё не ждали
+        private long unflushed = TransactionJournal.NO_RECORD;
+        long commands;
+        long failed;
+
+        Executor(WritableByteChannel out, int bufferSize) {
+            this.out = out;
+            this.buffer = ByteBuffer.allocate(bufferSize);
+        }
+
+        void execute(Batch batch, int k) throws IOException {
+            commands++;
+            byte op = batch.ops[k];
+            if (op == INVALID) {
+                error(batch.lines[k], batch.errors[k]);
+                return;
+            }
+            try {
+                switch (op) {
+                    case OPEN -> open(batch, k);
+                    case DEPOSIT -> {
+                        applied(bankService.applyDeposit(resolve(batch.first[k]), batch.amounts[k]));
+                        ok();
+                    }
+                    case WITHDRAW -> {
+                        applied(bankService.applyWithdraw(resolve(batch.first[k]), batch.amounts[k]));
+                        ok();
+                    }
+                    case TRANSFER -> {
+                        applied(bankService.applyTransfer(resolve(batch.first[k]), resolve(batch.second[k]),
+                                batch.amounts[k]));
+                        ok();
+                    }
+                    case BALANCE -> money(bankService.getBalanceCents(resolve(batch.first[k])));
+                    case TOTAL -> money(bankService.getTotalBankBalanceCents());
+                    case CREATE -> id(bankService.createAccountCents(batch.amounts[k]));
+                    case GET -> account(bankService.getAccount(resolve(batch.first[k])));
+                    default -> throw new IllegalStateException("Неизвестный код команды " + op);
+                }
+            } catch (IllegalArgumentException | InsufficientFundsException | ArithmeticException e) {
+                error(batch.lines[k], e.getMessage());
+            }
+        }
+
+        private void open(Batch batch, int k) throws IOException {
+            if (batch.amounts[k] < 0) {
+                throw new IllegalArgumentException("Начальный баланс не может быть отрицательным");
+            }
+            numbers[0] = batch.first[k];
+            ownerNames[0] = bankService.getOwnerNames().add(batch.names, batch.nameStart[k], batch.nameLength[k]);
+            balances[0] = batch.amounts[k];
+            if (bankService.createAccounts(1, numbers, ownerNames, balances, rates, ids) == 0) {
+                throw new IllegalArgumentException("Счёт с номером " + numbers[0] + " уже существует");
+            }
+            id(ids[0]);
+        }
+
+        private void id(int id) throws IOException {
+            number.setLength(0);
+            number.append(id);
+            reply(number);
+        }
+
+        // id, баланс и годовая ставка в процентах с двумя знаками
+        private void account(Account account) throws IOException {
+            number.setLength(0);
+            number.append(account.getId()).append(' ');
+            Money.format(account.getBalanceCents(), number).append(' ');
+            Money.format(Money.rateToBasisPoints(account.getAnnualInterestRate()), number);
+            reply(number);
+        }
+
+        // id с префиксом '#' как есть, иначе id по номеру счёта
+        private int resolve(long account) {
+            if ((account & ID_FLAG) != 0) {
+                return (int) (account & ~ID_FLAG);
+            }
+            int id = bankService.findAccountId(account);
+            if (id == AccountNumberIndex.NOT_FOUND) {
+                throw new IllegalArgumentException("Нет счёта " + account);
+            }
+            return id;
+        }
+
+        private void applied(long record) {
+            unflushed = Math.max(unflushed, record);
+        }
+
+        // Ожидание сброса журнала до последней записанной операции
+        void awaitDurable() {
+            if (unflushed != TransactionJournal.NO_RECORD) {
+                bankService.getJournal().awaitDurable(unflushed);
+                unflushed = TransactionJournal.NO_RECORD;
+            }
+        }
+
+        private void ok() throws IOException {
+            ensure(OK.length + 1);
+            buffer.put(OK).put((byte) '\n');
+        }
+
+        private void money(long cents) throws IOException {
+            number.setLength(0);
+            reply(Money.format(cents, number));
+        }
+
+        private void reply(CharSequence text) throws IOException {
+            ensure(OK.length + text.length() + 2);
+            buffer.put(OK).put((byte) ' ');
+            ascii(text);
+            buffer.put((byte) '\n');
+        }
+
+        private void error(long line, String message) throws IOException {
+            failed++;
+            byte[] text = (line + " " + message).getBytes(StandardCharsets.UTF_8);
+            ensure(ERR.length + text.length + 1);
+            buffer.put(ERR).put(text).put((byte) '\n');
+        }
+
+        private void ascii(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            awaitDurable();
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Запуск: java CommandProcessor [файл команд]; без файла команды читаются из stdin, ответы - в stdout
+    public static void main(String[] args) throws IOException {
+        CommandProcessor processor = new CommandProcessor(new BankService(0, 0));
+        try (ReadableByteChannel in = args.length > 0
+                ? FileChannel.open(Path.of(args[0]))
+                : Channels.newChannel(System.in);
+             FileOutputStream stdout = new FileOutputStream(FileDescriptor.out)) {
+            CommandReport report = processor.process(in, stdout.getChannel());
+            System.err.println(report);
+        }
+    }
+}
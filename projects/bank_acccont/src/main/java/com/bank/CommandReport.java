@@ -0,0 +1,15 @@
+package com.bank;
+
+// Итог пакетной обработки команд
+public record CommandReport(long commands, long failed, long elapsedNanos) {
+
+    public double commandsPerSecond() {
+        return elapsedNanos == 0 ? 0 : commands * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Команд: %,d, с ошибкой: %,d, время: %d мс, %,.0f команд/с",
+                commands, failed, elapsedNanos / 1_000_000, commandsPerSecond());
+    }
+}
@@ -0,0 +1,21 @@
+package com.bank;
+
+// Итог сжатия старой истории в архив журнала: память истории до и после
+public record CompactionReport(long accounts, long records, long archivedRecords, long bytesBefore, long bytesAfter,
+                               long elapsedNanos) {
+
+    public double bytesPerAccountBefore() {
+        return accounts == 0 ? 0 : bytesBefore / (double) accounts;
+    }
+
+    public double bytesPerAccountAfter() {
+        return accounts == 0 ? 0 : bytesAfter / (double) accounts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Счетов: %,d, записей: %,d, в архиве: %,d, память истории на счёт: %,.0f -> %,.0f байт, "
+                        + "время: %d мс", accounts, records, archivedRecords, bytesPerAccountBefore(),
+                bytesPerAccountAfter(), elapsedNanos / 1_000_000);
+    }
+}
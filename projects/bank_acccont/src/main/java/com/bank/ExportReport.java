@@ -0,0 +1,15 @@
+package com.bank;
+
+// Итог выгрузки выписок
+public record ExportReport(long accounts, long records, long bytes, long elapsedNanos) {
+
+    public double accountsPerSecond() {
+        return elapsedNanos == 0 ? 0 : accounts * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Счетов: %,d, записей истории: %,d, %,d МБ, время: %d мс, %,.0f счетов/с",
+                accounts, records, bytes >> 20, elapsedNanos / 1_000_000, accountsPerSecond());
+    }
+}
@@ -0,0 +1,218 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Групповая фиксация журнала: один сброс на диск (force) на пакет операций разных потоков.
+ * Операция, дописавшая свои записи, ждёт, пока журнал не станет долговечным до её последней записи.
+ * Пакет закрывается, когда в нём maxBatch ожидающих или когда первый из них ждёт maxDelayNanos;
+ * пока идёт сброс, новые ожидающие копятся в следующем пакете.
+ * Долговечен всегда префикс журнала: перед сбросом поток фиксации дожидается заполнения всех записей
+ * до конца пакета (их пишут сразу после резервирования), поэтому после сбоя за подтверждённой записью
+ * не бывает дыр, и восстановление может остановиться на первой незаполненной записи.
+ * Запись, не заполненная за FILL_TIMEOUT_NANOS (писатель упал между резервированием и заполнением),
+ * делает журнал неисправным: префикс за ней уже не станет долговечным, и все ожидания завершаются ошибкой.
+ * Поток фиксации запускается первым ожиданием, а не в конструкторе: журнал создаёт GroupCommit
+ * в своём конструкторе, и поток не должен видеть его недостроенным.
+ */
+public class GroupCommit implements Closeable {
+    // Писатель заполняет запись сразу после резервирования; столько ждать - уже не задержка, а сбой
+    static final long FILL_TIMEOUT_NANOS = 10_000_000_000L;
+    // Ожидание незаполненной записи: сначала столько onSpinWait, затем parkNanos с удвоением паузы до предела
+    private static final int FILL_SPINS = 1_000;
+    private static final long MAX_FILL_PARK_NANOS = 1_000_000;
+
+    private final TransactionJournal journal;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Thread committer;
+    // Condition.awaitNanos, а не Object.wait: задержка пакета бывает меньше миллисекунды
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition requested = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // Открытый пакет: номер, число ожидающих, последняя запись и время первого ожидающего
+    private long batch;
+    private int waiting;
+    private long batchEnd = -1;
+    private long firstWaiting;
+    // Записи до durable (не включая) на диске; committed - номер последнего сброшенного пакета
+    private volatile long durable;
+    private long committed = -1;
+    private boolean started;
+    private boolean closed;
+    private RuntimeException failure;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder committedOperations = new LongAdder();
+
+    public GroupCommit(TransactionJournal journal, int maxBatch, long maxDelayNanos) {
+        if (maxBatch <= 0 || maxDelayNanos < 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным, задержка - неотрицательной");
+        }
+        this.journal = journal;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelayNanos;
+        // записи, найденные в файле при открытии, уже на диске
+        this.durable = journal.size();
+        this.committer = new Thread(this::run, "journal-group-commit");
+        committer.setDaemon(true);
+    }
+
+    // Ожидание, пока записи до record включительно не окажутся на диске
+    public void await(long record) {
+        if (record < durable) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            if (!started) {
+                started = true;
+                committer.start();
+            }
+            long mine = batch;
+            batchEnd = Math.max(batchEnd, record);
+            if (waiting++ == 0) {
+                firstWaiting = System.nanoTime();
+                requested.signal();
+            } else if (waiting >= maxBatch) {
+                requested.signal();
+            }
+            // запись уже в журнале, ожидание подтверждения не прерывается
+            while (committed < mine && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (committed < mine) {
+                throw new IllegalStateException("Не удалось сбросить журнал на диск", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Число сбросов на диск
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    // Среднее число операций на один сброс
+    public double getAverageBatch() {
+        long count = commits.sum();
+        return count == 0 ? 0 : committedOperations.sum() / (double) count;
+    }
+
+    // Журнал обрезан до end при восстановлении, новых записей и ожидающих ещё нет
+    void truncated(long end) {
+        durable = Math.min(durable, end);
+    }
+
+    private void run() {
+        while (true) {
+            long sealed;
+            long end;
+            int operations;
+            lock.lock();
+            try {
+                while (waiting == 0 && !closed) {
+                    requested.awaitUninterruptibly();
+                }
+                while (waiting > 0 && waiting < maxBatch && !closed) {
+                    long left = maxDelayNanos - (System.nanoTime() - firstWaiting);
+                    if (left <= 0) {
+                        break;
+                    }
+                    requested.awaitNanos(left);
+                }
+                if (waiting == 0) {
+                    return;   // закрыт и ждать некого
+                }
+                sealed = batch++;
+                end = batchEnd;
+                operations = waiting;
+                waiting = 0;
+                batchEnd = -1;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                // чужие записи перед концом пакета могут дописываться прямо сейчас
+                long waitingSince = 0;
+                int spins = 0;
+                long parkNanos = 1_000;
+                for (long record = durable; record <= end; ) {
+                    if (journal.isFilled(record)) {
+                        record++;
+                        waitingSince = 0;
+                        spins = 0;
+                        parkNanos = 1_000;
+                    } else if (waitingSince == 0) {
+                        waitingSince = System.nanoTime();
+                    } else if (System.nanoTime() - waitingSince > FILL_TIMEOUT_NANOS) {
+                        throw new IllegalStateException("Запись журнала " + record + " не заполнена");
+                    } else if (spins < FILL_SPINS) {
+                        spins++;
+                        Thread.onSpinWait();
+                    } else {
+                        // писатель вытеснен или упал: не занимать ядро до таймаута
+                        LockSupport.parkNanos(parkNanos);
+                        parkNanos = Math.min(parkNanos * 2, MAX_FILL_PARK_NANOS);
+                    }
+                }
+                if (durable <= end) {
+                    journal.force(durable, end);
+                    durable = end + 1;
+                }
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            commits.increment();
+            committedOperations.add(operations);
+            lock.lock();
+            try {
+                committed = sealed;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Дожидается сброса уже поданных ожиданий и останавливает поток фиксации
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            requested.signal();
+        } finally {
+            lock.unlock();
+        }
+        boolean interrupted = false;
+        while (committer.isAlive()) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.bank;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма неотрицательных значений (задержки в наносекундах, длины) без блокировок.
+ * Корзины лог-линейные: каждая степень двойки делится на 32 равные части, поэтому
+ * ошибка квантиля не больше 1/32 значения. Весь диапазон long - 1888 корзин.
+ * Счётчик корзины - LongAdder: задержки одной операции у всех потоков попадают в несколько соседних корзин,
+ * и общий счётчик был бы общей строкой кэша; память под полосы выделяется только при конкуренции за корзину.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        counts[bucket(Math.max(0, value))].increment();
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts[i].sum();
+        }
+        return total;
+    }
+
+    // Квантиль q из [0, 1]: верхняя граница корзины, в которую попадает q-я доля значений; 0 для пустой
+    public long percentile(double q) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i].sum();
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return max();
+    }
+
+    public long max() {
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            if (counts[i].sum() != 0) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    // Сброс; записи, идущие одновременно со сбросом, могут частично сохраниться
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i].reset();
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long mantissa = SUB_COUNT + bucket % SUB_COUNT;
+        long upper = (mantissa + 1) << shift;
+        return upper <= 0 ? Long.MAX_VALUE : upper - 1;
+    }
+}
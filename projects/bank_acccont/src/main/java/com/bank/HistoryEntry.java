@@ -0,0 +1,6 @@
+package com.bank;
+
+// Запись истории счёта; description - в том же виде, что строки getTransactionHistory
+public record HistoryEntry(long record, byte type, long amount, int counterparty, long timestamp,
+                           long balanceAfter, String description) {
+}
@@ -0,0 +1,13 @@
+package com.bank;
+
+import java.util.List;
+
+// Страница истории. nextCursor передаётся в HistoryQuery.after для следующей страницы;
+// END - записей дальше нет. Полная страница может оказаться последней: тогда следующая пуста.
+public record HistoryPage(List<HistoryEntry> entries, long nextCursor) {
+    public static final long END = TransactionJournal.NO_RECORD;
+
+    public boolean hasMore() {
+        return nextCursor != END;
+    }
+}
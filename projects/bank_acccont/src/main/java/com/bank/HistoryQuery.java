@@ -0,0 +1,45 @@
+package com.bank;
+
+/**
+ * Запрос страницы истории счёта: записи от новых к старым, не больше limit,
+ * только типы из маски types (TransactionJournal.typeBit) и время в [from, to].
+ * cursor - место, где остановилась предыдущая страница (HistoryPage.nextCursor), или NEWEST.
+ */
+public record HistoryQuery(int limit, int types, long from, long to, long cursor) {
+    public static final long NEWEST = -2;
+
+    public HistoryQuery {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        if ((types & TransactionJournal.ALL_TYPES) == 0) {
+            throw new IllegalArgumentException("Не выбран ни один тип операций");
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("Начало интервала позже конца");
+        }
+    }
+
+    // Последние limit записей любого типа
+    public static HistoryQuery latest(int limit) {
+        return new HistoryQuery(limit, TransactionJournal.ALL_TYPES, Long.MIN_VALUE, Long.MAX_VALUE, NEWEST);
+    }
+
+    // Только записи со временем в [from, to] (мс)
+    public HistoryQuery between(long from, long to) {
+        return new HistoryQuery(limit, types, from, to, cursor);
+    }
+
+    public HistoryQuery ofTypes(byte... types) {
+        int mask = 0;
+        for (byte type : types) {
+            mask |= TransactionJournal.typeBit(type);
+        }
+        return new HistoryQuery(limit, mask, from, to, cursor);
+    }
+
+    // Следующая страница после страницы с данным nextCursor
+    public HistoryQuery after(long cursor) {
+        return new HistoryQuery(limit, types, from, to, cursor);
+    }
+}
@@ -0,0 +1,123 @@
+package com.bank;
+
+import java.util.Arrays;
+
+/**
+ * Горячий счёт (BankService.enableHotAccount): баланс счёта, на который идут операции из многих потоков
+ * (счёт комиссий, эквайринга), разложен по слотам, чтобы операции не выстраивались за одной блокировкой.
+ * Слот 0 - сам счёт в хранилище под полосой блокировок, остальные слоты - отдельные объекты со своей
+ * блокировкой, балансом и цепочкой записей в журнале: записи слота несут id счёта, а balanceAfter - баланс слота.
+ * Баланс счёта - сумма слотов. Поток работает со своим слотом (по id потока); списание идёт из слота,
+ * пока в нём хватает денег, иначе слоты собираются в слот 0 парами внутренних переводов счёта самому себе.
+ * Отдельно реестр не хранится: запись, которая не продолжает цепочку слота 0, продолжает цепочку слота.
+ */
+final class HotAccount {
+    final int id;
+    // слоты 1..n-1, слот i - slots[i - 1]
+    final Slot[] slots;
+
+    HotAccount(int id, Slot[] slots) {
+        this.id = id;
+        this.slots = slots;
+    }
+
+    // Число слотов вместе со слотом 0
+    int size() {
+        return slots.length + 1;
+    }
+
+    // Слот текущего потока или null, если это слот 0
+    Slot slot() {
+        int index = (int) (Thread.currentThread().threadId() % size());
+        return index == 0 ? null : slots[index - 1];
+    }
+
+    // Счёт с size слотами; существующие слоты общие с этим счётом
+    HotAccount withSlots(int size) {
+        Slot[] grown = Arrays.copyOf(slots, size - 1);
+        for (int i = slots.length; i < grown.length; i++) {
+            grown[i] = new Slot();
+        }
+        return new HotAccount(id, grown);
+    }
+
+    // Слот, цепочка которого заканчивается записью head, или null
+    Slot findSlot(long head) {
+        for (Slot slot : slots) {
+            if (slot.head == head) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    // Следующая запись счёта от новых к старым по нескольким цепочкам: наибольшая из голов heads,
+    // её голова сдвигается на предыдущую запись. NO_RECORD - записей больше нет.
+    static long next(TransactionJournal journal, long[] heads) {
+        int newest = 0;
+        for (int i = 1; i < heads.length; i++) {
+            if (heads[i] > heads[newest]) {
+                newest = i;
+            }
+        }
+        long record = heads[newest];
+        if (record != TransactionJournal.NO_RECORD) {
+            heads[newest] = journal.getPrevious(record);
+        }
+        return record;
+    }
+
+    // Слоты для снимка счетов (AccountSnapshot): по каждому счёту id, число слотов без слота 0,
+    // затем баланс и последняя запись каждого слота. slots[k] - пары (последняя запись, баланс) слотов
+    // счёта accounts[k] на момент снимка, как их возвращает BankService.readAsOf.
+    static long[] encode(HotAccount[] accounts, long[][] slots) {
+        int length = 0;
+        for (long[] pairs : slots) {
+            length += 2 + pairs.length;
+        }
+        long[] encoded = new long[length];
+        int position = 0;
+        for (int k = 0; k < accounts.length; k++) {
+            encoded[position++] = accounts[k].id;
+            encoded[position++] = slots[k].length / 2;
+            for (int i = 0; i < slots[k].length; i += 2) {
+                encoded[position++] = slots[k][i + 1];
+                encoded[position++] = slots[k][i];
+            }
+        }
+        return encoded;
+    }
+
+    static HotAccount[] decode(long[] encoded) {
+        HotAccount[] accounts = new HotAccount[0];
+        for (int position = 0; position < encoded.length; ) {
+            int id = (int) encoded[position++];
+            Slot[] slots = new Slot[(int) encoded[position++]];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new Slot();
+                slots[i].balance = encoded[position++];
+                slots[i].head = encoded[position++];
+            }
+            accounts = Arrays.copyOf(accounts, accounts.length + 1);
+            accounts[accounts.length - 1] = new HotAccount(id, slots);
+        }
+        return accounts;
+    }
+
+    // Поля слота отделены от соседних объектов 56 байтами с каждой стороны: JVM раскладывает поля
+    // суперкласса раньше полей подкласса, поэтому отступы в разных классах не переставляются.
+    // Так слоты и слово блокировки соседнего слота не делят строку кэша.
+    static class SlotPadding {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class SlotFields extends SlotPadding {
+        // баланс слота и последняя запись его цепочки; меняются под блокировкой слота
+        long balance;
+        long head = TransactionJournal.NO_RECORD;
+    }
+
+    static final class Slot extends SlotFields {
+        long q1, q2, q3, q4, q5, q6, q7;
+    }
+}
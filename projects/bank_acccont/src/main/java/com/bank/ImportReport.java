@@ -0,0 +1,15 @@
+package com.bank;
+
+// Итог массового импорта счетов
+public record ImportReport(long rows, long imported, long rejected, long elapsedNanos) {
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Строк: %,d, импортировано: %,d, отклонено: %,d, время: %d мс, %,.0f строк/с",
+                rows, imported, rejected, elapsedNanos / 1_000_000, rowsPerSecond());
+    }
+}
@@ -0,0 +1,10 @@
+package com.bank;
+
+// Недостаточно средств на счёте для списания
+public class InsufficientFundsException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,71 @@
+package com.bank;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Правило начисления процентов за период.
+ * MONTHLY - Account.getMonthlyInterest за месяц, для счетов, открытых внутри периода, пропорционально сроку.
+ * DAILY - ежедневная капитализация со дня открытия счёта (или начала периода).
+ * Само начисление по всем счетам выполняет BankService.accrueInterest; счёт, которому уже начислены проценты
+ * за период, пересекающийся с этим, пропускается.
+ */
+public class InterestAccrual {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    public enum Mode {
+        MONTHLY,
+        DAILY
+    }
+
+    private final Mode mode;
+    private final long periodStart;
+    private final long periodEnd;
+
+    public InterestAccrual(Mode mode, long periodStart, long periodEnd) {
+        if (periodEnd <= periodStart) {
+            throw new IllegalArgumentException("Конец периода должен быть позже начала");
+        }
+        this.mode = mode;
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+    }
+
+    // Период - календарный месяц (UTC)
+    public static InterestAccrual forMonth(Mode mode, YearMonth month) {
+        long start = month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        long end = month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return new InterestAccrual(mode, start, end);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getPeriodEnd() {
+        return periodEnd;
+    }
+
+    // Проценты за период в копейках
+    public long interest(long balance, long annualRateBasisPoints, long dateCreated) {
+        if (balance <= 0 || annualRateBasisPoints <= 0 || dateCreated >= periodEnd) {
+            return 0;
+        }
+        long from = Math.max(dateCreated, periodStart);
+        if (mode == Mode.MONTHLY) {
+            long monthly = Money.monthlyInterest(balance, annualRateBasisPoints);
+            return from == periodStart ? monthly : Money.prorate(monthly, periodEnd - from, periodEnd - periodStart);
+        }
+
+        long days = (periodEnd - from) / MILLIS_PER_DAY;
+        long compounded = balance;
+        for (long day = 0; day < days; day++) {
+            compounded = Money.add(compounded, Money.dailyInterest(compounded, annualRateBasisPoints));
+        }
+        return compounded - balance;
+    }
+}
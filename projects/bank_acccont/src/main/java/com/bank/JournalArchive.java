@@ -0,0 +1,272 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Архив старых записей журнала: сжатые блоки по BLOCK_RECORDS записей, в памяти или в локальном файле.
+ * Запись в блоке кодируется разностями и varint: счёт - разность с предыдущей записью блока, время - разность
+ * времён, ссылки previous и jump - расстояние назад от записи, суммы и балансы - zigzag varint.
+ * Тройка (тип, маска типов сводки, флаги) кодируется одним байтом по словарю блока.
+ * Архивируется всегда начало журнала, поэтому блок записи - просто record / BLOCK_RECORDS.
+ * Для чтения блок раскодируется обратно в 64-байтовые записи в буфер потока (см. TransactionJournal.buffer).
+ * Дописывает архив только журнал, по блоку под ReentrantLock, а не монитором: под ней идёт запись в файл.
+ * Читать можно из любых потоков.
+ */
+public class JournalArchive implements Closeable {
+    static final int BLOCK_BITS = 7;
+    static final int BLOCK_RECORDS = 1 << BLOCK_BITS;
+    // Поля записи после кода типа: счёт, второй счёт, номер в истории, сумма, время, баланс,
+    // previous, jump и две границы сводки; каждое - varint не длиннее 10 байт
+    private static final int FIELDS = 10;
+    private static final int MAX_RECORD_BYTES = 1 + FIELDS * 10;
+
+    private final FileChannel channel;
+    // Блоки в памяти или смещения блоков в файле (offsets[blocks] - конец последнего)
+    private volatile byte[][] stored = new byte[16][];
+    private volatile long[] offsets = new long[17];
+    private volatile int blocks;
+    private long storedBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final byte[] encoded = new byte[BLOCK_RECORDS * MAX_RECORD_BYTES + 3 * 256 + 1];
+    private final long[] fields = new long[FIELDS];
+    private final ThreadLocal<Decoded> decoded = ThreadLocal.withInitial(Decoded::new);
+
+    // Архив в памяти
+    public JournalArchive() {
+        this.channel = null;
+    }
+
+    // Архив в файле; в памяти остаются только смещения блоков
+    public JournalArchive(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Записи в архиве (все - с начала журнала)
+    public long getRecords() {
+        return (long) blocks << BLOCK_BITS;
+    }
+
+    // Размер сжатых блоков
+    public long getStoredBytes() {
+        lock.lock();
+        try {
+            return storedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Память архива: блоки (если он в памяти) и смещения
+    public long getMemoryBytes() {
+        lock.lock();
+        try {
+            return (channel == null ? storedBytes : 0) + (long) offsets.length * Long.BYTES;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Сжатие блока записей [first, first + BLOCK_RECORDS) заполненного журнала; first - текущий конец архива
+    void append(TransactionJournal journal, long first) {
+        lock.lock();
+        try {
+            encode(journal, first);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void encode(TransactionJournal journal, long first) {
+        if (first != getRecords()) {
+            throw new IllegalStateException("Архив дописывается только подряд: " + first + " != " + getRecords());
+        }
+        // словарь троек (тип, маска типов, флаги), в блоке их обычно единицы
+        int[] dictionary = new int[256];
+        int words = 0;
+        int length = 1 + 3 * 256;
+        int previousAccount = 0;
+        long previousTimestamp = 0;
+        for (long record = first; record < first + BLOCK_RECORDS; record++) {
+            int word = journal.getType(record) & 0xFF | (journal.getTypes(record) & 0xFF) << 8
+                    | (journal.getFlags(record) & 0xFF) << 16;
+            int code = 0;
+            while (code < words && dictionary[code] != word) {
+                code++;
+            }
+            if (code == words) {
+                dictionary[words++] = word;
+            }
+            encoded[length++] = (byte) code;
+            int account = journal.getAccountId(record);
+            long timestamp = journal.getTimestamp(record);
+            long previous = journal.getPrevious(record);
+            fields[0] = zigzag(account - previousAccount);
+            fields[1] = journal.getCounterparty(record) + 1L;
+            fields[2] = journal.getSequence(record);
+            fields[3] = zigzag(journal.getAmount(record));
+            fields[4] = zigzag(timestamp - previousTimestamp);
+            fields[5] = zigzag(journal.getBalanceAfter(record));
+            fields[6] = previous == TransactionJournal.NO_RECORD ? 0 : record - previous;
+            fields[7] = record - journal.getJump(record);
+            fields[8] = Integer.toUnsignedLong(journal.getEarliestSeconds(record));
+            fields[9] = Integer.toUnsignedLong(journal.getLatestSeconds(record));
+            // беззнаковый varint: по 7 бит, старший бит - продолжение
+            for (long value : fields) {
+                while ((value & ~0x7FL) != 0) {
+                    encoded[length++] = (byte) (value | 0x80);
+                    value >>>= 7;
+                }
+                encoded[length++] = (byte) value;
+            }
+            previousAccount = account;
+            previousTimestamp = timestamp;
+        }
+        // словарь в начале блока на фиксированном месте, лишнее место из-под него вырезается
+        encoded[0] = (byte) words;
+        for (int i = 0; i < words; i++) {
+            encoded[1 + 3 * i] = (byte) dictionary[i];
+            encoded[2 + 3 * i] = (byte) (dictionary[i] >>> 8);
+            encoded[3 + 3 * i] = (byte) (dictionary[i] >>> 16);
+        }
+        int header = 1 + 3 * words;
+        System.arraycopy(encoded, 1 + 3 * 256, encoded, header, length - (1 + 3 * 256));
+        length -= 3 * (256 - words);
+        store(Arrays.copyOf(encoded, length));
+    }
+
+    private void store(byte[] block) {
+        int index = blocks;
+        if (index + 1 >= offsets.length) {
+            int capacity = (offsets.length - 1) * 2;
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+            if (channel == null) {
+                stored = Arrays.copyOf(stored, capacity);
+            }
+        }
+        if (channel == null) {
+            stored[index] = block;
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            long position = offsets[index];
+            try {
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Не удалось записать блок архива журнала", e);
+            }
+        }
+        offsets[index + 1] = offsets[index] + block.length;
+        storedBytes += block.length;
+        blocks = index + 1;
+    }
+
+    // Раскодированный блок записи record в буфере текущего потока, в формате записей журнала
+    ByteBuffer block(long record) {
+        Decoded cache = decoded.get();
+        long index = record >>> BLOCK_BITS;
+        if (cache.index != index) {
+            cache.index = -1;
+            decode(read((int) index), index << BLOCK_BITS, cache);
+            cache.index = index;
+        }
+        return cache.records;
+    }
+
+    private byte[] read(int index) {
+        if (channel == null) {
+            return stored[index];
+        }
+        long[] current = offsets;
+        byte[] block = new byte[(int) (current[index + 1] - current[index])];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long position = current[index];
+        try {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Файл архива обрезан");
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать блок архива журнала " + index, e);
+        }
+        return block;
+    }
+
+    private static void decode(byte[] block, long first, Decoded cache) {
+        ByteBuffer records = cache.records;
+        long[] fields = cache.fields;
+        int words = block[0] & 0xFF;
+        int position = 1 + 3 * words;
+        int account = 0;
+        long timestamp = 0;
+        for (int i = 0; i < BLOCK_RECORDS; i++) {
+            long record = first + i;
+            int code = block[position++] & 0xFF;
+            for (int field = 0; field < FIELDS; field++) {
+                long value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = block[position++];
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                fields[field] = value;
+            }
+            account += (int) unzigzag(fields[0]);
+            timestamp += unzigzag(fields[4]);
+            // поля пишутся здесь, а не общим методом журнала: так запись встраивается в цикл
+            int offset = i * TransactionJournal.RECORD_SIZE;
+            records.putInt(offset + TransactionJournal.ACCOUNT_OFFSET, account);
+            records.putInt(offset + TransactionJournal.COUNTERPARTY_OFFSET, (int) (fields[1] - 1));
+            records.put(offset + TransactionJournal.TYPE_OFFSET, block[1 + 3 * code]);
+            records.put(offset + TransactionJournal.TYPES_OFFSET, block[2 + 3 * code]);
+            records.put(offset + TransactionJournal.FLAGS_OFFSET, block[3 + 3 * code]);
+            records.putInt(offset + TransactionJournal.SEQUENCE_OFFSET, (int) fields[2]);
+            records.putLong(offset + TransactionJournal.AMOUNT_OFFSET, unzigzag(fields[3]));
+            records.putLong(offset + TransactionJournal.TIMESTAMP_OFFSET, timestamp);
+            records.putLong(offset + TransactionJournal.BALANCE_OFFSET, unzigzag(fields[5]));
+            records.putLong(offset + TransactionJournal.PREVIOUS_OFFSET,
+                    fields[6] == 0 ? TransactionJournal.NO_RECORD : record - fields[6]);
+            records.putLong(offset + TransactionJournal.JUMP_OFFSET, record - fields[7]);
+            records.putInt(offset + TransactionJournal.EARLIEST_OFFSET, (int) fields[8]);
+            records.putInt(offset + TransactionJournal.LATEST_OFFSET, (int) fields[9]);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // Последний раскодированный блок потока
+    private static final class Decoded {
+        long index = -1;
+        final ByteBuffer records = ByteBuffer.allocate(BLOCK_RECORDS * TransactionJournal.RECORD_SIZE)
+                .order(ByteOrder.nativeOrder());
+        final long[] fields = new long[FIELDS];
+    }
+}
@@ -65,9 +65,9 @@ public class Main {
         double initialBalance = getDoubleInput("Введите начальный баланс: ");
 
         try {
-            BankAccount account = bankService.createAccount(accountNumber, ownerName, initialBalance);
+            int id = bankService.createAccount(accountNumber, ownerName, initialBalance);
             System.out.println("Счёт успешно создан!");
-            System.out.println(account.getAccountInfo());
+            System.out.println(getAccountInfo(id));
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
         }
@@ -79,10 +79,10 @@ public class Main {
         double amount = getDoubleInput("Введите сумму для пополнения: ");
 
         try {
-            BankAccount account = bankService.getAccount(accountNumber);
-            account.deposit(amount);
+            int id = findAccount(accountNumber);
+            bankService.deposit(id, amount);
             System.out.printf("Успешно пополнено: $%.2f%n", amount);
-            System.out.printf("Новый баланс: $%.2f%n", account.getBalance());
+            System.out.printf("Новый баланс: $%.2f%n", bankService.getBalance(id));
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
         }
@@ -94,10 +94,10 @@ public class Main {
         double amount = getDoubleInput("Введите сумму для снятия: ");
 
         try {
-            BankAccount account = bankService.getAccount(accountNumber);
-            account.withdraw(amount);
+            int id = findAccount(accountNumber);
+            bankService.withdraw(id, amount);
             System.out.printf("Успешно снято: $%.2f%n", amount);
-            System.out.printf("Новый баланс: $%.2f%n", account.getBalance());
+            System.out.printf("Новый баланс: $%.2f%n", bankService.getBalance(id));
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
         }
@@ -110,7 +110,7 @@ public class Main {
         double amount = getDoubleInput("Введите сумму перевода: ");
 
         try {
-            bankService.transfer(fromAccount, toAccount, amount);
+            bankService.transfer(findAccount(fromAccount), findAccount(toAccount), amount);
             System.out.printf("Успешно переведено: $%.2f%n", amount);
             System.out.printf("Со счёта %s на счёт %s%n", fromAccount, toAccount);
         } catch (Exception e) {
@@ -123,8 +123,7 @@ public class Main {
         String accountNumber = getStringInput("Введите номер счёта: ");
 
         try {
-            BankAccount account = bankService.getAccount(accountNumber);
-            System.out.println(account.getAccountInfo());
+            System.out.println(getAccountInfo(findAccount(accountNumber)));
         } catch (Exception e) {
             System.out.println("Ошибка: " + e.getMessage());
         }
@@ -135,9 +134,9 @@ public class Main {
         String accountNumber = getStringInput("Введите номер счёта: ");
 
         try {
-            BankAccount account = bankService.getAccount(accountNumber);
+            int id = findAccount(accountNumber);
             System.out.println("История операций для счёта " + accountNumber + ":");
-            for (String transaction : account.getTransactionHistory()) {
+            for (String transaction : bankService.getTransactionHistory(id)) {
                 System.out.println("  • " + transaction);
             }
         } catch (Exception e) {
@@ -151,6 +150,20 @@ public class Main {
         System.out.printf("Количество счетов: %d%n", bankService.getAccountsCount());
     }
 
+    // id счёта по номеру; счёта нет - IllegalArgumentException
+    private static int findAccount(String accountNumber) {
+        int id = bankService.findAccountId(accountNumber);
+        if (id == AccountNumberIndex.NOT_FOUND) {
+            throw new IllegalArgumentException("Счёт не найден: " + accountNumber);
+        }
+        return id;
+    }
+
+    private static String getAccountInfo(int id) {
+        return String.format("Счёт %d, владелец: %s, баланс: $%.2f", bankService.getAccountNumber(id),
+                bankService.getOwnerName(id), bankService.getBalance(id));
+    }
+
     // Вспомогательные методы для ввода данных
     private static String getStringInput(String prompt) {
         System.out.print(prompt);
@@ -0,0 +1,145 @@
+package com.bank;
+
+/**
+ * Денежные суммы в виде long в копейках (центах).
+ * Вся арифметика точная и с проверкой переполнения, разбор и форматирование не создают лишних объектов.
+ */
+public final class Money {
+    public static final long CENTS_PER_UNIT = 100;
+
+    // Ставка хранится в базисных пунктах: 1% = 100 б.п.
+    public static final long BASIS_POINTS_PER_PERCENT = 100;
+
+    private static final long MONTHLY_INTEREST_DIVISOR = CENTS_PER_UNIT * BASIS_POINTS_PER_PERCENT * 12;
+    private static final long DAILY_INTEREST_DIVISOR = CENTS_PER_UNIT * BASIS_POINTS_PER_PERCENT * 365;
+
+    private Money() {
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    // Перевод из double с округлением до копейки (для старого API)
+    public static long fromDouble(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)
+                || Math.abs(amount) >= Long.MAX_VALUE / (double) CENTS_PER_UNIT) {
+            throw new ArithmeticException("Сумма вне допустимого диапазона: " + amount);
+        }
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    // Годовая ставка в процентах -> базисные пункты
+    public static long rateToBasisPoints(double annualInterestRate) {
+        return Math.round(annualInterestRate * BASIS_POINTS_PER_PERCENT);
+    }
+
+    // Ежемесячный процент: balance * rate / 100 / 12, округление половины от нуля
+    public static long monthlyInterest(long balanceCents, long annualRateBasisPoints) {
+        long numerator = Math.multiplyExact(balanceCents, annualRateBasisPoints);
+        return divideRounded(numerator, MONTHLY_INTEREST_DIVISOR);
+    }
+
+    // Дневной процент: balance * rate / 100 / 365
+    public static long dailyInterest(long balanceCents, long annualRateBasisPoints) {
+        long numerator = Math.multiplyExact(balanceCents, annualRateBasisPoints);
+        return divideRounded(numerator, DAILY_INTEREST_DIVISOR);
+    }
+
+    // Пропорциональная часть суммы: amount * part / whole с округлением
+    public static long prorate(long amount, long part, long whole) {
+        return divideRounded(Math.multiplyExact(amount, part), whole);
+    }
+
+    static long divideRounded(long numerator, long divisor) {
+        long quotient = numerator / divisor;
+        long remainder = numerator % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += numerator < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    // Разбор суммы вида "1234", "-5.5", "1000.00" в копейки
+    public static long parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    public static long parse(CharSequence text, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("Пустая сумма");
+        }
+        boolean negative = false;
+        int i = start;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long units = 0;
+        int digits = 0;
+        while (i < end && text.charAt(i) != '.') {
+            units = Math.addExact(Math.multiplyExact(units, 10), digit(text, i));
+            digits++;
+            i++;
+        }
+
+        long cents = 0;
+        if (i < end) {
+            i++; // точка
+            int fractionDigits = end - i;
+            if (fractionDigits > 2) {
+                throw new NumberFormatException("Больше двух знаков после точки: " + text.subSequence(start, end));
+            }
+            for (int k = 0; k < 2; k++) {
+                cents = cents * 10 + (k < fractionDigits ? digit(text, i + k) : 0);
+            }
+            digits += fractionDigits;
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Нет цифр в сумме: " + text.subSequence(start, end));
+        }
+
+        long result = Math.addExact(Math.multiplyExact(units, CENTS_PER_UNIT), cents);
+        return negative ? -result : result;
+    }
+
+    private static int digit(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c < '0' || c > '9') {
+            throw new NumberFormatException("Неверный символ в сумме: " + c);
+        }
+        return c - '0';
+    }
+
+    // Форматирование с двумя знаками после точки, как "%.2f"
+    public static StringBuilder format(long cents, StringBuilder out) {
+        if (cents < 0) {
+            out.append('-');
+            if (cents == Long.MIN_VALUE) {
+                // модуль не помещается в long
+                return out.append(-(cents / CENTS_PER_UNIT)).append('.').append("08");
+            }
+            cents = -cents;
+        }
+        long fraction = cents % CENTS_PER_UNIT;
+        out.append(cents / CENTS_PER_UNIT).append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+
+    public static String toString(long cents) {
+        return format(cents, new StringBuilder(24)).toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Пул имён владельцев: байты UTF-8 подряд в больших блоках, без объекта String на счёт.
+ * Имя задаётся ссылкой long = (позиция << 16) | длина. Строка создаётся только при чтении.
+ * Начало пула может быть отображённым в память файлом снимка (только чтение).
+ */
+public class NamePool {
+    public static final long NO_NAME = -1;
+    public static final int MAX_LENGTH = 0xFFFF;
+
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Данные из снимка: позиции [0, baseSize)
+    private final ByteBuffer base;
+    private final long baseSize;
+    private volatile byte[][] chunks = new byte[0][];
+    private volatile long size;
+
+    public NamePool() {
+        this(null, 0);
+    }
+
+    public NamePool(ByteBuffer base, long baseSize) {
+        this.base = base;
+        this.baseSize = baseSize;
+        this.size = baseSize;
+    }
+
+    public long add(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return add(bytes, 0, bytes.length);
+    }
+
+    // Добавление имени, возвращает ссылку. Имя не пересекает границу блока.
+    public synchronized long add(byte[] utf8, int offset, int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Слишком длинное имя: " + length + " байт");
+        }
+        long position = size;
+        int chunkOffset = (int) ((position - baseSize) & CHUNK_MASK);
+        if (chunkOffset + length > CHUNK_SIZE) {
+            position += CHUNK_SIZE - chunkOffset;
+            chunkOffset = 0;
+        }
+        int chunk = (int) ((position - baseSize) >>> CHUNK_BITS);
+        if (chunk == chunks.length) {
+            byte[][] grown = Arrays.copyOf(chunks, chunk + 1);
+            grown[chunk] = new byte[CHUNK_SIZE];
+            chunks = grown;
+        }
+        System.arraycopy(utf8, offset, chunks[chunk], chunkOffset, length);
+        size = position + length;
+        return position << 16 | length;
+    }
+
+    public String get(long name) {
+        if (name == NO_NAME) {
+            return null;
+        }
+        int length = length(name);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = byteAt(name, i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static int length(long name) {
+        return (int) (name & MAX_LENGTH);
+    }
+
+    public byte byteAt(long name, int index) {
+        long position = (name >>> 16) + index;
+        if (position < baseSize) {
+            return base.get((int) position);
+        }
+        long local = position - baseSize;
+        return chunks[(int) (local >>> CHUNK_BITS)][(int) (local & CHUNK_MASK)];
+    }
+
+    // Размер пула в байтах, включая пропуски на границах блоков
+    public long size() {
+        return size;
+    }
+
+    // Копия байт [from, from + length) для записи снимка
+    public void copy(long from, byte[] target, int length) {
+        for (int i = 0; i < length; i++) {
+            long position = from + i;
+            if (position < baseSize) {
+                target[i] = base.get((int) position);
+            } else {
+                long local = position - baseSize;
+                target[i] = chunks[(int) (local >>> CHUNK_BITS)][(int) (local & CHUNK_MASK)];
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.bank;
+
+/**
+ * Срез метрик одной операции: счётчики и квантили задержки в наносекундах.
+ */
+public class OperationStatistics {
+    private final String name;
+    private final long successes;
+    private final long failures;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public OperationStatistics(String name, long successes, long failures, long p50, long p99, long p999, long max) {
+        this.name = name;
+        this.successes = successes;
+        this.failures = failures;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getP50Nanos() {
+        return p50;
+    }
+
+    public long getP99Nanos() {
+        return p99;
+    }
+
+    public long getP999Nanos() {
+        return p999;
+    }
+
+    public long getMaxNanos() {
+        return max;
+    }
+}
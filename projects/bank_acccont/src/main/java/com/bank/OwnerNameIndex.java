@@ -0,0 +1,307 @@
+package com.bank;
+
+import java.util.Arrays;
+
+/**
+ * Индекс имён владельцев для поиска по префиксу и по имени целиком без учёта регистра.
+ * Три параллельных массива упорядочены по имени в нижнем регистре: первые три символа, упакованные в long,
+ * ссылка на имя в NamePool и id счёта - 20 байт на счёт. Сами имена не копируются.
+ * Новые счета копятся в неупорядоченном хвосте и вливаются в упорядоченную часть при следующем поиске,
+ * поэтому массовое создание счетов не платит за сортировку. Поиск не создаёт объектов:
+ * запрос сравнивается с байтами UTF-8 прямо в пуле. Доступ синхронизирован по самому индексу.
+ */
+public class OwnerNameIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int HEAD_CHARS = 3;
+    private static final int CHAR_BITS = 21;
+    private static final int INSERTION_SORT_SIZE = 32;
+
+    private final NamePool names;
+    private long[] heads;
+    private long[] refs;
+    private int[] ids;
+    // [0, sorted) упорядочено, [sorted, size) - хвост новых счетов
+    private int sorted;
+    private int size;
+    // Буферы слияния, растут до размера наибольшей сливаемой правой части
+    private long[] scratchHeads = new long[0];
+    private long[] scratchRefs = new long[0];
+    private int[] scratchIds = new int[0];
+
+    public OwnerNameIndex(NamePool names) {
+        this.names = names;
+        heads = new long[INITIAL_CAPACITY];
+        refs = new long[INITIAL_CAPACITY];
+        ids = new int[INITIAL_CAPACITY];
+    }
+
+    public synchronized void add(long name, int id) {
+        if (name == NamePool.NO_NAME) {
+            return;
+        }
+        if (size == ids.length) {
+            heads = Arrays.copyOf(heads, size * 2);
+            refs = Arrays.copyOf(refs, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        refs[size] = name;
+        ids[size] = id;
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Счета, чьё имя начинается с prefix, в порядке имён. Первые skip совпадений пропускаются,
+    // записывается не больше ids.length id; возвращает число записанных.
+    public synchronized int findByPrefix(CharSequence prefix, int skip, int[] result) {
+        return find(prefix, true, skip, result);
+    }
+
+    // То же для имени целиком
+    public synchronized int findByName(CharSequence name, int skip, int[] result) {
+        return find(name, false, skip, result);
+    }
+
+    public synchronized int countByPrefix(CharSequence prefix) {
+        merge();
+        int count = 0;
+        for (int i = lowerBound(prefix); i < size && matches(refs[i], prefix, true); i++) {
+            count++;
+        }
+        return count;
+    }
+
+    private int find(CharSequence query, boolean prefix, int skip, int[] result) {
+        merge();
+        int found = 0;
+        for (int i = lowerBound(query); i < size && found < result.length && matches(refs[i], query, prefix); i++) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                result[found++] = ids[i];
+            }
+        }
+        return found;
+    }
+
+    // Первая позиция, где имя не меньше запроса
+    private int lowerBound(CharSequence query) {
+        long head = head(query);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int c = Long.compare(heads[mid], head);
+            if (c == 0) {
+                c = compare(refs[mid], query);
+            }
+            if (c < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Слияние хвоста с упорядоченной частью
+    private void merge() {
+        if (sorted == size) {
+            return;
+        }
+        for (int i = sorted; i < size; i++) {
+            heads[i] = head(refs[i]);
+        }
+        sort(sorted, size);
+        if (sorted > 0) {
+            mergeRuns(0, sorted, size);
+        }
+        sorted = size;
+    }
+
+    private void sort(int from, int to) {
+        if (to - from <= INSERTION_SORT_SIZE) {
+            insertionSort(from, to);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(from, mid);
+        sort(mid, to);
+        mergeRuns(from, mid, to);
+    }
+
+    private void insertionSort(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long head = heads[i];
+            long ref = refs[i];
+            int id = ids[i];
+            int j = i - 1;
+            while (j >= from && compare(heads[j], refs[j], head, ref) > 0) {
+                heads[j + 1] = heads[j];
+                refs[j + 1] = refs[j];
+                ids[j + 1] = ids[j];
+                j--;
+            }
+            heads[j + 1] = head;
+            refs[j + 1] = ref;
+            ids[j + 1] = id;
+        }
+    }
+
+    // Слияние упорядоченных [from, mid) и [mid, to): правая часть копируется в буфер, слияние идёт с конца.
+    // При равных именах раньше остаётся левая часть, то есть порядок добавления.
+    private void mergeRuns(int from, int mid, int to) {
+        if (compare(heads[mid - 1], refs[mid - 1], heads[mid], refs[mid]) <= 0) {
+            return;
+        }
+        int n = to - mid;
+        if (scratchIds.length < n) {
+            int capacity = Math.max(n, scratchIds.length * 2);
+            scratchHeads = new long[capacity];
+            scratchRefs = new long[capacity];
+            scratchIds = new int[capacity];
+        }
+        System.arraycopy(heads, mid, scratchHeads, 0, n);
+        System.arraycopy(refs, mid, scratchRefs, 0, n);
+        System.arraycopy(ids, mid, scratchIds, 0, n);
+        int i = mid - 1;
+        int j = n - 1;
+        int k = to - 1;
+        while (j >= 0 && i >= from) {
+            if (compare(heads[i], refs[i], scratchHeads[j], scratchRefs[j]) > 0) {
+                heads[k] = heads[i];
+                refs[k] = refs[i];
+                ids[k--] = ids[i--];
+            } else {
+                heads[k] = scratchHeads[j];
+                refs[k] = scratchRefs[j];
+                ids[k--] = scratchIds[j--];
+            }
+        }
+        System.arraycopy(scratchHeads, 0, heads, from, j + 1);
+        System.arraycopy(scratchRefs, 0, refs, from, j + 1);
+        System.arraycopy(scratchIds, 0, ids, from, j + 1);
+    }
+
+    private int compare(long headA, long refA, long headB, long refB) {
+        int c = Long.compare(headA, headB);
+        if (c != 0) {
+            return c;
+        }
+        int lengthA = NamePool.length(refA);
+        int lengthB = NamePool.length(refB);
+        int a = 0;
+        int b = 0;
+        while (a < lengthA && b < lengthB) {
+            c = Integer.compare(fold(codePointAt(refA, a)), fold(codePointAt(refB, b)));
+            if (c != 0) {
+                return c;
+            }
+            a += utf8Length(names.byteAt(refA, a));
+            b += utf8Length(names.byteAt(refB, b));
+        }
+        return Boolean.compare(a < lengthA, b < lengthB);
+    }
+
+    // Сравнение имени с запросом; в префиксном поиске совпадение - имя, начинающееся с запроса
+    private int compare(long ref, CharSequence query) {
+        int length = NamePool.length(ref);
+        int a = 0;
+        int q = 0;
+        while (a < length && q < query.length()) {
+            int nameChar = fold(codePointAt(ref, a));
+            int queryChar = Character.codePointAt(query, q);
+            int c = Integer.compare(nameChar, fold(queryChar));
+            if (c != 0) {
+                return c;
+            }
+            a += utf8Length(names.byteAt(ref, a));
+            q += Character.charCount(queryChar);
+        }
+        return Boolean.compare(a < length, q < query.length());
+    }
+
+    private boolean matches(long ref, CharSequence query, boolean prefix) {
+        int length = NamePool.length(ref);
+        int a = 0;
+        int q = 0;
+        while (q < query.length()) {
+            if (a == length) {
+                return false;
+            }
+            int queryChar = Character.codePointAt(query, q);
+            if (fold(codePointAt(ref, a)) != fold(queryChar)) {
+                return false;
+            }
+            a += utf8Length(names.byteAt(ref, a));
+            q += Character.charCount(queryChar);
+        }
+        return prefix || a == length;
+    }
+
+    // Первые три символа в нижнем регистре по 21 биту; символ хранится со сдвигом на 1, конец имени - 0,
+    // поэтому сравнение head как чисел совпадает со сравнением начала имён
+    private long head(long ref) {
+        int length = NamePool.length(ref);
+        long head = 0;
+        int a = 0;
+        for (int k = 0; k < HEAD_CHARS; k++) {
+            head <<= CHAR_BITS;
+            if (a < length) {
+                head |= fold(codePointAt(ref, a)) + 1;
+                a += utf8Length(names.byteAt(ref, a));
+            }
+        }
+        return head;
+    }
+
+    private static long head(CharSequence query) {
+        long head = 0;
+        int q = 0;
+        for (int k = 0; k < HEAD_CHARS; k++) {
+            head <<= CHAR_BITS;
+            if (q < query.length()) {
+                int c = Character.codePointAt(query, q);
+                head |= fold(c) + 1;
+                q += Character.charCount(c);
+            }
+        }
+        return head;
+    }
+
+    private static int fold(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    // Символ UTF-8 с позиции index; неверная последовательность читается побайтно
+    private int codePointAt(long ref, int index) {
+        int lead = names.byteAt(ref, index) & 0xFF;
+        int length = utf8Length((byte) lead);
+        if (length == 1 || index + length > NamePool.length(ref)) {
+            return lead;
+        }
+        int codePoint = lead & (0x7F >> length);
+        for (int i = 1; i < length; i++) {
+            codePoint = codePoint << 6 | (names.byteAt(ref, index + i) & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private static int utf8Length(byte lead) {
+        if (lead >= 0) {
+            return 1;
+        }
+        if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((lead & 0xF0) == 0xE0) {
+            return 3;
+        }
+        if ((lead & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+}
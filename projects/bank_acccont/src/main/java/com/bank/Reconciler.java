@@ -0,0 +1,196 @@
+package com.bank;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сверка балансов счетов с журналом операций, пока сервис продолжает работать.
+ * Сверка идёт до границы журнала version: баланс счёта на этот момент должен равняться сумме изменений
+ * всех его записей (CREATE вносит начальный баланс), а каждая запись цепочки - продолжать баланс предыдущей.
+ * Счета делятся между задачами fork-join по диапазонам id, каждый счёт проходится по своей цепочке в журнале
+ * (горячий счёт - по цепочке каждого слота).
+ * Независимо от цепочек все записи диапазона журнала суммируются параллельным проходом по порядку:
+ * общий баланс по журналу должен совпасть с суммой балансов, а число записей - с числом записей в цепочках.
+ * Сверка инкрементальная: сохраняются граница прошлой сверки и сумма записей каждого счёта до неё,
+ * поэтому следующая сверка читает только записи, появившиеся после.
+ */
+public class Reconciler {
+    private static final int LEAF_ACCOUNTS = 1 << 14;
+    private static final int LEAF_RECORDS = 1 << 20;
+    // Сколько несошедшихся счетов попадает в отчёт поимённо
+    static final int MAX_REPORTED = 1000;
+
+    private final BankService bankService;
+    private final TransactionJournal journal;
+    private final ForkJoinPool pool;
+    // Граница журнала прошлой сверки, сумма изменений по записям каждого счёта и всех записей до неё
+    private long reconciled;
+    private long[] ledger = new long[0];
+    private long ledgerTotal;
+
+    public Reconciler(BankService bankService) {
+        this(bankService, ForkJoinPool.commonPool());
+    }
+
+    public Reconciler(BankService bankService, ForkJoinPool pool) {
+        this.bankService = bankService;
+        this.journal = bankService.getJournal();
+        this.pool = pool;
+    }
+
+    // Граница журнала, до которой всё уже сверено
+    public synchronized long getReconciled() {
+        return reconciled;
+    }
+
+    public synchronized ReconciliationReport run() {
+        long start = System.nanoTime();
+        // Сначала граница журнала, затем число счетов: счёт с записями до границы уже имеет id
+        long version = bankService.stableJournalSize();
+        int accounts = bankService.getAccountsCount();
+        if (ledger.length < accounts) {
+            ledger = Arrays.copyOf(ledger, accounts);
+        }
+        Mismatches mismatches = new Mismatches();
+        LongAdder chained = new LongAdder();
+        LongAdder balances = new LongAdder();
+        LongAdder changes = new LongAdder();
+        LongAdder holes = new LongAdder();
+        pool.invoke(new AccountsTask(0, accounts, version, mismatches, chained, balances));
+        pool.invoke(new RecordsTask(reconciled, version, changes, holes));
+
+        long from = reconciled;
+        ledgerTotal = Money.add(ledgerTotal, changes.sum());
+        reconciled = version;
+        int[] reported = Arrays.copyOf(mismatches.ids, Math.min(mismatches.count, MAX_REPORTED));
+        Arrays.sort(reported);
+        return new ReconciliationReport(from, version, accounts, version - from, chained.sum(), holes.sum(),
+                mismatches.count, reported, balances.sum(), ledgerTotal, System.nanoTime() - start);
+    }
+
+    // Счета [fromId, toId): новые записи цепочки каждого счёта суммируются и проверяются
+    @SuppressWarnings("serial")
+    private class AccountsTask extends RecursiveAction {
+        private final int fromId;
+        private final int toId;
+        private final long version;
+        private final Mismatches mismatches;
+        private final LongAdder chained;
+        private final LongAdder balances;
+        private long rangeChained;
+        private boolean broken;
+
+        AccountsTask(int fromId, int toId, long version, Mismatches mismatches, LongAdder chained,
+                     LongAdder balances) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.version = version;
+            this.mismatches = mismatches;
+            this.chained = chained;
+            this.balances = balances;
+        }
+
+        @Override
+        protected void compute() {
+            if (toId - fromId > LEAF_ACCOUNTS) {
+                int middle = (fromId + toId) >>> 1;
+                invokeAll(new AccountsTask(fromId, middle, version, mismatches, chained, balances),
+                        new AccountsTask(middle, toId, version, mismatches, chained, balances));
+                return;
+            }
+            long[] state = new long[2];
+            long rangeBalances = 0;
+            for (int id = fromId; id < toId; id++) {
+                long[] slots = bankService.readAsOf(id, version, state);
+                if (state[0] == TransactionJournal.NO_RECORD) {
+                    // счёт ещё не создан в журнале на момент version или пустой после восстановления
+                    continue;
+                }
+                broken = false;
+                long balance = state[1];
+                long sum = walk(id, state[0]);
+                // у горячего счёта - и цепочки его слотов (см. HotAccount)
+                for (int i = 0; slots != null && i < slots.length; i += 2) {
+                    balance += slots[i + 1];
+                    sum += walk(id, slots[i]);
+                }
+                ledger[id] += sum;
+                rangeBalances += balance;
+                if (broken || ledger[id] != balance) {
+                    mismatches.add(id);
+                }
+            }
+            chained.add(rangeChained);
+            balances.add(rangeBalances);
+        }
+
+        // Сумма изменений записей цепочки от record до границы прошлой сверки; каждая запись должна
+        // принадлежать счёту и продолжать баланс предыдущей
+        private long walk(int id, long record) {
+            long sum = 0;
+            while (record != TransactionJournal.NO_RECORD && record >= reconciled) {
+                long previous = journal.getPrevious(record);
+                long change = journal.getBalanceChange(record);
+                long before = previous == TransactionJournal.NO_RECORD ? 0 : journal.getBalanceAfter(previous);
+                if (journal.getAccountId(record) != id || before + change != journal.getBalanceAfter(record)) {
+                    broken = true;
+                }
+                sum += change;
+                rangeChained++;
+                record = previous;
+            }
+            return sum;
+        }
+    }
+
+    // Записи [from, to) по порядку: сумма изменений балансов и незаполненные записи
+    @SuppressWarnings("serial")
+    private class RecordsTask extends RecursiveAction {
+        private final long from;
+        private final long to;
+        private final LongAdder changes;
+        private final LongAdder holes;
+
+        RecordsTask(long from, long to, LongAdder changes, LongAdder holes) {
+            this.from = from;
+            this.to = to;
+            this.changes = changes;
+            this.holes = holes;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_RECORDS) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new RecordsTask(from, middle, changes, holes), new RecordsTask(middle, to, changes, holes));
+                return;
+            }
+            long sum = 0;
+            long empty = 0;
+            for (long record = from; record < to; record++) {
+                if (journal.isFilled(record)) {
+                    sum += journal.getBalanceChange(record);
+                } else {
+                    empty++;
+                }
+            }
+            changes.add(sum);
+            holes.add(empty);
+        }
+    }
+
+    // Несошедшиеся счета: число и первые MAX_REPORTED id
+    private static final class Mismatches {
+        final int[] ids = new int[MAX_REPORTED];
+        int count;
+
+        synchronized void add(int id) {
+            if (count < ids.length) {
+                ids[count] = id;
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.bank;
+
+// Итог сверки балансов с журналом: записи [fromRecord, toRecord), несошедшиеся счета (первые из них -
+// в mismatchedAccounts) и общий баланс двумя способами - по балансам счетов и по всем записям журнала
+public record ReconciliationReport(long fromRecord, long toRecord, long accounts, long records, long chainedRecords,
+                                   long emptyRecords, long mismatches, int[] mismatchedAccounts, long balancesTotal,
+                                   long ledgerTotal, long elapsedNanos) {
+
+    // Записи журнала вне цепочек счетов: их изменения есть в общем итоге по журналу, но не в балансах
+    public long orphanRecords() {
+        return records - emptyRecords - chainedRecords;
+    }
+
+    public boolean isConsistent() {
+        return mismatches == 0 && emptyRecords == 0 && orphanRecords() == 0 && balancesTotal == ledgerTotal;
+    }
+
+    public double recordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Сверка записей %,d..%,d: счетов %,d, записей %,d (вне цепочек %,d, пустых %,d), "
+                        + "не сошлось счетов: %,d, по балансам %s, по журналу %s, время: %d мс, %,.0f записей/с",
+                fromRecord, toRecord, accounts, records, orphanRecords(), emptyRecords, mismatches,
+                Money.toString(balancesTotal), Money.toString(ledgerTotal), elapsedNanos / 1_000_000,
+                recordsPerSecond());
+    }
+}
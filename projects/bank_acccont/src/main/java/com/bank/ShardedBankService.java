@@ -0,0 +1,278 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Режим BankService с одним писателем на шард вместо конкуренции за блокировки.
+ * Счета разделены между шардами по id; каждый шард обслуживается одним потоком, который читает свою очередь,
+ * а вызывающий получает CompletableFuture.
+ * Шард владеет целыми полосами блокировок ((id & 63) >>> 3), поэтому его поток захватывает только свои мониторы
+ * и они не переходят между ядрами. Восемь соседних id - одна строка кэша колонки балансов - тоже принадлежат
+ * одному шарду, так что писатели разных шардов не делят строки кэша. Отсюда не больше 8 шардов.
+ * Перевод внутри шарда выполняется как обычно. Межшардовый перевод - два шага: шард отправителя списывает
+ * (с отказом "Недостаточно средств", как у transfer), затем шард получателя зачисляет, и только после
+ * зачисления результат завершается. Между шагами деньги "в пути": их не видят балансы счетов, а общий баланс
+ * и снимок учитывают. Списание пишется в журнал с флагом IN_TRANSIT, зачисление или возврат закрывают его
+ * (DELIVERED, RETURNED); если процесс упал между шагами, восстановление возвращает деньги отправителю.
+ * Результаты завершаются в потоке шарда: тяжёлые продолжения стоит вешать через *Async.
+ * С групповой фиксацией журнала шард не ждёт сброса на диск после каждой операции: успешные результаты
+ * пачки, выбранной из очереди, завершаются после одного ожидания долговечности журнала.
+ */
+public class ShardedBankService implements Closeable {
+    public static final int MAX_SHARDS = BankService.LOCK_STRIPES >>> 3;
+
+    // Не больше стольких операций вызывающих в очереди шарда; submit ждёт места
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final int DRAIN_SIZE = 1024;
+
+    private static final byte DEPOSIT = 1;
+    private static final byte WITHDRAW = 2;
+    private static final byte TRANSFER = 3;
+    private static final byte CREDIT = 4;
+    private static final byte REFUND = 5;
+    private static final byte STOP = 6;
+
+    private final BankService bankService;
+    private final Shard[] shards;
+    // Межшардовые переводы, списанные и ещё не зачисленные
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CountDownLatch stopping;
+    private volatile boolean closed;
+
+    // Шарды над bankService с уже запущенными потоками; shards - степень двойки не больше MAX_SHARDS
+    public static ShardedBankService start(BankService bankService, int shards) {
+        ShardedBankService service = new ShardedBankService(bankService, shards);
+        for (Shard shard : service.shards) {
+            shard.start();
+        }
+        return service;
+    }
+
+    // Потоки шардов запускает start, когда объект уже построен
+    private ShardedBankService(BankService bankService, int shards) {
+        if (shards <= 0 || shards > MAX_SHARDS || Integer.bitCount(shards) != 1) {
+            throw new IllegalArgumentException("Число шардов - степень двойки от 1 до " + MAX_SHARDS + ": " + shards);
+        }
+        this.bankService = bankService;
+        this.shards = new Shard[shards];
+        this.stopping = new CountDownLatch(shards);
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard(i);
+        }
+    }
+
+    public BankService getBankService() {
+        return bankService;
+    }
+
+    public int getShards() {
+        return shards.length;
+    }
+
+    public int shardOf(int id) {
+        return BankService.stripe(id) >>> 3 & (shards.length - 1);
+    }
+
+    public CompletableFuture<Void> deposit(int id, long amountCents) {
+        return submit(DEPOSIT, id, id, amountCents);
+    }
+
+    public CompletableFuture<Void> withdraw(int id, long amountCents) {
+        return submit(WITHDRAW, id, id, amountCents);
+    }
+
+    public CompletableFuture<Void> transfer(int fromId, int toId, long amountCents) {
+        return submit(TRANSFER, fromId, toId, amountCents);
+    }
+
+    private CompletableFuture<Void> submit(byte operation, int id, int otherId, long amount) {
+        if (closed) {
+            throw new RejectedExecutionException("Шарды остановлены");
+        }
+        Shard shard = shards[shardOf(id)];
+        Task task = new Task(operation, id, otherId, amount, TransactionJournal.NO_RECORD, new CompletableFuture<>());
+        shard.permits.acquireUninterruptibly();
+        shard.queue.add(task);
+        // close мог завершить поток шарда между проверкой closed и добавлением
+        if (closed && !shard.isAlive() && shard.queue.remove(task)) {
+            task.result.completeExceptionally(new RejectedExecutionException("Шарды остановлены"));
+        }
+        return task.result;
+    }
+
+    // Выполняет всё, что уже в очередях, дожидается зачисления межшардовых переводов и останавливает потоки.
+    // Операции, пришедшие позже, завершаются RejectedExecutionException.
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Shard shard : shards) {
+            shard.queue.add(new Task(STOP, 0, 0, 0, TransactionJournal.NO_RECORD, null));
+        }
+        boolean interrupted = false;
+        for (Shard shard : shards) {
+            while (shard.isAlive()) {
+                try {
+                    shard.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            for (Task task; (task = shard.queue.poll()) != null; ) {
+                if (task.result != null) {
+                    task.result.completeExceptionally(new RejectedExecutionException("Шарды остановлены"));
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Task {
+        final byte operation;
+        final int id;
+        final int otherId;
+        final long amount;
+        // запись межшардового списания для зачисления и возврата
+        final long transfer;
+        final CompletableFuture<Void> result;
+
+        Task(byte operation, int id, int otherId, long amount, long transfer, CompletableFuture<Void> result) {
+            this.operation = operation;
+            this.id = id;
+            this.otherId = otherId;
+            this.amount = amount;
+            this.transfer = transfer;
+            this.result = result;
+        }
+    }
+
+    private final class Shard extends Thread {
+        // Без ограничения, чтобы шард никогда не ждал места в очереди другого шарда;
+        // операции вызывающих ограничены permits
+        final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        final Semaphore permits = new Semaphore(QUEUE_CAPACITY);
+
+        Shard(int index) {
+            super("bank-shard-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Task> batch = new ArrayList<>(DRAIN_SIZE);
+            List<Task> done = new ArrayList<>(DRAIN_SIZE);
+            boolean stopped = false;
+            while (true) {
+                Task first;
+                try {
+                    // после STOP ждать уже нечего, кроме зачислений от других шардов
+                    first = stopped ? queue.poll(1, TimeUnit.MILLISECONDS) : queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, DRAIN_SIZE - 1);
+                    for (Task task : batch) {
+                        if (task.operation == STOP) {
+                            stopped = true;
+                            stopping.countDown();
+                        } else if (execute(task)) {
+                            done.add(task);
+                        }
+                    }
+                    batch.clear();
+                    completeDurable(done);
+                }
+                // Выход, когда все шарды прошли STOP (новых переводов не будет) и все зачисления сделаны
+                if (stopped && stopping.getCount() == 0 && inFlight.get() == 0 && queue.isEmpty()) {
+                    return;
+                }
+            }
+        }
+
+        // Записи всех операций пачки уже в журнале: ожидается долговечность его текущего конца
+        private void completeDurable(List<Task> done) {
+            if (done.isEmpty()) {
+                return;
+            }
+            TransactionJournal journal = bankService.getJournal();
+            try {
+                journal.awaitDurable(journal.size() - 1);
+                for (Task task : done) {
+                    task.result.complete(null);
+                }
+            } catch (RuntimeException e) {
+                for (Task task : done) {
+                    task.result.completeExceptionally(e);
+                }
+            }
+            done.clear();
+        }
+
+        // true, если операция выполнена и её результат ждёт сброса журнала
+        private boolean execute(Task task) {
+            try {
+                switch (task.operation) {
+                    case DEPOSIT -> bankService.applyDeposit(task.id, task.amount);
+                    case WITHDRAW -> bankService.applyWithdraw(task.id, task.amount);
+                    case TRANSFER -> {
+                        Shard target = shards[shardOf(task.otherId)];
+                        if (target == this) {
+                            bankService.applyTransfer(task.id, task.otherId, task.amount);
+                        } else {
+                            long transfer = bankService.debitTransfer(task.id, task.otherId, task.amount);
+                            inFlight.incrementAndGet();
+                            target.queue.add(new Task(CREDIT, task.otherId, task.id, task.amount, transfer,
+                                    task.result));
+                            return false;
+                        }
+                    }
+                    case CREDIT -> {
+                        try {
+                            bankService.creditTransfer(task.id, task.otherId, task.amount, task.transfer);
+                        } catch (ArithmeticException e) {
+                            // зачислить нельзя (переполнение баланса): списанное возвращается отправителю
+                            shards[shardOf(task.otherId)].queue.add(
+                                    new Task(REFUND, task.otherId, task.id, task.amount, task.transfer, task.result));
+                            return false;
+                        }
+                        inFlight.decrementAndGet();
+                    }
+                    case REFUND -> {
+                        try {
+                            bankService.refundTransfer(task.id, task.otherId, task.amount, task.transfer);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                        throw new ArithmeticException("Переполнение баланса счёта " + task.otherId
+                                + ", перевод возвращён");
+                    }
+                    default -> throw new IllegalStateException("Неизвестная операция " + task.operation);
+                }
+                return true;
+            } catch (RuntimeException e) {
+                task.result.completeExceptionally(e);
+                return false;
+            } finally {
+                if (task.operation <= TRANSFER) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
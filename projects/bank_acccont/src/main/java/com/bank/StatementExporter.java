@@ -0,0 +1,255 @@
+package com.bank;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Выгрузка месячных выписок по всем счетам в один файл. Выписка счёта - строка getAccountInfo,
+ * затем строки getTransactionHistory с отступом в два пробела; выписки идут подряд по id.
+ * Результат побайтно совпадает с этими методами, но строки не создаются: блоки по ACCOUNTS_PER_BLOCK счетов
+ * выводятся параллельно прямо в байтовые буферы (числа и суммы форматируются вручную),
+ * а готовые блоки пишутся в FileChannel по одному вызову на блок в исходном порядке.
+ * Буферы и рабочие массивы блоков переиспользуются, поэтому память не зависит от числа счетов.
+ * Выписка каждого счёта согласована (заголовок и история читаются от одной последней записи),
+ * но операции, идущие во время выгрузки, в разные счета могут попасть по-разному.
+ */
+public class StatementExporter {
+    private static final int ACCOUNTS_PER_BLOCK = 4096;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] ACCOUNT = ascii("Account ");
+    private static final byte[] OWNER = ascii(", owner ");
+    private static final byte[] BALANCE = ascii(", balance $");
+    private static final byte[] RATE = ascii(", rate ");
+    private static final byte[] INDENT = ascii("  ");
+    private static final byte[] NO_OWNER = ascii("-");
+    // Начала строк истории по типу записи, как в TransactionJournal.describe
+    private static final byte[][] DESCRIPTIONS = new byte[TransactionJournal.INTEREST + 1][];
+    private static final byte[] UNKNOWN = ascii("Unknown: $");
+    private static final byte[] AMOUNT = ascii(": $");
+
+    static {
+        DESCRIPTIONS[TransactionJournal.CREATE] = ascii("Initial deposit: $");
+        DESCRIPTIONS[TransactionJournal.DEPOSIT] = ascii("Deposited: $");
+        DESCRIPTIONS[TransactionJournal.WITHDRAW] = ascii("Withdrawn: $");
+        DESCRIPTIONS[TransactionJournal.TRANSFER_OUT] = ascii("Transferred to ");
+        DESCRIPTIONS[TransactionJournal.TRANSFER_IN] = ascii("Received from ");
+        DESCRIPTIONS[TransactionJournal.INTEREST] = ascii("Interest: $");
+    }
+
+    private final BankService bankService;
+    private final int parallelism;
+
+    public StatementExporter(BankService bankService) {
+        this(bankService, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StatementExporter(BankService bankService, int parallelism) {
+        this.bankService = bankService;
+        this.parallelism = parallelism;
+    }
+
+    public ExportReport export(Path file) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService renderers = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int count = bankService.getAccountsCount();
+            // Блоков в работе не больше, чем буферов; буфер возвращается после записи своего блока
+            ArrayDeque<Block> free = new ArrayDeque<>();
+            for (int i = 0; i < parallelism * 2; i++) {
+                free.add(new Block());
+            }
+            ArrayDeque<CompletableFuture<Block>> pending = new ArrayDeque<>();
+            long records = 0;
+            long bytes = 0;
+            for (int from = 0; from < count; from += ACCOUNTS_PER_BLOCK) {
+                if (free.isEmpty()) {
+                    Block done = pending.poll().join();
+                    records += done.records;
+                    bytes += done.write(channel);
+                    free.add(done);
+                }
+                Block block = free.poll();
+                int blockFrom = from;
+                int blockTo = Math.min(count, from + ACCOUNTS_PER_BLOCK);
+                pending.add(CompletableFuture.supplyAsync(() -> block.render(blockFrom, blockTo), renderers));
+            }
+            while (!pending.isEmpty()) {
+                Block done = pending.poll().join();
+                records += done.records;
+                bytes += done.write(channel);
+            }
+            return new ExportReport(count, records, bytes, System.nanoTime() - start);
+        } finally {
+            renderers.shutdown();
+        }
+    }
+
+    // Буфер блока выписок и его рабочие массивы
+    private final class Block {
+        private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+        private ByteBuffer view = ByteBuffer.wrap(bytes);
+        private int length;
+        private long[] chain = new long[64];
+        private final long[] header = new long[5];
+        long records;
+
+        Block render(int from, int to) {
+            TransactionJournal journal = bankService.getJournal();
+            NamePool names = bankService.getOwnerNames();
+            length = 0;
+            records = 0;
+            for (int id = from; id < to; id++) {
+                long[] heads = bankService.readStatementHeader(id, header);
+                header(id, names);
+
+                // цепочка записей счёта от новых к старым, выводится в обратном порядке; записи INFO не выводятся
+                int count = 0;
+                if (heads == null) {
+                    for (long record = header[4]; record != TransactionJournal.NO_RECORD;
+                         record = journal.getPrevious(record)) {
+                        if (journal.getType(record) == TransactionJournal.INFO) {
+                            continue;
+                        }
+                        if (count == chain.length) {
+                            chain = Arrays.copyOf(chain, count * 2);
+                        }
+                        chain[count++] = record;
+                    }
+                } else {
+                    // горячий счёт: цепочки слотов сливаются, внутренние переводы между слотами не выводятся
+                    for (long record; (record = HotAccount.next(journal, heads)) != TransactionJournal.NO_RECORD; ) {
+                        if (journal.getCounterparty(record) == id
+                                || journal.getType(record) == TransactionJournal.INFO) {
+                            continue;
+                        }
+                        if (count == chain.length) {
+                            chain = Arrays.copyOf(chain, count * 2);
+                        }
+                        chain[count++] = record;
+                    }
+                }
+                for (int i = count - 1; i >= 0; i--) {
+                    line(journal, chain[i]);
+                }
+                records += count;
+            }
+            return this;
+        }
+
+        private void header(int id, NamePool names) {
+            long name = header[1];
+            ensure(128 + (name == NamePool.NO_NAME ? 0 : NamePool.length(name)));
+            put(ACCOUNT);
+            if (header[0] == AccountStore.NO_NUMBER) {
+                bytes[length++] = '#';
+                putLong(id);
+            } else {
+                putLong(header[0]);
+            }
+            put(OWNER);
+            if (name == NamePool.NO_NAME) {
+                put(NO_OWNER);
+            } else {
+                int nameLength = NamePool.length(name);
+                for (int i = 0; i < nameLength; i++) {
+                    bytes[length++] = names.byteAt(name, i);
+                }
+            }
+            put(BALANCE);
+            putMoney(header[2]);
+            put(RATE);
+            putMoney(header[3]);
+            bytes[length++] = '%';
+            bytes[length++] = '\n';
+        }
+
+        private void line(TransactionJournal journal, long record) {
+            ensure(96);
+            put(INDENT);
+            byte type = journal.getType(record);
+            byte[] description = type > 0 && type < DESCRIPTIONS.length ? DESCRIPTIONS[type] : UNKNOWN;
+            put(description);
+            if (type == TransactionJournal.TRANSFER_OUT || type == TransactionJournal.TRANSFER_IN) {
+                putLong(journal.getCounterparty(record));
+                put(AMOUNT);
+            }
+            putMoney(journal.getAmount(record));
+            bytes[length++] = '\n';
+        }
+
+        private void put(byte[] text) {
+            System.arraycopy(text, 0, bytes, length, text.length);
+            length += text.length;
+        }
+
+        // Как Money.format: знак, рубли, точка и ровно две цифры копеек
+        private void putMoney(long cents) {
+            if (cents < 0) {
+                bytes[length++] = '-';
+                if (cents == Long.MIN_VALUE) {
+                    putLong(-(cents / Money.CENTS_PER_UNIT));
+                    bytes[length++] = '.';
+                    bytes[length++] = '0';
+                    bytes[length++] = '8';
+                    return;
+                }
+                cents = -cents;
+            }
+            long fraction = cents % Money.CENTS_PER_UNIT;
+            putLong(cents / Money.CENTS_PER_UNIT);
+            bytes[length++] = '.';
+            bytes[length++] = (byte) ('0' + fraction / 10);
+            bytes[length++] = (byte) ('0' + fraction % 10);
+        }
+
+        // Десятичная запись long: цифры пишутся с конца, затем участок переворачивается
+        private void putLong(long value) {
+            if (value < 0) {
+                bytes[length++] = '-';
+            } else {
+                value = -value;
+            }
+            // работа с отрицательным значением, чтобы Long.MIN_VALUE не переполнялся
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' - value % 10);
+                value /= 10;
+            } while (value != 0);
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte digit = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = digit;
+            }
+        }
+
+        private void ensure(int more) {
+            if (length + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + more));
+                view = ByteBuffer.wrap(bytes);
+            }
+        }
+
+        int write(FileChannel channel) throws IOException {
+            view.clear().limit(length);
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+            return length;
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,611 @@
+package com.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Общий журнал операций только на дозапись.
+ * Каждая операция - запись фиксированного размера, строки строятся только при чтении истории.
+ * Записи одного счёта связаны в цепочку через ссылку на предыдущую запись этого счёта.
+ * Поверх цепочки - индекс счёта: порядковый номер записи в истории счёта и ссылка jump назад
+ * по схеме skew-binary (Myers), с которой до любой более старой записи счёта O(log n) шагов.
+ * Для диапазона записей, который перепрыгивает jump, хранится сводка: маска типов и границы времени,
+ * поэтому поиск по типу и времени пропускает целые диапазоны без подходящих записей.
+ * Запись занимает ровно одну строку кэша (64 байта).
+ * Журнал в файле служит журналом предзаписи: с групповой фиксацией (GroupCommit) операция подтверждается
+ * только после сброса на диск всех записей до её последней включительно, а при запуске сервис
+ * восстанавливает балансы, проигрывая журнал (BankService.fromJournal, fromSnapshot).
+ * Операция из нескольких записей (перевод, пакет) помечает все свои записи, кроме последней, флагом CONTINUED:
+ * при восстановлении операция, дописанная не целиком, отбрасывается вся.
+ * Межшардовый перевод - две операции (IN_TRANSIT, затем DELIVERED или RETURNED): списание, которое при
+ * восстановлении осталось незакрытым, возвращается отправителю.
+ * Номер, владелец и ставка счёта пишутся записями INFO в его цепочку (при создании и смене ставки),
+ * поэтому журнал восстанавливает счёт целиком и без снимка.
+ * С архивом (setArchive) старые сегменты сжимает в JournalArchive фоновый поток journal-compactor, а в памяти
+ * остаётся хвост из последних сегментов; чтение записей одинаково для обоих уровней. Писатель, перешедший
+ * в новый сегмент, только будит этот поток, поэтому дозапись не ждёт сжатия.
+ * Рост журнала (отображение нового сегмента файла) идёт под ReentrantLock, а не монитором: виртуальный поток,
+ * ждущий её, отпускает поток-носитель.
+ * Без архива журнал растёт без предела: журнал без файла держит все сегменты в памяти вне кучи
+ * (ByteBuffer.allocateDirect), и долгая нагрузка упирается в -XX:MaxDirectMemorySize.
+ */
+public final class TransactionJournal implements Closeable {
+    public static final byte CREATE = 1;
+    public static final byte DEPOSIT = 2;
+    public static final byte WITHDRAW = 3;
+    public static final byte TRANSFER_OUT = 4;
+    public static final byte TRANSFER_IN = 5;
+    public static final byte INTEREST = 6;
+    // Сведения о счёте: номер, ставка, имя владельца; баланс не меняют и в истории не видны
+    public static final byte INFO = 7;
+
+    // Виды записей INFO (в поле второго счёта): номер счёта, ставка в базисных пунктах, длина имени владельца
+    // в байтах UTF-8 и сами байты имени, по 8 в сумме записи
+    public static final int INFO_NUMBER = 0;
+    public static final int INFO_RATE = 1;
+    public static final int INFO_OWNER = 2;
+    public static final int INFO_OWNER_BYTES = 3;
+
+    // Нет записи / нет второго счёта
+    public static final long NO_RECORD = -1;
+    public static final int NO_ACCOUNT = -1;
+
+    // Маска всех типов операций для поиска (без INFO)
+    public static final int ALL_TYPES = 0x7E;
+
+    // Флаги записи: за записью следует ещё запись той же операции
+    public static final int CONTINUED = 1;
+    // Межшардовый перевод (ShardedBankService): списание, деньги которого в пути, и запись, которая его закрывает, -
+    // зачисление получателю или возврат отправителю
+    public static final int IN_TRANSIT = 2;
+    public static final int DELIVERED = 4;
+    public static final int RETURNED = 8;
+
+    public static final int RECORD_SIZE = 64;
+    // Раскладка записи; JournalArchive раскодирует в неё свои блоки
+    static final int ACCOUNT_OFFSET = 0;
+    static final int COUNTERPARTY_OFFSET = 4;
+    static final int TYPE_OFFSET = 8;
+    static final int TYPES_OFFSET = 9;
+    static final int FLAGS_OFFSET = 10;
+    static final int SEQUENCE_OFFSET = 12;
+    static final int AMOUNT_OFFSET = 16;
+    static final int TIMESTAMP_OFFSET = 24;
+    static final int BALANCE_OFFSET = 32;
+    static final int PREVIOUS_OFFSET = 40;
+    static final int JUMP_OFFSET = 48;
+    // Границы времени сводки - в секундах от времени записи, с округлением наружу
+    static final int EARLIEST_OFFSET = 56;
+    static final int LATEST_OFFSET = 60;
+    private static final long SUMMARY_UNIT = 1000;
+
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_RECORDS - 1;
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    private final FileChannel channel;
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+    private final AtomicLong size = new AtomicLong();
+    private final GroupCommit groupCommit;
+    private volatile JournalArchive archive;
+    private volatile int tailSegments;
+    // Рост массива сегментов и его замена при архивации
+    private final ReentrantLock growth = new ReentrantLock();
+    // Сжатие по одному: фоновым потоком или явным compact
+    private final ReentrantLock archiving = new ReentrantLock();
+    private volatile Thread compactor;
+    private volatile boolean compactionRequested;
+    private volatile RuntimeException compactionFailure;
+    private volatile boolean closed;
+
+    // Журнал вне кучи, без файла
+    public TransactionJournal() {
+        this.channel = null;
+        this.groupCommit = null;
+    }
+
+    // Журнал в отображённом в память файле; существующий файл дочитывается до последней записи.
+    // На диск записи сбрасываются при снимке и закрытии.
+    public TransactionJournal(Path file) throws IOException {
+        this(file, 0, 0);
+    }
+
+    // Журнал с групповой фиксацией: awaitDurable ждёт сброса, общего для пакета до maxBatch операций,
+    // собранных не дольше maxDelayNanos. maxBatch = 0 - без групповой фиксации.
+    public TransactionJournal(Path file, int maxBatch, long maxDelayNanos) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existingSegments = (channel.size() + SEGMENT_BYTES - 1) / SEGMENT_BYTES;
+        for (int i = 0; i < existingSegments; i++) {
+            segment(i);
+        }
+        size.set(findEnd(existingSegments * SEGMENT_RECORDS));
+        this.groupCommit = maxBatch == 0 ? null : new GroupCommit(this, maxBatch, maxDelayNanos);
+    }
+
+    // Добавление записи, возвращает её номер
+    public long append(int accountId, byte type, long amount, int counterparty,
+                       long timestamp, long balanceAfter, long previous) {
+        long record = reserve(1);
+        write(record, accountId, type, amount, counterparty, timestamp, balanceAfter, previous);
+        return record;
+    }
+
+    // Резервирование count записей подряд, возвращает номер первой. Операция над несколькими счетами
+    // резервирует все свои записи сразу, поэтому граница снимка (size) не может пройти внутри неё.
+    public long reserve(int count) {
+        return size.getAndAdd(count);
+    }
+
+    // Заполнение зарезервированной записи. Записи одного счёта пишутся по очереди
+    // (под блокировкой счёта): индекс новой записи строится из previous и его ссылок.
+    public void write(long record, int accountId, byte type, long amount, int counterparty,
+                      long timestamp, long balanceAfter, long previous) {
+        write(record, accountId, type, amount, counterparty, timestamp, balanceAfter, previous, 0);
+    }
+
+    // То же с флагами записи (CONTINUED)
+    public void write(long record, int accountId, byte type, long amount, int counterparty,
+                      long timestamp, long balanceAfter, long previous, int flags) {
+        int sequence = 0;
+        long jump = record;
+        int types = typeBit(type);
+        long earliest = timestamp;
+        long latest = timestamp;
+        if (previous != NO_RECORD) {
+            sequence = getSequence(previous) + 1;
+            jump = previous;
+            long previousJump = getJump(previous);
+            long farJump = getJump(previousJump);
+            if (getSequence(previous) - getSequence(previousJump) == getSequence(previousJump) - getSequence(farJump)
+                    && farJump != previous) {
+                // jump перепрыгивает (previousJump, previous] и (farJump, previousJump]
+                jump = farJump;
+                types |= getTypes(previous) | getTypes(previousJump);
+                earliest = Math.min(earliest, Math.min(getEarliest(previous), getEarliest(previousJump)));
+                latest = Math.max(latest, Math.max(getLatest(previous), getLatest(previousJump)));
+            }
+        }
+        ByteBuffer segment = segment((int) (record >>> SEGMENT_BITS));
+        int offset = (int) (record & SEGMENT_MASK) * RECORD_SIZE;
+        segment.putInt(offset + ACCOUNT_OFFSET, accountId);
+        segment.putInt(offset + COUNTERPARTY_OFFSET, counterparty);
+        segment.put(offset + TYPES_OFFSET, (byte) types);
+        segment.put(offset + FLAGS_OFFSET, (byte) flags);
+        segment.putInt(offset + SEQUENCE_OFFSET, sequence);
+        segment.putLong(offset + AMOUNT_OFFSET, amount);
+        segment.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+        segment.putLong(offset + BALANCE_OFFSET, balanceAfter);
+        segment.putLong(offset + PREVIOUS_OFFSET, previous);
+        segment.putLong(offset + JUMP_OFFSET, jump);
+        segment.putInt(offset + EARLIEST_OFFSET, seconds(timestamp - earliest));
+        segment.putInt(offset + LATEST_OFFSET, seconds(latest - timestamp));
+        // тип пишется последним: ненулевой тип означает заполненную запись
+        VarHandle.releaseFence();
+        segment.put(offset + TYPE_OFFSET, type);
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public int getAccountId(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getInt(offset(record, buffer) + ACCOUNT_OFFSET);
+    }
+
+    public int getCounterparty(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getInt(offset(record, buffer) + COUNTERPARTY_OFFSET);
+    }
+
+    public byte getType(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.get(offset(record, buffer) + TYPE_OFFSET);
+    }
+
+    public long getAmount(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getLong(offset(record, buffer) + AMOUNT_OFFSET);
+    }
+
+    public long getTimestamp(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getLong(offset(record, buffer) + TIMESTAMP_OFFSET);
+    }
+
+    public long getBalanceAfter(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getLong(offset(record, buffer) + BALANCE_OFFSET);
+    }
+
+    public long getPrevious(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getLong(offset(record, buffer) + PREVIOUS_OFFSET);
+    }
+
+    public int getFlags(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.get(offset(record, buffer) + FLAGS_OFFSET);
+    }
+
+    // Изменение баланса счёта записью: списания - со знаком минус, у INFO - ноль
+    public long getBalanceChange(long record) {
+        byte type = getType(record);
+        long amount = getAmount(record);
+        if (type == INFO) {
+            return 0;
+        }
+        return type == WITHDRAW || type == TRANSFER_OUT ? -amount : amount;
+    }
+
+    // Порядковый номер записи в истории её счёта, с нуля
+    public int getSequence(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getInt(offset(record, buffer) + SEQUENCE_OFFSET);
+    }
+
+    // Ближайшая к record (включительно) запись той же цепочки, у которой тип входит в маску types,
+    // а время - в [from, to]; NO_RECORD, если такой нет. Диапазоны, сводка которых не пересекается
+    // с условием, перепрыгиваются, поэтому поиск стоит O(log n) шагов, а не длину пропущенного.
+    public long findPrevious(long record, int types, long from, long to) {
+        while (record != NO_RECORD) {
+            long jump = getJump(record);
+            if (jump != record && ((getTypes(record) & types) == 0
+                    || getEarliest(record) > to || getLatest(record) < from)) {
+                // в (jump, record] подходящих записей нет
+                record = jump;
+                continue;
+            }
+            long timestamp = getTimestamp(record);
+            if ((typeBit(getType(record)) & types) != 0 && timestamp >= from && timestamp <= to) {
+                return record;
+            }
+            record = getPrevious(record);
+        }
+        return NO_RECORD;
+    }
+
+    // Ближайшая к record (включительно) запись той же цепочки с номером меньше position, за O(log n) шагов
+    public long findBefore(long record, long position) {
+        while (record != NO_RECORD && record >= position) {
+            long jump = getJump(record);
+            record = jump != record && jump >= position ? jump : getPrevious(record);
+        }
+        return record;
+    }
+
+    public static int typeBit(byte type) {
+        return 1 << type;
+    }
+
+    // Текстовое описание записи, в том же виде, что и прежняя строковая история
+    public StringBuilder describe(long record, StringBuilder out) {
+        int counterparty = getCounterparty(record);
+        switch (getType(record)) {
+            case CREATE -> out.append("Initial deposit: $");
+            case DEPOSIT -> out.append("Deposited: $");
+            case WITHDRAW -> out.append("Withdrawn: $");
+            case TRANSFER_OUT -> out.append("Transferred to ").append(counterparty).append(": $");
+            case TRANSFER_IN -> out.append("Received from ").append(counterparty).append(": $");
+            case INTEREST -> out.append("Interest: $");
+            default -> out.append("Unknown: $");
+        }
+        return Money.format(getAmount(record), out);
+    }
+
+    // Запись заполнена, и после true видны все её поля (см. порядок записи в write)
+    boolean isFilled(long record) {
+        byte type = getType(record);
+        VarHandle.acquireFence();
+        return type != 0;
+    }
+
+    public void force() {
+        for (ByteBuffer segment : segments) {
+            if (segment instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+        }
+    }
+
+    // Сброс на диск только записей [fromRecord, toRecord]
+    public void force(long fromRecord, long toRecord) {
+        ByteBuffer[] current = segments;
+        for (long record = fromRecord; record <= toRecord; record = (record | SEGMENT_MASK) + 1) {
+            if (current[(int) (record >>> SEGMENT_BITS)] instanceof MappedByteBuffer mapped) {
+                long last = Math.min(toRecord, record | SEGMENT_MASK);
+                mapped.force(offset(record), (int) (last - record + 1) * RECORD_SIZE);
+            }
+        }
+    }
+
+    // Ожидание, пока записи журнала до record включительно не окажутся на диске. Вызывается после
+    // записи своих записей и вне блокировок счетов. Без групповой фиксации возвращается сразу.
+    public void awaitDurable(long record) {
+        if (groupCommit != null && record != NO_RECORD) {
+            groupCommit.await(record);
+        }
+    }
+
+    public GroupCommit getGroupCommit() {
+        return groupCommit;
+    }
+
+    // Отбрасывание записей начиная с end: после сбоя за последней целой записью могут остаться
+    // записи, чьи предшественники не успели попасть на диск. Вызывается до первой новой записи.
+    public void truncate(long end) {
+        ByteBuffer[] current = segments;
+        for (long record = end; record < (long) current.length * SEGMENT_RECORDS; record++) {
+            if (getType(record) != 0) {
+                buffer(record).put(offset(record) + TYPE_OFFSET, (byte) 0);
+            }
+        }
+        size.set(end);
+        force();
+        if (groupCommit != null) {
+            groupCommit.truncated(end);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Thread current = compactor;
+        if (current != null) {
+            LockSupport.unpark(current);
+            boolean interrupted = false;
+            while (current.isAlive()) {
+                try {
+                    current.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+
+    long getJump(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getLong(offset(record, buffer) + JUMP_OFFSET);
+    }
+
+    // Типы записей в диапазоне (jump, record]; у первой записи счёта - её собственный тип
+    byte getTypes(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.get(offset(record, buffer) + TYPES_OFFSET);
+    }
+
+    private long getEarliest(long record) {
+        int below = getEarliestSeconds(record);
+        return below == Integer.MAX_VALUE ? Long.MIN_VALUE : getTimestamp(record) - below * SUMMARY_UNIT;
+    }
+
+    private long getLatest(long record) {
+        int above = getLatestSeconds(record);
+        return above == Integer.MAX_VALUE ? Long.MAX_VALUE : getTimestamp(record) + above * SUMMARY_UNIT;
+    }
+
+    // Сводка в секундах от времени записи, как хранится
+    int getEarliestSeconds(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getInt(offset(record, buffer) + EARLIEST_OFFSET);
+    }
+
+    int getLatestSeconds(long record) {
+        ByteBuffer buffer = buffer(record);
+        return buffer.getInt(offset(record, buffer) + LATEST_OFFSET);
+    }
+
+    // Разница времени в секундах с округлением вверх; слишком большая - Integer.MAX_VALUE (без границы)
+    private static int seconds(long millis) {
+        long seconds = millis / SUMMARY_UNIT + (millis % SUMMARY_UNIT == 0 ? 0 : 1);
+        return millis < 0 || seconds >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) seconds;
+    }
+
+    // Сегмент записи или, если сегмент в архиве, раскодированный блок записи в буфере потока
+    private ByteBuffer buffer(long record) {
+        ByteBuffer segment = segments[(int) (record >>> SEGMENT_BITS)];
+        return segment != null ? segment : archive.block(record);
+    }
+
+    // Смещение записи в буфере из buffer: размеры сегмента и блока - степени двойки
+    private static int offset(long record, ByteBuffer buffer) {
+        return (int) (record * RECORD_SIZE) & (buffer.capacity() - 1);
+    }
+
+    private static int offset(long record) {
+        return (int) (record & SEGMENT_MASK) * RECORD_SIZE;
+    }
+
+    private ByteBuffer segment(int index) {
+        ByteBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        ByteBuffer segment;
+        growth.lock();
+        try {
+            while (segments.length <= index) {
+                ByteBuffer[] grown = Arrays.copyOf(segments, segments.length + 1);
+                grown[grown.length - 1] = newSegment(grown.length - 1);
+                segments = grown;
+            }
+            segment = segments[index];
+        } finally {
+            growth.unlock();
+        }
+        Thread background = compactor;
+        if (background != null) {
+            compactionRequested = true;
+            LockSupport.unpark(background);
+        }
+        return segment;
+    }
+
+    // Архив для старых сегментов: в памяти остаются tailSegments последних сегментов (не меньше одного),
+    // более старые сжимает фоновый поток после роста журнала или вызов compact
+    public void setArchive(JournalArchive archive, int tailSegments) {
+        if (tailSegments < 1) {
+            throw new IllegalArgumentException("Хвост журнала должен быть не меньше одного сегмента");
+        }
+        archiving.lock();
+        try {
+            if (this.archive != null && this.archive != archive) {
+                throw new IllegalStateException("Архив журнала уже задан");
+            }
+            this.archive = archive;
+            this.tailSegments = tailSegments;
+            if (compactor == null) {
+                Thread thread = new Thread(this::compactLoop, "journal-compactor");
+                thread.setDaemon(true);
+                compactor = thread;
+                thread.start();
+            }
+        } finally {
+            archiving.unlock();
+        }
+    }
+
+    // Сжатие в архив сегментов старше хвоста; возвращает число записей в архиве
+    public long compact() {
+        JournalArchive current = archive;
+        if (current == null) {
+            throw new IllegalStateException("Архив журнала не задан");
+        }
+        RuntimeException failure = compactionFailure;
+        if (failure != null) {
+            throw new IllegalStateException("Фоновое сжатие журнала остановлено ошибкой", failure);
+        }
+        archiving.lock();
+        try {
+            archiveSegments();
+        } finally {
+            archiving.unlock();
+        }
+        return current.getRecords();
+    }
+
+    // Поток journal-compactor: сжатие после каждого роста журнала, до закрытия или первой ошибки
+    private void compactLoop() {
+        while (!closed) {
+            while (!compactionRequested && !closed) {
+                LockSupport.park(this);
+            }
+            compactionRequested = false;
+            if (closed) {
+                return;
+            }
+            archiving.lock();
+            try {
+                archiveSegments();
+            } catch (RuntimeException e) {
+                compactionFailure = e;
+                return;
+            } finally {
+                archiving.unlock();
+            }
+        }
+    }
+
+    public JournalArchive getArchive() {
+        return archive;
+    }
+
+    // Память несжатого хвоста журнала (вне кучи или отображённый файл)
+    public long getTailBytes() {
+        long bytes = 0;
+        for (ByteBuffer segment : segments) {
+            if (segment != null) {
+                bytes += SEGMENT_BYTES;
+            }
+        }
+        return bytes;
+    }
+
+    // Память истории: хвост и архив (если архив в файле - только смещения его блоков)
+    public long getHistoryBytes() {
+        JournalArchive current = archive;
+        return getTailBytes() + (current == null ? 0 : current.getMemoryBytes());
+    }
+
+    // Под блокировкой archiving. Сегмент архивируется, только когда все его записи дописаны;
+    // снимается с публикации после того, как его блоки появились в архиве. Блокировка growth берётся
+    // только на замену массива сегментов, рост журнала сжатия не ждёт.
+    private void archiveSegments() {
+        JournalArchive archive = this.archive;
+        int first = (int) (archive.getRecords() >>> SEGMENT_BITS);
+        int end = segments.length - tailSegments;
+        for (int index = first; index < end; index++) {
+            long from = (long) index << SEGMENT_BITS;
+            for (long record = from; record < from + SEGMENT_RECORDS; record++) {
+                if (!isFilled(record)) {
+                    return;
+                }
+            }
+            if (segments[index] instanceof MappedByteBuffer mapped) {
+                mapped.force();
+            }
+            for (long block = from; block < from + SEGMENT_RECORDS; block += JournalArchive.BLOCK_RECORDS) {
+                archive.append(this, block);
+            }
+            growth.lock();
+            try {
+                ByteBuffer[] archived = segments.clone();
+                archived[index] = null;
+                segments = archived;
+            } finally {
+                growth.unlock();
+            }
+        }
+    }
+
+    private ByteBuffer newSegment(int index) {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect((int) SEGMENT_BYTES).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, index * SEGMENT_BYTES, SEGMENT_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось расширить журнал", e);
+        }
+    }
+
+    // Первая незаполненная запись: записи идут подряд, поэтому достаточно двоичного поиска
+    private long findEnd(long capacity) {
+        long low = 0;
+        long high = capacity;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (getType(mid) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,5 @@
+package com.bank;
+
+// Заявка на перевод в пакете, сумма в копейках
+public record TransferRequest(int fromId, int toId, long amount) {
+}
@@ -0,0 +1,11 @@
+package com.bank;
+
+// Результат одного перевода в пакете
+public enum TransferResult {
+    OK,
+    INSUFFICIENT_FUNDS,
+    UNKNOWN_ACCOUNT,
+    INVALID_AMOUNT,
+    // Перевод корректен, но не выполнен, потому что пакет "всё или ничего" отклонён из-за другого перевода
+    ABORTED
+}
@@ -0,0 +1,40 @@
+package com.bank;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Скорость массового импорта: генерирует CSV и импортирует его в пустой BankService
+ * Запуск: java -Xmx4g AccountImportBenchmark [строк]
+ */
+public class AccountImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Path dir = Files.createTempDirectory("import-bench");
+        Path csv = dir.resolve("accounts.csv");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write("accountNumber,owner,balance,rate\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write(Long.toString(100_000_000L + i));
+                writer.write(",Клиент ");
+                writer.write(Integer.toString(i));
+                writer.write(',');
+                writer.write(Integer.toString(i % 100_000));
+                writer.write(".50,4.5\n");
+            }
+        }
+        System.out.printf("Файл: %,d строк, %,d МБ%n", rows, Files.size(csv) >> 20);
+
+        BankService bankService = new BankService(0, 0);
+        ImportReport report = new AccountImporter(bankService).importCsv(csv, dir.resolve("rejects.txt"));
+        System.out.println(report);
+
+        Files.delete(csv);
+        Files.delete(dir.resolve("rejects.txt"));
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,135 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountImporterTest {
+
+    @Test
+    void testImportWithRejects(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("accounts.csv");
+        Path rejects = dir.resolve("rejects.txt");
+        Files.writeString(csv, String.join("\n",
+                "accountNumber,owner,balance,rate",
+                "1001,Иван Иванов,5000.00,4.5",
+                "1002, Мария Петрова ,3000",
+                "ABC,Ошибка,1.00",
+                "1001,Дубликат,1.00",
+                "1003,Алексей Сидоров,-5.00",
+                "1004,Без баланса",
+                "",
+                "123456789,John Doe,1000.5,12\r",
+                "1005,Последняя,0.01"), StandardCharsets.UTF_8);
+
+        BankService bankService = new BankService(0, 0);
+        ImportReport report = new AccountImporter(bankService, 2).importCsv(csv, rejects);
+
+        assertEquals(8, report.rows());
+        assertEquals(4, report.imported());
+        assertEquals(4, report.rejected());
+
+        int ivan = bankService.findAccountId(1001);
+        assertEquals("Иван Иванов", bankService.getOwnerName(ivan));
+        assertEquals(500_000L, bankService.getBalanceCents(ivan));
+        assertEquals(4.5, bankService.getAccount(ivan).getAnnualInterestRate(), 0.001);
+        assertEquals("Мария Петрова", bankService.getOwnerName(bankService.findAccountId(1002)));
+        assertEquals(100_050L, bankService.getBalanceCents(bankService.findAccountId(123456789)));
+        assertEquals(1L, bankService.getBalanceCents(bankService.findAccountId(1005)));
+        assertEquals(AccountNumberIndex.NOT_FOUND, bankService.findAccountId(1003));
+        bankService.checkAggregates();
+
+        List<String> rejected = Files.readAllLines(rejects, StandardCharsets.UTF_8);
+        assertEquals(4, rejected.size());
+        assertEquals("4\tневерный номер счёта\tABC,Ошибка,1.00", rejected.get(0));
+        assertTrue(rejected.get(1).startsWith("5\tдубликат номера счёта"));
+        assertTrue(rejected.get(2).startsWith("6\t"));
+        assertTrue(rejected.get(3).startsWith("7\tневерное число полей"));
+    }
+
+    @Test
+    void testImportAcrossBlocks(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("accounts.csv");
+        StringBuilder text = new StringBuilder();
+        int rows = 400_000; // больше одного блока чтения
+        for (int i = 0; i < rows; i++) {
+            text.append(1_000_000 + i).append(",Клиент ").append(i).append(",10.00,1\n");
+        }
+        text.append("1000000,Дубликат,1.00\n");
+        Files.writeString(csv, text, StandardCharsets.UTF_8);
+
+        BankService bankService = new BankService(0, 0);
+        ImportReport report = new AccountImporter(bankService).importCsv(csv, dir.resolve("rejects.txt"));
+
+        assertEquals(rows, report.imported());
+        assertEquals(1, report.rejected());
+        assertEquals(rows, bankService.getAccountsCount());
+        assertEquals("Клиент 399999", bankService.getOwnerName(bankService.findAccountId(1_399_999)));
+        assertEquals(rows * 1_000L, bankService.getTotalBankBalanceCents());
+    }
+
+    @Test
+    void testCreateNumberedAccount() {
+        BankService bankService = new BankService(0, 0);
+        int id = bankService.createAccount("1001", "Иван Иванов", 5000.0);
+        assertEquals(1001L, bankService.getAccountNumber(id));
+        assertThrows(IllegalArgumentException.class, () -> bankService.createAccount("1001", "Bob", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> bankService.createAccount("ACC1", "Bob", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> bankService.createAccount("1002", " ", 1.0));
+        assertEquals(1, bankService.getAccountsCount());
+    }
+
+    @Test
+    void testConcurrentCreateAndLookup() throws InterruptedException {
+        int numbers = 20_000; // индекс несколько раз растёт
+        BankService bankService = new BankService(0, 0);
+        // все создатели пытаются занять одни и те же номера, поиск идёт параллельно
+        List<Thread> creators = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            creators.add(new Thread(() -> {
+                for (int i = 0; i < numbers; i++) {
+                    try {
+                        bankService.createAccount(String.valueOf(1_000_000 + i), "Клиент " + i, 1.0);
+                    } catch (IllegalArgumentException e) {
+                        // номер уже занят другим создателем
+                    }
+                }
+            }));
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> errors = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (int i = 0; i < numbers; i += 7) {
+                    int id = bankService.findAccountId(1_000_000 + i);
+                    if (id != AccountNumberIndex.NOT_FOUND && bankService.getAccountNumber(id) != 1_000_000 + i) {
+                        errors.add("номер " + (1_000_000 + i) + " -> id " + id);
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        creators.forEach(Thread::start);
+        for (Thread creator : creators) {
+            creator.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(List.of(), errors);
+        assertEquals(numbers, bankService.getAccountsCount());
+        for (int i = 0; i < numbers; i++) {
+            int id = bankService.findAccountId(1_000_000 + i);
+            assertEquals(1_000_000L + i, bankService.getAccountNumber(id));
+        }
+    }
+}
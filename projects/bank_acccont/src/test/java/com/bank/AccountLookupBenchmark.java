@@ -0,0 +1,96 @@
+package com.bank;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Поиск счёта по номеру и по имени владельца: специализированные индексы против обычного поиска.
+ * Номер: HashMap<String, Integer> по строке номера против findAccountId(CharSequence) по примитивному long.
+ * Владелец: перебор всех getOwnerName с toLowerCase().startsWith против findAccountsByOwnerPrefix.
+ * Для каждого варианта - нс на поиск и байт на поиск.
+ * Запуск: java AccountLookupBenchmark [счетов] [поисков]
+ */
+public class AccountLookupBenchmark {
+    private static final String[] FIRST = {"Иван", "Мария", "Алексей", "Ольга", "John", "Anna", "Пётр", "Елена"};
+    private static final String[] LAST = {"Иванов", "Петрова", "Сидоров", "Smith", "Кузнецова", "Doe", "Попов"};
+    private static final int PAGE = 20;
+    private static final int SCANS = 20;
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        Random random = new Random(42);
+        BankService bankService = new BankService(0, 0);
+        Map<String, Integer> byString = new HashMap<>();
+        String[] numbers = new String[accounts];
+        for (int i = 0; i < accounts; i++) {
+            numbers[i] = String.valueOf(100_000_000L + i * 7L);
+            String owner = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + " " + i;
+            int id = bankService.createAccount(numbers[i], owner, 1.0);
+            byString.put(numbers[i], id);
+        }
+        // Строки запросов приходят извне (ввод, сеть) и уже лежат в буфере
+        StringBuilder[] queries = new StringBuilder[4096];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new StringBuilder(numbers[random.nextInt(accounts)]);
+        }
+        String[] prefixes = {"иван", "MARIA", "Ольга К", "john d", "пётр попов 1"};
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long allocated = allocatedBytes();
+            for (int i = 0; i < lookups; i++) {
+                // HashMap требует String: ключ из буфера приходится материализовать
+                sink += byString.get(queries[i & (queries.length - 1)].toString());
+            }
+            report("HashMap<String,Integer>.get", lookups, start, allocated);
+
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            for (int i = 0; i < lookups; i++) {
+                sink += bankService.findAccountId(queries[i & (queries.length - 1)]);
+            }
+            report("findAccountId(CharSequence)", lookups, start, allocated);
+
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            for (int i = 0; i < SCANS; i++) {
+                String prefix = prefixes[i % prefixes.length].toLowerCase(Locale.ROOT);
+                int found = 0;
+                for (int id = 0; id < accounts && found < PAGE; id++) {
+                    if (bankService.getOwnerName(id).toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                        found++;
+                    }
+                }
+                sink += found;
+            }
+            report("scan getOwnerName (" + PAGE + ")", SCANS, start, allocated);
+
+            int[] page = new int[PAGE];
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            for (int i = 0; i < lookups; i++) {
+                sink += bankService.findAccountsByOwnerPrefix(prefixes[i % prefixes.length], 0, page);
+            }
+            report("findAccountsByOwnerPrefix (" + PAGE + ")", lookups, start, allocated);
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void report(String name, long operations, long start, long allocatedBefore) {
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - allocatedBefore;
+        System.out.printf("%-36s %,12.1f нс/поиск %10.1f Б/поиск%n", name, (double) elapsed / operations,
+                (double) bytes / operations);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
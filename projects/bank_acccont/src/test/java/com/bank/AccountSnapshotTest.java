@@ -0,0 +1,183 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountSnapshotTest {
+
+    @Test
+    void testSaveAndRestore(@TempDir Path dir) throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("accounts.snap");
+        int count = 150_000; // несколько блоков хранилища
+
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(count, 10.0, journal);
+            bankService.setAnnualInterestRate(7, 4.5);
+            bankService.createAccount("1001", "Иван Иванов", 50.0);
+            bankService.deposit(149_999, 5.0);
+            bankService.transfer(0, 1, 2.5);
+            bankService.saveSnapshot(snapshotFile);
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService restored = BankService.fromSnapshot(snapshotFile, journal);
+            assertEquals(count + 1, restored.getAccountsCount());
+            assertEquals(750L, restored.getBalanceCents(0));
+            assertEquals(1_250L, restored.getBalanceCents(1));
+            assertEquals(1_500L, restored.getBalanceCents(149_999));
+            assertEquals(4.5, restored.getAccount(7).getAnnualInterestRate(), 0.001);
+            int named = restored.findAccountId(1001);
+            assertEquals(count, named);
+            assertEquals("Иван Иванов", restored.getOwnerName(named));
+            int[] found = new int[2];
+            assertEquals(1, restored.findAccountsByOwnerPrefix("иван", 0, found));
+            assertEquals(named, found[0]);
+            assertThrows(IllegalArgumentException.class, () -> restored.createAccount("1001", "Дубликат", 1.0));
+            assertEquals("Transferred to 1: $2.50", restored.getTransactionHistory(0).get(1));
+
+            restored.deposit(2, 1.0);
+            assertEquals(2, restored.getTransactionHistory(2).size());
+            restored.checkAggregates();
+        }
+    }
+
+    @Test
+    void testIndexesBuiltInBackground(@TempDir Path dir) throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("accounts.snap");
+        int count = 20_000;
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(0, 0.0, journal);
+            for (int i = 0; i < count; i++) {
+                bankService.createAccount(String.valueOf(500_000 + i), "Владелец " + i, 1.0);
+            }
+            bankService.saveSnapshot(snapshotFile);
+        }
+
+        // индексы строятся в фоне; создание и поиск сразу после восстановления их дожидаются
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService restored = BankService.fromSnapshot(snapshotFile, journal);
+            assertThrows(IllegalArgumentException.class,
+                    () -> restored.createAccount(String.valueOf(500_000 + count - 1), "Дубликат", 1.0));
+            int created = restored.createAccount("42", "Новый", 1.0);
+            assertEquals(count, created);
+            for (int i = 0; i < count; i++) {
+                assertEquals(i, restored.findAccountId(500_000 + i));
+            }
+            assertEquals(created, restored.findAccountId(42));
+            assertEquals(1, restored.countAccountsByOwnerPrefix("владелец 19999"));
+        }
+    }
+
+    @Test
+    void testSaveUnderLoad(@TempDir Path dir) throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("accounts.snap");
+        int count = 1_000;
+        long[] balances;
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(count, 100.0, journal);
+            bankService.enableHotAccount(7, 4);
+            // снимок пишется, пока идут переводы и создаются счета с номерами
+            AtomicBoolean stop = new AtomicBoolean();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int index = t;
+                workers.add(new Thread(() -> {
+                    Random random = new Random(index);
+                    for (int i = 0; !stop.get(); i++) {
+                        try {
+                            if (i % 50 == 0) {
+                                bankService.createAccount(String.valueOf(index * 1_000_000 + i), "Владелец " + i, 1.0);
+                            } else {
+                                bankService.transferCents(random.nextInt(count), random.nextInt(count),
+                                        1 + random.nextInt(500));
+                            }
+                        } catch (InsufficientFundsException | IllegalArgumentException e) {
+                            // отказ и перевод самому себе не меняют балансов
+                        }
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            Thread.sleep(100);
+            bankService.saveSnapshot(snapshotFile);
+            Thread.sleep(100);
+            stop.set(true);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            bankService.checkAggregates();
+            balances = new long[bankService.getAccountsCount()];
+            for (int id = 0; id < balances.length; id++) {
+                balances[id] = bankService.getBalanceCents(id);
+            }
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService restored = BankService.fromSnapshot(snapshotFile, journal);
+            assertEquals(balances.length, restored.getAccountsCount());
+            for (int id = 0; id < balances.length; id++) {
+                assertEquals(balances[id], restored.getBalanceCents(id), "счёт " + id);
+            }
+            for (int id = count; id < balances.length; id++) {
+                assertEquals(id, restored.findAccountId(restored.getAccountNumber(id)));
+                assertTrue(restored.getOwnerName(id).startsWith("Владелец "));
+            }
+            assertTrue(restored.isHotAccount(7));
+            restored.checkAggregates();
+            assertTrue(new Reconciler(restored).run().isConsistent());
+        }
+    }
+
+    @Test
+    void testFailedSaveKeepsPreviousSnapshot(@TempDir Path dir) throws Exception {
+        Path snapshotFile = dir.resolve("accounts.snap");
+        AccountStore store = new AccountStore();
+        store.createAccount(1_000L, 0, 0);
+        AccountSnapshot.write(store, 1, snapshotFile);
+
+        // хранилище, блок которого не читается посреди записи
+        AccountStore broken = new AccountStore(100_000, (firstId, length, chunk) -> {
+            if (firstId > 0) {
+                throw new IllegalStateException("блок не прочитан");
+            }
+        }, new NamePool());
+        assertThrows(IllegalStateException.class, () -> AccountSnapshot.write(broken, 2, snapshotFile));
+        assertFalse(Files.exists(dir.resolve("accounts.snap.tmp")));
+
+        AccountSnapshot loaded = AccountSnapshot.read(snapshotFile, false);
+        assertEquals(1, loaded.getStore().getAccountsCount());
+        assertEquals(1_000L, loaded.getTotalBalance());
+        assertEquals(1, loaded.getJournalSize());
+    }
+
+    @Test
+    void testLazyLoading() {
+        int[] loads = new int[1];
+        AccountStore store = new AccountStore(100_000, (firstId, length, chunk) -> {
+            loads[0]++;
+            for (int i = 0; i < length; i++) {
+                chunk[AccountStore.BALANCE][i] = firstId + i;
+            }
+        }, new NamePool());
+
+        assertFalse(store.isFullyLoaded());
+        assertEquals(99_999L, store.getBalance(99_999));
+        assertEquals(1, loads[0]);
+        store.loadAll();
+        assertTrue(store.isFullyLoaded());
+        assertEquals(2, loads[0]);
+        assertEquals(100_000, store.createAccount(5L, 0, 0));
+    }
+}
@@ -0,0 +1,52 @@
+package com.bank;
+
+import java.util.Date;
+
+/**
+ * Сравнение занимаемой памяти: массив объектов Account против колонок AccountStore
+ * Запуск: java -Xmx4g AccountStoreFootprint 1000000 10000000
+ */
+public class AccountStoreFootprint {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{1_000_000, 10_000_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        for (int size : sizes) {
+            long before = usedMemory();
+            Account[] accounts = new Account[size];
+            long now = System.currentTimeMillis();
+            for (int id = 0; id < size; id++) {
+                accounts[id] = new Account(id, 100_000L, 5.0, new Date(now));
+            }
+            long objects = usedMemory() - before;
+            reachabilityFence(accounts);
+            accounts = null;
+
+            before = usedMemory();
+            AccountStore store = new AccountStore();
+            for (int id = 0; id < size; id++) {
+                store.createAccount(100_000L, 500L, now);
+            }
+            long columns = usedMemory() - before;
+            reachabilityFence(store);
+
+            System.out.printf("%,d счетов: Account[] %,d МБ (%d байт/счёт), AccountStore %,d МБ (%d байт/счёт)%n",
+                    size, objects >> 20, objects / size, columns >> 20, columns / size);
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void reachabilityFence(Object o) {
+        java.lang.ref.Reference.reachabilityFence(o);
+    }
+}
@@ -0,0 +1,50 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountStoreTest {
+
+    @Test
+    void testCreateAccount() {
+        AccountStore store = new AccountStore();
+        int id = store.createAccount(100_000L, 500L, 42L);
+
+        assertEquals(0, id);
+        assertEquals(1, store.getAccountsCount());
+        assertEquals(100_000L, store.getBalance(id));
+        assertEquals(500L, store.getAnnualInterestRate(id));
+        assertEquals(42L, store.getDateCreated(id));
+    }
+
+    @Test
+    void testGrowthKeepsExistingAccounts() {
+        AccountStore store = new AccountStore();
+        int count = 200_000; // несколько блоков
+        for (int i = 0; i < count; i++) {
+            store.createAccount(i, 0, i);
+        }
+
+        assertEquals(count, store.getAccountsCount());
+        for (int i = 0; i < count; i += 997) {
+            assertEquals(i, store.getBalance(i));
+            assertEquals(i, store.getDateCreated(i));
+        }
+        assertFalse(store.exists(count));
+        assertFalse(store.exists(-1));
+    }
+
+    @Test
+    void testBankServiceAccountView() {
+        BankService bankService = new BankService(0, 0);
+        int id = bankService.createAccount(250.0);
+        bankService.setAnnualInterestRate(id, 12.0);
+
+        Account account = bankService.getAccount(id);
+        assertEquals(id, account.getId());
+        assertEquals(250.0, account.getBalance(), 0.001);
+        assertEquals(2.5, account.getMonthlyInterest(), 0.001);
+        assertThrows(IllegalArgumentException.class, () -> bankService.getAccount(5));
+    }
+}
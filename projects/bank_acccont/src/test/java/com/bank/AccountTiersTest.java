@@ -0,0 +1,116 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountTiersTest {
+    private static final int CHUNK = AccountStore.CHUNK_SIZE;
+
+    @Test
+    void testEvictionKeepsValuesAndFrequentChunks(@TempDir Path dir) throws Exception {
+        try (AccountTiers tiers = new AccountTiers(dir.resolve("cold.bin"), 2 * AccountTiers.CHUNK_BYTES)) {
+            AccountStore store = new AccountStore(tiers);
+            int count = 4 * CHUNK;
+            for (int i = 0; i < count; i++) {
+                store.createAccount(i, 0, i);
+            }
+            assertEquals(2 * AccountTiers.CHUNK_BYTES, tiers.getResidentBytes());
+            assertTrue(tiers.getSpills() >= 2);
+
+            for (int i = 0; i < count; i += 1009) {
+                assertEquals(i, store.getBalance(i));
+                store.setBalance(i, -i);
+            }
+            for (int i = 0; i < count; i += 1009) {
+                assertEquals(-i, store.getBalance(i));
+                assertEquals(i, store.getDateCreated(i));
+            }
+
+            // частый блок 0 переживает однократный проход по остальным
+            for (int i = 0; i < 10_000; i++) {
+                store.getBalance(i);
+            }
+            long misses = tiers.getMisses();
+            for (int chunk = 1; chunk < 4; chunk++) {
+                store.getBalance(chunk * CHUNK);
+            }
+            store.getBalance(0);
+            assertTrue(tiers.getMisses() - misses <= 3);
+            assertTrue(tiers.getHitRate() > 0.5);
+            assertTrue(tiers.getLoadLatencies().count() > 0);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new AccountTiers(dir.resolve("small.bin"), AccountTiers.CHUNK_BYTES));
+    }
+
+    @Test
+    @Timeout(60)
+    void testConcurrentTransfersOverColdChunks(@TempDir Path dir) throws Exception {
+        int accounts = 4 * CHUNK;
+        try (AccountTiers tiers = new AccountTiers(dir.resolve("cold.bin"), 2 * AccountTiers.CHUNK_BYTES)) {
+            BankService bankService = new BankService(accounts, 10.0, new TransactionJournal(), tiers);
+            long expected = bankService.getTotalBankBalanceCents();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                threads.add(new Thread(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; i++) {
+                        // горячие счета помещаются в бюджет, каждый сотый перевод - на холодный счёт
+                        int from = random.nextInt(CHUNK);
+                        int to = i % 100 == 0 ? CHUNK + random.nextInt(accounts - CHUNK) : (from + 1) % CHUNK;
+                        try {
+                            bankService.transferCents(from, to, 1 + random.nextInt(1_500));
+                        } catch (InsufficientFundsException e) {
+                            // отказ допустим
+                        }
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(expected, bankService.scanTotalBankBalanceCents());
+            bankService.checkAggregates();
+            assertTrue(bankService.getMetrics().getTierEvictions() > 0);
+            assertTrue(bankService.getMetrics().dump().contains("Блоки счетов: попаданий"));
+        }
+    }
+
+    @Test
+    void testRestoreSnapshotWithTiers(@TempDir Path dir) throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("accounts.snap");
+        int count = 3 * CHUNK;
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(count, 1.0, journal);
+            bankService.deposit(count - 1, 2.0);
+            bankService.saveSnapshot(snapshotFile);
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(journalFile);
+             AccountTiers tiers = new AccountTiers(dir.resolve("cold.bin"), 2 * AccountTiers.CHUNK_BYTES)) {
+            BankService restored = BankService.fromSnapshot(snapshotFile, journal, tiers);
+            assertEquals(0, tiers.getResidentBytes());
+            restored.deposit(0, 5.0);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(300L, restored.getBalanceCents(count - 1));
+            }
+            restored.getBalanceCents(CHUNK);   // вытесняется реже используемый блок 0, он изменён и уходит в файл
+            assertEquals(1, tiers.getSpills());
+            assertEquals(600L, restored.getAccount(0).getBalanceCents());
+            assertEquals(2, restored.getTransactionHistory(0).size());
+            restored.checkAggregates();
+        }
+    }
+}
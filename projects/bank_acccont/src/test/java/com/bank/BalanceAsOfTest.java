@@ -0,0 +1,105 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceAsOfTest {
+    private static final int ACCOUNTS = 200;
+    private static final int PHASES = 8;
+
+    @Test
+    void testBalancesAsOfPastMoments() throws InterruptedException {
+        long beforeStart = System.currentTimeMillis() - 1;
+        BankService bankService = new BankService(ACCOUNTS, 100.0);
+        for (int id = 0; id < ACCOUNTS; id++) {
+            bankService.setAnnualInterestRate(id, 6.0);
+        }
+        long[] moments = new long[PHASES];
+        long[] totals = new long[PHASES];
+        long[][] balances = new long[PHASES][ACCOUNTS];
+        Random random = new Random(3);
+        for (int phase = 0; phase < PHASES; phase++) {
+            for (int i = 0; i < 5_000; i++) {
+                int id = random.nextInt(ACCOUNTS);
+                try {
+                    switch (random.nextInt(3)) {
+                        case 0 -> bankService.depositCents(id, 1 + random.nextInt(1_000));
+                        case 1 -> bankService.withdrawCents(id, 1 + random.nextInt(1_000));
+                        default -> bankService.transferCents(id, (id + 1) % ACCOUNTS, 1 + random.nextInt(1_000));
+                    }
+                } catch (InsufficientFundsException e) {
+                    // отказ не пишется в журнал
+                }
+            }
+            // моменты отделены от операций паузами, так что время каждой операции строго до или после
+            Thread.sleep(2);
+            moments[phase] = System.currentTimeMillis();
+            totals[phase] = bankService.getTotalBankBalanceCents();
+            for (int id = 0; id < ACCOUNTS; id++) {
+                balances[phase][id] = bankService.getBalanceCents(id);
+            }
+            Thread.sleep(2);
+        }
+
+        for (int phase = 0; phase < PHASES; phase++) {
+            assertEquals(totals[phase], bankService.getTotalBankBalanceCentsAsOf(moments[phase]), "момент " + phase);
+            for (int id = 0; id < ACCOUNTS; id += 7) {
+                assertEquals(balances[phase][id], bankService.getBalanceCentsAsOf(id, moments[phase]));
+            }
+        }
+        assertEquals(0, bankService.getTotalBankBalanceCentsAsOf(beforeStart));
+        assertThrows(IllegalArgumentException.class, () -> bankService.getBalanceCentsAsOf(0, beforeStart));
+        assertEquals(bankService.getTotalBankBalanceCents(), bankService.getTotalBankBalanceCentsAsOf(Long.MAX_VALUE));
+        assertEquals(bankService.getBalanceCents(5), bankService.getBalanceCentsAsOf(5, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testInterestDatedByPeriodEnd() throws InterruptedException {
+        BankService bankService = new BankService(ACCOUNTS, 100.0);
+        for (int id = 0; id < ACCOUNTS; id++) {
+            bankService.setAnnualInterestRate(id, 12.0);
+        }
+        Thread.sleep(2);
+        long periodStart = System.currentTimeMillis();
+        long[] moments = new long[PHASES];
+        long[] totals = new long[PHASES];
+        long[][] balances = new long[PHASES][ACCOUNTS];
+        for (int phase = 0; phase < PHASES; phase++) {
+            Thread.sleep(2);
+            for (int i = 0; i < 3_000; i++) {
+                bankService.depositCents(i % ACCOUNTS, 1 + phase);
+            }
+            Thread.sleep(2);
+            moments[phase] = System.currentTimeMillis();
+            totals[phase] = bankService.getTotalBankBalanceCents();
+            for (int id = 0; id < ACCOUNTS; id++) {
+                balances[phase][id] = bankService.getBalanceCents(id);
+            }
+        }
+
+        // начисление за период, закончившийся на моменте 2, дописывается в журнал после всех операций фаз
+        long[] interest = new long[ACCOUNTS];
+        for (int id = 0; id < ACCOUNTS; id++) {
+            interest[id] = -bankService.getBalanceCents(id);
+        }
+        AccrualReport report = bankService.accrueInterest(
+                new InterestAccrual(InterestAccrual.Mode.MONTHLY, periodStart, moments[2]));
+        assertTrue(report.totalInterest() > 0);
+        for (int id = 0; id < ACCOUNTS; id++) {
+            interest[id] += bankService.getBalanceCents(id);
+        }
+
+        for (int phase = 0; phase < PHASES; phase++) {
+            long credited = phase >= 2 ? report.totalInterest() : 0;
+            assertEquals(totals[phase] + credited, bankService.getTotalBankBalanceCentsAsOf(moments[phase]));
+            for (int id = 0; id < ACCOUNTS; id += 3) {
+                assertEquals(balances[phase][id] + (phase >= 2 ? interest[id] : 0),
+                        bankService.getBalanceCentsAsOf(id, moments[phase]), "счёт " + id + ", момент " + phase);
+            }
+        }
+        assertEquals(bankService.getTotalBankBalanceCents(), bankService.getTotalBankBalanceCentsAsOf(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,87 @@
+package com.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Цена индекса по балансу на пути записи: пополнения и переводы в несколько потоков без индекса и с ним,
+ * и время запроса первых 100 счетов по индексу против полного прохода с сортировкой
+ * Запуск: java BalanceIndexBenchmark [счетов] [секунд на замер]
+ */
+public class BalanceIndexBenchmark {
+    private static final int[] THREADS = {1, 4, 16};
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+
+        for (int threads : THREADS) {
+            for (boolean indexed : new boolean[]{false, true}) {
+                BankService bankService = new BankService(accounts, 100.0);
+                if (indexed) {
+                    bankService.enableBalanceIndex();
+                }
+                run(bankService, accounts, threads, (long) (seconds * 1e9 / 4)); // прогрев
+                double rate = run(bankService, accounts, threads, (long) (seconds * 1e9));
+                System.out.printf("%s, потоков %2d: %,12.0f оп/с%n", indexed ? "с индексом " : "без индекса", threads, rate);
+                if (indexed && threads == THREADS[THREADS.length - 1]) {
+                    query(bankService, accounts);
+                }
+            }
+        }
+    }
+
+    private static double run(BankService bankService, int accounts, int threads, long nanos)
+            throws InterruptedException {
+        long[] counts = new long[threads];
+        long deadline = System.nanoTime() + nanos;
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(index);
+                long done = 0;
+                while (System.nanoTime() < deadline) {
+                    int id = random.nextInt(accounts);
+                    if (random.nextBoolean()) {
+                        bankService.depositCents(id, 1 + random.nextInt(10_000));
+                    } else {
+                        try {
+                            bankService.transferCents(id, (id + 1) % accounts, 1 + random.nextInt(10_000));
+                        } catch (InsufficientFundsException e) {
+                            // отказ тоже считается операцией
+                        }
+                    }
+                    done++;
+                }
+                counts[index] = done;
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return Arrays.stream(counts).sum() * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static void query(BankService bankService, int accounts) {
+        int[] top = new int[100];
+        long start = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            bankService.findTopBalances(0, top);
+        }
+        long indexNanos = (System.nanoTime() - start) / 1_000;
+
+        start = System.nanoTime();
+        long[] keys = new long[accounts];
+        for (int id = 0; id < accounts; id++) {
+            keys[id] = bankService.getBalanceCents(id);
+        }
+        Arrays.sort(keys);
+        long scanNanos = System.nanoTime() - start;
+        System.out.printf("Первые 100 по балансу: индекс %,d нс, проход с сортировкой %,d нс%n", indexNanos, scanNanos);
+    }
+}
@@ -0,0 +1,96 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceIndexTest {
+    private static final int ACCOUNTS = 500;
+
+    @Test
+    void testTopBottomAndRange() {
+        BankService bankService = new BankService(0, 0);
+        assertThrows(IllegalStateException.class, () -> bankService.findTopBalances(0, new int[1]));
+        int a = bankService.createAccountCents(500);
+        int b = bankService.createAccountCents(0);
+        bankService.enableBalanceIndex();
+        int c = bankService.createAccountCents(1_000);
+        int d = bankService.createAccount("1001", "Иван Иванов", 3.0);
+
+        int[] ids = new int[10];
+        assertEquals(4, bankService.findTopBalances(0, ids));
+        assertArrayEquals(new int[]{c, a, d, b}, IntStream.of(ids).limit(4).toArray());
+        bankService.transferCents(c, b, 900);     // b: 900, c: 100
+        bankService.withdrawCents(a, 500);        // a: 0
+        bankService.depositCents(d, 1);           // d: 301
+        assertEquals(2, bankService.findTopBalances(0, new int[2]));
+        assertEquals(2, bankService.findTopBalances(2, ids));
+        assertArrayEquals(new int[]{c, a}, IntStream.of(ids).limit(2).toArray());
+        assertEquals(1, bankService.findBottomBalances(0, new int[1]));
+        assertEquals(1, bankService.findAccountsByBalance(0, 0, 0, ids));
+        assertEquals(a, ids[0]);
+        assertEquals(2, bankService.findAccountsByBalance(100, 301, 0, ids));
+        assertArrayEquals(new int[]{c, d}, IntStream.of(ids).limit(2).toArray());
+        assertEquals(0, bankService.findAccountsByBalance(302, 899, 0, ids));
+        assertEquals(0, bankService.findAccountsByBalance(10, 5, 0, ids));
+        assertSame(bankService.enableBalanceIndex(), bankService.enableBalanceIndex());
+    }
+
+    @Test
+    void testIndexFollowsConcurrentOperations() throws Exception {
+        BankService bankService = new BankService(ACCOUNTS, 100.0);
+        BalanceIndex index = bankService.enableBalanceIndex();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    int id = random.nextInt(ACCOUNTS);
+                    int other = (id + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    try {
+                        switch (random.nextInt(4)) {
+                            case 0 -> bankService.depositCents(id, 1 + random.nextInt(10_000));
+                            case 1 -> bankService.withdrawCents(id, 1 + random.nextInt(10_000));
+                            case 2 -> bankService.transferCents(id, other, 1 + random.nextInt(10_000));
+                            default -> bankService.transferBatch(List.of(new TransferRequest(id, other, 1 + random.nextInt(5_000)),
+                                    new TransferRequest(other, id, 1 + random.nextInt(5_000))), BatchMode.PER_ITEM, false);
+                        }
+                    } catch (InsufficientFundsException e) {
+                        // отказ балансы не меняет
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // после остановки операций индекс совпадает с сортировкой всех счетов
+        Comparator<Integer> byBalance = Comparator.<Integer>comparingLong(bankService::getBalanceCents)
+                .thenComparingInt(id -> id);
+        List<Integer> sorted = IntStream.range(0, ACCOUNTS).boxed().sorted(byBalance).toList();
+        assertEquals(ACCOUNTS, index.size());
+        int[] ids = new int[ACCOUNTS];
+        assertEquals(ACCOUNTS, bankService.findBottomBalances(0, ids));
+        assertEquals(sorted, IntStream.of(ids).boxed().toList());
+        assertEquals(10, bankService.findTopBalances(0, new int[10]));
+        bankService.findTopBalances(0, ids);
+        assertEquals((int) sorted.get(ACCOUNTS - 1), ids[0]);
+
+        long from = bankService.getBalanceCents(sorted.get(100));
+        long to = bankService.getBalanceCents(sorted.get(200));
+        List<Integer> expected = sorted.stream()
+                .filter(id -> bankService.getBalanceCents(id) >= from && bankService.getBalanceCents(id) <= to)
+                .toList();
+        int found = bankService.findAccountsByBalance(from, to, 0, ids);
+        assertEquals(expected, IntStream.of(ids).limit(found).boxed().toList());
+    }
+}
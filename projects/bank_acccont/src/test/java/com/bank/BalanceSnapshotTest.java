@@ -0,0 +1,86 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceSnapshotTest {
+
+    @Test
+    void testSnapshotIgnoresLaterWrites() {
+        BankService bankService = new BankService(3, 100.0);
+        bankService.deposit(2, 50.0);
+        BalanceSnapshot snapshot = bankService.snapshot();
+
+        bankService.transfer(0, 1, 30.0);
+        bankService.withdraw(2, 10.0);
+        for (int i = 0; i < 100; i++) {
+            bankService.depositCents(1, 1);
+        }
+        int created = bankService.createAccount(500.0);
+
+        assertEquals(10_000L, snapshot.getBalanceCents(0));
+        assertEquals(10_000L, snapshot.getBalanceCents(1));
+        assertEquals(15_000L, snapshot.getBalanceCents(2));
+        assertEquals(35_000L, snapshot.getTotalBalanceCents());
+        assertFalse(snapshot.exists(created));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getBalanceCents(created));
+        assertArrayEquals(new int[]{2, 0}, snapshot.getTopAccounts(2));
+
+        BalanceSnapshot current = bankService.snapshot();
+        assertEquals(bankService.getTotalBankBalanceCents(), current.getTotalBalanceCents());
+        assertArrayEquals(new int[]{created, 2, 1, 0}, current.getTopAccounts(10));
+        assertEquals(13_100L, current.getBalanceCents(1));
+    }
+
+    @Test
+    @Timeout(60)
+    void testTotalNeverDriftsUnderTransfers() throws InterruptedException {
+        int accounts = 200;
+        BankService bankService = new BankService(accounts, 100.0);
+        long expected = bankService.getTotalBankBalanceCents();
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            boolean batches = t == 0;
+            writers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int from = random.nextInt(accounts);
+                    int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                    if (batches) {
+                        bankService.transferBatch(List.of(new TransferRequest(from, to, 1 + random.nextInt(500)),
+                                new TransferRequest(to, from, 1 + random.nextInt(500))), BatchMode.ALL_OR_NOTHING, false);
+                    } else {
+                        try {
+                            bankService.transferCents(from, to, 1 + random.nextInt(5_000));
+                        } catch (InsufficientFundsException e) {
+                            // баланс не изменился
+                        }
+                    }
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+
+        long moved = 0;
+        for (int i = 0; i < 2_000; i++) {
+            long before = bankService.getJournal().size();
+            BalanceSnapshot snapshot = bankService.snapshot();
+            assertEquals(expected, snapshot.getTotalBalanceCents(), "Общий баланс снимка не должен меняться");
+            moved += bankService.getJournal().size() - before;
+        }
+        running.set(false);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertTrue(moved > 0, "Снимки должны были читаться во время переводов");
+        assertEquals(expected, bankService.scanTotalBankBalanceCents());
+    }
+}
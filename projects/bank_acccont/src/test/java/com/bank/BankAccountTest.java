@@ -2,90 +2,96 @@ package com.bank;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
+// Операции одного счёта с номером и владельцем; счета хранятся в BankService и адресуются по id
 class BankAccountTest {
-    private BankAccount account;
+    private BankService bankService;
+    private int account;
     private static final String ACCOUNT_NUMBER = "123456789";
     private static final String OWNER_NAME = "John Doe";
     private static final double INITIAL_BALANCE = 1000.0;
 
     @BeforeEach
     void setUp() {
-        account = new BankAccount(ACCOUNT_NUMBER, OWNER_NAME, INITIAL_BALANCE);
+        bankService = new BankService(0, 0);
+        account = bankService.createAccount(ACCOUNT_NUMBER, OWNER_NAME, INITIAL_BALANCE);
     }
 
     @Test
     void testAccountCreation() {
-        assertNotNull(account);
-        assertEquals(ACCOUNT_NUMBER, account.getAccountNumber());
-        assertEquals(OWNER_NAME, account.getOwnerName());
-        assertEquals(INITIAL_BALANCE, account.getBalance(), 0.001);
+        assertEquals(account, bankService.findAccountId(ACCOUNT_NUMBER));
+        assertEquals(Long.parseLong(ACCOUNT_NUMBER), bankService.getAccountNumber(account));
+        assertEquals(OWNER_NAME, bankService.getOwnerName(account));
+        assertEquals(INITIAL_BALANCE, bankService.getBalance(account), 0.001);
     }
 
     @Test
     void testAccountCreationWithNegativeBalance() {
         assertThrows(IllegalArgumentException.class,
-                () -> new BankAccount("999", "Test", -100));
+                () -> bankService.createAccount("999", "Test", -100));
     }
 
     @Test
     void testAccountCreationWithEmptyNumber() {
         assertThrows(IllegalArgumentException.class,
-                () -> new BankAccount("", "Test", 100));
+                () -> bankService.createAccount("", "Test", 100));
     }
 
     @Test
     void testDeposit() {
-        account.deposit(500.0);
-        assertEquals(1500.0, account.getBalance(), 0.001);
+        bankService.deposit(account, 500.0);
+        assertEquals(1500.0, bankService.getBalance(account), 0.001);
     }
 
     @Test
     void testDepositNegativeAmount() {
         assertThrows(IllegalArgumentException.class,
-                () -> account.deposit(-100));
+                () -> bankService.deposit(account, -100));
     }
 
     @Test
     void testWithdraw() {
-        account.withdraw(300.0);
-        assertEquals(700.0, account.getBalance(), 0.001);
+        bankService.withdraw(account, 300.0);
+        assertEquals(700.0, bankService.getBalance(account), 0.001);
     }
 
     @Test
     void testWithdrawInsufficientFunds() {
         assertThrows(InsufficientFundsException.class,
-                () -> account.withdraw(2000.0));
+                () -> bankService.withdraw(account, 2000.0));
     }
 
     @Test
     void testWithdrawNegativeAmount() {
         assertThrows(IllegalArgumentException.class,
-                () -> account.withdraw(-100));
+                () -> bankService.withdraw(account, -100));
     }
 
     @Test
     void testTransfer() {
-        BankAccount targetAccount = new BankAccount("987654321", "Jane Smith", 500.0);
-        account.transfer(targetAccount, 300.0);
+        int targetAccount = bankService.createAccount("987654321", "Jane Smith", 500.0);
+        bankService.transfer(account, targetAccount, 300.0);
 
-        assertEquals(700.0, account.getBalance(), 0.001);
-        assertEquals(800.0, targetAccount.getBalance(), 0.001);
+        assertEquals(700.0, bankService.getBalance(account), 0.001);
+        assertEquals(800.0, bankService.getBalance(targetAccount), 0.001);
     }
 
     @Test
     void testTransferToSameAccount() {
         assertThrows(IllegalArgumentException.class,
-                () -> account.transfer(account, 100));
+                () -> bankService.transfer(account, account, 100));
     }
 
     @Test
     void testTransactionHistory() {
-        account.deposit(200.0);
-        account.withdraw(100.0);
+        bankService.deposit(account, 200.0);
+        bankService.withdraw(account, 100.0);
 
-        List<String> history = account.getTransactionHistory();
+        List<String> history = bankService.getTransactionHistory(account);
         assertEquals(3, history.size()); // Initial + deposit + withdraw
         assertTrue(history.get(1).contains("Deposited: $200.00"));
         assertTrue(history.get(2).contains("Withdrawn: $100.00"));
@@ -93,9 +99,9 @@ class BankAccountTest {
 
     @Test
     void testGetAccountInfo() {
-        String info = account.getAccountInfo();
-        assertTrue(info.contains(ACCOUNT_NUMBER));
-        assertTrue(info.contains(OWNER_NAME));
-        assertTrue(info.contains("1000.00"));
+        Account info = bankService.getAccount(account);
+        assertEquals(account, info.getId());
+        assertEquals("1000.00", Money.toString(info.getBalanceCents()));
+        assertNotNull(info.getDateCreated());
     }
 }
@@ -0,0 +1,83 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankAggregatesTest {
+
+    @Test
+    void testAggregatesFollowOperations() {
+        BankService bankService = new BankService(0, 0);
+        int a = bankService.createAccount(1000.0);
+        int b = bankService.createAccount(500.0);
+        bankService.deposit(a, 250.0);
+        bankService.withdraw(b, 100.0);
+        bankService.transfer(a, b, 300.0);
+
+        BankAggregates aggregates = bankService.getAggregates();
+        assertEquals(165_000L, bankService.getTotalBankBalanceCents());
+        assertEquals(2, aggregates.getAccountsCount());
+        assertEquals(25_000L, aggregates.getDepositedToday());
+        assertEquals(10_000L, aggregates.getWithdrawnToday());
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testFailedWithdrawDoesNotChangeAggregates() {
+        BankService bankService = new BankService(1, 100.0);
+        assertThrows(InsufficientFundsException.class, () -> bankService.withdraw(0, 500.0));
+        assertEquals(0L, bankService.getAggregates().getWithdrawnToday());
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testLateOperationOfPreviousDayIsNotCountedToday() {
+        BankAggregates aggregates = new BankAggregates();
+        long now = System.currentTimeMillis();
+        aggregates.deposited(10_000L, now);
+        aggregates.withdrawn(3_000L, now);
+        // операция вчерашних суток, дошедшая после полуночи
+        aggregates.deposited(4_000L, now - 24L * 60 * 60 * 1000);
+        aggregates.withdrawn(1_000L, now - 24L * 60 * 60 * 1000);
+
+        assertEquals(10_000L, aggregates.getDepositedToday());
+        assertEquals(3_000L, aggregates.getWithdrawnToday());
+        assertEquals(10_000L, aggregates.getTotalBalance());
+    }
+
+    @Test
+    @Timeout(60)
+    void testAggregatesUnderConcurrency() throws InterruptedException {
+        BankService bankService = new BankService(100, 1000.0);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 50_000; i++) {
+                    int id = random.nextInt(100);
+                    try {
+                        switch (random.nextInt(3)) {
+                            case 0 -> bankService.depositCents(id, random.nextLong(1, 10_000));
+                            case 1 -> bankService.withdrawCents(id, random.nextLong(1, 10_000));
+                            default -> bankService.transferCents(id, (id + 1) % 100, random.nextLong(1, 10_000));
+                        }
+                    } catch (InsufficientFundsException e) {
+                        // ожидаемо при случайных суммах
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        bankService.checkAggregates();
+    }
+}
@@ -0,0 +1,104 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankMetricsTest {
+
+    @Test
+    void testCountersFollowOperations() {
+        BankService bankService = new BankService(2, 100.0);
+        BankMetrics metrics = bankService.getMetrics();
+        bankService.depositCents(0, 500);
+        bankService.transferCents(0, 1, 1_000);
+        assertThrows(InsufficientFundsException.class, () -> bankService.withdrawCents(1, 1_000_000));
+        assertThrows(IllegalArgumentException.class, () -> bankService.depositCents(5, 100));
+        bankService.getTransactionHistory(0);
+
+        assertEquals(1, metrics.getSuccesses(BankMetrics.Operation.DEPOSIT));
+        assertEquals(1, metrics.getFailures(BankMetrics.Operation.DEPOSIT));
+        assertEquals(1, metrics.getSuccesses(BankMetrics.Operation.TRANSFER));
+        assertEquals(1, metrics.getFailures(BankMetrics.Operation.WITHDRAW));
+        assertEquals(1, metrics.getInsufficientFunds());
+        assertEquals(3, metrics.getHistoryLengthMax());
+        assertTrue(metrics.getLatencies(BankMetrics.Operation.TRANSFER).percentile(0.5) > 0);
+        assertEquals(2, metrics.getSuccesses(BankMetrics.Operation.CREATE_ACCOUNT));
+
+        String dump = metrics.dump();
+        assertTrue(dump.contains("transfer"));
+        assertTrue(dump.contains("Отказов из-за нехватки средств: 1"));
+        assertFalse(dump.contains("transferBatch"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getSuccesses(BankMetrics.Operation.DEPOSIT));
+        assertEquals(0, metrics.getInsufficientFunds());
+    }
+
+    @Test
+    void testBatchCountsInsufficientFunds() {
+        BankService bankService = new BankService(2, 10.0);
+        bankService.transferBatch(List.of(new TransferRequest(0, 1, 500), new TransferRequest(1, 0, 5_000)),
+                BatchMode.PER_ITEM, false);
+        assertEquals(1, bankService.getMetrics().getSuccesses(BankMetrics.Operation.TRANSFER_BATCH));
+        assertEquals(1, bankService.getMetrics().getInsufficientFunds());
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500_000, histogram.percentile(0.5), 500_000 / 32.0);
+        assertEquals(990_000, histogram.percentile(0.99), 990_000 / 32.0);
+        assertEquals(1_000_000, histogram.max(), 1_000_000 / 32.0);
+        assertEquals(0, new Histogram().percentile(0.99));
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.max());
+        histogram.reset();
+        assertEquals(0, histogram.count());
+    }
+
+    @Test
+    void testHistogramBucketsAreContinuous() {
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(value <= Histogram.highestValue(bucket));
+            assertTrue(bucket == 0 || value > Histogram.highestValue(bucket - 1));
+        }
+    }
+
+    @Test
+    void testMXBeanExposesOperations() throws Exception {
+        BankService bankService = new BankService(2, 100.0);
+        bankService.depositCents(0, 100);
+        ObjectName name = bankService.getMetrics().register("test-" + System.nanoTime());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+            assertEquals(3L, server.getAttribute(name, "JournalSize"));
+            CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+            CompositeData deposit = null;
+            for (CompositeData operation : operations) {
+                if ("deposit".equals(operation.get("name"))) {
+                    deposit = operation;
+                }
+            }
+            assertNotNull(deposit);
+            assertEquals(1L, deposit.get("successes"));
+            assertTrue((Long) deposit.get("p99Nanos") > 0);
+            assertTrue(((String) server.invoke(name, "dump", null, null)).contains("deposit"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bank;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузка на BankServer: много одновременно открытых соединений, каждое шлёт пачку команд конвейером.
+ * Без адреса сервер поднимается в этом же процессе (нужно вдвое больше файловых дескрипторов).
+ * Запуск: java -Xmx2g BankServerLoadBenchmark [соединений] [команд на соединение] [хост порт]
+ * Отдельный сервер: java BankServer 7070 1000 1000
+ */
+public class BankServerLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int commands = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int accounts = 1000;
+        BankServer local = null;
+        InetSocketAddress address;
+        if (args.length > 3) {
+            address = new InetSocketAddress(args[2], Integer.parseInt(args[3]));
+        } else {
+            local = new BankServer(new BankService(accounts, 1000.0),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            address = local.getAddress();
+        }
+
+        long start = System.nanoTime();
+        List<BankClient> clients = new ArrayList<>(connections);
+        for (int c = 0; c < connections; c++) {
+            clients.add(new BankClient(address));
+        }
+        System.out.printf("Открыто %,d соединений за %d мс%n", connections, (System.nanoTime() - start) / 1_000_000);
+
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<Integer>> futures = new ArrayList<>(connections);
+                for (int c = 0; c < connections; c++) {
+                    BankClient client = clients.get(c);
+                    int id = c % accounts;
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < commands; i++) {
+                            client.send(i % 2 == 0 ? "DEPOSIT #" + id + " 1.00" : "WITHDRAW #" + id + " 1.00");
+                        }
+                        client.flush();
+                        int ok = 0;
+                        for (int i = 0; i < commands; i++) {
+                            if (client.readReply().equals("OK")) {
+                                ok++;
+                            }
+                        }
+                        return ok;
+                    }));
+                }
+                long ok = 0;
+                for (Future<Integer> future : futures) {
+                    ok += future.get();
+                }
+                long nanos = System.nanoTime() - start;
+                System.out.printf("Раунд %d: %,d команд (OK %,d) по %,d соединениям за %d мс, %,.0f команд/с%s%n",
+                        round, (long) connections * commands, ok, connections, nanos / 1_000_000,
+                        (double) connections * commands * 1e9 / nanos,
+                        local == null ? "" : ", открыто на сервере: " + local.getOpenConnections());
+            }
+        }
+        for (BankClient client : clients) {
+            client.close();
+        }
+        if (local != null) {
+            local.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BankServerTest {
+
+    private static BankServer start(BankService bankService) throws Exception {
+        return new BankServer(bankService, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @Test
+    @Timeout(30)
+    void testOperationsOverLoopback() throws Exception {
+        BankService bankService = new BankService(0, 0);
+        try (BankServer server = start(bankService);
+             BankClient client = new BankClient(server.getAddress())) {
+            int a = client.createAccount(100_000);
+            int b = client.createAccount(50_000);
+            client.deposit(a, 2_550);
+            client.withdraw(b, 10_000);
+            client.transfer(a, b, 30_000);
+
+            assertEquals(72_550L, client.getBalanceCents(a));
+            assertEquals(70_000L, client.getBalanceCents(b));
+            assertEquals(142_550L, client.getTotalBankBalanceCents());
+            Account account = client.getAccount(b);
+            assertEquals(b, account.getId());
+            assertEquals(70_000L, account.getBalanceCents());
+
+            assertThrows(InsufficientFundsException.class, () -> client.withdraw(a, 1_000_000));
+            assertThrows(IllegalArgumentException.class, () -> client.deposit(99, 100));
+            // соединение пригодно после ошибок
+            assertEquals(72_550L, client.getBalanceCents(a));
+        }
+        bankService.checkAggregates();
+    }
+
+    @Test
+    @Timeout(30)
+    void testPipelinedCommands() throws Exception {
+        BankService bankService = new BankService(1, 0);
+        try (BankServer server = start(bankService);
+             BankClient client = new BankClient(server.getAddress())) {
+            int count = 10_000;
+            for (int i = 0; i < count; i++) {
+                client.send("DEPOSIT #0 1.00");
+            }
+            client.send("BALANCE #0");
+            client.flush();
+            for (int i = 0; i < count; i++) {
+                assertEquals("OK", client.readReply());
+            }
+            assertEquals("OK 10000.00", client.readReply());
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void testConcurrentClients() throws Exception {
+        int accounts = 50;
+        BankService bankService = new BankService(accounts, 1000.0);
+        try (BankServer server = start(bankService);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < 200; c++) {
+                int seed = c;
+                futures.add(clients.submit(() -> {
+                    try (BankClient client = new BankClient(server.getAddress())) {
+                        for (int i = 0; i < 100; i++) {
+                            int from = (seed + i) % accounts;
+                            try {
+                                client.transfer(from, (from + 1) % accounts, 1 + (seed * 31 + i) % 5_000);
+                            } catch (InsufficientFundsException e) {
+                                // ожидаемо при случайных суммах
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertEquals(accounts * 100_000L, bankService.getTotalBankBalanceCents());
+        bankService.checkAggregates();
+    }
+}
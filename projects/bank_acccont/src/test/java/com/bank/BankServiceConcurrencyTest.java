@@ -0,0 +1,92 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Многопоточные тесты переводов BankService
+ * Проверяют отсутствие взаимоблокировок, сохранение общего баланса и рост пропускной способности
+ */
+class BankServiceConcurrencyTest {
+    private static final int ACCOUNTS = 1000;
+    private static final double INITIAL_BALANCE = 1000.0;
+    private static final int TRANSFERS_PER_THREAD = 200_000;
+
+    @Test
+    void testFailedTransferKeepsBalances() {
+        BankService bankService = new BankService(2, 0);
+        bankService.deposit(0, 500.0);
+        bankService.deposit(1, 100.0);
+
+        assertThrows(InsufficientFundsException.class,
+                () -> bankService.transfer(0, 1, 1000.0));
+
+        assertEquals(500.0, bankService.getBalance(0), 0.001);
+        assertEquals(100.0, bankService.getBalance(1), 0.001);
+    }
+
+    @Test
+    void testTransferToSameAccount() {
+        BankService bankService = new BankService(2, 100.0);
+        assertThrows(IllegalArgumentException.class,
+                () -> bankService.transfer(1, 1, 10.0));
+    }
+
+    @Test
+    @Timeout(60)
+    void testConcurrentTransfersKeepTotalBalance() throws InterruptedException {
+        BankService bankService = new BankService(ACCOUNTS, INITIAL_BALANCE);
+        double expectedTotal = bankService.getTotalBankBalance();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        double singleThread = runTransfers(bankService, 1);
+        double allCores = runTransfers(bankService, Math.max(2, cores));
+
+        System.out.printf("Переводы: 1 поток %.0f оп/с, %d потоков %.0f оп/с%n",
+                singleThread, Math.max(2, cores), allCores);
+        assertEquals(expectedTotal, bankService.getTotalBankBalance(), 0.001,
+                "Общий баланс банка не должен меняться при переводах");
+        for (int id = 0; id < ACCOUNTS; id++) {
+            assertTrue(bankService.getBalance(id) >= 0, "Баланс не может стать отрицательным");
+        }
+    }
+
+    // Возвращает число переводов в секунду
+    private static double runTransfers(BankService bankService, int threads) throws InterruptedException {
+        AtomicLong completed = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = random.nextInt(ACCOUNTS);
+                    if (from == to) {
+                        continue;
+                    }
+                    try {
+                        bankService.transfer(from, to, random.nextInt(1, 200));
+                        completed.incrementAndGet();
+                    } catch (InsufficientFundsException e) {
+                        // ожидаемо при случайных суммах
+                    }
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        return completed.get() * 1e9 / elapsed;
+    }
+}
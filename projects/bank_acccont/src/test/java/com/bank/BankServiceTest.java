@@ -2,6 +2,7 @@ package com.bank;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class BankServiceTest {
@@ -9,14 +10,14 @@ class BankServiceTest {
 
     @BeforeEach
     void setUp() {
-        bankService = new BankService();
+        bankService = new BankService(0, 0);
     }
 
     @Test
     void testCreateAccount() {
-        BankAccount account = bankService.createAccount("111", "Alice", 1000.0);
-        assertNotNull(account);
-        assertEquals("111", account.getAccountNumber());
+        int account = bankService.createAccount("111", "Alice", 1000.0);
+        assertEquals(0, account);
+        assertEquals(111L, bankService.getAccountNumber(account));
     }
 
     @Test
@@ -29,26 +30,27 @@ class BankServiceTest {
     @Test
     void testGetAccount() {
         bankService.createAccount("111", "Alice", 1000.0);
-        BankAccount account = bankService.getAccount("111");
-        assertNotNull(account);
-        assertEquals("Alice", account.getOwnerName());
+        int account = bankService.findAccountId("111");
+        assertNotEquals(AccountNumberIndex.NOT_FOUND, account);
+        assertEquals("Alice", bankService.getOwnerName(account));
     }
 
     @Test
     void testGetNonExistentAccount() {
+        assertEquals(AccountNumberIndex.NOT_FOUND, bankService.findAccountId("999"));
         assertThrows(IllegalArgumentException.class,
-                () -> bankService.getAccount("999"));
+                () -> bankService.getAccount(999));
     }
 
     @Test
     void testTransferBetweenAccounts() {
-        bankService.createAccount("111", "Alice", 1000.0);
-        bankService.createAccount("222", "Bob", 500.0);
+        int alice = bankService.createAccount("111", "Alice", 1000.0);
+        int bob = bankService.createAccount("222", "Bob", 500.0);
 
-        bankService.transfer("111", "222", 300.0);
+        bankService.transfer(alice, bob, 300.0);
 
-        assertEquals(700.0, bankService.getAccount("111").getBalance(), 0.001);
-        assertEquals(800.0, bankService.getAccount("222").getBalance(), 0.001);
+        assertEquals(700.0, bankService.getBalance(bankService.findAccountId("111")), 0.001);
+        assertEquals(800.0, bankService.getBalance(bankService.findAccountId("222")), 0.001);
     }
 
     @Test
@@ -68,4 +70,4 @@ class BankServiceTest {
         bankService.createAccount("222", "Bob", 500.0);
         assertEquals(2, bankService.getAccountsCount());
     }
-}
\ No newline at end of file
+}
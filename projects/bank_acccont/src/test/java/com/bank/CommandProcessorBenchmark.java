@@ -0,0 +1,62 @@
+package com.bank;
+
+import java.io.BufferedWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Скорость пакетной обработки команд: генерирует файл команд и прогоняет его через CommandProcessor
+ * Запуск: java -Xmx4g CommandProcessorBenchmark [команд] [счетов]
+ */
+public class CommandProcessorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int commands = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path file = Files.createTempFile("commands", ".txt");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < commands; i++) {
+                int id = random.nextInt(accounts);
+                switch (random.nextInt(4)) {
+                    case 0 -> writer.write("DEPOSIT #" + id + " 10.00\n");
+                    case 1 -> writer.write("WITHDRAW #" + id + " 5.50\n");
+                    case 2 -> writer.write("TRANSFER #" + id + " #" + (id + 1) % accounts + " 1.25\n");
+                    default -> writer.write("BALANCE #" + id + "\n");
+                }
+            }
+        }
+        System.out.printf("Файл: %,d команд, %,d МБ%n", commands, Files.size(file) >> 20);
+
+        // Ответы не сохраняются, чтобы мерить разбор и выполнение, а не диск
+        WritableByteChannel discard = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int remaining = source.remaining();
+                source.position(source.limit());
+                return remaining;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        for (int round = 0; round < 3; round++) {
+            BankService bankService = new BankService(accounts, 1000.0);
+            try (FileChannel in = FileChannel.open(file)) {
+                System.out.printf("Раунд %d: %s%n", round, new CommandProcessor(bankService).process(in, discard));
+            }
+        }
+        Files.delete(file);
+    }
+}
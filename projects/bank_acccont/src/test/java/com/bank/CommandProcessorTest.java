@@ -0,0 +1,96 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandProcessorTest {
+
+    private static String run(BankService bankService, String commands) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CommandProcessor(bankService).process(
+                Channels.newChannel(new ByteArrayInputStream(commands.getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testCommands() throws Exception {
+        BankService bankService = new BankService(0, 0);
+        String output = run(bankService, """
+                OPEN 1001 5000.00 Иван Иванов
+                OPEN 1002 3000 Мария Петрова
+                # комментарий
+
+                DEPOSIT 1001 500.00
+                withdraw 1002 250.5
+                TRANSFER 1001 1002 100
+                BALANCE 1001
+                BALANCE 1002
+                TOTAL
+                """);
+        assertEquals("""
+                OK 0
+                OK 1
+                OK
+                OK
+                OK
+                OK 5400.00
+                OK 2849.50
+                OK 8249.50
+                """, output);
+        assertEquals("Иван Иванов", bankService.getOwnerName(0));
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testErrorsDoNotStopProcessing() throws Exception {
+        BankService bankService = new BankService(2, 100.0);
+        String output = run(bankService, "WITHDRAW #0 500\r\nFOO 1\nDEPOSIT #1\nDEPOSIT #1 1.234\nDEPOSIT x 1\n"
+                + "DEPOSIT 1 1\nBALANCE #1\nOPEN 5 10 Имя\nOPEN 5 10 Другое имя\nBALANCE 5");
+        String[] lines = output.split("\n");
+        assertEquals(10, lines.length);
+        assertTrue(lines[0].startsWith("ERR 1 Недостаточно средств"));
+        assertEquals("ERR 2 неизвестная команда", lines[1]);
+        assertEquals("ERR 3 неверное число аргументов", lines[2]);
+        assertEquals("ERR 4 неверная сумма", lines[3]);
+        assertEquals("ERR 5 неверный номер счёта", lines[4]);
+        // число без '#' - только номер счёта, даже если такой id есть
+        assertEquals("ERR 6 Нет счёта 1", lines[5]);
+        assertEquals("OK 100.00", lines[6]);
+        assertEquals("OK 2", lines[7]);
+        assertTrue(lines[8].startsWith("ERR 9 Счёт с номером 5"));
+        assertEquals("OK 10.00", lines[9]);
+    }
+
+    @Test
+    void testLargeFile(@TempDir Path dir) throws Exception {
+        Path commands = dir.resolve("commands.txt");
+        StringBuilder text = new StringBuilder();
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            text.append("DEPOSIT #").append(i % 10).append(" 1.00\n");
+        }
+        Files.writeString(commands, text);
+        BankService bankService = new BankService(10, 0);
+        Path output = dir.resolve("out.txt");
+        CommandReport report;
+        try (FileChannel in = FileChannel.open(commands);
+             var out = Files.newOutputStream(output)) {
+            report = new CommandProcessor(bankService).process(in, Channels.newChannel(out));
+        }
+        assertEquals(count, report.commands());
+        assertEquals(0, report.failed());
+        assertEquals(count, Files.readAllLines(output).size());
+        assertEquals(count * 100L, bankService.getTotalBankBalanceCents());
+    }
+}
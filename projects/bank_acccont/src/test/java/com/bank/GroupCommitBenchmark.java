@@ -0,0 +1,78 @@
+package com.bank;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Долговечные операции в секунду: пополнения, каждое подтверждается только после сброса журнала на диск.
+ * Базовая линия - журнал без групповой фиксации, каждый поток сам сбрасывает запись своей операции.
+ * Пакет из одной операции без задержки всё равно объединяет ожидающих, накопившихся за время сброса.
+ * Запуск: java GroupCommitBenchmark [секунд на замер]
+ */
+public class GroupCommitBenchmark {
+    private static final int ACCOUNTS = 1024;
+    private static final int[] THREADS = {1, 4, 16, 64};
+    // размер пакета и задержка в микросекундах; пакет 0 - без групповой фиксации
+    private static final int[][] SETTINGS = {{0, 0}, {1, 0}, {16, 100}, {64, 500}, {256, 2_000}};
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        Path dir = Files.createTempDirectory("group-commit-bench");
+        for (int[] setting : SETTINGS) {
+            for (int threads : THREADS) {
+                Path file = dir.resolve("journal-" + setting[0] + "-" + threads + ".bin");
+                try (TransactionJournal journal = new TransactionJournal(file, setting[0], setting[1] * 1_000L)) {
+                    BankService bankService = new BankService(ACCOUNTS, 100.0, journal);
+                    GroupCommit groupCommit = journal.getGroupCommit();
+                    long commitsBefore = groupCommit == null ? 0 : groupCommit.getCommits();
+                    double rate = run(bankService, threads, (long) (seconds * 1_000_000_000L));
+                    if (groupCommit == null) {
+                        System.out.printf("сброс на операцию,         потоков %2d: %,10.0f оп/с%n", threads, rate);
+                    } else {
+                        System.out.printf("пакет %3d, задержка %,5d мкс, потоков %2d: %,10.0f оп/с, сбросов %,d%n",
+                                setting[0], setting[1], threads, rate, groupCommit.getCommits() - commitsBefore);
+                    }
+                }
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static double run(BankService bankService, int threads, long nanos) throws InterruptedException {
+        long[] counts = new long[threads];
+        long deadline = System.nanoTime() + nanos;
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers.add(new Thread(() -> {
+                long done = 0;
+                int id = index % ACCOUNTS;
+                TransactionJournal journal = bankService.getJournal();
+                boolean perOperation = journal.getGroupCommit() == null;
+                while (System.nanoTime() < deadline) {
+                    if (perOperation) {
+                        long record = bankService.applyDeposit(id, 1);
+                        journal.force(record, record);
+                    } else {
+                        bankService.depositCents(id, 1);
+                    }
+                    id = (id + threads) % ACCOUNTS;
+                    done++;
+                }
+                counts[index] = done;
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total * 1e9 / (System.nanoTime() - start);
+    }
+}
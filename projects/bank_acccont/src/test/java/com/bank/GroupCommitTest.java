@@ -0,0 +1,257 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitTest {
+    private static final int WRITERS = 4;
+
+    @Test
+    @Timeout(60)
+    void testConcurrentOperationsShareCommits(@TempDir Path dir) throws Exception {
+        try (TransactionJournal journal = new TransactionJournal(dir.resolve("journal.bin"), 16, 2_000_000)) {
+            BankService bankService = new BankService(8, 100.0, journal);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int id = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        bankService.depositCents(id, 1);
+                        bankService.transferCents(id, (id + 1) % 8, 1);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            GroupCommit groupCommit = journal.getGroupCommit();
+            assertTrue(groupCommit.getCommits() < 8 * 200 * 2);
+            assertTrue(groupCommit.getAverageBatch() > 1);
+            assertEquals(8 * 10_200L, bankService.getTotalBankBalanceCents());
+        }
+    }
+
+    @Test
+    void testRecoveryWithoutSnapshot(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        try (TransactionJournal journal = new TransactionJournal(file, 8, 100_000)) {
+            BankService bankService = new BankService(3, 10.0, journal);
+            bankService.deposit(0, 5.0);
+            bankService.transfer(0, 2, 7.5);
+            bankService.withdraw(1, 1.25);
+        }
+        try (TransactionJournal journal = new TransactionJournal(file, 8, 100_000)) {
+            BankService restored = BankService.fromJournal(journal);
+            assertEquals(3, restored.getAccountsCount());
+            assertEquals(750L, restored.getBalanceCents(0));
+            assertEquals(875L, restored.getBalanceCents(1));
+            assertEquals(1_750L, restored.getBalanceCents(2));
+            assertEquals(List.of("Initial deposit: $10.00", "Deposited: $5.00", "Transferred to 2: $7.50"),
+                    restored.getTransactionHistory(0));
+            restored.checkAggregates();
+
+            restored.deposit(1, 1.0);
+            assertEquals(3, restored.getTransactionHistory(1).size());
+        }
+    }
+
+    @Test
+    void testRecoveryReplaysAfterSnapshot(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        Path snapshot = dir.resolve("accounts.snap");
+        try (TransactionJournal journal = new TransactionJournal(file, 8, 100_000)) {
+            BankService bankService = new BankService(2, 10.0, journal);
+            bankService.deposit(0, 1.0);
+            bankService.saveSnapshot(snapshot);
+            bankService.transfer(0, 1, 2.0);
+            bankService.createAccount(3.0);
+        }
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            BankService restored = BankService.fromSnapshot(snapshot, journal);
+            assertEquals(3, restored.getAccountsCount());
+            assertEquals(900L, restored.getBalanceCents(0));
+            assertEquals(1_200L, restored.getBalanceCents(1));
+            assertEquals(300L, restored.getBalanceCents(2));
+            assertEquals(List.of("Initial deposit: $3.00"), restored.getTransactionHistory(2));
+            assertEquals(2_400L, restored.getTotalBankBalanceCents());
+            restored.checkAggregates();
+        }
+    }
+
+    @Test
+    void testRecoveryRestoresAccountInfo(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        Path snapshot = dir.resolve("accounts.snap");
+        long[] interest = new long[3];
+        try (TransactionJournal journal = new TransactionJournal(file, 8, 100_000)) {
+            BankService bankService = new BankService(1, 10.0, journal);
+            bankService.saveSnapshot(snapshot);
+            // номер, владелец и ставка заданы после снимка; имя длиннее одной записи INFO
+            bankService.createAccount("40817", "Анна Петровна Иванова", 100.0);
+            long[] ownerNames = {bankService.getOwnerNames().add("Борис")};
+            int[] ids = new int[1];
+            bankService.createAccounts(1, new long[]{40818}, ownerNames, new long[]{5_000}, new long[]{350}, ids);
+            bankService.setAnnualInterestRate(0, 12.0);
+            for (int id = 0; id < 3; id++) {
+                interest[id] = bankService.getMonthlyInterestCents(id);
+            }
+        }
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            for (BankService restored : List.of(BankService.fromSnapshot(snapshot, journal),
+                    BankService.fromJournal(journal))) {
+                assertEquals(1, restored.findAccountId("40817"));
+                assertEquals(2, restored.findAccountId("40818"));
+                assertEquals("Анна Петровна Иванова", restored.getOwnerName(1));
+                assertEquals("Борис", restored.getOwnerName(2));
+                assertEquals(1, restored.countAccountsByOwnerPrefix("анна"));
+                for (int id = 0; id < 3; id++) {
+                    assertEquals(interest[id], restored.getMonthlyInterestCents(id), "счёт " + id);
+                }
+                // записи INFO в истории не видны и баланс не меняют
+                assertEquals(List.of("Initial deposit: $100.00"), restored.getTransactionHistory(1));
+                assertEquals(List.of("Initial deposit: $10.00"), restored.getTransactionHistory(0));
+                restored.checkAggregates();
+                assertTrue(new Reconciler(restored).run().isConsistent());
+            }
+        }
+    }
+
+    @Test
+    void testUnfinishedTransferIsDropped(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            BankService bankService = new BankService(2, 10.0, journal);
+            bankService.deposit(1, 1.0);
+            // списание, после которого процесс упал, не дописав зачисление
+            journal.write(journal.reserve(2), 0, TransactionJournal.TRANSFER_OUT, 500, 1, System.currentTimeMillis(),
+                    500, 0, TransactionJournal.CONTINUED);
+        }
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            BankService restored = BankService.fromJournal(journal);
+            assertEquals(1_000L, restored.getBalanceCents(0));
+            assertEquals(1_100L, restored.getBalanceCents(1));
+            assertEquals(3, journal.size());
+            restored.checkAggregates();
+        }
+    }
+
+    @Test
+    void testUnfinishedBatchIsDropped(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            BankService bankService = new BankService(3, 10.0, journal);
+            bankService.transferBatch(List.of(new TransferRequest(0, 1, 100), new TransferRequest(1, 2, 200)),
+                    BatchMode.ALL_OR_NOTHING, false);
+            // следующий пакет из двух переводов: процесс упал, дописав три записи из четырёх
+            long position = journal.reserve(4);
+            long now = System.currentTimeMillis();
+            journal.write(position, 0, TransactionJournal.TRANSFER_OUT, 300, 2, now, 600, 3,
+                    TransactionJournal.CONTINUED);
+            journal.write(position + 1, 2, TransactionJournal.TRANSFER_IN, 300, 0, now, 1_500, 6,
+                    TransactionJournal.CONTINUED);
+            journal.write(position + 2, 1, TransactionJournal.TRANSFER_OUT, 100, 2, now, 800, 5,
+                    TransactionJournal.CONTINUED);
+        }
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            BankService restored = BankService.fromJournal(journal);
+            assertEquals(900L, restored.getBalanceCents(0));
+            assertEquals(900L, restored.getBalanceCents(1));
+            assertEquals(1_200L, restored.getBalanceCents(2));
+            assertEquals(7, journal.size());
+            restored.checkAggregates();
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void testUnfilledRecordFailsCommit(@TempDir Path dir) throws Exception {
+        TransactionJournal journal = new TransactionJournal(dir.resolve("journal.bin"), 8, 100_000);
+        BankService bankService = new BankService(2, 10.0, journal);
+        // писатель зарезервировал запись и упал, не заполнив её: подтверждения за ней невозможны
+        journal.reserve(1);
+        assertThrows(IllegalStateException.class, () -> bankService.depositCents(0, 100));
+        assertThrows(IllegalStateException.class, () -> bankService.depositCents(1, 100));
+        journal.close();
+    }
+
+    @Test
+    @Timeout(120)
+    void testKillAndRestart(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        long[] acked = new long[WRITERS];
+        for (int run = 0; run < 2; run++) {
+            Process process = new ProcessBuilder(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    Writer.class.getName(), file.toString())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            int lines = 0;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while (lines < 2_000 && (line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    int id = Integer.parseInt(parts[0]);
+                    acked[id] = Math.max(acked[id], Long.parseLong(parts[1]));
+                    lines++;
+                }
+                process.destroyForcibly();
+                assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            }
+            assertEquals(2_000, lines);
+
+            try (TransactionJournal journal = new TransactionJournal(file)) {
+                BankService restored = BankService.fromJournal(journal);
+                assertEquals(WRITERS, restored.getAccountsCount());
+                for (int id = 0; id < WRITERS; id++) {
+                    // пополнения по копейке: подтверждённые не потеряны, история совпадает с балансом
+                    long balance = restored.getBalanceCents(id);
+                    assertTrue(balance >= acked[id], "счёт " + id + ": " + balance + " < " + acked[id]);
+                    assertEquals(balance + 1, restored.getTransactionHistory(id).size());
+                    acked[id] = balance;
+                }
+                restored.checkAggregates();
+            }
+        }
+    }
+
+    // Процесс, который пополняет счета в WRITERS потоков и печатает "счёт баланс" после каждого подтверждения
+    public static class Writer {
+        public static void main(String[] args) throws Exception {
+            TransactionJournal journal = new TransactionJournal(Path.of(args[0]), 8, 500_000);
+            BankService bankService = BankService.fromJournal(journal);
+            while (bankService.getAccountsCount() < WRITERS) {
+                bankService.createAccountCents(0);
+            }
+            PrintStream out = new PrintStream(System.out, false, StandardCharsets.US_ASCII);
+            for (int t = 0; t < WRITERS; t++) {
+                int id = t;
+                Thread thread = new Thread(() -> {
+                    while (true) {
+                        bankService.depositCents(id, 1);
+                        long balance = bankService.getBalanceCents(id);
+                        synchronized (out) {
+                            out.println(id + " " + balance);
+                            out.flush();
+                        }
+                    }
+                });
+                thread.start();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank;
+
+import java.util.Random;
+
+/**
+ * Память истории на счёт до и после сжатия в архив журнала и цена чтения истории из архива
+ * Запуск: java HistoryArchiveFootprint [счетов] [операций]
+ */
+public class HistoryArchiveFootprint {
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+
+        TransactionJournal journal = new TransactionJournal();
+        BankService bankService = new BankService(accounts, 1_000.0, journal);
+        Random random = new Random(1);
+        for (int i = 0; i < operations; i++) {
+            int id = random.nextInt(accounts);
+            if (random.nextBoolean()) {
+                bankService.depositCents(id, 1 + random.nextInt(100_000));
+            } else {
+                try {
+                    bankService.transferCents(id, (id + 1) % accounts, 1 + random.nextInt(50_000));
+                } catch (InsufficientFundsException e) {
+                    // отказ не пишется в журнал
+                }
+            }
+        }
+
+        long tail = readHistories(bankService, accounts);
+        journal.setArchive(new JournalArchive(), 1);
+        CompactionReport report = bankService.compactHistory();
+        System.out.println(report);
+        System.out.printf("Архив: %.1f байт на запись против %d в хвосте%n",
+                journal.getArchive().getStoredBytes() / (double) report.archivedRecords(),
+                TransactionJournal.RECORD_SIZE);
+        long archived = readHistories(bankService, accounts);
+        System.out.printf("Полная история 1000 счетов: из хвоста %d мс, через архив %d мс%n",
+                tail / 1_000_000, archived / 1_000_000);
+    }
+
+    private static long readHistories(BankService bankService, int accounts) {
+        long start = System.nanoTime();
+        long lines = 0;
+        for (int id = 0; id < accounts; id += Math.max(1, accounts / 1000)) {
+            lines += bankService.getTransactionHistory(id).size();
+        }
+        if (lines == 0) {
+            throw new IllegalStateException();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,70 @@
+package com.bank;
+
+/**
+ * Последние записи длинной истории: полный getTransactionHistory против страницы по индексу журнала.
+ * Также страница редкого типа операций и страница из середины истории по интервалу времени.
+ * Запуск: java HistoryPageBenchmark [длина истории] [размер страницы]
+ */
+public class HistoryPageBenchmark {
+    private static long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int length = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int pageSize = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        BankService bankService = new BankService(1, 1_000_000.0);
+        long middleFrom = 0;
+        long middleTo = 0;
+        for (int i = 1; i < length; i++) {
+            if (i == length / 2) {
+                Thread.sleep(5);
+                middleFrom = System.currentTimeMillis();
+            }
+            if (i % 1000 == 0) {
+                bankService.withdrawCents(0, 1);
+            } else {
+                bankService.depositCents(0, 1);
+            }
+            if (i == length / 2 + 10 * pageSize) {
+                middleTo = System.currentTimeMillis();
+                Thread.sleep(5);
+            }
+        }
+        HistoryQuery latest = HistoryQuery.latest(pageSize);
+        HistoryQuery withdrawals = latest.ofTypes(TransactionJournal.WITHDRAW);
+        HistoryQuery middle = latest.between(middleFrom, middleTo);
+
+        for (int round = 0; round < 3; round++) {
+            int iterations = 200;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += bankService.getTransactionHistory(0).size();
+            }
+            report("getTransactionHistory (полная)", iterations, start);
+
+            iterations = 200_000;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += bankService.getTransactionHistory(0, latest).entries().size();
+            }
+            report("страница последних " + pageSize, iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += bankService.getTransactionHistory(0, withdrawals).entries().size();
+            }
+            report("страница WITHDRAW (1 из 1000)", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += bankService.getTransactionHistory(0, middle).entries().size();
+            }
+            report("страница из середины по времени", iterations, start);
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void report(String name, int iterations, long start) {
+        System.out.printf("%-34s %,14.1f мкс/запрос%n", name, (System.nanoTime() - start) / 1e3 / iterations);
+    }
+}
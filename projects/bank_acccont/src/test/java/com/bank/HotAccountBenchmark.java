@@ -0,0 +1,77 @@
+package com.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Перекошенная нагрузка на один счёт: доля hot операций - перевод комиссии или пополнение на счёт 0,
+ * изредка списание с него, остальное - переводы между случайными счетами. Пропускная способность
+ * с обычным счётом 0 и с горячим (enableHotAccount), по числу потоков
+ * Запуск: java HotAccountBenchmark [счетов] [доля операций на горячий счёт] [слотов] [секунд на замер]
+ */
+public class HotAccountBenchmark {
+    private static final int[] THREADS = {1, 4, 16};
+    private static final int HOT = 0;
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        double share = args.length > 1 ? Double.parseDouble(args[1]) : 0.9;
+        int slots = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 2;
+        System.out.printf("Ядер: %d, доля операций на счёт %d: %.0f%%%n",
+                Runtime.getRuntime().availableProcessors(), HOT, share * 100);
+
+        for (int threads : THREADS) {
+            for (boolean hot : new boolean[]{false, true}) {
+                BankService bankService = new BankService(accounts, 100.0);
+                if (hot) {
+                    bankService.enableHotAccount(HOT, slots);
+                }
+                run(bankService, accounts, share, threads, (long) (seconds * 1e9 / 4)); // прогрев
+                double rate = run(bankService, accounts, share, threads, (long) (seconds * 1e9));
+                bankService.checkAggregates();
+                System.out.printf("%s, потоков %2d: %,12.0f оп/с%n", hot ? "горячий счёт" : "обычный счёт", threads, rate);
+            }
+        }
+    }
+
+    private static double run(BankService bankService, int accounts, double share, int threads, long nanos)
+            throws InterruptedException {
+        long[] counts = new long[threads];
+        long deadline = System.nanoTime() + nanos;
+        List<Thread> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(index);
+                long done = 0;
+                while (System.nanoTime() < deadline) {
+                    int id = 1 + random.nextInt(accounts - 1);
+                    try {
+                        if (random.nextDouble() >= share) {
+                            bankService.transferCents(id, 1 + random.nextInt(accounts - 1), 1 + random.nextInt(1_000));
+                        } else {
+                            switch (random.nextInt(16)) {
+                                case 0 -> bankService.withdrawCents(HOT, 1 + random.nextInt(1_000));
+                                case 1, 2, 3 -> bankService.depositCents(HOT, 1 + random.nextInt(100));
+                                default -> bankService.transferCents(id, HOT, 1 + random.nextInt(100));
+                            }
+                        }
+                    } catch (InsufficientFundsException | IllegalArgumentException e) {
+                        // отказ (и перевод счёта самому себе) тоже считается операцией
+                    }
+                    done++;
+                }
+                counts[index] = done;
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return Arrays.stream(counts).sum() * 1e9 / (System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,196 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotAccountTest {
+    private static final int ACCOUNTS = 200;
+    private static final int HOT = 7;
+
+    @Test
+    void testSlotsAndBorrowing() throws Exception {
+        BankService bankService = new BankService(ACCOUNTS, 10.0);
+        assertThrows(IllegalArgumentException.class, () -> bankService.enableHotAccount(HOT, 1));
+        bankService.enableHotAccount(HOT, 4);
+        assertTrue(bankService.isHotAccount(HOT));
+        assertFalse(bankService.isHotAccount(HOT + 1));
+
+        // пополнения из разных потоков ложатся в разные слоты, баланс - их сумма
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    bankService.depositCents(HOT, 100);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(1_000 + 8_000, bankService.getBalanceCents(HOT));
+
+        // списание всего баланса требует сбора слотов; больше баланса - отказ без изменений
+        assertThrows(InsufficientFundsException.class, () -> bankService.withdrawCents(HOT, 9_001));
+        bankService.transferCents(HOT, 0, 8_500);
+        assertEquals(500, bankService.getBalanceCents(HOT));
+        assertEquals(9_500, bankService.getBalanceCents(0));
+        bankService.withdrawCents(HOT, 500);
+        assertEquals(0, bankService.getBalanceCents(HOT));
+
+        // внутренние переводы между слотами в истории не видны
+        List<String> history = bankService.getTransactionHistory(HOT);
+        assertEquals(1 + 80 + 2, history.size());
+        assertEquals("Initial deposit: $10.00", history.get(0));
+        assertEquals("Transferred to 0: $85.00", history.get(81));
+        assertEquals("Withdrawn: $5.00", history.get(82));
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testHotAccountsInBalanceQueries() {
+        BankService bankService = new BankService(ACCOUNTS, 10.0);
+        bankService.enableHotAccount(HOT + 1, 4);
+        bankService.enableBalanceIndex();
+        bankService.enableHotAccount(HOT, 4);
+        bankService.depositCents(HOT, 5_000);
+        bankService.withdrawCents(HOT + 1, 1_000);
+        for (int id = 0; id < 20; id++) {
+            if (id != HOT && id != HOT + 1) {
+                bankService.depositCents(id, 1 + id);
+            }
+        }
+
+        // в самом индексе горячих счетов нет, запросы сервиса возвращают их с полным балансом
+        int[] top = new int[1];
+        assertEquals(1, bankService.findTopBalances(0, top));
+        assertEquals(HOT, top[0]);
+        int[] bottom = new int[1];
+        assertEquals(1, bankService.findBottomBalances(0, bottom));
+        assertEquals(HOT + 1, bottom[0]);
+        int[] ids = new int[ACCOUNTS];
+        assertEquals(1, bankService.findAccountsByBalance(6_000, 6_000, 0, ids));
+        assertEquals(HOT, ids[0]);
+
+        // постраничный обход по 7 совпадает с сортировкой всех счетов по балансу
+        List<Integer> sorted = new ArrayList<>();
+        for (int id = 0; id < ACCOUNTS; id++) {
+            sorted.add(id);
+        }
+        sorted.sort((a, b) -> bankService.getBalanceCents(a) != bankService.getBalanceCents(b)
+                ? Long.compare(bankService.getBalanceCents(b), bankService.getBalanceCents(a))
+                : Integer.compare(b, a));
+        List<Integer> paged = new ArrayList<>();
+        int[] page = new int[7];
+        int found;
+        while ((found = bankService.findTopBalances(paged.size(), page)) > 0) {
+            for (int k = 0; k < found; k++) {
+                paged.add(page[k]);
+            }
+        }
+        assertEquals(sorted, paged);
+    }
+
+    @Test
+    void testConsistencyUnderLoad(@TempDir Path dir) throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("accounts.snap");
+        long[] balances = new long[ACCOUNTS];
+        List<String> history;
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(ACCOUNTS, 100.0, journal);
+            bankService.enableBalanceIndex();
+            bankService.enableHotAccount(HOT, 4);
+            load(bankService, 4, 20_000);
+            BalanceSnapshot snapshot = bankService.snapshot();
+            long snapshotBalance = bankService.getBalanceCents(HOT);
+            load(bankService, 4, 5_000);
+
+            bankService.checkAggregates();
+            assertEquals(snapshotBalance, snapshot.getBalanceCents(HOT));
+            assertEquals(bankService.getBalanceCents(HOT), bankService.getBalanceCentsAsOf(HOT, Long.MAX_VALUE));
+            ReconciliationReport report = new Reconciler(bankService).run();
+            assertTrue(report.isConsistent(), report.toString());
+            assertEquals(bankService.getTotalBankBalanceCents(), report.balancesTotal());
+
+            // горячий счёт - в ответе индекса по балансу на своём месте
+            int[] top = new int[ACCOUNTS];
+            assertEquals(ACCOUNTS, bankService.findTopBalances(0, top));
+            for (int i = 1; i < ACCOUNTS; i++) {
+                assertTrue(bankService.getBalanceCents(top[i - 1]) >= bankService.getBalanceCents(top[i]));
+            }
+
+            // постраничная история горячего счёта совпадает с полной
+            history = bankService.getTransactionHistory(HOT);
+            List<String> paged = new ArrayList<>();
+            long cursor = HistoryQuery.NEWEST;
+            do {
+                HistoryPage page = bankService.getTransactionHistory(HOT, HistoryQuery.latest(37).after(cursor));
+                page.entries().forEach(entry -> paged.add(0, entry.description()));
+                cursor = page.nextCursor();
+            } while (cursor != HistoryPage.END);
+            assertEquals(history, paged);
+
+            bankService.saveSnapshot(snapshotFile);
+            bankService.depositCents(HOT, 12_345);
+            for (int id = 0; id < ACCOUNTS; id++) {
+                balances[id] = bankService.getBalanceCents(id);
+            }
+        }
+
+        // слоты восстанавливаются и из снимка, и из одного журнала
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            for (BankService restored : List.of(BankService.fromSnapshot(snapshotFile, journal),
+                    BankService.fromJournal(journal))) {
+                assertTrue(restored.isHotAccount(HOT));
+                for (int id = 0; id < ACCOUNTS; id++) {
+                    assertEquals(balances[id], restored.getBalanceCents(id), "счёт " + id);
+                }
+                restored.checkAggregates();
+                List<String> restoredHistory = restored.getTransactionHistory(HOT);
+                assertEquals(history, restoredHistory.subList(0, history.size()));
+                assertTrue(new Reconciler(restored).run().isConsistent());
+            }
+        }
+    }
+
+    // Перекошенная нагрузка: половина операций - переводы на горячий счёт, часть - списания с него
+    private static void load(BankService bankService, int threads, int operations) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < operations; i++) {
+                    int id = random.nextInt(ACCOUNTS);
+                    try {
+                        switch (random.nextInt(8)) {
+                            case 0, 1, 2 -> bankService.transferCents(id == HOT ? 0 : id, HOT,
+                                    1 + random.nextInt(500));
+                            case 3 -> bankService.depositCents(HOT, 1 + random.nextInt(500));
+                            case 4 -> bankService.transferCents(HOT, id == HOT ? 0 : id, 1 + random.nextInt(2_000));
+                            case 5 -> bankService.withdrawCents(HOT, 1 + random.nextInt(2_000));
+                            case 6 -> bankService.transferBatch(List.of(
+                                    new TransferRequest(HOT, id == HOT ? 1 : id, 700),
+                                    new TransferRequest(id == HOT ? 1 : id, HOT, 300)), BatchMode.PER_ITEM, false);
+                            default -> bankService.depositCents(id, 1 + random.nextInt(500));
+                        }
+                    } catch (InsufficientFundsException e) {
+                        // отказ не пишется в журнал
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.bank;
+
+import java.time.YearMonth;
+
+/**
+ * Скорость начисления процентов по всем счетам
+ * Запуск: java -Xmx4g InterestAccrualBenchmark [счетов] [MONTHLY|DAILY]
+ */
+public class InterestAccrualBenchmark {
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        InterestAccrual.Mode mode = args.length > 1 ? InterestAccrual.Mode.valueOf(args[1]) : InterestAccrual.Mode.MONTHLY;
+
+        BankService bankService = new BankService(accounts, 1000.0);
+        for (int id = 0; id < accounts; id++) {
+            bankService.setAnnualInterestRate(id, 1 + id % 10);
+        }
+        YearMonth month = YearMonth.now().plusMonths(1);
+        for (int round = 0; round < 3; round++) {
+            AccrualReport report = bankService.accrueInterest(InterestAccrual.forMonth(mode, month.plusMonths(round)));
+            System.out.printf("Раунд %d: %s%n", round, report);
+        }
+        bankService.checkAggregates();
+    }
+}
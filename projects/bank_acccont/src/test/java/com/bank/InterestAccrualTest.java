@@ -0,0 +1,142 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterestAccrualTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Test
+    void testMonthlyInterestMatchesAccount() {
+        BankService bankService = new BankService(3, 1000.0);
+        for (int id = 0; id < 3; id++) {
+            bankService.setAnnualInterestRate(id, 12.0);
+        }
+        InterestAccrual accrual = InterestAccrual.forMonth(InterestAccrual.Mode.MONTHLY, YearMonth.now().plusMonths(1));
+        AccrualReport report = bankService.accrueInterest(accrual);
+
+        assertEquals(3, report.accounts());
+        assertEquals(3, report.credited());
+        assertEquals(3_000L, report.totalInterest());
+        assertEquals(101_000L, bankService.getBalanceCents(0));
+        List<String> history = bankService.getTransactionHistory(0);
+        assertEquals("Interest: $10.00", history.get(history.size() - 1));
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testMonthlyInterestProratedForNewAccount() {
+        InterestAccrual accrual = new InterestAccrual(InterestAccrual.Mode.MONTHLY, 0, 30 * DAY);
+        // 1000.00 под 12% - 10.00 за месяц, счёт открыт на 10-й день из 30
+        assertEquals(1_000L, accrual.interest(100_000L, 1_200, 0));
+        assertEquals(667L, accrual.interest(100_000L, 1_200, 10 * DAY));
+        assertEquals(0L, accrual.interest(100_000L, 1_200, 30 * DAY));
+        assertEquals(0L, accrual.interest(100_000L, 0, 0));
+        assertEquals(0L, accrual.interest(-100_000L, 1_200, 0));
+    }
+
+    @Test
+    void testDailyCompounding() {
+        InterestAccrual accrual = new InterestAccrual(InterestAccrual.Mode.DAILY, 0, 2 * DAY);
+        // 1000000.00 под 36.5%: 1000.00 в первый день, 1001.00 во второй
+        assertEquals(200_100L, accrual.interest(100_000_000L, 3_650, 0));
+        assertEquals(100_000L, accrual.interest(100_000_000L, 3_650, DAY));
+    }
+
+    @Test
+    void testAccountsWithoutInterestAreNotRecorded() {
+        BankService bankService = new BankService(2, 500.0);
+        bankService.setAnnualInterestRate(1, 6.0);
+        InterestAccrual accrual = InterestAccrual.forMonth(InterestAccrual.Mode.MONTHLY, YearMonth.now().plusMonths(1));
+        AccrualReport report = bankService.accrueInterest(accrual);
+
+        assertEquals(1, report.credited());
+        assertEquals(1, bankService.getTransactionHistory(0).size());
+        assertEquals(50_250L, bankService.getBalanceCents(1));
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testRepeatedPeriodIsSkipped(@TempDir Path dir) throws Exception {
+        Path journalFile = dir.resolve("journal.bin");
+        YearMonth month = YearMonth.now().plusMonths(1);
+        InterestAccrual accrual = InterestAccrual.forMonth(InterestAccrual.Mode.MONTHLY, month);
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(3, 1000.0, journal);
+            for (int id = 0; id < 3; id++) {
+                bankService.setAnnualInterestRate(id, 12.0);
+            }
+            assertEquals(3, bankService.accrueInterest(accrual).credited());
+
+            // тот же период и пересекающийся с ним - без повторного начисления
+            AccrualReport repeated = bankService.accrueInterest(accrual);
+            assertEquals(0, repeated.credited());
+            assertEquals(3, repeated.skipped());
+            long middle = (accrual.getPeriodStart() + accrual.getPeriodEnd()) / 2;
+            AccrualReport overlapping = bankService.accrueInterest(
+                    new InterestAccrual(InterestAccrual.Mode.DAILY, middle, middle + 30 * DAY));
+            assertEquals(0, overlapping.credited());
+            assertEquals(101_000L, bankService.getBalanceCents(0));
+            bankService.checkAggregates();
+        }
+
+        // после перезапуска: начисленные счета пропускаются, новый счёт получает проценты за тот же период
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService restored = BankService.fromJournal(journal);
+            int created = restored.createAccount(1000.0);
+            restored.setAnnualInterestRate(created, 12.0);
+            AccrualReport resumed = restored.accrueInterest(accrual);
+            assertEquals(1, resumed.credited());
+            assertEquals(3, resumed.skipped());
+            assertEquals(101_000L, restored.getBalanceCents(0));
+            assertEquals(101_000L, restored.getBalanceCents(created));
+
+            // следующий месяц начисляется всем
+            AccrualReport next = restored.accrueInterest(
+                    InterestAccrual.forMonth(InterestAccrual.Mode.MONTHLY, month.plusMonths(1)));
+            assertEquals(4, next.credited());
+            assertEquals(0, next.skipped());
+            restored.checkAggregates();
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void testAccrualConcurrentWithTransfers() throws InterruptedException {
+        int accounts = 200_000;
+        BankService bankService = new BankService(accounts, 100.0);
+        for (int id = 0; id < accounts; id++) {
+            bankService.setAnnualInterestRate(id, 5.0);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread worker = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running.get()) {
+                int id = random.nextInt(accounts);
+                try {
+                    bankService.transferCents(id, (id + 1) % accounts, random.nextLong(1, 1_000));
+                } catch (InsufficientFundsException e) {
+                    // ожидаемо при случайных суммах
+                }
+            }
+        });
+        worker.start();
+        InterestAccrual accrual = InterestAccrual.forMonth(InterestAccrual.Mode.MONTHLY, YearMonth.now().plusMonths(1));
+        AccrualReport report = bankService.accrueInterest(accrual);
+        running.set(false);
+        worker.join();
+
+        assertEquals(accounts, report.accounts());
+        assertEquals(Money.fromDouble(100.0) * accounts + report.totalInterest(), bankService.scanTotalBankBalanceCents());
+        bankService.checkAggregates();
+    }
+}
@@ -0,0 +1,128 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalArchiveTest {
+    private static final int ACCOUNTS = 1_000;
+    private static final int SEGMENT = 1 << 16;
+
+    @Test
+    void testArchivedRecordsReadLikeTail() {
+        TransactionJournal journal = new TransactionJournal();
+        BankService bankService = new BankService(ACCOUNTS, 1_000.0, journal);
+        run(bankService, 3 * SEGMENT, 1);
+        long[][] before = fields(journal);
+        List<List<String>> histories = new ArrayList<>();
+        for (int id = 0; id < ACCOUNTS; id += 97) {
+            histories.add(bankService.getTransactionHistory(id));
+        }
+        HistoryPage page = bankService.getTransactionHistory(5, HistoryQuery.latest(50)
+                .ofTypes(TransactionJournal.DEPOSIT));
+
+        journal.setArchive(new JournalArchive(), 1);
+        CompactionReport report = bankService.compactHistory();
+        assertEquals(3L * SEGMENT, report.archivedRecords());
+        assertTrue(report.bytesPerAccountAfter() < report.bytesPerAccountBefore());
+        assertEquals(1, journal.getTailBytes() / (SEGMENT * TransactionJournal.RECORD_SIZE));
+        assertTrue(journal.getArchive().getStoredBytes() < 3L * SEGMENT * TransactionJournal.RECORD_SIZE / 2);
+
+        long[][] after = fields(journal);
+        for (int record = 0; record < before.length; record++) {
+            assertArrayEquals(before[record], after[record], "запись " + record);
+        }
+        for (int id = 0, k = 0; id < ACCOUNTS; id += 97, k++) {
+            assertEquals(histories.get(k), bankService.getTransactionHistory(id));
+        }
+        assertEquals(page.entries(), bankService.getTransactionHistory(5, HistoryQuery.latest(50)
+                .ofTypes(TransactionJournal.DEPOSIT)).entries());
+        assertTrue(bankService.getMetrics().dump().contains("История: в архиве"));
+    }
+
+    @Test
+    void testCompactionFollowsGrowthWithFileArchive(@TempDir Path dir) throws Exception {
+        TransactionJournal journal = new TransactionJournal();
+        try (JournalArchive archive = new JournalArchive(dir.resolve("history.bin"))) {
+            journal.setArchive(archive, 2);
+            BankService bankService = new BankService(ACCOUNTS, 1_000.0, journal);
+            run(bankService, 5 * SEGMENT, 2);
+            // сжимает фоновый поток журнала
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (archive.getRecords() < 2L * SEGMENT && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(archive.getRecords() >= 2L * SEGMENT);
+            assertTrue(archive.getMemoryBytes() < archive.getStoredBytes() / 50);
+
+            // цепочка счёта сходится по балансам через оба уровня
+            long[] header = new long[5];
+            for (int id = 0; id < ACCOUNTS; id += 7) {
+                int sequence = 0;
+                long balance = 0;
+                List<Long> chain = new ArrayList<>();
+                bankService.readStatementHeader(id, header);
+                for (long record = header[4]; record != TransactionJournal.NO_RECORD;
+                     record = journal.getPrevious(record)) {
+                    chain.add(0, record);
+                }
+                for (long record : chain) {
+                    assertEquals(id, journal.getAccountId(record));
+                    assertEquals(sequence++, journal.getSequence(record));
+                    long amount = journal.getAmount(record);
+                    switch (journal.getType(record)) {
+                        case TransactionJournal.WITHDRAW, TransactionJournal.TRANSFER_OUT -> balance -= amount;
+                        default -> balance += amount;
+                    }
+                    assertEquals(balance, journal.getBalanceAfter(record));
+                }
+                assertEquals(balance, bankService.getBalanceCents(id));
+                assertEquals(chain.size(), bankService.getTransactionHistory(id).size());
+            }
+            bankService.checkAggregates();
+        }
+    }
+
+    private static void run(BankService bankService, int operations, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < operations; i++) {
+            int id = random.nextInt(ACCOUNTS);
+            switch (random.nextInt(3)) {
+                case 0 -> bankService.depositCents(id, 1 + random.nextInt(100_000));
+                case 1 -> {
+                    try {
+                        bankService.withdrawCents(id, 1 + random.nextInt(50_000));
+                    } catch (InsufficientFundsException e) {
+                        // отказ не пишется в журнал
+                    }
+                }
+                default -> {
+                    try {
+                        bankService.transferCents(id, (id + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS,
+                                1 + random.nextInt(50_000));
+                    } catch (InsufficientFundsException e) {
+                        // отказ не пишется в журнал
+                    }
+                }
+            }
+        }
+    }
+
+    // Все поля всех записей журнала, по строке на запись
+    private static long[][] fields(TransactionJournal journal) {
+        long[][] fields = new long[(int) journal.size()][];
+        for (int record = 0; record < fields.length; record++) {
+            fields[record] = new long[]{journal.getAccountId(record), journal.getCounterparty(record),
+                    journal.getType(record), journal.getAmount(record), journal.getTimestamp(record),
+                    journal.getBalanceAfter(record), journal.getPrevious(record), journal.getSequence(record),
+                    journal.findBefore(record, record), journal.getFlags(record)};
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParse() {
+        assertEquals(123_456L, Money.parse("1234.56"));
+        assertEquals(50L, Money.parse("0.5"));
+        assertEquals(100_000L, Money.parse("1000"));
+        assertEquals(-1L, Money.parse("-0.01"));
+        assertEquals(1L, Money.parse("DEPOSIT 0.01", 8, 12));
+    }
+
+    @Test
+    void testParseInvalid() {
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.234"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("12a"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("."));
+        assertThrows(ArithmeticException.class, () -> Money.parse("99999999999999999999"));
+    }
+
+    @Test
+    void testFormat() {
+        assertEquals("200.00", Money.toString(20_000L));
+        assertEquals("0.05", Money.toString(5L));
+        assertEquals("-3.10", Money.toString(-310L));
+        assertEquals("-92233720368547758.08", Money.toString(Long.MIN_VALUE));
+    }
+
+    @Test
+    void testArithmeticIsExact() {
+        long total = 0;
+        for (int i = 0; i < 10; i++) {
+            total = Money.add(total, Money.parse("0.10"));
+        }
+        assertEquals(100L, total);
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void testMonthlyInterest() {
+        // 1000.00 под 12% годовых = 10.00 в месяц
+        assertEquals(1_000L, Money.monthlyInterest(100_000L, 1_200L));
+        // 333.33 под 5% = 1.388875 -> 1.39
+        assertEquals(139L, Money.monthlyInterest(33_333L, 500L));
+        assertThrows(ArithmeticException.class, () -> Money.monthlyInterest(Long.MAX_VALUE, 100L));
+    }
+}
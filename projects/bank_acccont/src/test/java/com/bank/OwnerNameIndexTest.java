@@ -0,0 +1,76 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OwnerNameIndexTest {
+
+    @Test
+    void testPrefixSearchIgnoresCase() {
+        BankService bankService = new BankService(0, 0);
+        int ivan = bankService.createAccount("1001", "Иван Иванов", 10.0);
+        int maria = bankService.createAccount("1002", "Мария Петрова", 10.0);
+        int ivanova = bankService.createAccount("1003", "ИВАНОВА Анна", 10.0);
+        int john = bankService.createAccount("123456789", "John Doe", 10.0);
+        bankService.createAccount(5.0); // без имени, в индекс не попадает
+
+        int[] ids = new int[10];
+        assertEquals(2, bankService.findAccountsByOwnerPrefix("иван", 0, ids));
+        assertEquals(ivan, ids[0]);
+        assertEquals(ivanova, ids[1]);
+        assertEquals(1, bankService.findAccountsByOwnerPrefix("JOHN d", 0, ids));
+        assertEquals(john, ids[0]);
+        assertEquals(1, bankService.findAccountsByOwnerPrefix("мАрИя", 0, ids));
+        assertEquals(maria, ids[0]);
+        assertEquals(0, bankService.findAccountsByOwnerPrefix("Пётр", 0, ids));
+        assertEquals(4, bankService.findAccountsByOwnerPrefix("", 0, ids));
+
+        assertEquals(1, bankService.findAccountsByOwner("иван иванов", 0, ids));
+        assertEquals(ivan, ids[0]);
+        assertEquals(0, bankService.findAccountsByOwner("иван", 0, ids));
+    }
+
+    @Test
+    void testPagingAndIncrementalMerge() {
+        BankService bankService = new BankService(0, 0);
+        for (int i = 0; i < 5_000; i++) {
+            bankService.createAccount(String.valueOf(10_000 + i), (i % 2 == 0 ? "Smith " : "Jones ") + i, 1.0);
+        }
+        assertEquals(2_500, bankService.countAccountsByOwnerPrefix("SMITH"));
+        // новые счета после первого поиска вливаются в упорядоченную часть
+        for (int i = 5_000; i < 6_000; i++) {
+            bankService.createAccount(String.valueOf(10_000 + i), "smith " + i, 1.0);
+        }
+        assertEquals(3_500, bankService.countAccountsByOwnerPrefix("Smith"));
+        assertEquals(555, bankService.countAccountsByOwnerPrefix("smith 1")); // чётные 10..1998
+
+        int[] page = new int[100];
+        String previous = "";
+        int seen = 0;
+        for (int skip = 0; ; skip += page.length) {
+            int found = bankService.findAccountsByOwnerPrefix("smith", skip, page);
+            for (int k = 0; k < found; k++) {
+                String name = bankService.getOwnerName(page[k]).toLowerCase();
+                assertTrue(name.compareTo(previous) >= 0, name + " после " + previous);
+                previous = name;
+            }
+            seen += found;
+            if (found < page.length) {
+                break;
+            }
+        }
+        assertEquals(3_500, seen);
+    }
+
+    @Test
+    void testAccountNumberLookupFromText() {
+        BankService bankService = new BankService(0, 0);
+        int id = bankService.createAccount("123456789", "John Doe", 1.0);
+        StringBuilder number = new StringBuilder("123456789");
+        assertEquals(id, bankService.findAccountId(number));
+        assertEquals(AccountNumberIndex.NOT_FOUND, bankService.findAccountId("1001"));
+        assertEquals(AccountNumberIndex.NOT_FOUND, bankService.findAccountId("12a"));
+        assertEquals(AccountNumberIndex.NOT_FOUND, bankService.findAccountId(""));
+    }
+}
@@ -0,0 +1,130 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReconcilerTest {
+    private static final int ACCOUNTS = 2_000;
+
+    @Test
+    void testIncrementalReconciliation() {
+        BankService bankService = new BankService(ACCOUNTS, 100.0);
+        run(bankService, 50_000, 1);
+        Reconciler reconciler = new Reconciler(bankService);
+        ReconciliationReport first = reconciler.run();
+        assertTrue(first.isConsistent(), first.toString());
+        assertEquals(0, first.fromRecord());
+        assertEquals(bankService.getJournal().size(), first.records());
+        assertEquals(first.records(), first.chainedRecords());
+        assertEquals(bankService.getTotalBankBalanceCents(), first.balancesTotal());
+
+        run(bankService, 10_000, 2);
+        ReconciliationReport second = reconciler.run();
+        assertTrue(second.isConsistent(), second.toString());
+        assertEquals(first.toRecord(), second.fromRecord());
+        assertEquals(bankService.getJournal().size() - first.toRecord(), second.chainedRecords());
+        assertEquals(bankService.getTotalBankBalanceCents(), second.ledgerTotal());
+
+        ReconciliationReport empty = reconciler.run();
+        assertEquals(0, empty.records());
+        assertTrue(empty.isConsistent());
+    }
+
+    @Test
+    void testConsistentWhileServing() throws Exception {
+        BankService bankService = new BankService(ACCOUNTS, 100.0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                // число операций ограничено: на одном ядре сверки могут идти долго, а журнал - расти без предела
+                for (int i = 0; i < 100_000 && running.get(); i++) {
+                    int id = random.nextInt(ACCOUNTS);
+                    int other = (id + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    try {
+                        switch (random.nextInt(4)) {
+                            case 0 -> bankService.depositCents(id, 1 + random.nextInt(1_000));
+                            case 1 -> bankService.withdrawCents(id, 1 + random.nextInt(1_000));
+                            case 2 -> bankService.transferCents(id, other, 1 + random.nextInt(1_000));
+                            default -> bankService.transferBatch(List.of(new TransferRequest(id, other, 500),
+                                    new TransferRequest(other, id, 300)), BatchMode.PER_ITEM, false);
+                        }
+                    } catch (InsufficientFundsException e) {
+                        // отказ не пишется в журнал
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        Reconciler reconciler = new Reconciler(bankService);
+        try {
+            for (int i = 0; i < 20; i++) {
+                ReconciliationReport report = reconciler.run();
+                assertTrue(report.isConsistent(), report.toString());
+                Thread.sleep(5);
+            }
+        } finally {
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        ReconciliationReport last = reconciler.run();
+        assertTrue(last.isConsistent(), last.toString());
+        assertEquals(bankService.getTotalBankBalanceCents(), last.balancesTotal());
+    }
+
+    @Test
+    void testMismatchesAreReported() {
+        TransactionJournal journal = new TransactionJournal();
+        BankService original = new BankService(ACCOUNTS, 100.0, journal);
+        run(original, 20_000, 3);
+        // запись, чей баланс не продолжает цепочку: после восстановления баланс счёта 3 расходится с журналом
+        long[] header = new long[5];
+        original.readStatementHeader(3, header);
+        journal.append(3, TransactionJournal.DEPOSIT, 1, TransactionJournal.NO_ACCOUNT, System.currentTimeMillis(),
+                header[2] + 999, header[4]);
+        BankService restored = BankService.fromJournal(journal);
+
+        Reconciler reconciler = new Reconciler(restored);
+        ReconciliationReport report = reconciler.run();
+        assertFalse(report.isConsistent());
+        assertEquals(1, report.mismatches());
+        assertArrayEquals(new int[]{3}, report.mismatchedAccounts());
+        assertEquals(998, report.balancesTotal() - report.ledgerTotal());
+        assertEquals(0, report.orphanRecords());
+
+        // запись вне цепочки счёта видна только в общем итоге по журналу
+        journal.append(5, TransactionJournal.DEPOSIT, 100, TransactionJournal.NO_ACCOUNT, System.currentTimeMillis(),
+                100, TransactionJournal.NO_RECORD);
+        ReconciliationReport next = reconciler.run();
+        assertEquals(1, next.records());
+        assertEquals(1, next.orphanRecords());
+        assertEquals(1, next.mismatches());
+        assertEquals(898, next.balancesTotal() - next.ledgerTotal());
+    }
+
+    private static void run(BankService bankService, int operations, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < operations; i++) {
+            int id = random.nextInt(ACCOUNTS);
+            try {
+                switch (random.nextInt(3)) {
+                    case 0 -> bankService.depositCents(id, 1 + random.nextInt(10_000));
+                    case 1 -> bankService.withdrawCents(id, 1 + random.nextInt(10_000));
+                    default -> bankService.transferCents(id, (id + 1) % ACCOUNTS, 1 + random.nextInt(10_000));
+                }
+            } catch (InsufficientFundsException e) {
+                // отказ не пишется в журнал
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Полная и инкрементальная сверка балансов с журналом под нагрузкой: пока идёт сверка,
+ * потоки нагрузки делают пополнения и переводы; печатается отчёт сверки и пропускная способность нагрузки
+ * Запуск: java ReconciliationBenchmark [счетов] [операций на счёт] [потоков нагрузки]
+ */
+public class ReconciliationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int perAccount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        BankService bankService = new BankService(accounts, 1_000.0);
+        Random random = new Random(1);
+        for (long i = 0; i < (long) accounts * perAccount; i++) {
+            int id = random.nextInt(accounts);
+            if (random.nextBoolean()) {
+                bankService.depositCents(id, 1 + random.nextInt(10_000));
+            } else {
+                bankService.transferCents(id, (id + 1) % accounts, 1 + random.nextInt(1_000));
+            }
+        }
+        System.out.printf("Журнал: %,d записей%n", bankService.getJournal().size());
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder operations = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers.add(new Thread(() -> {
+                Random local = new Random(seed);
+                while (running.get()) {
+                    int id = local.nextInt(accounts);
+                    if (local.nextBoolean()) {
+                        bankService.depositCents(id, 1);
+                    } else {
+                        bankService.transferCents(id, (id + 1) % accounts, 1);
+                    }
+                    operations.increment();
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+
+        Reconciler reconciler = new Reconciler(bankService);
+        for (int round = 0; round < 3; round++) {
+            long before = operations.sum();
+            ReconciliationReport report = reconciler.run();
+            System.out.println((round == 0 ? "Полная: " : "Инкрементальная: ") + report);
+            System.out.printf("  нагрузка во время сверки: %,.0f оп/с, сходится: %b%n",
+                    (operations.sum() - before) * 1e9 / report.elapsedNanos(), report.isConsistent());
+            Thread.sleep(1_000);
+        }
+        running.set(false);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBankServiceTest {
+    private static final int ACCOUNTS = 64;
+
+    @Test
+    void testOperationsAndInsufficientFunds() {
+        BankService bankService = new BankService(64, 100.0);
+        try (ShardedBankService sharded = ShardedBankService.start(bankService, 4)) {
+            assertNotEquals(sharded.shardOf(0), sharded.shardOf(8)); // соседние строки кэша - разные шарды
+            assertEquals(sharded.shardOf(0), sharded.shardOf(7));
+
+            sharded.deposit(0, 5_000).join();
+            sharded.withdraw(1, 2_500).join();
+            sharded.transfer(0, 2, 1_000).join();   // внутри шарда
+            sharded.transfer(0, 8, 4_000).join();   // межшардовый
+            assertEquals(10_000L, bankService.getBalanceCents(0));
+            assertEquals(7_500L, bankService.getBalanceCents(1));
+            assertEquals(11_000L, bankService.getBalanceCents(2));
+            assertEquals(14_000L, bankService.getBalanceCents(8));
+            assertEquals("Received from 0: $40.00", bankService.getTransactionHistory(8).get(1));
+
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> sharded.transfer(1, 16, 10_000).join());
+            assertInstanceOf(InsufficientFundsException.class, failure.getCause());
+            assertEquals(7_500L, bankService.getBalanceCents(1));
+            assertEquals(10_000L, bankService.getBalanceCents(16));
+            assertInstanceOf(IllegalArgumentException.class,
+                    assertThrows(CompletionException.class, () -> sharded.deposit(1000, 1).join()).getCause());
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void testConcurrentCrossShardTransfersKeepTotal() throws InterruptedException {
+        int accounts = 512;
+        BankService bankService = new BankService(accounts, 100.0);
+        long expected = bankService.getTotalBankBalanceCents();
+        ShardedBankService sharded = ShardedBankService.start(bankService, 8);
+        List<Thread> callers = new ArrayList<>();
+        List<CompletableFuture<Void>> results = Collections.synchronizedList(new ArrayList<>());
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            callers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    int from = random.nextInt(accounts);
+                    int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                    results.add(sharded.transfer(from, to, 1 + random.nextInt(3_000)));
+                }
+            }));
+        }
+        callers.forEach(Thread::start);
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        sharded.close();
+
+        int failed = 0;
+        for (CompletableFuture<Void> result : results) {
+            assertTrue(result.isDone());
+            if (result.isCompletedExceptionally()) {
+                failed++;
+                assertInstanceOf(InsufficientFundsException.class,
+                        assertThrows(CompletionException.class, result::join).getCause());
+            }
+        }
+        assertTrue(failed < results.size());
+        assertEquals(expected, bankService.scanTotalBankBalanceCents());
+        assertEquals(expected, bankService.snapshot().getTotalBalanceCents());
+        for (int id = 0; id < accounts; id++) {
+            assertTrue(bankService.getBalanceCents(id) >= 0);
+        }
+        assertThrows(RejectedExecutionException.class, () -> sharded.deposit(0, 1));
+    }
+
+    @Test
+    void testUnfinishedTransferIsRefunded(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        Path snapshot = dir.resolve("accounts.snap");
+        try (TransactionJournal journal = new TransactionJournal(file, 8, 100_000)) {
+            BankService bankService = new BankService(16, 10.0, journal);
+            // сбой между шагами: списание до снимка и после него так и не зачислены
+            bankService.debitTransfer(0, 9, 300);
+            long settled = bankService.debitTransfer(1, 9, 200);
+            bankService.creditTransfer(9, 1, 200, settled);
+            bankService.saveSnapshot(snapshot);
+            bankService.debitTransfer(2, 10, 100);
+            assertEquals(700L, bankService.getBalanceCents(0));
+            assertEquals(900L, bankService.getBalanceCents(2));
+        }
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            for (BankService restored : List.of(BankService.fromSnapshot(snapshot, journal),
+                    BankService.fromJournal(journal))) {
+                assertEquals(1_000L, restored.getBalanceCents(0));
+                assertEquals(800L, restored.getBalanceCents(1));
+                assertEquals(1_000L, restored.getBalanceCents(2));
+                assertEquals(1_200L, restored.getBalanceCents(9));
+                assertEquals(1_000L, restored.getBalanceCents(10));
+                assertEquals(List.of("Initial deposit: $10.00", "Transferred to 9: $3.00", "Received from 9: $3.00"),
+                        restored.getTransactionHistory(0));
+                assertEquals(16_000L, restored.getTotalBankBalanceCents());
+                restored.checkAggregates();
+                assertTrue(new Reconciler(restored).run().isConsistent());
+            }
+        }
+    }
+
+    @Test
+    @Timeout(120)
+    void testKillBetweenShards(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        for (int run = 0; run < 2; run++) {
+            Process process = new ProcessBuilder(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    Transferrer.class.getName(), file.toString())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            long transfer = -1;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("debit ")) {
+                        transfer = Long.parseLong(line.substring("debit ".length()));
+                        break;
+                    }
+                }
+                process.destroyForcibly();
+                assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+            }
+            assertNotEquals(-1, transfer);
+
+            try (TransactionJournal journal = new TransactionJournal(file)) {
+                assertEquals(TransactionJournal.IN_TRANSIT, journal.getFlags(transfer));
+                BankService restored = BankService.fromJournal(journal);
+                // незачисленные списания возвращены: деньги не пропали и не появились
+                assertEquals(ACCOUNTS, restored.getAccountsCount());
+                assertEquals(ACCOUNTS * 10_000L, restored.scanTotalBankBalanceCents());
+                restored.checkAggregates();
+                assertTrue(new Reconciler(restored).run().isConsistent());
+            }
+        }
+    }
+
+    // Процесс с межшардовыми переводами под нагрузкой. Когда переводы идут, он списывает перевод без зачисления,
+    // печатает "debit <запись>" и продолжает работу, пока его не убьют
+    public static class Transferrer {
+        public static void main(String[] args) throws Exception {
+            TransactionJournal journal = new TransactionJournal(Path.of(args[0]), 8, 500_000);
+            BankService bankService = BankService.fromJournal(journal);
+            while (bankService.getAccountsCount() < ACCOUNTS) {
+                bankService.createAccountCents(10_000);
+            }
+            ShardedBankService sharded = ShardedBankService.start(bankService, 8);
+            PrintStream out = new PrintStream(System.out, false, StandardCharsets.US_ASCII);
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                new Thread(() -> {
+                    Random random = new Random(seed);
+                    CompletableFuture<?>[] window = new CompletableFuture<?>[64];
+                    for (int i = 0; ; i++) {
+                        if (window[i % window.length] != null) {
+                            window[i % window.length].exceptionally(e -> null).join();
+                        }
+                        int from = random.nextInt(ACCOUNTS);
+                        window[i % window.length] = sharded.transfer(from, (from + 8) % ACCOUNTS,
+                                1 + random.nextInt(500));
+                    }
+                }).start();
+            }
+            Thread.sleep(300);
+            long transfer = bankService.debitTransfer(0, 8, 1);
+            journal.awaitDurable(transfer);
+            out.println("debit " + transfer);
+            out.flush();
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.bank;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Время старта: восстановление из снимка против повторного создания счетов через createAccount
+ * Запуск: java -Xmx4g SnapshotStartupBenchmark [счетов]
+ */
+public class SnapshotStartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path journalFile = dir.resolve("journal.bin");
+        Path snapshotFile = dir.resolve("accounts.snap");
+
+        long start = System.nanoTime();
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            BankService bankService = new BankService(accounts, 100.0, journal);
+            System.out.printf("Создание %,d счетов через createAccount: %d мс%n",
+                    accounts, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            bankService.saveSnapshot(snapshotFile);
+            System.out.printf("Запись снимка (%,d МБ): %d мс%n",
+                    Files.size(snapshotFile) >> 20, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(journalFile)) {
+            start = System.nanoTime();
+            BankService restored = BankService.fromSnapshot(snapshotFile, journal);
+            long ready = System.nanoTime() - start;
+            long balance = restored.getBalanceCents(accounts - 1);
+            long firstRead = System.nanoTime() - start;
+            // поиск по номеру ждёт фонового построения индексов номеров и владельцев
+            restored.findAccountId(1L);
+            long indexed = System.nanoTime() - start;
+            long total = restored.scanTotalBankBalanceCents();
+            long scanned = System.nanoTime() - start;
+            System.out.printf("Снимок: готов к работе %d мс, первое чтение %d мс (баланс %s), "
+                            + "индексы номеров и владельцев %d мс, полный проход по счетам %d мс (итого %s)%n",
+                    ready / 1_000_000, firstRead / 1_000_000, Money.toString(balance), indexed / 1_000_000,
+                    scanned / 1_000_000, Money.toString(total));
+        }
+    }
+}
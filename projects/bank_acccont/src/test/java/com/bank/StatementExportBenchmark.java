@@ -0,0 +1,51 @@
+package com.bank;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выгрузка выписок: строки getAccountInfo и getTransactionHistory через BufferedWriter
+ * против StatementExporter. Файлы сравниваются побайтно.
+ * Запуск: java -Xmx4g StatementExportBenchmark [счетов] [операций на счёт]
+ */
+public class StatementExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        BankService bankService = new BankService(accounts, 1_000.0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; i < (long) accounts * operations / 2; i++) {
+            int from = random.nextInt(accounts);
+            bankService.transferCents(from, (from + 1 + random.nextInt(accounts - 1)) % accounts, 1 + random.nextInt(100));
+        }
+        Path dir = Files.createTempDirectory("statement-bench");
+        Path strings = dir.resolve("strings.txt");
+        Path exported = dir.resolve("exported.txt");
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            try (BufferedWriter writer = Files.newBufferedWriter(strings, StandardCharsets.UTF_8)) {
+                for (int id = 0; id < accounts; id++) {
+                    writer.write(bankService.getAccountInfo(id));
+                    writer.write('\n');
+                    for (String line : bankService.getTransactionHistory(id)) {
+                        writer.write("  ");
+                        writer.write(line);
+                        writer.write('\n');
+                    }
+                }
+            }
+            long stringNanos = System.nanoTime() - start;
+            ExportReport report = new StatementExporter(bankService).export(exported);
+            System.out.printf("Строки: %d мс; StatementExporter: %s%n", stringNanos / 1_000_000, report);
+        }
+        System.out.println("Файлы совпадают: " + (Files.mismatch(strings, exported) == -1));
+        Files.delete(strings);
+        Files.delete(exported);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementExporterTest {
+
+    @Test
+    void testMatchesStringStatements(@TempDir Path dir) throws Exception {
+        BankService bankService = new BankService(10_000, 12.34);
+        bankService.createAccount("4001", "Иван Петров", 0.05);
+        bankService.createAccount("700000000001", "Zoë", 1_000_000.0);
+        bankService.setAnnualInterestRate(3, 4.5);
+        bankService.transfer(0, 9_999, 12.34);
+        bankService.deposit(1, 0.99);
+        bankService.withdraw(2, 10.0);
+        bankService.transferCents(10_001, 10_000, 7);
+        bankService.accrueInterest(new InterestAccrual(InterestAccrual.Mode.MONTHLY, 0, System.currentTimeMillis() + 1));
+
+        Path file = dir.resolve("statements.txt");
+        ExportReport report = new StatementExporter(bankService, 3).export(file);
+
+        StringBuilder expected = new StringBuilder();
+        long records = 0;
+        for (int id = 0; id < bankService.getAccountsCount(); id++) {
+            expected.append(bankService.getAccountInfo(id)).append('\n');
+            for (String line : bankService.getTransactionHistory(id)) {
+                expected.append("  ").append(line).append('\n');
+                records++;
+            }
+        }
+        byte[] expectedBytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expectedBytes, Files.readAllBytes(file));
+        assertEquals(10_002, report.accounts());
+        assertEquals(records, report.records());
+        assertEquals(expectedBytes.length, report.bytes());
+        assertEquals("Account #0, owner -, balance $0.00, rate 0.00%", bankService.getAccountInfo(0));
+        assertEquals("Account 4001, owner Иван Петров, balance $0.12, rate 0.00%", bankService.getAccountInfo(10_000));
+    }
+
+    @Test
+    void testEmptyBank(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("statements.txt");
+        ExportReport report = new StatementExporter(new BankService(0, 0), 2).export(file);
+        assertEquals(0, report.accounts());
+        assertEquals(0, Files.size(file));
+    }
+}
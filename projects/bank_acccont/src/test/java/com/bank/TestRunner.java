@@ -13,8 +13,8 @@ import static org.junit.jupiter.api.Assertions.*;
 public class TestRunner {
 
     private BankService bankService;
-    private BankAccount account1;
-    private BankAccount account2;
+    private int account1;
+    private int account2;
 
     @BeforeAll
     void setUpAll() {
@@ -23,7 +23,7 @@ public class TestRunner {
 
     @BeforeEach
     void setUp() {
-        bankService = new BankService();
+        bankService = new BankService(0, 0);
         System.out.println("\n--- Инициализация тестовых данных ---");
     }
 
@@ -45,19 +45,19 @@ public class TestRunner {
 
         // Создание счета
         account1 = bankService.createAccount("10001", "Интеграционный Тест", 1000.0);
-        assertNotNull(account1, "Счет должен быть создан");
-        assertEquals(1000.0, account1.getBalance(), 0.001, "Начальный баланс корректен");
+        assertEquals(account1, bankService.findAccountId("10001"), "Счет должен быть создан");
+        assertEquals(1000.0, bankService.getBalance(account1), 0.001, "Начальный баланс корректен");
 
         // Пополнение
-        account1.deposit(500.0);
-        assertEquals(1500.0, account1.getBalance(), 0.001, "Баланс после пополнения корректен");
+        bankService.deposit(account1, 500.0);
+        assertEquals(1500.0, bankService.getBalance(account1), 0.001, "Баланс после пополнения корректен");
 
         // Снятие
-        account1.withdraw(300.0);
-        assertEquals(1200.0, account1.getBalance(), 0.001, "Баланс после снятия корректен");
+        bankService.withdraw(account1, 300.0);
+        assertEquals(1200.0, bankService.getBalance(account1), 0.001, "Баланс после снятия корректен");
 
         // Проверка истории операций
-        var history = account1.getTransactionHistory();
+        var history = bankService.getTransactionHistory(account1);
         assertTrue(history.size() >= 3, "Должна быть история операций");
         assertTrue(history.get(history.size() - 1).contains("Withdrawn"), "Последняя операция - снятие");
 
@@ -77,11 +77,11 @@ public class TestRunner {
         double initialTotalBalance = bankService.getTotalBankBalance();
 
         // Перевод через сервис
-        bankService.transfer("20001", "20002", 1500.0);
+        bankService.transfer(account1, account2, 1500.0);
 
         // Проверка балансов
-        assertEquals(3500.0, account1.getBalance(), 0.001, "Баланс отправителя корректен");
-        assertEquals(2500.0, account2.getBalance(), 0.001, "Баланс получателя корректен");
+        assertEquals(3500.0, bankService.getBalance(account1), 0.001, "Баланс отправителя корректен");
+        assertEquals(2500.0, bankService.getBalance(account2), 0.001, "Баланс получателя корректен");
 
         // Проверка сохранения общей суммы
         assertEquals(initialTotalBalance, bankService.getTotalBankBalance(), 0.001,
@@ -101,12 +101,12 @@ public class TestRunner {
 
         // Попытка перевода суммы, превышающей баланс
         assertThrows(InsufficientFundsException.class, () -> {
-            bankService.transfer("30001", "30002", 1000.0);
+            bankService.transfer(account1, account2, 1000.0);
         }, "Должна быть ошибка недостаточных средств");
 
         // Проверка, что балансы не изменились после неудачного перевода
-        assertEquals(500.0, account1.getBalance(), 0.001, "Баланс не должен измениться после ошибки");
-        assertEquals(100.0, account2.getBalance(), 0.001, "Баланс не должен измениться после ошибки");
+        assertEquals(500.0, bankService.getBalance(account1), 0.001, "Баланс не должен измениться после ошибки");
+        assertEquals(100.0, bankService.getBalance(account2), 0.001, "Баланс не должен измениться после ошибки");
 
         // Попытка создания счета с дублирующим номером
         assertThrows(IllegalArgumentException.class, () -> {
@@ -124,7 +124,7 @@ public class TestRunner {
 
         // Создание 10 счетов
         for (int i = 1; i <= 10; i++) {
-            bankService.createAccount("ACC" + i, "Клиент " + i, i * 1000.0);
+            bankService.createAccount("4000" + i, "Клиент " + i, i * 1000.0);
         }
 
         assertEquals(10, bankService.getAccountsCount(), "Должно быть 10 счетов");
@@ -136,7 +136,8 @@ public class TestRunner {
 
         // Серия переводов
         for (int i = 1; i < 10; i++) {
-            bankService.transfer("ACC" + i, "ACC" + (i + 1), 100.0);
+            bankService.transfer(bankService.findAccountId("4000" + i), bankService.findAccountId("4000" + (i + 1)),
+                    100.0);
         }
 
         System.out.println("✓ Работа с множеством счетов завершена успешно");
@@ -150,25 +151,26 @@ public class TestRunner {
         System.out.println("Тест: Сложная бизнес-логика");
 
         // Создание сложной структуры счетов
-        BankAccount savings = bankService.createAccount("SAV001", "Сберегательный счет", 10000.0);
-        BankAccount current = bankService.createAccount("CUR001", "Текущий счет", 5000.0);
-        BankAccount investment = bankService.createAccount("INV001", "Инвестиционный счет", 20000.0);
+        int savings = bankService.createAccount("5001", "Сберегательный счет", 10000.0);
+        int current = bankService.createAccount("5002", "Текущий счет", 5000.0);
+        int investment = bankService.createAccount("5003", "Инвестиционный счет", 20000.0);
 
         // Сложная последовательность операций
-        savings.withdraw(3000.0);
-        current.deposit(3000.0);
+        bankService.withdraw(savings, 3000.0);
+        bankService.deposit(current, 3000.0);
 
-        bankService.transfer("CUR001", "INV001", 2000.0);
-        investment.withdraw(5000.0);
-        current.deposit(5000.0);
+        bankService.transfer(current, investment, 2000.0);
+        bankService.withdraw(investment, 5000.0);
+        bankService.deposit(current, 5000.0);
 
         // Проверка конечных балансов
-        assertEquals(7000.0, savings.getBalance(), 0.001, "Сберегательный счет");
-        assertEquals(11000.0, current.getBalance(), 0.001, "Текущий счет");
-        assertEquals(17000.0, investment.getBalance(), 0.001, "Инвестиционный счет");
+        assertEquals(7000.0, bankService.getBalance(savings), 0.001, "Сберегательный счет");
+        assertEquals(11000.0, bankService.getBalance(current), 0.001, "Текущий счет");
+        assertEquals(17000.0, bankService.getBalance(investment), 0.001, "Инвестиционный счет");
 
         // Проверка общей целостности
-        double total = savings.getBalance() + current.getBalance() + investment.getBalance();
+        double total = bankService.getBalance(savings) + bankService.getBalance(current)
+                + bankService.getBalance(investment);
         assertEquals(35000.0, total, 0.001, "Общая сумма должна сохраняться");
 
         System.out.println("✓ Сложная бизнес-логика реализована корректно");
@@ -181,20 +183,20 @@ public class TestRunner {
         System.out.println("Тест: Пограничные случаи");
 
         // Создание счета с нулевым балансом
-        BankAccount zeroAccount = bankService.createAccount("ZERO01", "Нулевой счет", 0.0);
-        assertEquals(0.0, zeroAccount.getBalance(), 0.001, "Нулевой баланс");
+        int zeroAccount = bankService.createAccount("6001", "Нулевой счет", 0.0);
+        assertEquals(0.0, bankService.getBalance(zeroAccount), 0.001, "Нулевой баланс");
 
         // Пополнение на минимальную сумму
-        zeroAccount.deposit(0.01);
-        assertEquals(0.01, zeroAccount.getBalance(), 0.001, "Минимальное пополнение");
+        bankService.deposit(zeroAccount, 0.01);
+        assertEquals(0.01, bankService.getBalance(zeroAccount), 0.001, "Минимальное пополнение");
 
         // Снятие всей суммы
-        zeroAccount.withdraw(0.01);
-        assertEquals(0.0, zeroAccount.getBalance(), 0.001, "Полное снятие");
+        bankService.withdraw(zeroAccount, 0.01);
+        assertEquals(0.0, bankService.getBalance(zeroAccount), 0.001, "Полное снятие");
 
         // Создание счета с очень большим балансом
-        BankAccount largeAccount = bankService.createAccount("LARGE01", "Большой счет", 1_000_000.0);
-        assertEquals(1_000_000.0, largeAccount.getBalance(), 0.001, "Большой баланс");
+        int largeAccount = bankService.createAccount("6002", "Большой счет", 1_000_000.0);
+        assertEquals(1_000_000.0, bankService.getBalance(largeAccount), 0.001, "Большой баланс");
 
         System.out.println("✓ Пограничные случаи обработаны корректно");
     }
@@ -208,7 +210,7 @@ public class TestRunner {
 
         @BeforeEach
         void setUpNested() {
-            nestedBankService = new BankService();
+            nestedBankService = new BankService(0, 0);
             System.out.println("Подготовка вложенных тестов...");
         }
 
@@ -218,17 +220,17 @@ public class TestRunner {
             System.out.println("Тест цепочки переводов");
 
             // Создание цепочки счетов
-            BankAccount a = nestedBankService.createAccount("A", "A", 1000.0);
-            BankAccount b = nestedBankService.createAccount("B", "B", 1000.0);
-            BankAccount c = nestedBankService.createAccount("C", "C", 1000.0);
+            int a = nestedBankService.createAccount("7001", "A", 1000.0);
+            int b = nestedBankService.createAccount("7002", "B", 1000.0);
+            int c = nestedBankService.createAccount("7003", "C", 1000.0);
 
             // Цепочка переводов: A -> B -> C
-            nestedBankService.transfer("A", "B", 500.0);
-            nestedBankService.transfer("B", "C", 300.0);
+            nestedBankService.transfer(a, b, 500.0);
+            nestedBankService.transfer(b, c, 300.0);
 
-            assertEquals(500.0, a.getBalance(), 0.001);
-            assertEquals(1200.0, b.getBalance(), 0.001);
-            assertEquals(1300.0, c.getBalance(), 0.001);
+            assertEquals(500.0, nestedBankService.getBalance(a), 0.001);
+            assertEquals(1200.0, nestedBankService.getBalance(b), 0.001);
+            assertEquals(1300.0, nestedBankService.getBalance(c), 0.001);
         }
 
         @Test
@@ -236,15 +238,15 @@ public class TestRunner {
         void testCircularDependencies() {
             System.out.println("Тест циклических зависимостей");
 
-            BankAccount x = nestedBankService.createAccount("X", "X", 1000.0);
-            BankAccount y = nestedBankService.createAccount("Y", "Y", 1000.0);
+            int x = nestedBankService.createAccount("8001", "X", 1000.0);
+            int y = nestedBankService.createAccount("8002", "Y", 1000.0);
 
             // Взаимные переводы
-            nestedBankService.transfer("X", "Y", 200.0);
-            nestedBankService.transfer("Y", "X", 100.0);
+            nestedBankService.transfer(x, y, 200.0);
+            nestedBankService.transfer(y, x, 100.0);
 
-            assertEquals(900.0, x.getBalance(), 0.001);
-            assertEquals(1100.0, y.getBalance(), 0.001);
+            assertEquals(900.0, nestedBankService.getBalance(x), 0.001);
+            assertEquals(1100.0, nestedBankService.getBalance(y), 0.001);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionJournalTest {
+
+    @Test
+    void testTransactionHistory() {
+        BankService bankService = new BankService(2, 1000.0);
+        bankService.deposit(0, 200.0);
+        bankService.withdraw(0, 100.0);
+        bankService.transfer(0, 1, 50.0);
+
+        List<String> history = bankService.getTransactionHistory(0);
+        assertEquals(4, history.size()); // Initial + deposit + withdraw + transfer
+        assertEquals("Initial deposit: $1000.00", history.get(0));
+        assertEquals("Deposited: $200.00", history.get(1));
+        assertEquals("Withdrawn: $100.00", history.get(2));
+        assertEquals("Transferred to 1: $50.00", history.get(3));
+        assertEquals("Received from 0: $50.00", bankService.getTransactionHistory(1).get(1));
+    }
+
+    @Test
+    void testFailedOperationIsNotRecorded() {
+        BankService bankService = new BankService(2, 100.0);
+        assertThrows(InsufficientFundsException.class, () -> bankService.transfer(0, 1, 500.0));
+        assertEquals(1, bankService.getTransactionHistory(0).size());
+        assertEquals(1, bankService.getTransactionHistory(1).size());
+    }
+
+    @Test
+    void testRecordFields() {
+        TransactionJournal journal = new TransactionJournal();
+        long first = journal.append(7, TransactionJournal.DEPOSIT, 500L, TransactionJournal.NO_ACCOUNT,
+                1234L, 1500L, TransactionJournal.NO_RECORD);
+        long second = journal.append(7, TransactionJournal.TRANSFER_OUT, 200L, 9, 1240L, 1300L, first);
+
+        assertEquals(2, journal.size());
+        assertEquals(7, journal.getAccountId(second));
+        assertEquals(TransactionJournal.TRANSFER_OUT, journal.getType(second));
+        assertEquals(200L, journal.getAmount(second));
+        assertEquals(9, journal.getCounterparty(second));
+        assertEquals(1240L, journal.getTimestamp(second));
+        assertEquals(1300L, journal.getBalanceAfter(second));
+        assertEquals(first, journal.getPrevious(second));
+    }
+
+    @Test
+    void testMappedJournalReopen(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("journal.bin");
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            for (int i = 0; i < 70_000; i++) { // больше одного сегмента
+                journal.append(i, TransactionJournal.DEPOSIT, i, TransactionJournal.NO_ACCOUNT,
+                        i, i, TransactionJournal.NO_RECORD);
+            }
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(file)) {
+            assertEquals(70_000, journal.size());
+            assertEquals(69_999L, journal.getAmount(69_999));
+            assertEquals("Deposited: $0.05", journal.describe(5, new StringBuilder()).toString());
+        }
+    }
+
+    @Test
+    void testHistoryPagesFollowFullHistory() {
+        BankService bankService = new BankService(2, 1000.0);
+        for (int i = 0; i < 500; i++) {
+            bankService.deposit(0, 1.0);
+            if (i % 3 == 0) {
+                bankService.transfer(0, 1, 2.0);
+            }
+        }
+        List<String> full = bankService.getTransactionHistory(0);
+
+        List<String> paged = new ArrayList<>();
+        HistoryQuery query = HistoryQuery.latest(7);
+        while (true) {
+            HistoryPage page = bankService.getTransactionHistory(0, query);
+            assertTrue(page.entries().size() <= 7);
+            for (HistoryEntry entry : page.entries()) {
+                paged.add(0, entry.description());
+            }
+            if (!page.hasMore()) {
+                break;
+            }
+            query = query.after(page.nextCursor());
+        }
+        assertEquals(full, paged);
+
+        HistoryPage transfers = bankService.getTransactionHistory(0,
+                HistoryQuery.latest(1000).ofTypes(TransactionJournal.TRANSFER_OUT));
+        assertEquals(167, transfers.entries().size());
+        assertFalse(transfers.hasMore());
+        assertEquals("Transferred to 1: $2.00", transfers.entries().get(0).description());
+
+        HistoryPage received = bankService.getTransactionHistory(1, HistoryQuery.latest(1));
+        assertEquals(TransactionJournal.TRANSFER_IN, received.entries().get(0).type());
+        assertThrows(IllegalArgumentException.class,
+                () -> bankService.getTransactionHistory(0, HistoryQuery.latest(5).after(received.nextCursor())));
+    }
+
+    @Test
+    void testFindPreviousMatchesLinearScan() {
+        TransactionJournal journal = new TransactionJournal();
+        Random random = new Random(7);
+        byte[] types = {TransactionJournal.DEPOSIT, TransactionJournal.WITHDRAW, TransactionJournal.INTEREST};
+        long[] heads = {TransactionJournal.NO_RECORD, TransactionJournal.NO_RECORD};
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < 5_000; i++) {
+            int account = random.nextInt(2);
+            time += random.nextInt(5_000);
+            byte type = random.nextInt(20) == 0 ? TransactionJournal.INTEREST : types[random.nextInt(2)];
+            // начисление процентов датируется концом периода, то есть может быть в прошлом
+            long timestamp = type == TransactionJournal.INTEREST ? time - random.nextInt(3_600_000) : time;
+            heads[account] = journal.append(account, type, i, TransactionJournal.NO_ACCOUNT, timestamp, i, heads[account]);
+        }
+
+        for (int q = 0; q < 300; q++) {
+            int account = q & 1;
+            int mask = 0;
+            while (mask == 0) {
+                for (byte type : types) {
+                    if (random.nextBoolean()) {
+                        mask |= TransactionJournal.typeBit(type);
+                    }
+                }
+            }
+            long from = time - random.nextInt(12_000_000);
+            long to = from + random.nextInt(2_000_000);
+            long expected = heads[account];
+            long actual = heads[account];
+            for (int k = 0; k < 5 && expected != TransactionJournal.NO_RECORD; k++) {
+                while (expected != TransactionJournal.NO_RECORD
+                        && !((TransactionJournal.typeBit(journal.getType(expected)) & mask) != 0
+                        && journal.getTimestamp(expected) >= from && journal.getTimestamp(expected) <= to)) {
+                    expected = journal.getPrevious(expected);
+                }
+                actual = journal.findPrevious(actual, mask, from, to);
+                assertEquals(expected, actual);
+                if (expected != TransactionJournal.NO_RECORD) {
+                    expected = journal.getPrevious(expected);
+                    actual = journal.getPrevious(actual);
+                }
+            }
+        }
+        assertEquals(journal.getSequence(heads[0]) + journal.getSequence(heads[1]) + 2, journal.size());
+    }
+}
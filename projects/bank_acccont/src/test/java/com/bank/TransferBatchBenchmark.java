@@ -0,0 +1,50 @@
+package com.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Сравнение пакетного перевода с циклом по transfer
+ * Запуск: java TransferBatchBenchmark [счетов] [переводов] [размер пакета]
+ */
+public class TransferBatchBenchmark {
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int transfers = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+        int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        Random random = new Random(42);
+        List<TransferRequest> requests = new ArrayList<>(transfers);
+        for (int i = 0; i < transfers; i++) {
+            int from = random.nextInt(accounts);
+            int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+            requests.add(new TransferRequest(from, to, 1 + random.nextInt(10_000)));
+        }
+
+        for (int round = 0; round < 3; round++) {
+            BankService loop = new BankService(accounts, 1000.0);
+            long start = System.nanoTime();
+            for (TransferRequest request : requests) {
+                try {
+                    loop.transferCents(request.fromId(), request.toId(), request.amount());
+                } catch (InsufficientFundsException e) {
+                    // учитывается так же, как отказ в пакете
+                }
+            }
+            long loopNanos = System.nanoTime() - start;
+
+            BankService batch = new BankService(accounts, 1000.0);
+            start = System.nanoTime();
+            for (int from = 0; from < transfers; from += batchSize) {
+                batch.transferBatch(requests.subList(from, Math.min(transfers, from + batchSize)),
+                        BatchMode.PER_ITEM, false);
+            }
+            long batchNanos = System.nanoTime() - start;
+
+            System.out.printf("Раунд %d: transfer %.0f оп/с, transferBatch(%d) %.0f оп/с%n", round,
+                    transfers * 1e9 / loopNanos, batchSize, transfers * 1e9 / batchNanos);
+        }
+    }
+}
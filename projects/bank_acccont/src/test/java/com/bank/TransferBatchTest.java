@@ -0,0 +1,66 @@
+package com.bank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferBatchTest {
+
+    @Test
+    void testPerItemBatch() {
+        BankService bankService = new BankService(3, 100.0);
+        TransferResult[] results = bankService.transferBatch(List.of(
+                new TransferRequest(0, 1, 6_000L),
+                new TransferRequest(0, 2, 6_000L),   // после первого осталось 40.00
+                new TransferRequest(1, 7, 100L),
+                new TransferRequest(2, 0, 0L),
+                new TransferRequest(1, 2, 16_000L)), BatchMode.PER_ITEM, false);
+
+        assertArrayEquals(new TransferResult[]{TransferResult.OK, TransferResult.INSUFFICIENT_FUNDS,
+                TransferResult.UNKNOWN_ACCOUNT, TransferResult.INVALID_AMOUNT, TransferResult.OK}, results);
+        assertEquals(4_000L, bankService.getBalanceCents(0));
+        assertEquals(0L, bankService.getBalanceCents(1));
+        assertEquals(26_000L, bankService.getBalanceCents(2));
+        assertEquals("Transferred to 2: $160.00", bankService.getTransactionHistory(1).get(2));
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testAllOrNothingRollsBack() {
+        BankService bankService = new BankService(2, 100.0);
+        TransferResult[] results = bankService.transferBatch(List.of(
+                new TransferRequest(0, 1, 5_000L),
+                new TransferRequest(0, 1, 6_000L)), BatchMode.ALL_OR_NOTHING, false);
+
+        assertArrayEquals(new TransferResult[]{TransferResult.ABORTED, TransferResult.INSUFFICIENT_FUNDS}, results);
+        assertEquals(10_000L, bankService.getBalanceCents(0));
+        assertEquals(10_000L, bankService.getBalanceCents(1));
+        assertEquals(1, bankService.getTransactionHistory(0).size());
+    }
+
+    @Test
+    void testNettingAllowsOffsettingFlows() {
+        BankService bankService = new BankService(2, 100.0);
+        List<TransferRequest> requests = List.of(
+                new TransferRequest(0, 1, 15_000L),  // без взаимозачёта не хватает средств
+                new TransferRequest(1, 0, 10_000L));
+
+        TransferResult[] withoutNetting = bankService.transferBatch(requests, BatchMode.ALL_OR_NOTHING, false);
+        assertEquals(TransferResult.INSUFFICIENT_FUNDS, withoutNetting[0]);
+
+        TransferResult[] withNetting = bankService.transferBatch(requests, BatchMode.ALL_OR_NOTHING, true);
+        assertArrayEquals(new TransferResult[]{TransferResult.OK, TransferResult.OK}, withNetting);
+        assertEquals(5_000L, bankService.getBalanceCents(0));
+        assertEquals(15_000L, bankService.getBalanceCents(1));
+        bankService.checkAggregates();
+    }
+
+    @Test
+    void testNettingRequiresAllOrNothing() {
+        BankService bankService = new BankService(2, 100.0);
+        assertThrows(IllegalArgumentException.class,
+                () -> bankService.transferBatch(List.of(), BatchMode.PER_ITEM, true));
+    }
+}